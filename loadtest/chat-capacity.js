@@ -0,0 +1,76 @@
+// Concurrent-chat capacity test (k6)
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<access token> loadtest/chat-capacity.js
+//
+// Run it once per execution mode (platform threads / virtual threads) against the same
+// database and the same OpenAI stub (loadtest/openai_stub.py), then compare the summaries.
+// See docs/LOAD_TEST.md.
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend, Rate } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const MAX_VUS = parseInt(__ENV.MAX_VUS || '400');
+const STEP_DURATION = __ENV.STEP_DURATION || '1m';
+const ENDPOINT = __ENV.ENDPOINT || '/api/chat/sessions/messages';
+
+const chatLatency = new Trend('chat_latency', true);
+const chatErrors = new Rate('chat_errors');
+
+const QUESTIONS = [
+    'Người lao động được nghỉ phép năm bao nhiêu ngày?',
+    'Điều kiện kết hôn theo pháp luật Việt Nam là gì?',
+    'Thời hạn của hợp đồng lao động xác định thời hạn tối đa là bao lâu?',
+    'Mức phạt khi vượt đèn đỏ đối với xe máy là bao nhiêu?',
+    'Thủ tục ly hôn thuận tình gồm những bước nào?',
+];
+
+// Step the number of concurrent chats up to MAX_VUS; capacity = highest step that still
+// meets the thresholds below
+export const options = {
+    scenarios: {
+        concurrent_chats: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: STEP_DURATION, target: Math.round(MAX_VUS / 8) },
+                { duration: STEP_DURATION, target: Math.round(MAX_VUS / 4) },
+                { duration: STEP_DURATION, target: Math.round(MAX_VUS / 2) },
+                { duration: STEP_DURATION, target: MAX_VUS },
+                { duration: '30s', target: 0 },
+            ],
+            gracefulRampDown: '30s',
+        },
+    },
+    thresholds: {
+        chat_errors: ['rate<0.01'],
+        chat_latency: ['p(95)<15000'],
+    },
+};
+
+export function setup() {
+    if (!TOKEN) {
+        throw new Error('TOKEN is required (access token of a test account with chat credits)');
+    }
+}
+
+export default function () {
+    const question = QUESTIONS[Math.floor(Math.random() * QUESTIONS.length)];
+    const res = http.post(`${BASE_URL}${ENDPOINT}`, JSON.stringify({ question }), {
+        headers: {
+            'Content-Type': 'application/json',
+            'Authorization': `Bearer ${TOKEN}`,
+        },
+        timeout: '200s',
+    });
+
+    const ok = check(res, {
+        'status is 200': (r) => r.status === 200,
+        'has answer': (r) => r.status === 200 && !!r.json('assistantMessage.content'),
+    });
+
+    chatLatency.add(res.timings.duration);
+    chatErrors.add(!ok);
+}
@@ -0,0 +1,96 @@
+"""
+Minimal OpenAI-compatible stub for load tests (no API cost, fixed latency).
+
+    python3 loadtest/openai_stub.py --port 9090 --chat-latency 3.0 --embedding-latency 0.2
+    OPENAI_BASE_URL=http://localhost:9090 mvn spring-boot:run
+
+Serves /v1/chat/completions (plain and stream=true) and /v1/embeddings.
+The latency simulates time spent waiting on the model, which is what ties up
+request threads in the real system.
+"""
+import argparse
+import json
+import math
+import random
+import time
+from http.server import BaseHTTPRequestHandler, ThreadingHTTPServer
+
+ANSWER = ("Theo quy định tại Điều 113 Bộ luật Lao động 2019, người lao động làm việc đủ 12 tháng "
+          "được nghỉ hằng năm, hưởng nguyên lương 12 ngày làm việc.")
+
+
+class Handler(BaseHTTPRequestHandler):
+    protocol_version = "HTTP/1.1"
+
+    def log_message(self, fmt, *args):
+        pass
+
+    def do_POST(self):
+        length = int(self.headers.get("Content-Length", 0))
+        body = json.loads(self.rfile.read(length) or b"{}")
+
+        if self.path.endswith("/v1/embeddings"):
+            time.sleep(self.server.embedding_latency)
+            inputs = body.get("input")
+            inputs = inputs if isinstance(inputs, list) else [inputs]
+            dims = body.get("dimensions", 1536)
+            data = [{"object": "embedding", "index": i, "embedding": random_unit_vector(dims)}
+                    for i in range(len(inputs))]
+            self.send_json({"object": "list", "data": data})
+        elif self.path.endswith("/v1/chat/completions"):
+            if body.get("stream"):
+                self.stream_answer()
+            else:
+                time.sleep(self.server.chat_latency)
+                self.send_json({"choices": [{"index": 0, "message": {"role": "assistant", "content": ANSWER}}]})
+        else:
+            self.send_error(404)
+
+    def send_json(self, payload):
+        data = json.dumps(payload).encode("utf-8")
+        self.send_response(200)
+        self.send_header("Content-Type", "application/json")
+        self.send_header("Content-Length", str(len(data)))
+        self.end_headers()
+        self.wfile.write(data)
+
+    def stream_answer(self):
+        self.send_response(200)
+        self.send_header("Content-Type", "text/event-stream")
+        self.send_header("Connection", "close")
+        self.end_headers()
+        words = ANSWER.split(" ")
+        delay = self.server.chat_latency / max(len(words), 1)
+        for word in words:
+            time.sleep(delay)
+            chunk = {"choices": [{"index": 0, "delta": {"content": word + " "}}]}
+            self.wfile.write(f"data: {json.dumps(chunk)}\n\n".encode("utf-8"))
+            self.wfile.flush()
+        self.wfile.write(b"data: [DONE]\n\n")
+        self.wfile.flush()
+        self.close_connection = True
+
+
+def random_unit_vector(dims):
+    v = [random.gauss(0, 1) for _ in range(dims)]
+    norm = math.sqrt(sum(x * x for x in v)) or 1.0
+    return [x / norm for x in v]
+
+
+def main():
+    parser = argparse.ArgumentParser()
+    parser.add_argument("--port", type=int, default=9090)
+    parser.add_argument("--chat-latency", type=float, default=3.0)
+    parser.add_argument("--embedding-latency", type=float, default=0.2)
+    args = parser.parse_args()
+
+    server = ThreadingHTTPServer(("0.0.0.0", args.port), Handler)
+    server.daemon_threads = True
+    server.chat_latency = args.chat_latency
+    server.embedding_latency = args.embedding_latency
+    print(f"OpenAI stub on :{args.port} (chat {args.chat_latency}s, embeddings {args.embedding_latency}s)")
+    server.serve_forever()
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,71 @@
+package com.htai.exe201phapluatso.ai.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * In-Memory LRU implementation của QueryEmbeddingStore
+ * Giới hạn số entry (LRU eviction) + TTL cho từng entry
+ */
+@Component
+public class InMemoryQueryEmbeddingStore implements QueryEmbeddingStore {
+
+    private final int maxSize;
+    private final Map<String, Entry> entries;
+
+    public InMemoryQueryEmbeddingStore(@Value("${embedding.query-cache.max-size:2000}") int maxSize) {
+        this.maxSize = maxSize;
+        // accessOrder = true: get() moves the entry to the tail, eldest = least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > InMemoryQueryEmbeddingStore.this.maxSize;
+            }
+        };
+    }
+
+    @Override
+    public synchronized Optional<float[]> get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        if (entry.expiresAtMillis() < System.currentTimeMillis()) {
+            entries.remove(key);
+            return Optional.empty();
+        }
+        return Optional.of(entry.embedding());
+    }
+
+    @Override
+    public synchronized void put(String key, float[] embedding, Duration ttl) {
+        entries.put(key, new Entry(embedding, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    /**
+     * Remove expired entries
+     * @return Số entry đã xóa
+     */
+    public synchronized int cleanupExpired() {
+        long now = System.currentTimeMillis();
+        int beforeSize = entries.size();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() < now);
+        return beforeSize - entries.size();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    private record Entry(float[] embedding, long expiresAtMillis) {
+    }
+}
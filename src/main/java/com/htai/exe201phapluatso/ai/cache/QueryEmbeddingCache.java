@@ -0,0 +1,192 @@
+package com.htai.exe201phapluatso.ai.cache;
+
+import com.htai.exe201phapluatso.common.HashUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache cho embedding của câu hỏi chat
+ * L1: In-Memory LRU + TTL (luôn có), L2: Redis (nếu khả dụng, dùng chung giữa các instance)
+ *
+ * Key = hash của câu hỏi đã normalize (lowercase, bỏ dấu câu, gộp khoảng trắng)
+ * nên các câu hỏi giống nhau / gần giống nhau dùng chung một embedding.
+ */
+@Component
+public class QueryEmbeddingCache {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryEmbeddingCache.class);
+    private static final long REDIS_BACKOFF_MILLIS = 60_000;
+
+    private final InMemoryQueryEmbeddingStore inMemoryStore;
+    private final RedisQueryEmbeddingStore redisStore;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong redisHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong redisErrors = new AtomicLong();
+
+    // Sau khi Redis lỗi, bỏ qua tier Redis một lúc để không chờ timeout ở mỗi câu hỏi
+    private volatile long redisRetryAfterMillis = 0;
+
+    @Value("${embedding.query-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${embedding.query-cache.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${embedding.query-cache.ttl-minutes:60}")
+    private long ttlMinutes;
+
+    @Autowired
+    public QueryEmbeddingCache(
+            InMemoryQueryEmbeddingStore inMemoryStore,
+            @Autowired(required = false) RedisQueryEmbeddingStore redisStore
+    ) {
+        this.inMemoryStore = inMemoryStore;
+        this.redisStore = redisStore;
+    }
+
+    /**
+     * Get embedding from cache, or compute it with the loader and cache the result
+     *
+     * @param question Raw question text (the loader receives it unchanged)
+     * @param loader   Embedding call used on cache miss
+     */
+    public float[] getOrCompute(String question, Function<String, float[]> loader) {
+        if (!enabled) {
+            return loader.apply(question);
+        }
+
+        String key = buildKey(question);
+
+        Optional<float[]> cached = inMemoryStore.get(key);
+        if (cached.isPresent()) {
+            memoryHits.incrementAndGet();
+            return cached.get();
+        }
+
+        cached = getFromRedis(key);
+        if (cached.isPresent()) {
+            redisHits.incrementAndGet();
+            inMemoryStore.put(key, cached.get(), ttl());
+            return cached.get();
+        }
+
+        misses.incrementAndGet();
+        float[] embedding = loader.apply(question);
+        inMemoryStore.put(key, embedding, ttl());
+        putToRedis(key, embedding);
+        return embedding;
+    }
+
+    /**
+     * Normalize question text: lowercase, strip punctuation, collapse whitespace.
+     * Same rules as keyword extraction, except digits are kept ("Điều 5" != "Điều 6").
+     */
+    public static String normalize(String question) {
+        if (question == null) {
+            return "";
+        }
+        return question.toLowerCase()
+                .replaceAll("[^\\p{L}\\p{N}\\s]", " ")
+                .trim()
+                .replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Cache statistics (for admin monitoring)
+     */
+    public Map<String, Object> getStats() {
+        long hits = memoryHits.get() + redisHits.get();
+        long total = hits + misses.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("redisTier", isRedisEnabled());
+        stats.put("memoryHits", memoryHits.get());
+        stats.put("redisHits", redisHits.get());
+        stats.put("misses", misses.get());
+        stats.put("redisErrors", redisErrors.get());
+        stats.put("hitRatePercent", total > 0 ? Math.round((double) hits / total * 10000) / 100.0 : 0);
+        stats.put("memoryEntries", inMemoryStore.size());
+        stats.put("memoryMaxEntries", inMemoryStore.getMaxSize());
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    /**
+     * Hits of either tier (in-memory or Redis)
+     */
+    public long hitCount() {
+        return memoryHits.get() + redisHits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    /**
+     * Cleanup expired in-memory entries
+     * Runs every 10 minutes
+     */
+    @Scheduled(fixedRate = 600000)
+    public void cleanupExpired() {
+        int removed = inMemoryStore.cleanupExpired();
+        if (removed > 0) {
+            log.debug("Removed {} expired query embeddings from in-memory cache", removed);
+        }
+    }
+
+    private String buildKey(String question) {
+        return HashUtil.sha256Base64(normalize(question));
+    }
+
+    private Optional<float[]> getFromRedis(String key) {
+        if (!isRedisEnabled() || System.currentTimeMillis() < redisRetryAfterMillis) {
+            return Optional.empty();
+        }
+        try {
+            return redisStore.get(key);
+        } catch (Exception e) {
+            onRedisError(e);
+            return Optional.empty();
+        }
+    }
+
+    private void putToRedis(String key, float[] embedding) {
+        if (!isRedisEnabled() || System.currentTimeMillis() < redisRetryAfterMillis) {
+            return;
+        }
+        try {
+            redisStore.put(key, embedding, ttl());
+        } catch (Exception e) {
+            onRedisError(e);
+        }
+    }
+
+    private void onRedisError(Exception e) {
+        redisErrors.incrementAndGet();
+        redisRetryAfterMillis = System.currentTimeMillis() + REDIS_BACKOFF_MILLIS;
+        log.warn("Redis query embedding cache unavailable, using in-memory only for {}s: {}",
+                REDIS_BACKOFF_MILLIS / 1000, e.getMessage());
+    }
+
+    private boolean isRedisEnabled() {
+        return redisEnabled && redisStore != null;
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(ttlMinutes);
+    }
+}
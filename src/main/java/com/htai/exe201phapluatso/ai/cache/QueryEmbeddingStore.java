@@ -0,0 +1,26 @@
+package com.htai.exe201phapluatso.ai.cache;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Interface cho query embedding cache storage
+ * Hỗ trợ In-Memory (L1, luôn có) và Redis (L2, dùng chung giữa các instance)
+ */
+public interface QueryEmbeddingStore {
+
+    /**
+     * Get cached embedding
+     * @param key Normalized question key
+     * @return Optional chứa embedding nếu tồn tại và chưa expired
+     */
+    Optional<float[]> get(String key);
+
+    /**
+     * Save embedding với TTL
+     * @param key Normalized question key
+     * @param embedding Embedding vector
+     * @param ttl Time-to-live
+     */
+    void put(String key, float[] embedding, Duration ttl);
+}
@@ -0,0 +1,59 @@
+package com.htai.exe201phapluatso.ai.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Redis implementation của QueryEmbeddingStore
+ * Embedding được lưu dạng Base64 của float32 little-endian (~8KB / vector 1536 chiều)
+ */
+@Component
+@ConditionalOnProperty(name = "spring.data.redis.host")
+public class RedisQueryEmbeddingStore implements QueryEmbeddingStore {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisQueryEmbeddingStore.class);
+    private static final String KEY_PREFIX = "embedding:query:";
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisQueryEmbeddingStore(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public Optional<float[]> get(String key) {
+        String value = redisTemplate.opsForValue().get(KEY_PREFIX + key);
+        if (value == null) {
+            return Optional.empty();
+        }
+        return Optional.of(decode(value));
+    }
+
+    @Override
+    public void put(String key, float[] embedding, Duration ttl) {
+        redisTemplate.opsForValue().set(KEY_PREFIX + key, encode(embedding), ttl);
+        log.debug("Saved query embedding to Redis: {}{}", KEY_PREFIX, key);
+    }
+
+    static String encode(float[] embedding) {
+        ByteBuffer buffer = ByteBuffer.allocate(embedding.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(embedding);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    static float[] decode(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(value)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] embedding = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(embedding);
+        return embedding;
+    }
+}
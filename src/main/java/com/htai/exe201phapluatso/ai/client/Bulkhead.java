@@ -0,0 +1,188 @@
+package com.htai.exe201phapluatso.ai.client;
+
+import com.htai.exe201phapluatso.common.exception.RateLimitExceededException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking bulkhead: caps concurrent calls without parking threads
+ *
+ * A caller without a free permit is queued (bounded) and resumed when a permit is released,
+ * so waiting costs a queue entry, not a thread. Permits are released on success, error and cancel.
+ *
+ * Each permit has exactly one owner at a time: the queue (WAITING), the caller it was handed to
+ * (GRANTED), the call that claimed it (CLAIMED). A caller that times out or is cancelled before
+ * its call claimed the permit gives it back, so a permit released at that moment is never lost.
+ *
+ * Overload (queue full, or no permit within the acquire timeout) fails with RateLimitExceededException,
+ * i.e. 429 + Retry-After: the request was fine, the caller should come back shortly.
+ */
+class Bulkhead {
+
+    private static final int WAITING = 0;
+    private static final int GRANTED = 1;
+    private static final int CLAIMED = 2;
+    private static final int CANCELLED = 3;
+    // Permits free up as calls end, so a short retry is enough
+    private static final long RETRY_AFTER_SECONDS = 5;
+
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final AtomicInteger available;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong rejected = new AtomicLong();
+    private final Queue<Permit> waiters = new ConcurrentLinkedQueue<>();
+
+    Bulkhead(int maxConcurrent, int maxQueued) {
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.available = new AtomicInteger(maxConcurrent);
+    }
+
+    <T> Mono<T> withPermit(Duration acquireTimeout, Supplier<Mono<T>> call) {
+        return acquire(acquireTimeout).flatMap(permit -> {
+            if (!permit.claim()) {
+                return Mono.empty();
+            }
+            Runnable release = releaseOnce();
+            return Mono.defer(call).doOnTerminate(release).doOnCancel(release);
+        });
+    }
+
+    <T> Flux<T> withPermitMany(Duration acquireTimeout, Supplier<Flux<T>> call) {
+        return acquire(acquireTimeout).flatMapMany(permit -> {
+            if (!permit.claim()) {
+                return Flux.empty();
+            }
+            Runnable release = releaseOnce();
+            return Flux.defer(call).doOnTerminate(release).doOnCancel(release);
+        });
+    }
+
+    int getMaxConcurrent() { return maxConcurrent; }
+    int getInFlight() { return maxConcurrent - Math.max(available.get(), 0); }
+    int getQueued() { return queued.get(); }
+    long getRejected() { return rejected.get(); }
+
+    private Mono<Permit> acquire(Duration timeout) {
+        return Mono.create(sink -> {
+            Permit permit = new Permit(sink);
+            if (tryAcquire()) {
+                permit.state.set(GRANTED);
+                sink.onCancel(() -> abandon(permit));
+                sink.success(permit);
+                return;
+            }
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                sink.error(overloaded());
+                return;
+            }
+            waiters.add(permit);
+            sink.onCancel(() -> abandon(permit));
+            // The timeout competes with release() on the permit state, like a cancel
+            Disposable timer = Schedulers.parallel().schedule(() -> {
+                if (leaveQueue(permit)) {
+                    sink.error(overloaded());
+                }
+            }, timeout.toMillis(), TimeUnit.MILLISECONDS);
+            sink.onDispose(timer);
+            // A permit may have been released between tryAcquire and enqueue
+            if (tryAcquire()) {
+                release();
+            }
+        });
+    }
+
+    private RateLimitExceededException overloaded() {
+        return new RateLimitExceededException("Hệ thống AI đang quá tải, vui lòng thử lại sau",
+                RETRY_AFTER_SECONDS, maxConcurrent);
+    }
+
+    /**
+     * Cancelled caller: leave the queue, or give back a permit handed over but not claimed by the call
+     * (the cancelled sink drops it)
+     */
+    private void abandon(Permit permit) {
+        if (!leaveQueue(permit) && permit.state.compareAndSet(GRANTED, CANCELLED)) {
+            release();
+        }
+    }
+
+    private boolean leaveQueue(Permit permit) {
+        if (!permit.state.compareAndSet(WAITING, CANCELLED)) {
+            return false;
+        }
+        waiters.remove(permit);
+        queued.decrementAndGet();
+        return true;
+    }
+
+    private boolean tryAcquire() {
+        while (true) {
+            int current = available.get();
+            if (current <= 0) {
+                return false;
+            }
+            if (available.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Release of one claimed permit: a call can both terminate and be cancelled
+     */
+    private Runnable releaseOnce() {
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                release();
+            }
+        };
+    }
+
+    /**
+     * Hand the permit to the next live waiter, or return it to the pool
+     */
+    private void release() {
+        Permit waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.state.compareAndSet(WAITING, GRANTED)) {
+                queued.decrementAndGet();
+                waiter.sink.success(waiter);
+                return;
+            }
+        }
+        available.incrementAndGet();
+    }
+
+    private static final class Permit {
+        final MonoSink<Permit> sink;
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Permit(MonoSink<Permit> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Taken by the call, which now releases it; false when the caller gave it back already
+         */
+        boolean claim() {
+            return state.compareAndSet(GRANTED, CLAIMED);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.htai.exe201phapluatso.ai.client;
+
+import com.htai.exe201phapluatso.common.exception.BadRequestException;
+import com.htai.exe201phapluatso.common.exception.RateLimitExceededException;
+import io.netty.channel.ChannelOption;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Shared non-blocking gateway for all OpenAI HTTP calls (chat completions, streaming, embeddings)
+ *
+ * - One Reactor Netty connection pool (keep-alive, bounded connections and pending acquires)
+ * - Bulkhead: at most max-concurrent upstream calls in flight, others wait (bounded queue)
+ * - Retry with exponential backoff + jitter on 429 / 5xx / connection errors, without parking threads
+ *
+ * Callers get Mono / Flux / CompletableFuture; blocking wrappers live in the services that need them.
+ */
+@Component
+public class OpenAIGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenAIGateway.class);
+
+    private static final int MAX_IN_MEMORY_SIZE = 32 * 1024 * 1024; // batch embedding responses are large
+
+    private final WebClient webClient;
+    private final ConnectionProvider connectionProvider;
+    private final Bulkhead bulkhead;
+
+    @Value("${ai.openai.api-key:}")
+    private String apiKey;
+
+    @Value("${ai.gateway.max-retries:2}")
+    private int maxRetries;
+
+    @Value("${ai.gateway.retry-min-backoff-ms:500}")
+    private long retryMinBackoffMillis;
+
+    @Value("${ai.gateway.retry-max-backoff-ms:8000}")
+    private long retryMaxBackoffMillis;
+
+    @Value("${ai.gateway.acquire-timeout-seconds:30}")
+    private long acquireTimeoutSeconds;
+
+    public OpenAIGateway(
+            WebClient.Builder webClientBuilder,
+            @Value("${ai.openai.base-url:https://api.openai.com}") String baseUrl,
+            @Value("${ai.gateway.max-connections:50}") int maxConnections,
+            @Value("${ai.gateway.max-concurrent:32}") int maxConcurrent,
+            @Value("${ai.gateway.max-queued:200}") int maxQueued,
+            @Value("${ai.gateway.connect-timeout-ms:10000}") int connectTimeoutMillis) {
+        this.connectionProvider = ConnectionProvider.builder("openai")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxQueued)
+                .pendingAcquireTimeout(Duration.ofSeconds(30))
+                .maxIdleTime(Duration.ofSeconds(30))
+                .maxLifeTime(Duration.ofMinutes(5))
+                .evictInBackground(Duration.ofSeconds(60))
+                .build();
+
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)
+                .keepAlive(true);
+
+        this.webClient = webClientBuilder.clone()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(MAX_IN_MEMORY_SIZE))
+                .defaultHeader("Content-Type", "application/json")
+                .build();
+        this.bulkhead = new Bulkhead(maxConcurrent, maxQueued);
+    }
+
+    /**
+     * POST a JSON body and return the raw response body
+     *
+     * @param url     OpenAI endpoint path (relative to ai.openai.base-url)
+     * @param body    Request body (serialized as JSON)
+     * @param timeout Timeout of a single attempt (retries get their own)
+     */
+    public Mono<String> postJson(String url, Object body, Duration timeout) {
+        return Mono.defer(() -> bulkhead.withPermit(acquireTimeout(), () -> webClient.post()
+                        .uri(url)
+                        .header("Authorization", "Bearer " + apiKey)
+                        .bodyValue(body)
+                        .retrieve()
+                        .bodyToMono(String.class)
+                        .timeout(timeout)))
+                .retryWhen(retrySpec(url))
+                .onErrorMap(this::toApiException);
+    }
+
+    /**
+     * Same as postJson, for callers composing with CompletableFuture
+     */
+    public CompletableFuture<String> postJsonAsync(String url, Object body, Duration timeout) {
+        return postJson(url, body, timeout).toFuture();
+    }
+
+    /**
+     * POST a JSON body and stream the text/event-stream response
+     * The bulkhead permit is held until the stream terminates or is cancelled.
+     * Only the connection phase is retried; a stream that already emitted is never replayed.
+     *
+     * @param idleTimeout Max wait for the next event
+     */
+    public Flux<ServerSentEvent<String>> streamEvents(String url, Object body, Duration idleTimeout) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return Flux.defer(() -> bulkhead.withPermitMany(acquireTimeout(), () -> webClient.post()
+                            .uri(url)
+                            .header("Authorization", "Bearer " + apiKey)
+                            .accept(MediaType.TEXT_EVENT_STREAM)
+                            .bodyValue(body)
+                            .retrieve()
+                            .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<String>>() {})
+                            .timeout(idleTimeout)))
+                    .doOnNext(event -> emitted.set(true))
+                    .retryWhen(retrySpec(url).filter(e -> !emitted.get() && isRetryable(e)))
+                    .onErrorMap(this::toApiException);
+        });
+    }
+
+    /**
+     * Gateway statistics (for admin monitoring)
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", bulkhead.getMaxConcurrent());
+        stats.put("inFlight", bulkhead.getInFlight());
+        stats.put("queued", bulkhead.getQueued());
+        stats.put("rejected", bulkhead.getRejected());
+        return stats;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        connectionProvider.disposeLater().block(Duration.ofSeconds(5));
+    }
+
+    private RetryBackoffSpec retrySpec(String url) {
+        return Retry.backoff(maxRetries, Duration.ofMillis(retryMinBackoffMillis))
+                .maxBackoff(Duration.ofMillis(retryMaxBackoffMillis))
+                .jitter(0.5)
+                .filter(this::isRetryable)
+                .doBeforeRetry(signal -> log.warn("OpenAI call to {} failed (attempt {}), retrying: {}",
+                        url, signal.totalRetries() + 1, signal.failure().getMessage()))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Retry on rate limit, server errors, connection errors and timeouts; never on other 4xx
+     */
+    private boolean isRetryable(Throwable e) {
+        if (e instanceof WebClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            return status == 429 || status >= 500;
+        }
+        return e instanceof WebClientRequestException || e instanceof TimeoutException;
+    }
+
+    private Throwable toApiException(Throwable e) {
+        if (e instanceof BadRequestException || e instanceof RateLimitExceededException) {
+            return e;
+        }
+        if (e instanceof WebClientResponseException responseException) {
+            // Don't log full body - may contain sensitive info
+            log.error("OpenAI API Error: status={}", responseException.getStatusCode());
+            return new BadRequestException("Lỗi OpenAI API: " + responseException.getStatusCode());
+        }
+        if (e instanceof TimeoutException) {
+            return new BadRequestException("OpenAI API không phản hồi kịp, vui lòng thử lại");
+        }
+        return new BadRequestException("Lỗi khi gọi OpenAI API: " + e.getMessage());
+    }
+
+    private Duration acquireTimeout() {
+        return Duration.ofSeconds(acquireTimeoutSeconds);
+    }
+}
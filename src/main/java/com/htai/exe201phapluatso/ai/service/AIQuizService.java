@@ -15,6 +15,7 @@ import com.htai.exe201phapluatso.quiz.repo.QuizQuestionRepo;
 import com.htai.exe201phapluatso.quiz.repo.QuizSetRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -22,6 +23,8 @@ import org.springframework.web.multipart.MultipartFile;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * Service for AI-powered quiz generation
@@ -45,6 +48,18 @@ public class AIQuizService {
     private final UserRepo userRepo;
     private final CreditService creditService;
 
+    // Parallel mode: batches are generated concurrently from disjoint sections of the document
+    @Value("${ai.quiz.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    // Sections shorter than this are not split further (batches then share the whole text)
+    @Value("${ai.quiz.parallel.min-section-chars:3000}")
+    private int minSectionChars;
+
+    // Jaccard similarity (syllable bigrams) from which two questions count as duplicates
+    @Value("${ai.quiz.dedup-threshold:0.6}")
+    private double dedupThreshold;
+
     public AIQuizService(
             DocumentParserService documentParser,
             OpenAIService aiService,
@@ -146,6 +161,7 @@ public class AIQuizService {
     /**
      * Generate questions with chunking support for large counts
      * Splits into multiple batches if count > BATCH_SIZE
+     * (concurrently over document sections when ai.quiz.parallel.enabled, otherwise one after another)
      * Includes retry logic to ensure exact question count
      * 
      * @param documentText The document content
@@ -167,6 +183,9 @@ public class AIQuizService {
         
         // Calculate number of batches needed
         int totalBatches = (totalCount + batchSize - 1) / batchSize;
+        if (parallelEnabled) {
+            return generateQuestionsInParallel(documentText, totalCount, totalBatches);
+        }
         log.info("Chunked generation: {} questions in {} batches", totalCount, totalBatches);
         
         List<AIQuestionDTO> allQuestions = new ArrayList<>();
@@ -222,6 +241,89 @@ public class AIQuizService {
         return allQuestions;
     }
     
+    /**
+     * Parallel chunked generation
+     * Each batch gets its own section of the document, so batches don't need each other's questions as context
+     * and all of them run concurrently. Near-duplicates are removed locally afterwards,
+     * and the shortfall (if any) is filled from the whole document.
+     */
+    private List<AIQuestionDTO> generateQuestionsInParallel(String documentText, int totalCount, int totalBatches) {
+        List<String> sections = splitIntoSections(documentText, totalBatches);
+        log.info("Parallel chunked generation: {} questions in {} batches over {} sections",
+                totalCount, totalBatches, sections.size());
+
+        List<CompletableFuture<List<AIQuestionDTO>>> batches = new ArrayList<>(totalBatches);
+        for (int batchIndex = 0; batchIndex < totalBatches; batchIndex++) {
+            // Spread the count evenly: 30 -> 15 + 15 instead of 20 + 10
+            int count = totalCount / totalBatches + (batchIndex < totalCount % totalBatches ? 1 : 0);
+            String section = sections.get(batchIndex % sections.size());
+            batches.add(aiService.generateQuestionsWithContextAsync(section, count, null));
+        }
+
+        List<AIQuestionDTO> allQuestions = new ArrayList<>();
+        RuntimeException firstError = null;
+        for (int batchIndex = 0; batchIndex < totalBatches; batchIndex++) {
+            try {
+                List<AIQuestionDTO> batchQuestions = batches.get(batchIndex).join();
+                allQuestions.addAll(batchQuestions);
+                log.info("Batch {}/{} completed with {} questions", batchIndex + 1, totalBatches, batchQuestions.size());
+            } catch (CompletionException e) {
+                RuntimeException cause = e.getCause() instanceof RuntimeException runtime ? runtime : e;
+                log.error("Error in batch {}: {}", batchIndex + 1, cause.getMessage());
+                if (firstError == null) {
+                    firstError = cause;
+                }
+            }
+        }
+
+        if (allQuestions.isEmpty()) {
+            // Every batch failed - propagate like the sequential mode does for its first batch
+            throw firstError != null ? firstError : new BadRequestException("Không thể tạo câu hỏi từ tài liệu");
+        }
+
+        int generated = allQuestions.size();
+        allQuestions = QuestionDeduplicator.dedupe(allQuestions, dedupThreshold);
+        if (allQuestions.size() < generated) {
+            log.info("Removed {} duplicate questions across batches", generated - allQuestions.size());
+        }
+        if (allQuestions.size() > totalCount) {
+            allQuestions = new ArrayList<>(allQuestions.subList(0, totalCount));
+        }
+
+        allQuestions = fillMissingQuestions(documentText, allQuestions, totalCount);
+
+        log.info("Parallel chunked generation completed. Total: {} questions", allQuestions.size());
+        return allQuestions;
+    }
+
+    /**
+     * Split the document into up to {@code parts} disjoint sections of similar length,
+     * cutting at line breaks where possible. Short documents are returned as a single section.
+     */
+    private List<String> splitIntoSections(String documentText, int parts) {
+        int sectionCount = Math.min(parts, documentText.length() / Math.max(minSectionChars, 1));
+        if (sectionCount <= 1) {
+            return List.of(documentText);
+        }
+
+        List<String> sections = new ArrayList<>(sectionCount);
+        int start = 0;
+        for (int i = 1; i < sectionCount; i++) {
+            int target = (int) ((long) documentText.length() * i / sectionCount);
+            int cut = documentText.lastIndexOf("\n\n", target);
+            if (cut <= start + minSectionChars / 2) {
+                cut = documentText.lastIndexOf('\n', target);
+            }
+            if (cut <= start + minSectionChars / 2) {
+                cut = target;
+            }
+            sections.add(documentText.substring(start, cut));
+            start = cut;
+        }
+        sections.add(documentText.substring(start));
+        return sections;
+    }
+
     /**
      * Fill missing questions if AI didn't return enough
      * Retries up to MAX_FILL_RETRIES times to get the exact count
@@ -249,6 +351,7 @@ public class AIQuizService {
                 );
                 
                 allQuestions.addAll(additionalQuestions);
+                allQuestions = QuestionDeduplicator.dedupe(allQuestions, dedupThreshold);
                 log.info("Filled {} additional questions. Total now: {}", 
                         additionalQuestions.size(), allQuestions.size());
                 
@@ -1,6 +1,7 @@
 package com.htai.exe201phapluatso.ai.service;
 
 import com.htai.exe201phapluatso.common.exception.BadRequestException;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
@@ -14,7 +15,9 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 public class DocumentParserService {
@@ -40,10 +43,28 @@ public class DocumentParserService {
     }
 
     /**
-     * Extract full text without truncation (for legal document parsing)
+     * Stream the text of a PDF stored on disk, pagesPerBatch pages at a time (background legal document ingestion)
+     * The full text is never built; PDFBox keeps at most maxMainMemoryBytes of the parsed file in heap,
+     * the rest in a temp file.
+     *
+     * @return Number of pages
      */
-    public String extractFullText(MultipartFile file) {
-        return extractText(file, false);
+    public int streamTextFromPdf(Path pdfFile, int pagesPerBatch, long maxMainMemoryBytes, Consumer<String> pageText) {
+        try (PDDocument document = PDDocument.load(pdfFile.toFile(), MemoryUsageSetting.setupMixed(maxMainMemoryBytes))) {
+            int pages = document.getNumberOfPages();
+            PDFTextStripper stripper = new PDFTextStripper();
+            for (int startPage = 1; startPage <= pages; startPage += pagesPerBatch) {
+                stripper.setStartPage(startPage);
+                stripper.setEndPage(Math.min(pages, startPage + pagesPerBatch - 1));
+                pageText.accept(stripper.getText(document));
+            }
+
+            log.info("Streamed {} pages from {}", pages, pdfFile.getFileName());
+            return pages;
+        } catch (IOException e) {
+            log.error("Error reading file {}", pdfFile, e);
+            throw new BadRequestException("Không thể đọc file. Vui lòng thử lại.");
+        }
     }
 
     private String extractText(MultipartFile file, boolean truncate) {
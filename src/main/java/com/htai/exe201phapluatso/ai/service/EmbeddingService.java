@@ -1,17 +1,22 @@
 package com.htai.exe201phapluatso.ai.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.htai.exe201phapluatso.ai.cache.QueryEmbeddingCache;
+import com.htai.exe201phapluatso.ai.client.OpenAIGateway;
 import com.htai.exe201phapluatso.common.exception.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Service for generating text embeddings using OpenAI API
@@ -22,21 +27,25 @@ public class EmbeddingService {
 
     private static final Logger log = LoggerFactory.getLogger(EmbeddingService.class);
 
-    private static final String OPENAI_EMBEDDING_URL = "https://api.openai.com/v1/embeddings";
+    private static final String OPENAI_EMBEDDING_URL = "/v1/embeddings";
     private static final String EMBEDDING_MODEL = "text-embedding-3-small";
     private static final int EMBEDDING_DIMENSIONS = 1536;
     private static final Duration API_TIMEOUT = Duration.ofSeconds(30);
-    private static final int MAX_RETRIES = 2;
+    private static final Duration BATCH_API_TIMEOUT = Duration.ofSeconds(120);
+    private static final int MAX_INPUT_CHARS = 30000;
+    private static final int MAX_INPUTS_PER_REQUEST = 2048; // OpenAI limit per embeddings request
 
-    private final WebClient webClient;
+    private final OpenAIGateway gateway;
     private final ObjectMapper objectMapper;
+    private final QueryEmbeddingCache queryEmbeddingCache;
 
-    @Value("${ai.openai.api-key:}")
-    private String apiKey;
-
-    public EmbeddingService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder.build();
+    public EmbeddingService(
+            OpenAIGateway gateway,
+            ObjectMapper objectMapper,
+            QueryEmbeddingCache queryEmbeddingCache) {
+        this.gateway = gateway;
         this.objectMapper = objectMapper;
+        this.queryEmbeddingCache = queryEmbeddingCache;
     }
 
     /**
@@ -50,16 +59,72 @@ public class EmbeddingService {
             throw new BadRequestException("Text cannot be empty for embedding");
         }
 
-        // Truncate if too long (roughly 8000 tokens ~ 32000 chars for Vietnamese)
-        String truncatedText = text.length() > 30000 ? text.substring(0, 30000) : text;
+        return callEmbeddingAPI(truncate(text), 1).block().get(0);
+    }
 
-        return callEmbeddingAPIWithRetry(truncatedText);
+    /**
+     * Non-blocking variant of generateEmbedding (no query cache)
+     */
+    public CompletableFuture<float[]> generateEmbeddingAsync(String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return CompletableFuture.failedFuture(new BadRequestException("Text cannot be empty for embedding"));
+        }
+        return callEmbeddingAPI(truncate(text), 1)
+                .map(embeddings -> embeddings.get(0))
+                .toFuture();
+    }
+
+    /**
+     * Generate embedding for a user question (search query)
+     * Served from QueryEmbeddingCache when the same normalized question was embedded recently
+     */
+    public float[] generateQueryEmbedding(String question) {
+        if (question == null || question.trim().isEmpty()) {
+            throw new BadRequestException("Text cannot be empty for embedding");
+        }
+        return queryEmbeddingCache.getOrCompute(question, this::generateEmbedding);
+    }
+
+    /**
+     * Generate embeddings for many texts in a single API request
+     * (the embeddings endpoint accepts an array of inputs)
+     *
+     * @param texts Texts to embed (each truncated like generateEmbedding)
+     * @return Embeddings in the same order as the input texts
+     */
+    public List<float[]> generateEmbeddings(List<String> texts) {
+        if (texts == null || texts.isEmpty()) {
+            return List.of();
+        }
+        if (texts.size() > MAX_INPUTS_PER_REQUEST) {
+            throw new BadRequestException("Too many inputs for one embedding request: " + texts.size());
+        }
+
+        List<String> inputs = texts.stream()
+            .map(text -> {
+                if (text == null || text.trim().isEmpty()) {
+                    throw new BadRequestException("Text cannot be empty for embedding");
+                }
+                return truncate(text);
+            })
+            .toList();
+
+        List<float[]> embeddings = callEmbeddingAPI(inputs, inputs.size()).block();
+        log.debug("Generated {} embeddings in one request", embeddings.size());
+        return embeddings;
     }
 
     /**
      * Generate embedding for article content (combines title + content)
      */
     public float[] generateArticleEmbedding(String title, String content) {
+        return generateEmbedding(buildArticleText(title, content));
+    }
+
+    /**
+     * Text sent to the embedding model for an article (title + content)
+     */
+    public String buildArticleText(String title, String content) {
         StringBuilder textBuilder = new StringBuilder();
         
         if (title != null && !title.isEmpty()) {
@@ -68,77 +133,82 @@ public class EmbeddingService {
         
         textBuilder.append("Nội dung: ").append(content);
         
-        return generateEmbedding(textBuilder.toString());
+        return textBuilder.toString();
     }
 
     /**
-     * Call OpenAI Embedding API with retry mechanism
+     * Call OpenAI Embedding API (retries and concurrency limits are handled by OpenAIGateway)
+     *
+     * @param input         Single text or list of texts
+     * @param expectedCount Number of embeddings expected in the response
      */
-    private float[] callEmbeddingAPIWithRetry(String text) {
-        Exception lastException = null;
-
-        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                if (attempt > 0) {
-                    log.info("Retry attempt {} for embedding API", attempt);
-                    Thread.sleep(1000L * attempt);
-                }
-                return callEmbeddingAPI(text);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new BadRequestException("Embedding request interrupted");
-            } catch (Exception e) {
-                lastException = e;
-                log.warn("Embedding API error on attempt {}: {}", attempt + 1, e.getMessage());
-            }
-        }
-
-        throw new BadRequestException("Failed to generate embedding after retries: " + 
-            (lastException != null ? lastException.getMessage() : "Unknown error"));
-    }
-
-    private float[] callEmbeddingAPI(String text) {
+    private Mono<List<float[]>> callEmbeddingAPI(Object input, int expectedCount) {
         Map<String, Object> requestBody = Map.of(
             "model", EMBEDDING_MODEL,
-            "input", text,
-            "dimensions", EMBEDDING_DIMENSIONS
+            "input", input,
+            "dimensions", EMBEDDING_DIMENSIONS,
+            "encoding_format", "base64"
         );
 
-        log.debug("Calling OpenAI Embedding API for text of length: {}", text.length());
-
-        String response = webClient.post()
-            .uri(OPENAI_EMBEDDING_URL)
-            .header("Content-Type", "application/json")
-            .header("Authorization", "Bearer " + apiKey)
-            .bodyValue(requestBody)
-            .retrieve()
-            .bodyToMono(String.class)
-            .timeout(API_TIMEOUT)
-            .block();
-
-        if (response == null) {
-            throw new BadRequestException("No response from embedding API");
-        }
+        log.debug("Calling OpenAI Embedding API for {} input(s)", expectedCount);
 
-        return parseEmbeddingResponse(response);
+        return gateway.postJson(OPENAI_EMBEDDING_URL, requestBody,
+                        expectedCount > 1 ? BATCH_API_TIMEOUT : API_TIMEOUT)
+                .switchIfEmpty(Mono.error(() -> new BadRequestException("No response from embedding API")))
+                .map(response -> parseEmbeddingResponse(response, expectedCount));
     }
 
-    private float[] parseEmbeddingResponse(String response) {
-        try {
-            JsonNode root = objectMapper.readTree(response);
-            JsonNode embeddingNode = root.path("data").get(0).path("embedding");
-
-            if (!embeddingNode.isArray()) {
+    /**
+     * Parse data[] of the embeddings response, placing each item by its "index".
+     * Streams the JSON (no tree); base64 embeddings are decoded straight into float arrays,
+     * float arrays are still accepted.
+     */
+    List<float[]> parseEmbeddingResponse(String response, int expectedCount) {
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
                 throw new BadRequestException("Invalid embedding response format");
             }
 
-            float[] embedding = new float[EMBEDDING_DIMENSIONS];
-            for (int i = 0; i < embeddingNode.size() && i < EMBEDDING_DIMENSIONS; i++) {
-                embedding[i] = (float) embeddingNode.get(i).asDouble();
+            float[][] embeddings = new float[expectedCount][];
+            int parsed = 0;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"data".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    int index = -1;
+                    float[] embedding = null;
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String name = parser.currentName();
+                        JsonToken token = parser.nextToken();
+                        if ("index".equals(name)) {
+                            index = parser.getIntValue();
+                        } else if ("embedding".equals(name) && token == JsonToken.VALUE_STRING) {
+                            embedding = VectorCodec.fromBase64(parser.getText());
+                        } else if ("embedding".equals(name) && token == JsonToken.START_ARRAY) {
+                            embedding = readFloatArray(parser);
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                    if (index < 0 || index >= expectedCount || embedding == null
+                            || embedding.length != EMBEDDING_DIMENSIONS) {
+                        throw new BadRequestException("Invalid embedding response format");
+                    }
+                    embeddings[index] = embedding;
+                    parsed++;
+                }
             }
 
-            log.debug("Successfully parsed embedding with {} dimensions", embedding.length);
-            return embedding;
+            if (parsed != expectedCount) {
+                throw new BadRequestException("Invalid embedding response format");
+            }
+            log.debug("Successfully parsed {} embeddings with {} dimensions", expectedCount, EMBEDDING_DIMENSIONS);
+            return Arrays.asList(embeddings);
 
         } catch (Exception e) {
             log.error("Failed to parse embedding response", e);
@@ -146,18 +216,21 @@ public class EmbeddingService {
         }
     }
 
-    /**
-     * Convert float array to PostgreSQL vector string format
-     * Format: [0.1,0.2,0.3,...]
-     */
-    public String toVectorString(float[] embedding) {
-        StringBuilder sb = new StringBuilder("[");
-        for (int i = 0; i < embedding.length; i++) {
-            if (i > 0) sb.append(",");
-            sb.append(embedding[i]);
+    private static float[] readFloatArray(JsonParser parser) throws IOException {
+        float[] embedding = new float[EMBEDDING_DIMENSIONS];
+        int dim = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (dim < EMBEDDING_DIMENSIONS) {
+                embedding[dim] = parser.getFloatValue();
+            }
+            dim++;
         }
-        sb.append("]");
-        return sb.toString();
+        return dim == EMBEDDING_DIMENSIONS ? embedding : null;
+    }
+
+    private String truncate(String text) {
+        // Truncate if too long (roughly 8000 tokens ~ 32000 chars for Vietnamese)
+        return text.length() > MAX_INPUT_CHARS ? text.substring(0, MAX_INPUT_CHARS) : text;
     }
 
     /**
@@ -2,19 +2,22 @@ package com.htai.exe201phapluatso.ai.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.htai.exe201phapluatso.ai.client.OpenAIGateway;
 import com.htai.exe201phapluatso.ai.dto.AIQuestionDTO;
 import com.htai.exe201phapluatso.common.exception.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -24,41 +27,77 @@ import java.util.stream.Collectors;
  * - Quiz question generation from documents
  * 
  * Supports chunking for large question counts (>25 questions)
+ *
+ * HTTP calls go through OpenAIGateway (shared pool, bulkhead, non-blocking retry).
+ * Async methods return Mono / CompletableFuture; the plain methods block for legacy callers.
  */
 @Service
 public class OpenAIService {
 
     private static final Logger log = LoggerFactory.getLogger(OpenAIService.class);
 
-    private final WebClient webClient;
+    private final OpenAIGateway gateway;
     private final ObjectMapper objectMapper;
 
-    @Value("${ai.openai.api-key:}")
-    private String apiKey;
-
     @Value("${ai.openai.model:gpt-4o-mini}")
     private String model;
 
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/chat/completions";
-    private static final int MAX_RETRIES = 2;
-    private static final Duration RETRY_DELAY = Duration.ofSeconds(2);
+    private static final String OPENAI_API_URL = "/v1/chat/completions";
     private static final Duration API_TIMEOUT = Duration.ofSeconds(180);
+    // Streaming: max wait for the next chunk (not for the whole completion)
+    private static final Duration STREAM_IDLE_TIMEOUT = Duration.ofSeconds(60);
+    private static final String STREAM_DONE = "[DONE]";
     
     // Batch size for chunking - optimal for GPT-4o-mini output limit
     public static final int BATCH_SIZE = 20;
 
-    public OpenAIService(WebClient.Builder webClientBuilder, ObjectMapper objectMapper) {
-        this.webClient = webClientBuilder
-                .codecs(configurer -> configurer.defaultCodecs().maxInMemorySize(10 * 1024 * 1024))
-                .build();
+    public OpenAIService(OpenAIGateway gateway, ObjectMapper objectMapper) {
+        this.gateway = gateway;
         this.objectMapper = objectMapper;
     }
 
     /**
      * Generate text response from OpenAI (for chatbot)
+     * Blocking; prefer generateTextAsync on request paths
      */
     public String generateText(String prompt) {
-        return callOpenAIWithRetry(prompt, 0);
+        return generateTextAsync(prompt).block();
+    }
+
+    /**
+     * Generate text response without blocking the caller
+     */
+    public Mono<String> generateTextAsync(String prompt) {
+        return callOpenAI(prompt, 0);
+    }
+
+    /**
+     * Stream text response from OpenAI (stream=true)
+     * Emits content deltas as they arrive; completes when OpenAI sends [DONE].
+     * Non-blocking: nothing is sent until the Flux is subscribed.
+     */
+    public Flux<String> streamText(String prompt) {
+        Map<String, Object> requestBody = Map.of(
+            "model", model,
+            "messages", List.of(
+                Map.of(
+                    "role", "user",
+                    "content", prompt
+                )
+            ),
+            "temperature", 0.7,
+            "max_tokens", 16000,
+            "stream", true
+        );
+
+        log.info("Calling OpenAI streaming API with model: {}", model);
+
+        return gateway.streamEvents(OPENAI_API_URL, requestBody, STREAM_IDLE_TIMEOUT)
+                .filter(event -> event.data() != null)
+                .map(ServerSentEvent::data)
+                .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                .map(this::extractDeltaFromChunk)
+                .filter(delta -> !delta.isEmpty());
     }
 
     /**
@@ -82,9 +121,23 @@ public class OpenAIService {
             int count, 
             List<AIQuestionDTO> existingQuestions
     ) {
+        return questions(documentText, count, existingQuestions).block();
+    }
+
+    /**
+     * Non-blocking variant of generateQuestionsWithContext, for composing several batches
+     */
+    public CompletableFuture<List<AIQuestionDTO>> generateQuestionsWithContextAsync(
+            String documentText,
+            int count,
+            List<AIQuestionDTO> existingQuestions
+    ) {
+        return questions(documentText, count, existingQuestions).toFuture();
+    }
+
+    private Mono<List<AIQuestionDTO>> questions(String documentText, int count, List<AIQuestionDTO> existingQuestions) {
         String prompt = buildPromptWithContext(documentText, count, existingQuestions);
-        String response = callOpenAIWithRetry(prompt, count);
-        return parseResponse(response);
+        return callOpenAI(prompt, count).map(this::parseResponse);
     }
 
     /**
@@ -151,41 +204,7 @@ public class OpenAIService {
         return promptBuilder.toString();
     }
 
-    /**
-     * Call OpenAI API with retry mechanism
-     */
-    private String callOpenAIWithRetry(String prompt, int questionCount) {
-        Exception lastException = null;
-        
-        for (int attempt = 0; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                if (attempt > 0) {
-                    log.info("Retry attempt {} for OpenAI API call", attempt);
-                    Thread.sleep(RETRY_DELAY.toMillis() * attempt);
-                }
-                return callOpenAI(prompt, questionCount);
-            } catch (WebClientResponseException e) {
-                lastException = e;
-                // Don't retry on 4xx errors (client errors)
-                if (e.getStatusCode().is4xxClientError()) {
-                    log.error("OpenAI API client error (no retry): {}", e.getStatusCode());
-                    break;
-                }
-                log.warn("OpenAI API error on attempt {}: {}", attempt + 1, e.getMessage());
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new BadRequestException("Bị gián đoạn khi gọi OpenAI API");
-            } catch (Exception e) {
-                lastException = e;
-                log.warn("OpenAI API exception on attempt {}: {}", attempt + 1, e.getMessage());
-            }
-        }
-        
-        throw new BadRequestException("Lỗi khi gọi OpenAI API sau " + (MAX_RETRIES + 1) + " lần thử: " + 
-            (lastException != null ? lastException.getMessage() : "Unknown error"));
-    }
-
-    private String callOpenAI(String prompt, int questionCount) {
+    private Mono<String> callOpenAI(String prompt, int questionCount) {
         Map<String, Object> requestBody = Map.of(
             "model", model,
             "messages", List.of(
@@ -202,32 +221,13 @@ public class OpenAIService {
         if (questionCount > 0) {
             log.info("Requesting {} questions", questionCount);
         }
-        
-        String response = webClient.post()
-                .uri(OPENAI_API_URL)
-                .header("Content-Type", "application/json")
-                .header("Authorization", "Bearer " + apiKey)
-                .bodyValue(requestBody)
-                .retrieve()
-                .onStatus(
-                    status -> status.is4xxClientError() || status.is5xxServerError(),
-                    clientResponse -> clientResponse.bodyToMono(String.class)
-                        .map(body -> {
-                            // Don't log full body - may contain sensitive info
-                            log.error("OpenAI API Error: status={}", clientResponse.statusCode());
-                            return new BadRequestException("Lỗi OpenAI API: " + clientResponse.statusCode());
-                        })
-                )
-                .bodyToMono(String.class)
-                .timeout(API_TIMEOUT)
-                .block();
-
-        if (response == null) {
-            throw new BadRequestException("Không nhận được phản hồi từ OpenAI");
-        }
 
-        log.info("OpenAI response received successfully");
-        return extractTextFromResponse(response);
+        return gateway.postJson(OPENAI_API_URL, requestBody, API_TIMEOUT)
+                .switchIfEmpty(Mono.error(() -> new BadRequestException("Không nhận được phản hồi từ OpenAI")))
+                .map(response -> {
+                    log.info("OpenAI response received successfully");
+                    return extractTextFromResponse(response);
+                });
     }
 
     private String extractTextFromResponse(String response) {
@@ -248,6 +248,18 @@ public class OpenAIService {
         }
     }
 
+    private String extractDeltaFromChunk(String chunk) {
+        try {
+            JsonNode choices = objectMapper.readTree(chunk).path("choices");
+            if (!choices.isArray() || choices.isEmpty()) {
+                return "";
+            }
+            return choices.get(0).path("delta").path("content").asText("");
+        } catch (Exception e) {
+            throw new BadRequestException("Không thể parse stream chunk từ OpenAI");
+        }
+    }
+
     private List<AIQuestionDTO> parseResponse(String jsonText) {
         try {
             JsonNode questionsNode = objectMapper.readTree(jsonText);
@@ -0,0 +1,92 @@
+package com.htai.exe201phapluatso.ai.service;
+
+import com.htai.exe201phapluatso.ai.dto.AIQuestionDTO;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Local near-duplicate filter for AI generated questions
+ *
+ * Batches generated in parallel cannot see each other's questions, so duplicates are removed afterwards:
+ * question text is normalized (lowercase, no diacritics/punctuation), split into syllable bigrams,
+ * and a question is dropped when its Jaccard similarity with an already kept question reaches the threshold.
+ */
+final class QuestionDeduplicator {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private QuestionDeduplicator() {
+    }
+
+    /**
+     * Keep the first occurrence of each question, in input order
+     *
+     * @param questions Candidate questions (earlier ones win)
+     * @param threshold Jaccard similarity in [0, 1] from which two questions count as duplicates
+     */
+    static List<AIQuestionDTO> dedupe(List<AIQuestionDTO> questions, double threshold) {
+        List<AIQuestionDTO> kept = new ArrayList<>(questions.size());
+        List<Set<String>> keptShingles = new ArrayList<>(questions.size());
+
+        for (AIQuestionDTO question : questions) {
+            Set<String> shingles = shingles(question.question());
+            boolean duplicate = false;
+            for (Set<String> other : keptShingles) {
+                if (jaccard(shingles, other) >= threshold) {
+                    duplicate = true;
+                    break;
+                }
+            }
+            if (!duplicate) {
+                kept.add(question);
+                keptShingles.add(shingles);
+            }
+        }
+        return kept;
+    }
+
+    static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() && b.isEmpty()) {
+            return 1.0;
+        }
+        Set<String> smaller = a.size() <= b.size() ? a : b;
+        Set<String> larger = smaller == a ? b : a;
+        int intersection = 0;
+        for (String s : smaller) {
+            if (larger.contains(s)) {
+                intersection++;
+            }
+        }
+        return (double) intersection / (a.size() + b.size() - intersection);
+    }
+
+    /**
+     * Syllable bigrams of the normalized text (single syllable for one-word text)
+     */
+    static Set<String> shingles(String text) {
+        Set<String> result = new HashSet<>();
+        if (text == null) {
+            return result;
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("").replace('đ', 'd');
+        String[] tokens = NON_WORD.matcher(normalized).replaceAll(" ").trim().split(" ");
+        if (tokens.length == 1) {
+            if (!tokens[0].isEmpty()) {
+                result.add(tokens[0]);
+            }
+            return result;
+        }
+        for (int i = 0; i + 1 < tokens.length; i++) {
+            result.add(tokens[i] + ' ' + tokens[i + 1]);
+        }
+        return result;
+    }
+}
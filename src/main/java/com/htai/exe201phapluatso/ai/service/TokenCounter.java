@@ -0,0 +1,67 @@
+package com.htai.exe201phapluatso.ai.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.knuddels.jtokkit.api.EncodingType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Local BPE token counting (JTokkit, no network)
+ *
+ * The encoding follows ai.openai.model (gpt-4o* -> o200k_base, gpt-4 / gpt-3.5 -> cl100k_base);
+ * unknown models fall back to o200k_base. Text is encoded as ordinary text, so special-token
+ * strings typed by a user ("<|endoftext|>") are counted instead of rejected.
+ */
+@Component
+public class TokenCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenCounter.class);
+
+    private final Encoding encoding;
+
+    public TokenCounter(@Value("${ai.openai.model:gpt-4o-mini}") String model) {
+        this.encoding = Encodings.newLazyEncodingRegistry()
+                .getEncodingForModel(model)
+                .orElseGet(() -> {
+                    log.warn("No tokenizer known for model '{}', using o200k_base", model);
+                    return Encodings.newLazyEncodingRegistry().getEncoding(EncodingType.O200K_BASE);
+                });
+        log.info("Token counting with {} for model {}", encoding.getName(), model);
+    }
+
+    public String encodingName() {
+        return encoding.getName();
+    }
+
+    /**
+     * Number of tokens of the text
+     */
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        return encoding.countTokensOrdinary(text);
+    }
+
+    /**
+     * Longest prefix of the text that fits in maxTokens (the text itself if it already fits)
+     */
+    public String truncate(String text, int maxTokens) {
+        if (text == null || text.isEmpty()) {
+            return text;
+        }
+        if (maxTokens <= 0) {
+            return "";
+        }
+        EncodingResult result = encoding.encodeOrdinary(text, maxTokens);
+        if (!result.isTruncated()) {
+            return text;
+        }
+        // Index of the last character fully covered by the kept tokens (never splits a character)
+        return text.substring(0, result.getLastProcessedCharacterIndex() + 1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.htai.exe201phapluatso.ai.service;
+
+import org.postgresql.PGConnection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Base64;
+
+/**
+ * Binary transport of embedding vectors (no decimal text on the hot path)
+ *
+ * - OpenAI embeddings with encoding_format=base64: little-endian float32
+ * - pgvector binary format (vector_send): int16 dim, int16 unused, big-endian float4 per dimension
+ * - Query / write parameters: a binary float4[] bound through the PostgreSQL driver,
+ *   cast to vector by the server (CAST(? AS vector))
+ */
+public final class VectorCodec {
+
+    private static final int PG_HEADER_BYTES = 4;
+
+    private VectorCodec() {
+    }
+
+    /**
+     * Decode a base64 embedding (little-endian float32) into a float array
+     */
+    public static float[] fromBase64(String base64) {
+        ByteBuffer bytes = ByteBuffer.wrap(Base64.getDecoder().decode(base64)).order(ByteOrder.LITTLE_ENDIAN);
+        float[] vector = new float[bytes.remaining() / Float.BYTES];
+        bytes.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * Encode a float array as base64 little-endian float32 (the OpenAI response format)
+     */
+    public static String toBase64(float[] vector) {
+        ByteBuffer bytes = ByteBuffer.allocate(vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(bytes.array());
+    }
+
+    /**
+     * Decode pgvector's binary format, as returned by vector_send(embedding)
+     */
+    public static float[] fromPgBinary(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int dimensions = buffer.getShort() & 0xFFFF;
+        if (bytes.length != PG_HEADER_BYTES + dimensions * Float.BYTES) {
+            throw new IllegalArgumentException("Invalid pgvector binary value: " + bytes.length + " bytes for "
+                    + dimensions + " dimensions");
+        }
+        buffer.position(PG_HEADER_BYTES);
+        float[] vector = new float[dimensions];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * Encode a float array in pgvector's binary format
+     */
+    public static byte[] toPgBinary(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(PG_HEADER_BYTES + vector.length * Float.BYTES);
+        buffer.putShort((short) vector.length).putShort((short) 0);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    /**
+     * Bind a vector parameter as a binary float4[] (use CAST(? AS vector) in the SQL)
+     */
+    public static void bind(PreparedStatement ps, int index, float[] vector) throws SQLException {
+        PGConnection connection = ps.getConnection().unwrap(PGConnection.class);
+        ps.setArray(index, connection.createArrayOf("float4", vector));
+    }
+}
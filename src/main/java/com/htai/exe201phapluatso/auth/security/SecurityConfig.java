@@ -5,6 +5,7 @@ import com.htai.exe201phapluatso.auth.oauth2.OAuth2AuthenticationFailureHandler;
 import com.htai.exe201phapluatso.auth.oauth2.OAuth2AuthenticationSuccessHandler;
 import com.htai.exe201phapluatso.auth.repo.UserRepo;
 import com.htai.exe201phapluatso.auth.service.JwtService;
+import jakarta.servlet.DispatcherType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -143,6 +144,9 @@ public class SecurityConfig {
                             })
                             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                             .authorizeHttpRequests(auth -> auth
+                                            // async dispatch of SSE / streaming responses (request was already authorized)
+                                            .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+
                                             // public pages + assets
                                             .requestMatchers(
                                                             "/", "/index.html", "/app.html",
@@ -171,6 +175,12 @@ public class SecurityConfig {
                                             // Payment status check (public - for redirect page)
                                             .requestMatchers("/api/payment/status/**").permitAll()
 
+                                            // health check (public - load balancer / container probe)
+                                            .requestMatchers("/actuator/health").permitAll()
+
+                                            // Prometheus scrape (ADMIN role, management port only - see application.properties)
+                                            .requestMatchers("/actuator/prometheus").hasRole("ADMIN")
+
                                             // admin endpoints (protected - ADMIN role required)
                                             .requestMatchers("/api/admin/**").hasRole("ADMIN")
 
@@ -1,7 +1,8 @@
 package com.htai.exe201phapluatso.common.exception;
 
 /**
- * Exception thrown when rate limit is exceeded for an IP/endpoint.
+ * Exception thrown when rate limit is exceeded for an IP/endpoint,
+ * or when the OpenAI gateway is saturated (its bulkhead queue is full).
  */
 public class RateLimitExceededException extends RuntimeException {
     
@@ -10,7 +11,11 @@ public class RateLimitExceededException extends RuntimeException {
     private final int remaining;
 
     public RateLimitExceededException(long retryAfterSeconds, int limit) {
-        super("Quá nhiều yêu cầu. Vui lòng thử lại sau.");
+        this("Quá nhiều yêu cầu. Vui lòng thử lại sau.", retryAfterSeconds, limit);
+    }
+
+    public RateLimitExceededException(String message, long retryAfterSeconds, int limit) {
+        super(message);
         this.retryAfterSeconds = retryAfterSeconds;
         this.limit = limit;
         this.remaining = 0;
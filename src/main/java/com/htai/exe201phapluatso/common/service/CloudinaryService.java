@@ -9,6 +9,7 @@ import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -48,6 +49,30 @@ public class CloudinaryService {
         }
     }
 
+    /**
+     * Upload a file from local disk to Cloudinary
+     * @param file The local file to upload
+     * @param folder The folder in Cloudinary (e.g., "legal_docs")
+     * @return The secure URL of the uploaded file
+     */
+    public String uploadFile(File file, String folder) {
+        try {
+            Map params = ObjectUtils.asMap(
+                "folder", "exe201_phapluatso/" + folder,
+                "resource_type", "auto"
+            );
+
+            Map uploadResult = cloudinary.uploader().upload(file, params);
+            String url = (String) uploadResult.get("secure_url");
+
+            log.info("Uploaded file to Cloudinary: {}", url);
+            return url;
+        } catch (IOException e) {
+            log.error("Cloudinary upload failed", e);
+            throw new BadRequestException("Lỗi khi upload file lên Cloudinary: " + e.getMessage());
+        }
+    }
+
     /**
      * Delete file from Cloudinary
      * @param fileUrl The full URL of the file to delete
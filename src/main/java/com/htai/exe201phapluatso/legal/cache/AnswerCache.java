@@ -0,0 +1,261 @@
+package com.htai.exe201phapluatso.legal.cache;
+
+import com.htai.exe201phapluatso.common.HashUtil;
+import com.htai.exe201phapluatso.legal.dto.ChatResponse;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Semantic cache cho câu trả lời chat (chỉ câu hỏi đầu tiên của phiên, không có ConversationContext)
+ *
+ * Key = embedding của câu hỏi: hit khi cosine similarity với một câu hỏi đã trả lời >= similarity-threshold.
+ * Mỗi entry gắn với corpus version = hash tập văn bản còn hiệu lực + generation cục bộ;
+ * upload / xóa văn bản, index xong vector → invalidate() xóa toàn bộ cache.
+ * Instance khác phát hiện thay đổi tập văn bản qua lần kiểm tra định kỳ (version-check-ms).
+ *
+ * In-memory, giới hạn max-entries (FIFO) + TTL. Lookup là một lượt quét tuyến tính trên vector đã normalize.
+ */
+@Component
+public class AnswerCache {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerCache.class);
+
+    private final LegalDocumentRepo documentRepo;
+
+    @Value("${legal.answer-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${legal.answer-cache.similarity-threshold:0.95}")
+    private double similarityThreshold;
+
+    @Value("${legal.answer-cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${legal.answer-cache.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    // insertion order: eldest = oldest answer
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private volatile String documentFingerprint;
+
+    public AnswerCache(LegalDocumentRepo documentRepo) {
+        this.documentRepo = documentRepo;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Current corpus version; capture it before retrieval and pass it to put(),
+     * so an answer built from an older corpus is never stored under the new version
+     */
+    public String corpusVersion() {
+        String fingerprint = documentFingerprint;
+        if (fingerprint == null) {
+            fingerprint = refreshFingerprint();
+        }
+        return fingerprint + "#" + generation.get();
+    }
+
+    /**
+     * Most similar cached answer for the same corpus version, if similar enough
+     *
+     * @param questionEmbedding Embedding of the question (any norm)
+     * @param corpusVersion     Version from corpusVersion()
+     */
+    public Optional<ChatResponse> get(float[] questionEmbedding, String corpusVersion) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        float[] query = normalize(questionEmbedding);
+        long now = System.currentTimeMillis();
+
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        for (Entry entry : snapshot()) {
+            if (!entry.corpusVersion().equals(corpusVersion) || entry.expiresAtMillis() < now
+                    || entry.vector().length != query.length) {
+                continue;
+            }
+            double similarity = dot(query, entry.vector());
+            if (similarity >= bestSimilarity) {
+                bestSimilarity = similarity;
+                best = entry;
+            }
+        }
+
+        if (best == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        log.info("Answer cache hit (similarity {}) for cached question: {}",
+                String.format("%.4f", bestSimilarity), best.question());
+        return Optional.of(best.response());
+    }
+
+    /**
+     * Store an answer; ignored if the corpus changed since corpusVersion was captured
+     */
+    public void put(String question, float[] questionEmbedding, ChatResponse response, String corpusVersion) {
+        if (!enabled || response == null || response.citations() == null || response.citations().isEmpty()) {
+            return;
+        }
+        if (!corpusVersion.equals(corpusVersion())) {
+            return;
+        }
+        Entry entry = new Entry(question, normalize(questionEmbedding), response, corpusVersion,
+                System.currentTimeMillis() + ttlMinutes * 60_000);
+        synchronized (entries) {
+            entries.put(nextId.incrementAndGet(), entry);
+            while (entries.size() > maxEntries) {
+                Long eldest = entries.keySet().iterator().next();
+                entries.remove(eldest);
+            }
+        }
+    }
+
+    /**
+     * Corpus changed: drop every cached answer and recompute the document fingerprint
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        invalidations.incrementAndGet();
+        int removed;
+        synchronized (entries) {
+            removed = entries.size();
+            entries.clear();
+        }
+        refreshFingerprint();
+        log.info("Answer cache invalidated ({} entries removed)", removed);
+    }
+
+    /**
+     * invalidate() once the surrounding transaction commits (immediately if there is none)
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate();
+                }
+            });
+        } else {
+            invalidate();
+        }
+    }
+
+    /**
+     * Detect corpus changes made by other instances, and drop expired entries
+     */
+    @Scheduled(fixedDelayString = "${legal.answer-cache.version-check-ms:60000}")
+    public void checkCorpusVersion() {
+        if (!enabled) {
+            return;
+        }
+        String previous = documentFingerprint;
+        String current = refreshFingerprint();
+        if (previous != null && !previous.equals(current)) {
+            log.info("Effective document set changed, invalidating answer cache");
+            invalidate();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            entries.values().removeIf(entry -> entry.expiresAtMillis() < now);
+        }
+    }
+
+    /**
+     * Cache statistics (for admin monitoring)
+     */
+    public Map<String, Object> getStats() {
+        long total = hits.get() + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("entries", size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("similarityThreshold", similarityThreshold);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("hitRatePercent", total > 0 ? Math.round((double) hits.get() / total * 10000) / 100.0 : 0);
+        stats.put("invalidations", invalidations.get());
+        stats.put("ttlMinutes", ttlMinutes);
+        return stats;
+    }
+
+    public long hitCount() {
+        return hits.get();
+    }
+
+    public long missCount() {
+        return misses.get();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private String refreshFingerprint() {
+        String fingerprint = HashUtil.sha256Base64(documentRepo.findEffectiveDocumentIds());
+        documentFingerprint = fingerprint;
+        return fingerprint;
+    }
+
+    private List<Entry> snapshot() {
+        synchronized (entries) {
+            return new ArrayList<>(entries.values());
+        }
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] result = new float[vector.length];
+        if (norm == 0) {
+            return result;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (float) (vector[i] / norm);
+        }
+        return result;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private record Entry(String question, float[] vector, ChatResponse response, String corpusVersion,
+                         long expiresAtMillis) {}
+}
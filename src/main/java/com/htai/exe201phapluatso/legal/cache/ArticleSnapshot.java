@@ -0,0 +1,52 @@
+package com.htai.exe201phapluatso.legal.cache;
+
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+
+/**
+ * Immutable read model of a legal article (with its document name/status) for search, prompts and citations
+ * Loaded by a JPQL constructor expression: no managed entity, no lazy document proxy.
+ */
+public record ArticleSnapshot(
+        Long id,
+        Long documentId,
+        String documentName,
+        String documentStatus,
+        Integer articleNumber,
+        String articleTitle,
+        String content,
+        String contentPreview
+) {
+
+    public static final String EFFECTIVE_STATUS = "Còn hiệu lực";
+
+    public ArticleSnapshot(Long id, Long documentId, String documentName, String documentStatus,
+                           Integer articleNumber, String articleTitle, String content) {
+        this(id, documentId, documentName, documentStatus, articleNumber, articleTitle, content,
+                preview(content));
+    }
+
+    public boolean isEffective() {
+        return EFFECTIVE_STATUS.equals(documentStatus);
+    }
+
+    /**
+     * Approximate heap footprint used for the cache size bound (UTF-16 chars)
+     */
+    long weight() {
+        return 64L + length(content) + length(contentPreview) + length(articleTitle) + length(documentName);
+    }
+
+    private static int length(String text) {
+        return text != null ? text.length() : 0;
+    }
+
+    private static String preview(String content) {
+        if (content == null) {
+            return "";
+        }
+        if (content.length() <= LegalSearchConfig.CITATION_PREVIEW_LENGTH) {
+            return content;
+        }
+        return content.substring(0, LegalSearchConfig.CITATION_PREVIEW_LENGTH) + "...";
+    }
+}
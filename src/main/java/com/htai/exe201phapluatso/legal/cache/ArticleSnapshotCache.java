@@ -0,0 +1,176 @@
+package com.htai.exe201phapluatso.legal.cache;
+
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Read-through cache cho ArticleSnapshot (điều luật "nóng" được search / trích dẫn nhiều lần)
+ *
+ * - Miss → một query IN (...) cho tất cả id còn thiếu (constructor projection, không hydrate entity)
+ * - LRU, giới hạn theo số entry và tổng số ký tự (content là phần lớn bộ nhớ)
+ * - Điều luật không đổi sau khi import; xóa văn bản → evictDocument() sau khi commit
+ */
+@Component
+public class ArticleSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleSnapshotCache.class);
+
+    private final LegalArticleRepo articleRepo;
+    private final int maxEntries;
+    private final long maxChars;
+
+    // accessOrder = true: get() moves the entry to the tail, eldest = least recently used
+    private final LinkedHashMap<Long, ArticleSnapshot> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    public ArticleSnapshotCache(
+            LegalArticleRepo articleRepo,
+            @Value("${legal.article-cache.max-entries:5000}") int maxEntries,
+            @Value("${legal.article-cache.max-chars:20000000}") long maxChars) {
+        this.articleRepo = articleRepo;
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Snapshots by id (read-through); ids that don't exist are absent from the result
+     */
+    public Map<Long, ArticleSnapshot> getAll(Collection<Long> ids) {
+        Map<Long, ArticleSnapshot> result = new HashMap<>();
+        List<Long> missing = new ArrayList<>();
+        synchronized (entries) {
+            for (Long id : new LinkedHashSet<>(ids)) {
+                ArticleSnapshot snapshot = entries.get(id);
+                if (snapshot != null) {
+                    result.put(id, snapshot);
+                } else if (id != null) {
+                    missing.add(id);
+                }
+            }
+        }
+        hits.addAndGet(result.size());
+
+        if (!missing.isEmpty()) {
+            misses.addAndGet(missing.size());
+            loads.incrementAndGet();
+            List<ArticleSnapshot> loaded = articleRepo.findSnapshotsByIdIn(missing);
+            synchronized (entries) {
+                for (ArticleSnapshot snapshot : loaded) {
+                    put(snapshot);
+                }
+            }
+            for (ArticleSnapshot snapshot : loaded) {
+                result.put(snapshot.id(), snapshot);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Snapshots of effective documents, in the order of the given ids (ranking order)
+     */
+    public List<ArticleSnapshot> getEffectiveInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ArticleSnapshot> byId = getAll(ids);
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .filter(ArticleSnapshot::isEffective)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Drop all articles of a document once the surrounding transaction commits
+     */
+    public void evictDocumentAfterCommit(Long documentId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictDocument(documentId);
+                }
+            });
+        } else {
+            evictDocument(documentId);
+        }
+    }
+
+    public void evictDocument(Long documentId) {
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<ArticleSnapshot> it = entries.values().iterator();
+            while (it.hasNext()) {
+                ArticleSnapshot snapshot = it.next();
+                if (Objects.equals(snapshot.documentId(), documentId)) {
+                    totalWeight -= snapshot.weight();
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        log.debug("Evicted {} cached articles of document {}", removed, documentId);
+    }
+
+    /**
+     * Cache statistics (for admin monitoring)
+     */
+    public Map<String, Object> getStats() {
+        long total = hits.get() + misses.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (entries) {
+            stats.put("entries", entries.size());
+            stats.put("chars", totalWeight);
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("maxChars", maxChars);
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        stats.put("bulkLoads", loads.get());
+        stats.put("hitRatePercent", total > 0 ? Math.round((double) hits.get() / total * 10000) / 100.0 : 0);
+        return stats;
+    }
+
+    /**
+     * Caller holds the lock
+     */
+    private void put(ArticleSnapshot snapshot) {
+        ArticleSnapshot previous = entries.put(snapshot.id(), snapshot);
+        if (previous != null) {
+            totalWeight -= previous.weight();
+        }
+        totalWeight += snapshot.weight();
+
+        Iterator<ArticleSnapshot> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || totalWeight > maxChars) && eldest.hasNext()) {
+            ArticleSnapshot evicted = eldest.next();
+            if (evicted == snapshot) {
+                break;
+            }
+            totalWeight -= evicted.weight();
+            eldest.remove();
+        }
+    }
+}
@@ -17,13 +17,12 @@ public final class LegalSearchConfig {
     public static final int MAX_KEYWORDS = 10;
     public static final int MAX_BIGRAMS = 5;
 
-    // Scoring weights
+    // Scoring weights (full-text rank weights for title 'A' / content 'D')
     public static final int TITLE_MATCH_WEIGHT = 5;
     public static final int CONTENT_MATCH_WEIGHT = 1;
 
     // Relevance filtering
     public static final int MIN_KEYWORD_MATCHES = 2; // Require at least 2 keywords to match
-    public static final int MIN_RELEVANCE_SCORE = 3; // Minimum score threshold to be considered relevant
 
     // AI prompt parameters
     public static final int MAX_ANSWER_WORDS = 500;
@@ -56,4 +55,14 @@ public final class LegalSearchConfig {
 
             // Prepositions
             "ở", "tại", "từ", "đến", "về", "theo", "trên", "dưới", "giữa");
+
+    // Multi-word stop phrases (question wording), removed as a whole before segmentation
+    public static final Set<String> STOP_PHRASES = Set.of(
+            "như thế nào", "thế nào", "làm thế nào", "ra sao", "làm sao", "thì sao",
+            "là gì", "có được không", "được không", "hay không", "có không",
+            "phải không", "đúng không", "có phải", "có thể",
+            "bao nhiêu", "bao lâu", "bao giờ", "khi nào", "ở đâu",
+            "xin hỏi", "cho hỏi", "cho tôi hỏi", "tôi muốn hỏi", "muốn hỏi",
+            "hiện nay", "hiện tại", "như vậy", "vậy thì",
+            "quy định", "trường hợp");
 }
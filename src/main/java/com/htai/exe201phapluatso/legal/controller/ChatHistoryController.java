@@ -5,13 +5,16 @@ import com.htai.exe201phapluatso.common.exception.UnauthorizedException;
 import com.htai.exe201phapluatso.legal.dto.*;
 import com.htai.exe201phapluatso.legal.service.ChatHistoryService;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -60,34 +63,68 @@ public class ChatHistoryController {
     }
 
     @PostMapping("/sessions/{sessionId}/messages")
-    public ResponseEntity<SendMessageResponse> sendMessageInSession(
+    public CompletableFuture<ResponseEntity<SendMessageResponse>> sendMessageInSession(
             Authentication auth,
             @PathVariable Long sessionId,
             @Valid @RequestBody SendMessageRequest request) {
         Long userId = getUserId(auth);
         String email = getUserEmail(auth);
 
-        SendMessageResponse response = chatHistoryService.sendMessage(
+        return chatHistoryService.sendMessageAsync(
                 userId,
                 email,
                 sessionId,
-                request.question());
-        return ResponseEntity.ok(response);
+                request.question())
+                .thenApply(ResponseEntity::ok);
     }
 
     @PostMapping("/sessions/messages")
-    public ResponseEntity<SendMessageResponse> sendMessageNewSession(
+    public CompletableFuture<ResponseEntity<SendMessageResponse>> sendMessageNewSession(
             Authentication auth,
             @Valid @RequestBody SendMessageRequest request) {
         Long userId = getUserId(auth);
         String email = getUserEmail(auth);
 
-        SendMessageResponse response = chatHistoryService.sendMessage(
+        return chatHistoryService.sendMessageAsync(
                 userId,
                 email,
                 null,
+                request.question())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    /**
+     * Streaming variant (Server-Sent Events): citations, answer deltas, then the saved messages
+     */
+    @PostMapping(value = "/sessions/{sessionId}/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessageInSession(
+            Authentication auth,
+            @PathVariable Long sessionId,
+            @Valid @RequestBody SendMessageRequest request) {
+        Long userId = getUserId(auth);
+        String email = getUserEmail(auth);
+
+        SseEmitter emitter = chatHistoryService.streamMessage(
+                userId,
+                email,
+                sessionId,
                 request.question());
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok(emitter);
+    }
+
+    @PostMapping(value = "/sessions/messages/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamMessageNewSession(
+            Authentication auth,
+            @Valid @RequestBody SendMessageRequest request) {
+        Long userId = getUserId(auth);
+        String email = getUserEmail(auth);
+
+        SseEmitter emitter = chatHistoryService.streamMessage(
+                userId,
+                email,
+                null,
+                request.question());
+        return ResponseEntity.ok(emitter);
     }
 
     @DeleteMapping("/sessions/{sessionId}")
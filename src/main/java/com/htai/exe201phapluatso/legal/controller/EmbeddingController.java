@@ -1,5 +1,13 @@
 package com.htai.exe201phapluatso.legal.controller;
 
+import com.htai.exe201phapluatso.ai.cache.QueryEmbeddingCache;
+import com.htai.exe201phapluatso.ai.client.OpenAIGateway;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
+import com.htai.exe201phapluatso.legal.dto.EmbeddingBackfillProgress;
+import com.htai.exe201phapluatso.legal.service.EmbeddingBackfillService;
+import com.htai.exe201phapluatso.legal.service.LegalPassageService;
+import com.htai.exe201phapluatso.legal.service.VectorSearchBenchmark;
 import com.htai.exe201phapluatso.legal.service.VectorSearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,9 +29,31 @@ public class EmbeddingController {
     private static final Logger log = LoggerFactory.getLogger(EmbeddingController.class);
 
     private final VectorSearchService vectorSearchService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final EmbeddingBackfillService backfillService;
+    private final OpenAIGateway openAIGateway;
+    private final AnswerCache answerCache;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final LegalPassageService passageService;
+    private final VectorSearchBenchmark vectorSearchBenchmark;
 
-    public EmbeddingController(VectorSearchService vectorSearchService) {
+    public EmbeddingController(
+            VectorSearchService vectorSearchService,
+            QueryEmbeddingCache queryEmbeddingCache,
+            EmbeddingBackfillService backfillService,
+            OpenAIGateway openAIGateway,
+            AnswerCache answerCache,
+            ArticleSnapshotCache articleSnapshotCache,
+            LegalPassageService passageService,
+            VectorSearchBenchmark vectorSearchBenchmark) {
         this.vectorSearchService = vectorSearchService;
+        this.queryEmbeddingCache = queryEmbeddingCache;
+        this.backfillService = backfillService;
+        this.openAIGateway = openAIGateway;
+        this.answerCache = answerCache;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.passageService = passageService;
+        this.vectorSearchBenchmark = vectorSearchBenchmark;
     }
 
     /**
@@ -46,6 +76,59 @@ public class EmbeddingController {
         ));
     }
 
+    /**
+     * Get query embedding cache statistics (hit/miss per tier)
+     */
+    @GetMapping("/query-cache/stats")
+    public ResponseEntity<Map<String, Object>> getQueryCacheStats() {
+        return ResponseEntity.ok(queryEmbeddingCache.getStats());
+    }
+
+    /**
+     * Get chat answer cache statistics
+     */
+    @GetMapping("/answer-cache/stats")
+    public ResponseEntity<Map<String, Object>> getAnswerCacheStats() {
+        return ResponseEntity.ok(answerCache.getStats());
+    }
+
+    /**
+     * Drop all cached chat answers
+     */
+    @PostMapping("/answer-cache/clear")
+    public ResponseEntity<Map<String, Object>> clearAnswerCache() {
+        answerCache.invalidate();
+        return ResponseEntity.ok(answerCache.getStats());
+    }
+
+    /**
+     * Get article snapshot cache statistics
+     */
+    @GetMapping("/article-cache/stats")
+    public ResponseEntity<Map<String, Object>> getArticleCacheStats() {
+        return ResponseEntity.ok(articleSnapshotCache.getStats());
+    }
+
+    /**
+     * Get OpenAI gateway statistics (in-flight / queued / rejected upstream calls)
+     */
+    @GetMapping("/ai-gateway/stats")
+    public ResponseEntity<Map<String, Object>> getAiGatewayStats() {
+        return ResponseEntity.ok(openAIGateway.getStats());
+    }
+
+    /**
+     * Recall@k vs latency of each vector search mode (full / reduced / binary) on the stored articles
+     * Used to choose vector.search.mode; runs synchronously, keep queries small in production
+     */
+    @GetMapping("/search-modes/benchmark")
+    public ResponseEntity<Map<String, Object>> benchmarkSearchModes(
+            @RequestParam(defaultValue = "50") int queries,
+            @RequestParam(defaultValue = "10") int k
+    ) {
+        return ResponseEntity.ok(vectorSearchBenchmark.run(Math.min(queries, 500), Math.min(k, 100)));
+    }
+
     /**
      * Generate embeddings for a single article
      */
@@ -77,8 +160,8 @@ public class EmbeddingController {
     ) {
         log.info("Generating embeddings for batch of {} articles", batchSize);
         
-        // Limit batch size to prevent timeout
-        int actualBatchSize = Math.min(batchSize, 50);
+        // Limit batch size to prevent timeout (one embeddings request per batch)
+        int actualBatchSize = Math.min(batchSize, 100);
         
         try {
             int generated = vectorSearchService.generateMissingEmbeddings(actualBatchSize);
@@ -100,8 +183,40 @@ public class EmbeddingController {
     }
 
     /**
-     * Generate all missing embeddings (processes everything in batches)
-     * Warning: This can take a long time for large datasets
+     * Chunk articles imported before passages existed, then embed passages without embeddings (batch)
+     */
+    @PostMapping("/passages/generate-batch")
+    public ResponseEntity<Map<String, Object>> generatePassageBatch(
+            @RequestParam(defaultValue = "10") int batchSize
+    ) {
+        int actualBatchSize = Math.min(batchSize, 100);
+
+        try {
+            int chunked = passageService.chunkMissingArticles(actualBatchSize);
+            int generated = passageService.generateMissingEmbeddings(actualBatchSize);
+            long remaining = passageService.countPassagesWithoutEmbeddings();
+
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "chunkedArticles", chunked,
+                "generated", generated,
+                "remaining", remaining,
+                "totalPassages", passageService.countPassages(),
+                "message", String.format("Chunked %d articles, generated %d passage embeddings, %d remaining",
+                        chunked, generated, remaining)
+            ));
+        } catch (Exception e) {
+            log.error("Passage batch generation failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of(
+                "success", false,
+                "error", e.getMessage()
+            ));
+        }
+    }
+
+    /**
+     * Generate all missing embeddings
+     * Starts the background backfill job and returns immediately; poll /backfill/status for progress
      */
     @PostMapping("/generate-all")
     public ResponseEntity<Map<String, Object>> generateAll() {
@@ -110,34 +225,54 @@ public class EmbeddingController {
         if (missing == 0) {
             return ResponseEntity.ok(Map.of(
                 "success", true,
+                "started", false,
                 "message", "All articles already have embeddings"
             ));
         }
 
-        log.info("Starting to generate embeddings for {} articles", missing);
-        
-        // Process in batches of 20 - NO LIMIT, gen hết sạch
-        int totalGenerated = 0;
-        int batchSize = 20;
-        
-        while (true) {
-            int generated = vectorSearchService.generateMissingEmbeddings(batchSize);
-            totalGenerated += generated;
-            
-            if (generated == 0) {
-                break; // No more articles to process
-            }
-            
-            log.info("Progress: generated {} embeddings so far...", totalGenerated);
-        }
+        log.info("Starting embedding backfill for {} articles", missing);
+        EmbeddingBackfillProgress progress = backfillService.start(false);
 
-        long remaining = vectorSearchService.countArticlesWithoutEmbeddings();
-        
-        return ResponseEntity.ok(Map.of(
+        return ResponseEntity.accepted().body(Map.of(
             "success", true,
-            "totalGenerated", totalGenerated,
-            "remaining", remaining,
-            "message", String.format("Generated %d embeddings, %d remaining", totalGenerated, remaining)
+            "started", true,
+            "progress", progress,
+            "message", String.format("Started generating %d embeddings in background", missing)
         ));
     }
+
+    /**
+     * Start a backfill job
+     * @param reembedAll true = re-embed every article (e.g. after a model change)
+     */
+    @PostMapping("/backfill")
+    public ResponseEntity<EmbeddingBackfillProgress> startBackfill(
+            @RequestParam(defaultValue = "false") boolean reembedAll
+    ) {
+        return ResponseEntity.accepted().body(backfillService.start(reembedAll));
+    }
+
+    /**
+     * Resume a stopped / failed backfill job from its cursor
+     */
+    @PostMapping("/backfill/resume")
+    public ResponseEntity<EmbeddingBackfillProgress> resumeBackfill() {
+        return ResponseEntity.accepted().body(backfillService.resume());
+    }
+
+    /**
+     * Stop the running backfill job after the current batch
+     */
+    @PostMapping("/backfill/stop")
+    public ResponseEntity<EmbeddingBackfillProgress> stopBackfill() {
+        return ResponseEntity.ok(backfillService.stop());
+    }
+
+    /**
+     * Get backfill job progress
+     */
+    @GetMapping("/backfill/status")
+    public ResponseEntity<EmbeddingBackfillProgress> getBackfillStatus() {
+        return ResponseEntity.ok(backfillService.getProgress());
+    }
 }
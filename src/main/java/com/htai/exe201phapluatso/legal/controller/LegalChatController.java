@@ -9,6 +9,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/legal/chat")
 public class LegalChatController {
@@ -27,7 +29,7 @@ public class LegalChatController {
      * Requires 1 chat credit per request
      */
     @PostMapping("/ask")
-    public ResponseEntity<ChatResponse> ask(
+    public CompletableFuture<ResponseEntity<ChatResponse>> ask(
             @RequestBody ChatRequest request,
             Authentication authentication
     ) {
@@ -37,7 +39,7 @@ public class LegalChatController {
                 .orElseThrow(() -> new NotFoundException("User not found"))
                 .getId();
         
-        ChatResponse response = chatService.chat(userId, request.question());
-        return ResponseEntity.ok(response);
+        return chatService.chatAsync(userId, request.question(), null)
+                .thenApply(ResponseEntity::ok);
     }
 }
@@ -1,8 +1,10 @@
 package com.htai.exe201phapluatso.legal.controller;
 
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
 import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
 import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import com.htai.exe201phapluatso.legal.service.HybridRetrievalService;
 import com.htai.exe201phapluatso.legal.service.VectorSearchService;
 import org.springframework.context.annotation.Profile;
 import org.springframework.http.ResponseEntity;
@@ -21,15 +23,18 @@ public class LegalDebugController {
     private final LegalDocumentRepo documentRepo;
     private final LegalArticleRepo articleRepo;
     private final VectorSearchService vectorSearchService;
+    private final HybridRetrievalService hybridRetrievalService;
 
     public LegalDebugController(
             LegalDocumentRepo documentRepo, 
             LegalArticleRepo articleRepo,
-            VectorSearchService vectorSearchService
+            VectorSearchService vectorSearchService,
+            HybridRetrievalService hybridRetrievalService
     ) {
         this.documentRepo = documentRepo;
         this.articleRepo = articleRepo;
         this.vectorSearchService = vectorSearchService;
+        this.hybridRetrievalService = hybridRetrievalService;
     }
 
     /**
@@ -88,18 +93,18 @@ public class LegalDebugController {
             @RequestParam String q,
             @RequestParam(defaultValue = "5") int limit
     ) {
-        List<LegalArticle> results = vectorSearchService.hybridSearch(q, limit);
+        List<ArticleSnapshot> results = hybridRetrievalService.retrieve(q, limit);
         
         List<Map<String, Object>> response = results.stream()
                 .map(a -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("id", a.getId());
-                    map.put("documentName", a.getDocument().getDocumentName());
-                    map.put("articleNumber", a.getArticleNumber());
-                    map.put("articleTitle", a.getArticleTitle());
-                    map.put("contentPreview", a.getContent() != null && a.getContent().length() > 300 
-                            ? a.getContent().substring(0, 300) + "..." 
-                            : a.getContent());
+                    map.put("id", a.id());
+                    map.put("documentName", a.documentName());
+                    map.put("articleNumber", a.articleNumber());
+                    map.put("articleTitle", a.articleTitle());
+                    map.put("contentPreview", a.content() != null && a.content().length() > 300 
+                            ? a.content().substring(0, 300) + "..." 
+                            : a.content());
                     return map;
                 })
                 .collect(Collectors.toList());
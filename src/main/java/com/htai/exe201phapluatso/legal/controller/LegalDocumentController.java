@@ -2,9 +2,11 @@ package com.htai.exe201phapluatso.legal.controller;
 
 import com.htai.exe201phapluatso.auth.security.AuthUserPrincipal;
 import com.htai.exe201phapluatso.legal.dto.LegalDocumentDTO;
+import com.htai.exe201phapluatso.legal.dto.LegalIngestionJobDTO;
 import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentRequest;
 import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentResponse;
 import com.htai.exe201phapluatso.legal.service.LegalDocumentService;
+import com.htai.exe201phapluatso.legal.service.LegalIngestionService;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -20,14 +22,20 @@ import java.util.Map;
 public class LegalDocumentController {
 
     private final LegalDocumentService legalDocumentService;
+    private final LegalIngestionService legalIngestionService;
 
-    public LegalDocumentController(LegalDocumentService legalDocumentService) {
+    public LegalDocumentController(
+            LegalDocumentService legalDocumentService,
+            LegalIngestionService legalIngestionService
+    ) {
         this.legalDocumentService = legalDocumentService;
+        this.legalIngestionService = legalIngestionService;
     }
 
     /**
      * Upload legal document (Admin only)
      * POST /api/legal/documents/upload
+     * Parsing and embedding run in the background; returns 202 with the ingestion job id
      */
     @PostMapping("/upload")
     @PreAuthorize("hasAuthority('ROLE_ADMIN')")
@@ -51,13 +59,43 @@ public class LegalDocumentController {
                 effectiveDate
         );
 
-        UploadLegalDocumentResponse response = legalDocumentService.uploadDocument(
+        UploadLegalDocumentResponse response = legalIngestionService.enqueue(
                 userEmail,
                 file,
                 request
         );
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    /**
+     * Get ingestion job progress (Admin only)
+     * GET /api/legal/documents/ingestions/{jobId}
+     */
+    @GetMapping("/ingestions/{jobId}")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<LegalIngestionJobDTO> getIngestionJob(@PathVariable Long jobId) {
+        return ResponseEntity.ok(legalIngestionService.getJob(jobId));
+    }
+
+    /**
+     * Get recent ingestion jobs (Admin only)
+     * GET /api/legal/documents/ingestions
+     */
+    @GetMapping("/ingestions")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<List<LegalIngestionJobDTO>> getRecentIngestionJobs() {
+        return ResponseEntity.ok(legalIngestionService.getRecentJobs());
+    }
+
+    /**
+     * Retry a failed ingestion job from the stage where it stopped (Admin only)
+     * POST /api/legal/documents/ingestions/{jobId}/retry
+     */
+    @PostMapping("/ingestions/{jobId}/retry")
+    @PreAuthorize("hasAuthority('ROLE_ADMIN')")
+    public ResponseEntity<LegalIngestionJobDTO> retryIngestionJob(@PathVariable Long jobId) {
+        return ResponseEntity.accepted().body(legalIngestionService.retry(jobId));
     }
 
     /**
@@ -0,0 +1,13 @@
+package com.htai.exe201phapluatso.legal.dto;
+
+/**
+ * Matched passage (Khoản / Điểm) of an article, as put into the chat prompt
+ */
+public record ArticlePassage(
+    Long id,
+    Long articleId,
+    Integer passageIndex,
+    String label,           // null = lead-in / whole article
+    String content
+) {
+}
@@ -2,13 +2,18 @@ package com.htai.exe201phapluatso.legal.dto;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.ToIntFunction;
 
 /**
  * Holds conversation history for context-aware chat responses.
  * Uses token-based limits (instead of message count) for more adaptive context
  * management.
  * 
- * Token estimation: ~4 characters per token for Vietnamese text.
+ * Token counting: the tokenizer passed in by MemoryService (TokenCounter);
+ * the no-counter constructors fall back to ~4 characters per token.
+ *
+ * Long sessions: older turns are folded into a rolling summary (ChatSession.summary),
+ * messages only holds the turns the summary does not cover yet.
  */
 public class ConversationContext {
 
@@ -17,7 +22,7 @@ public class ConversationContext {
      * Leaves room for prompt (~2000 tokens) + response (~1000 tokens) within model
      * limit.
      */
-    private static final int MAX_TOKENS = 2000;
+    private static final int DEFAULT_MAX_TOKENS = 2000;
 
     /**
      * Characters per token estimate for Vietnamese text.
@@ -32,12 +37,40 @@ public class ConversationContext {
     private static final int MAX_MESSAGES_HARD_LIMIT = 10;
 
     private final List<Message> messages;
+    private final String summary;
+    private final int maxTokens;
+    private final ToIntFunction<String> tokenCounter;
+    // Articles cited by the previous answer (speculative generation of follow-up answers)
+    private List<Long> lastCitedArticleIds = List.of();
 
     public ConversationContext() {
-        this.messages = new ArrayList<>();
+        this(List.of());
     }
 
     public ConversationContext(List<Message> messages) {
+        this(messages, DEFAULT_MAX_TOKENS, ConversationContext::estimateTokens);
+    }
+
+    /**
+     * @param messages     Messages, oldest first
+     * @param maxTokens    Token budget of the kept (most recent) messages
+     * @param tokenCounter Token count of a message content
+     */
+    public ConversationContext(List<Message> messages, int maxTokens, ToIntFunction<String> tokenCounter) {
+        this(null, messages, maxTokens, tokenCounter);
+    }
+
+    /**
+     * @param summary      Rolling summary of the turns before messages (null if none)
+     * @param messages     Messages not covered by the summary, oldest first
+     * @param maxTokens    Token budget of the kept (most recent) messages
+     * @param tokenCounter Token count of a message content
+     */
+    public ConversationContext(String summary, List<Message> messages, int maxTokens,
+            ToIntFunction<String> tokenCounter) {
+        this.summary = summary == null || summary.isBlank() ? null : summary;
+        this.maxTokens = maxTokens;
+        this.tokenCounter = tokenCounter;
         this.messages = new ArrayList<>();
         // Add messages while respecting token limit
         for (Message msg : messages) {
@@ -65,25 +98,25 @@ public class ConversationContext {
      * Trim messages from the beginning until total tokens is within limit.
      */
     private void trimToTokenLimit() {
-        while (calculateTotalTokens() > MAX_TOKENS && messages.size() > 1) {
+        while (calculateTotalTokens() > maxTokens && messages.size() > 1) {
             messages.remove(0);
         }
     }
 
     /**
-     * Calculate total estimated tokens in current context.
+     * Calculate total tokens in current context.
      */
     public int calculateTotalTokens() {
         return messages.stream()
-                .mapToInt(msg -> estimateTokens(msg.content()))
+                .mapToInt(msg -> msg.content() == null ? 0 : tokenCounter.applyAsInt(msg.content()))
                 .sum();
     }
 
     /**
-     * Estimate token count for a text string.
+     * Estimate token count for a text string (fallback without a tokenizer).
      * Simple heuristic: ~4 characters per token for Vietnamese text.
      */
-    private int estimateTokens(String text) {
+    private static int estimateTokens(String text) {
         if (text == null || text.isEmpty()) {
             return 0;
         }
@@ -94,8 +127,23 @@ public class ConversationContext {
         return messages;
     }
 
+    /**
+     * Rolling summary of earlier turns, or null
+     */
+    public String getSummary() {
+        return summary;
+    }
+
     public boolean isEmpty() {
-        return messages.isEmpty();
+        return messages.isEmpty() && summary == null;
+    }
+
+    public List<Long> getLastCitedArticleIds() {
+        return lastCitedArticleIds;
+    }
+
+    public void setLastCitedArticleIds(List<Long> lastCitedArticleIds) {
+        this.lastCitedArticleIds = lastCitedArticleIds == null ? List.of() : List.copyOf(lastCitedArticleIds);
     }
 
     /**
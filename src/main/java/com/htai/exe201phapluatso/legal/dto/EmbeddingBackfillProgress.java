@@ -0,0 +1,20 @@
+package com.htai.exe201phapluatso.legal.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Snapshot tiến độ của embedding backfill job
+ */
+public record EmbeddingBackfillProgress(
+    String status,          // IDLE, RUNNING, STOPPING, STOPPED, COMPLETED, FAILED
+    boolean reembedAll,
+    long total,
+    long processed,
+    long failed,
+    Long lastArticleId,     // keyset cursor: articles <= this id have been handled
+    double percent,
+    LocalDateTime startedAt,
+    LocalDateTime finishedAt,
+    String message
+) {
+}
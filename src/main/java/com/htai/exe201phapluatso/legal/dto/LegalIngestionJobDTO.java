@@ -0,0 +1,19 @@
+package com.htai.exe201phapluatso.legal.dto;
+
+import java.time.LocalDateTime;
+
+public record LegalIngestionJobDTO(
+    Long jobId,
+    String status,          // QUEUED, RUNNING, RETRYING, COMPLETED, FAILED
+    String stage,           // PARSING, PERSISTING, CHUNKING, EMBEDDING, INDEXING, DONE
+    String documentName,
+    Long documentId,
+    int totalArticles,
+    int embeddedArticles,
+    int attempts,
+    String lastError,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    LocalDateTime completedAt
+) {
+}
@@ -1,7 +1,11 @@
 package com.htai.exe201phapluatso.legal.dto;
 
+/**
+ * traceId: id of the request's RAG metrics trace, logged with its per-stage timings
+ */
 public record SendMessageResponse(
     Long sessionId,
     ChatMessageDTO userMessage,
-    ChatMessageDTO assistantMessage
+    ChatMessageDTO assistantMessage,
+    String traceId
 ) {}
@@ -1,9 +1,9 @@
 package com.htai.exe201phapluatso.legal.dto;
 
 public record UploadLegalDocumentResponse(
-    Long documentId,
+    Long jobId,             // Poll GET /api/legal/documents/ingestions/{jobId} for progress
     String documentName,
-    int totalArticles,
+    String status,
     String message
 ) {
 }
@@ -41,6 +41,14 @@
         @Version
         private Integer version = 0;
 
+        // Rolling conversation summary: read-only here, written by ChatSessionRepo.updateSummary
+        // (so saving the session in Phase A never overwrites a newer summary)
+        @Column(name = "summary", columnDefinition = "TEXT", insertable = false, updatable = false)
+        private String summary;
+
+        @Column(name = "summary_message_count", insertable = false, updatable = false)
+        private Integer summaryMessageCount = 0;
+
         @OneToMany(mappedBy = "session", cascade = CascadeType.ALL, orphanRemoval = true)
         private List<ChatMessage> messages = new ArrayList<>();
 
@@ -118,6 +126,14 @@
             this.version = version;
         }
 
+        public String getSummary() {
+            return summary;
+        }
+
+        public Integer getSummaryMessageCount() {
+            return summaryMessageCount;
+        }
+
         public List<ChatMessage> getMessages() {
             return messages;
         }
@@ -0,0 +1,47 @@
+package com.htai.exe201phapluatso.legal.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Name a document is cited by ("blhs", "luat dat dai"), folded: lowercase, no diacritics
+ * Generated from the document name / code, see LegalReferenceResolver
+ */
+@Entity
+@Table(name = "legal_document_aliases")
+public class LegalDocumentAlias {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    @Column(nullable = false, length = 200)
+    private String alias;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public LegalDocumentAlias() {
+    }
+
+    public LegalDocumentAlias(Long documentId, String alias) {
+        this.documentId = documentId;
+        this.alias = alias;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public String getAlias() { return alias; }
+    public void setAlias(String alias) { this.alias = alias; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
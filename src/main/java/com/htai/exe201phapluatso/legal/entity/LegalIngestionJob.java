@@ -0,0 +1,137 @@
+package com.htai.exe201phapluatso.legal.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Background ingestion job for an uploaded legal document
+ * Pipeline: PARSING -> PERSISTING -> CHUNKING -> EMBEDDING -> INDEXING -> DONE
+ */
+@Entity
+@Table(name = "legal_ingestion_jobs")
+public class LegalIngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // QUEUED, RUNNING, RETRYING, COMPLETED, FAILED
+    @Column(nullable = false, length = 20)
+    private String status = "QUEUED";
+
+    // PARSING, PERSISTING, CHUNKING, EMBEDDING, INDEXING, DONE
+    @Column(nullable = false, length = 20)
+    private String stage = "PARSING";
+
+    @Column(name = "original_filename", length = 500)
+    private String originalFilename;
+
+    @Column(name = "temp_file_path", length = 1000)
+    private String tempFilePath;
+
+    @Column(name = "file_url", length = 1000)
+    private String fileUrl;
+
+    @Column(name = "document_name", nullable = false, length = 500)
+    private String documentName;
+
+    @Column(name = "document_code", length = 100)
+    private String documentCode;
+
+    @Column(name = "document_type", length = 100)
+    private String documentType;
+
+    @Column(name = "issuing_body", length = 200)
+    private String issuingBody;
+
+    @Column(name = "effective_date", length = 20)
+    private String effectiveDate;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "total_articles", nullable = false)
+    private Integer totalArticles = 0;
+
+    @Column(name = "embedded_articles", nullable = false)
+    private Integer embeddedArticles = 0;
+
+    @Column(nullable = false)
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "created_by_id", nullable = false)
+    private Long createdById;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    // Getters and Setters
+    public Long getId() { return id; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public String getStage() { return stage; }
+    public void setStage(String stage) { this.stage = stage; }
+
+    public String getOriginalFilename() { return originalFilename; }
+    public void setOriginalFilename(String originalFilename) { this.originalFilename = originalFilename; }
+
+    public String getTempFilePath() { return tempFilePath; }
+    public void setTempFilePath(String tempFilePath) { this.tempFilePath = tempFilePath; }
+
+    public String getFileUrl() { return fileUrl; }
+    public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+
+    public String getDocumentName() { return documentName; }
+    public void setDocumentName(String documentName) { this.documentName = documentName; }
+
+    public String getDocumentCode() { return documentCode; }
+    public void setDocumentCode(String documentCode) { this.documentCode = documentCode; }
+
+    public String getDocumentType() { return documentType; }
+    public void setDocumentType(String documentType) { this.documentType = documentType; }
+
+    public String getIssuingBody() { return issuingBody; }
+    public void setIssuingBody(String issuingBody) { this.issuingBody = issuingBody; }
+
+    public String getEffectiveDate() { return effectiveDate; }
+    public void setEffectiveDate(String effectiveDate) { this.effectiveDate = effectiveDate; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Integer getTotalArticles() { return totalArticles; }
+    public void setTotalArticles(Integer totalArticles) { this.totalArticles = totalArticles; }
+
+    public Integer getEmbeddedArticles() { return embeddedArticles; }
+    public void setEmbeddedArticles(Integer embeddedArticles) { this.embeddedArticles = embeddedArticles; }
+
+    public Integer getAttempts() { return attempts; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public Long getCreatedById() { return createdById; }
+    public void setCreatedById(Long createdById) { this.createdById = createdById; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
@@ -0,0 +1,59 @@
+package com.htai.exe201phapluatso.legal.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Khoản / Điểm-level chunk of a legal article
+ * The embedding column is written with native queries (see LegalPassageService)
+ */
+@Entity
+@Table(name = "legal_passages")
+public class LegalPassage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "article_id", nullable = false)
+    private Long articleId;
+
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    // 0-based position inside the article (reading order)
+    @Column(name = "passage_index", nullable = false)
+    private Integer passageIndex;
+
+    // e.g. "Khoản 2", "Khoản 2, điểm a"; null for the lead-in or an unsplit article
+    @Column(length = 100)
+    private String label;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Getters and Setters
+    public Long getId() { return id; }
+
+    public Long getArticleId() { return articleId; }
+    public void setArticleId(Long articleId) { this.articleId = articleId; }
+
+    public Long getDocumentId() { return documentId; }
+    public void setDocumentId(Long documentId) { this.documentId = documentId; }
+
+    public Integer getPassageIndex() { return passageIndex; }
+    public void setPassageIndex(Integer passageIndex) { this.passageIndex = passageIndex; }
+
+    public String getLabel() { return label; }
+    public void setLabel(String label) { this.label = label; }
+
+    public String getContent() { return content; }
+    public void setContent(String content) { this.content = content; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
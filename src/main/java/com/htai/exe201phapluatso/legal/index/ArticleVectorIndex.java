@@ -0,0 +1,249 @@
+package com.htai.exe201phapluatso.legal.index;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.ai.service.VectorCodec;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-JVM HNSW index over legal_articles.embedding (optional).
+ *
+ * - Built in the background from Postgres at startup (keyset-paged)
+ * - Kept up to date incrementally after each embedding write / document delete
+ * - Serves top-k cosine queries; Postgres is only used to hydrate articles by id
+ *
+ * While disabled or still loading, callers fall back to pgvector.
+ */
+@Component
+public class ArticleVectorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ArticleVectorIndex.class);
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private final EntityManager entityManager;
+    private final EmbeddingService embeddingService;
+
+    @Value("${vector.index.in-memory.enabled:false}")
+    private boolean enabled;
+
+    @Value("${vector.index.hnsw.m:16}")
+    private int m;
+
+    @Value("${vector.index.hnsw.ef-construction:200}")
+    private int efConstruction;
+
+    @Value("${vector.index.hnsw.ef-search:64}")
+    private int efSearch;
+
+    private volatile HnswIndex index;
+    private volatile boolean ready = false;
+
+    public ArticleVectorIndex(EntityManager entityManager, EmbeddingService embeddingService) {
+        this.entityManager = entityManager;
+        this.embeddingService = embeddingService;
+    }
+
+    /**
+     * Build the index in the background once the application is up,
+     * so startup is not blocked by loading every embedding.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            log.info("In-memory vector index disabled (vector.index.in-memory.enabled=false)");
+            return;
+        }
+
+        index = new HnswIndex(embeddingService.getDimensions(), m, efConstruction);
+
+        Thread loader = new Thread(this::loadFromDatabase, "vector-index-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void loadFromDatabase() {
+        long start = System.currentTimeMillis();
+        long lastId = 0;
+        int loaded = 0;
+
+        try {
+            while (true) {
+                @SuppressWarnings("unchecked")
+                List<Object[]> rows = entityManager.createNativeQuery("""
+                        SELECT a.id, vector_send(a.embedding)
+                        FROM legal_articles a
+                        JOIN legal_documents d ON a.document_id = d.id
+                        WHERE a.embedding IS NOT NULL
+                          AND d.status = 'Còn hiệu lực'
+                          AND a.id > :lastId
+                        ORDER BY a.id
+                        LIMIT :limit
+                        """)
+                        .setParameter("lastId", lastId)
+                        .setParameter("limit", LOAD_BATCH_SIZE)
+                        .getResultList();
+
+                if (rows.isEmpty()) {
+                    break;
+                }
+
+                for (Object[] row : rows) {
+                    long id = ((Number) row[0]).longValue();
+                    // Skip ids already upserted by a concurrent embedding write (newer vector)
+                    if (index.addIfAbsent(id, VectorCodec.fromPgBinary((byte[]) row[1]))) {
+                        loaded++;
+                    }
+                    lastId = id;
+                }
+            }
+
+            ready = true;
+            log.info("In-memory vector index ready: {} vectors loaded in {} ms",
+                    loaded, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("Failed to build in-memory vector index, falling back to pgvector: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * True when the index is enabled and fully loaded
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * Top-k nearest articles by cosine similarity
+     */
+    public List<HnswIndex.SearchHit> search(float[] queryEmbedding, int k) {
+        if (!isReady()) {
+            return List.of();
+        }
+        return index.search(queryEmbedding, k, Math.max(efSearch, k));
+    }
+
+    /**
+     * Stored (normalized) vector for an article, or null if not indexed
+     */
+    public float[] getVector(Long articleId) {
+        if (!isReady() || articleId == null) {
+            return null;
+        }
+        return index.getVector(articleId);
+    }
+
+    /**
+     * Vectors of a few articles (e.g. re-rank candidates): from the index when it is ready,
+     * otherwise from pgvector in one query. Articles without an embedding are absent.
+     */
+    public Map<Long, float[]> getVectors(Collection<Long> articleIds) {
+        Map<Long, float[]> vectors = new HashMap<>();
+        if (articleIds.isEmpty()) {
+            return vectors;
+        }
+        if (isReady()) {
+            for (Long id : articleIds) {
+                float[] vector = index.getVector(id);
+                if (vector != null) {
+                    vectors.put(id, vector);
+                }
+            }
+            return vectors;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT a.id, vector_send(a.embedding)
+                FROM legal_articles a
+                WHERE a.id IN (:ids)
+                  AND a.embedding IS NOT NULL
+                """)
+                .setParameter("ids", articleIds)
+                .getResultList();
+        for (Object[] row : rows) {
+            vectors.put(((Number) row[0]).longValue(), VectorCodec.fromPgBinary((byte[]) row[1]));
+        }
+        return vectors;
+    }
+
+    /**
+     * Insert/replace an article vector once the surrounding transaction commits
+     */
+    public void upsertAfterCommit(Long articleId, float[] embedding) {
+        if (!enabled || index == null) {
+            return;
+        }
+        runAfterCommit(() -> index.add(articleId, embedding));
+    }
+
+    /**
+     * Remove article vectors once the surrounding transaction commits
+     */
+    public void removeAfterCommit(Collection<Long> articleIds) {
+        if (!enabled || index == null || articleIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(articleIds);
+        runAfterCommit(() -> ids.forEach(index::remove));
+    }
+
+    /**
+     * Make sure every embedded article of a document is in the index
+     * (INDEXING stage of document ingestion; covers writes made while the index was loading)
+     *
+     * @return Number of vectors added
+     */
+    public int indexDocument(Long documentId) {
+        if (!enabled || index == null) {
+            return 0;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT a.id, vector_send(a.embedding)
+                FROM legal_articles a
+                WHERE a.document_id = :documentId
+                  AND a.embedding IS NOT NULL
+                """)
+                .setParameter("documentId", documentId)
+                .getResultList();
+
+        int added = 0;
+        for (Object[] row : rows) {
+            if (index.addIfAbsent(((Number) row[0]).longValue(), VectorCodec.fromPgBinary((byte[]) row[1]))) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    public int size() {
+        return index != null ? index.size() : 0;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
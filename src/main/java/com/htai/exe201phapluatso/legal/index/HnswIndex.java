@@ -0,0 +1,568 @@
+package com.htai.exe201phapluatso.legal.index;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Hierarchical Navigable Small World graph for cosine top-k search.
+ * Vectors are L2-normalized on insert so similarity is a plain dot product.
+ *
+ * Updates replace the old node with a tombstone + new node; tombstones are still
+ * used for graph navigation but never returned from {@link #search}. Once tombstones
+ * exceed a quarter of the nodes, a compacted graph is built from the live vectors on a
+ * background thread (searches and writes keep using the current graph meanwhile), then
+ * the writes made during the rebuild are replayed onto it and it is swapped in.
+ * Thread-safety: single writer / many readers via a read-write lock.
+ */
+public class HnswIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(HnswIndex.class);
+
+    // Rebuild once deleted nodes exceed this share of all nodes (memory + search over-fetch)
+    private static final double MAX_DELETED_RATIO = 0.25;
+
+    private static final Executor COMPACTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "hnsw-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final int dimensions;
+    private final int m;
+    private final int maxM0;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Executor compactor;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Graph graph = new Graph();
+    // Writes made while a compacted graph is being built (null when not compacting)
+    private List<Change> pendingChanges;
+
+    public HnswIndex(int dimensions, int m, int efConstruction) {
+        this(dimensions, m, efConstruction, COMPACTOR);
+    }
+
+    HnswIndex(int dimensions, int m, int efConstruction, Executor compactor) {
+        if (dimensions <= 0 || m < 2 || efConstruction < m) {
+            throw new IllegalArgumentException("Invalid HNSW parameters");
+        }
+        this.dimensions = dimensions;
+        this.m = m;
+        this.maxM0 = m * 2;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.compactor = compactor;
+    }
+
+    /**
+     * Insert or replace the vector for an id
+     */
+    public void add(long id, float[] vector) {
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            graph.put(id, normalized);
+            record(id, normalized);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Insert only if the id is not indexed yet
+     *
+     * @return true if the vector was inserted
+     */
+    public boolean addIfAbsent(long id, float[] vector) {
+        float[] normalized = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            if (graph.nodeById.containsKey(id)) {
+                return false;
+            }
+            graph.insert(id, normalized);
+            record(id, normalized);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (!graph.remove(id)) {
+                return false;
+            }
+            record(id, null);
+            compactIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Approximate top-k search by cosine similarity
+     *
+     * @param ef size of the dynamic candidate list (higher = better recall, slower)
+     */
+    public List<SearchHit> search(float[] query, int k, int ef) {
+        if (k <= 0) {
+            return List.of();
+        }
+        float[] q = normalize(query);
+
+        lock.readLock().lock();
+        try {
+            return graph.search(q, k, ef);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the (normalized) vector stored for an id, or null if not indexed
+     */
+    public float[] getVector(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = graph.nodeById.get(id);
+            return node != null ? graph.nodes.get(node).vector : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return graph.nodeById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live (non-deleted) vectors
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return graph.nodeById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * Number of tombstones still in the graph
+     */
+    int deletedCount() {
+        lock.readLock().lock();
+        try {
+            return graph.deletedCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ====== COMPACTION ======
+
+    /**
+     * Start a background rebuild when tombstones pile up (caller holds the write lock).
+     * Only the live nodes are copied here; the graph is built without the lock.
+     */
+    private void compactIfNeeded() {
+        if (pendingChanges != null || graph.deletedCount <= graph.nodes.size() * MAX_DELETED_RATIO) {
+            return;
+        }
+        List<Node> live = new ArrayList<>(graph.nodeById.size());
+        for (Node node : graph.nodes) {
+            if (!node.deleted) {
+                live.add(node);
+            }
+        }
+        pendingChanges = new ArrayList<>();
+        compactor.execute(() -> compact(live));
+    }
+
+    private void compact(List<Node> live) {
+        Graph compacted = null;
+        try {
+            long start = System.nanoTime();
+            compacted = new Graph();
+            // Vectors are already normalized and never mutated, safe to read without the lock
+            for (Node node : live) {
+                compacted.insert(node.id, node.vector);
+            }
+            log.debug("HNSW compaction: {} live vectors rebuilt in {} ms",
+                    live.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("HNSW compaction failed, keeping the current graph: {}", e.getMessage());
+            compacted = null;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (compacted != null) {
+                    for (Change change : pendingChanges) {
+                        if (change.vector() != null) {
+                            compacted.put(change.id(), change.vector());
+                        } else {
+                            compacted.remove(change.id());
+                        }
+                    }
+                    graph = compacted;
+                }
+                pendingChanges = null;
+                if (compacted != null) {
+                    // Writes replayed above may have left enough tombstones for another round
+                    compactIfNeeded();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Remember a write for the compaction in progress (vector null = removal)
+     */
+    private void record(long id, float[] vector) {
+        if (pendingChanges != null) {
+            pendingChanges.add(new Change(id, vector));
+        }
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return (int) Math.floor(-Math.log(Math.max(r, Double.MIN_VALUE)) * levelMultiplier);
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException(
+                    "Expected " + dimensions + " dimensions but got " + vector.length);
+        }
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+        float[] normalized = new float[vector.length];
+        if (norm == 0) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = (float) (vector[i] / norm);
+        }
+        return normalized;
+    }
+
+    private static float distance(float[] a, float[] b) {
+        float dot = 0f;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+        }
+        return 1f - dot;
+    }
+
+    /**
+     * Graph state; the live graph is only touched under the lock, a compacted one is built
+     * by a single thread before it is published
+     */
+    private final class Graph {
+
+        final List<Node> nodes = new ArrayList<>();
+        final Map<Long, Integer> nodeById = new HashMap<>();
+        int entryPoint = -1;
+        int maxLevel = -1;
+        int deletedCount = 0;
+
+        /**
+         * Insert or replace (tombstone + new node)
+         */
+        void put(long id, float[] vector) {
+            Integer existing = nodeById.get(id);
+            if (existing != null) {
+                markDeleted(existing);
+            }
+            insert(id, vector);
+        }
+
+        boolean remove(long id) {
+            Integer node = nodeById.remove(id);
+            if (node == null) {
+                return false;
+            }
+            markDeleted(node);
+            return true;
+        }
+
+        List<SearchHit> search(float[] q, int k, int ef) {
+            if (entryPoint < 0) {
+                return List.of();
+            }
+
+            int current = entryPoint;
+            float currentDist = distance(q, nodes.get(current).vector);
+            for (int level = maxLevel; level > 0; level--) {
+                boolean changed = true;
+                while (changed) {
+                    changed = false;
+                    Node node = nodes.get(current);
+                    int[] links = node.links[level];
+                    for (int i = 0; i < node.linkCounts[level]; i++) {
+                        int candidate = links[i];
+                        float d = distance(q, nodes.get(candidate).vector);
+                        if (d < currentDist) {
+                            currentDist = d;
+                            current = candidate;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+
+            // Over-fetch so tombstones don't starve the result list
+            int searchEf = Math.max(ef, k) + Math.min(deletedCount, Math.max(ef, k));
+            PriorityQueue<Candidate> found = searchLayer(q, current, currentDist, searchEf, 0);
+
+            List<Candidate> ordered = new ArrayList<>(found);
+            ordered.sort(Comparator.comparingDouble(Candidate::distance));
+
+            List<SearchHit> hits = new ArrayList<>(k);
+            for (Candidate c : ordered) {
+                Node node = nodes.get(c.node());
+                if (node.deleted) {
+                    continue;
+                }
+                hits.add(new SearchHit(node.id, 1f - c.distance()));
+                if (hits.size() == k) {
+                    break;
+                }
+            }
+            return hits;
+        }
+
+        void insert(long id, float[] vector) {
+            int level = randomLevel();
+            int index = nodes.size();
+            Node node = new Node(id, vector, level, m, maxM0);
+            nodes.add(node);
+            nodeById.put(id, index);
+
+            if (entryPoint < 0) {
+                entryPoint = index;
+                maxLevel = level;
+                return;
+            }
+
+            int current = entryPoint;
+            float currentDist = distance(vector, nodes.get(current).vector);
+
+            for (int lc = maxLevel; lc > level; lc--) {
+                boolean changed = true;
+                while (changed) {
+                    changed = false;
+                    Node cur = nodes.get(current);
+                    for (int i = 0; i < cur.linkCounts[lc]; i++) {
+                        int candidate = cur.links[lc][i];
+                        float d = distance(vector, nodes.get(candidate).vector);
+                        if (d < currentDist) {
+                            currentDist = d;
+                            current = candidate;
+                            changed = true;
+                        }
+                    }
+                }
+            }
+
+            for (int lc = Math.min(level, maxLevel); lc >= 0; lc--) {
+                PriorityQueue<Candidate> found = searchLayer(vector, current, currentDist, efConstruction, lc);
+                List<Candidate> sorted = new ArrayList<>(found);
+                sorted.sort(Comparator.comparingDouble(Candidate::distance));
+
+                List<Integer> neighbours = selectNeighbours(sorted, m);
+                for (int neighbour : neighbours) {
+                    connect(index, neighbour, lc);
+                    connect(neighbour, index, lc);
+                }
+
+                Candidate closest = sorted.get(0);
+                current = closest.node();
+                currentDist = closest.distance();
+            }
+
+            if (level > maxLevel) {
+                maxLevel = level;
+                entryPoint = index;
+            }
+        }
+
+        /**
+         * Beam search on a single layer.
+         * Returns a max-heap (farthest first) of at most ef closest nodes.
+         */
+        private PriorityQueue<Candidate> searchLayer(float[] q, int entry, float entryDist, int ef, int level) {
+            BitSet visited = new BitSet(nodes.size());
+            visited.set(entry);
+
+            PriorityQueue<Candidate> candidates = new PriorityQueue<>(Comparator.comparingDouble(Candidate::distance));
+            PriorityQueue<Candidate> results = new PriorityQueue<>(
+                    Comparator.comparingDouble(Candidate::distance).reversed());
+
+            Candidate start = new Candidate(entry, entryDist);
+            candidates.add(start);
+            results.add(start);
+
+            while (!candidates.isEmpty()) {
+                Candidate closest = candidates.poll();
+                if (closest.distance() > results.peek().distance() && results.size() >= ef) {
+                    break;
+                }
+
+                Node node = nodes.get(closest.node());
+                if (node.level < level) {
+                    continue;
+                }
+                int[] links = node.links[level];
+                for (int i = 0; i < node.linkCounts[level]; i++) {
+                    int neighbour = links[i];
+                    if (visited.get(neighbour)) {
+                        continue;
+                    }
+                    visited.set(neighbour);
+
+                    float d = distance(q, nodes.get(neighbour).vector);
+                    if (results.size() < ef || d < results.peek().distance()) {
+                        Candidate c = new Candidate(neighbour, d);
+                        candidates.add(c);
+                        results.add(c);
+                        if (results.size() > ef) {
+                            results.poll();
+                        }
+                    }
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Neighbour selection heuristic (Malkov & Yashunin, alg. 4) with pruned
+         * connections kept as a fill-in so sparse regions stay connected.
+         */
+        private List<Integer> selectNeighbours(List<Candidate> sortedCandidates, int max) {
+            List<Integer> selected = new ArrayList<>(max);
+            List<Integer> pruned = new ArrayList<>();
+
+            for (Candidate candidate : sortedCandidates) {
+                if (selected.size() >= max) {
+                    break;
+                }
+                float[] cv = nodes.get(candidate.node()).vector;
+                boolean good = true;
+                for (int s : selected) {
+                    if (distance(cv, nodes.get(s).vector) < candidate.distance()) {
+                        good = false;
+                        break;
+                    }
+                }
+                if (good) {
+                    selected.add(candidate.node());
+                } else {
+                    pruned.add(candidate.node());
+                }
+            }
+
+            for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+                selected.add(pruned.get(i));
+            }
+            return selected;
+        }
+
+        private void connect(int from, int to, int level) {
+            Node node = nodes.get(from);
+            int maxLinks = level == 0 ? maxM0 : m;
+
+            if (node.linkCounts[level] < maxLinks) {
+                node.links[level][node.linkCounts[level]++] = to;
+                return;
+            }
+
+            // Over capacity: re-select the best neighbours among existing + new
+            List<Candidate> candidates = new ArrayList<>(maxLinks + 1);
+            for (int i = 0; i < node.linkCounts[level]; i++) {
+                int n = node.links[level][i];
+                candidates.add(new Candidate(n, distance(node.vector, nodes.get(n).vector)));
+            }
+            candidates.add(new Candidate(to, distance(node.vector, nodes.get(to).vector)));
+            candidates.sort(Comparator.comparingDouble(Candidate::distance));
+
+            List<Integer> selected = selectNeighbours(candidates, maxLinks);
+            for (int i = 0; i < selected.size(); i++) {
+                node.links[level][i] = selected.get(i);
+            }
+            node.linkCounts[level] = selected.size();
+        }
+
+        private void markDeleted(int index) {
+            Node node = nodes.get(index);
+            if (!node.deleted) {
+                node.deleted = true;
+                deletedCount++;
+            }
+        }
+    }
+
+    private static final class Node {
+        final long id;
+        final float[] vector;
+        final int level;
+        final int[][] links;
+        final int[] linkCounts;
+        volatile boolean deleted;
+
+        Node(long id, float[] vector, int level, int m, int maxM0) {
+            this.id = id;
+            this.vector = vector;
+            this.level = level;
+            this.links = new int[level + 1][];
+            this.linkCounts = new int[level + 1];
+            for (int l = 0; l <= level; l++) {
+                links[l] = new int[l == 0 ? maxM0 : m];
+            }
+        }
+    }
+
+    private record Candidate(int node, float distance) {
+    }
+
+    private record Change(long id, float[] vector) {
+    }
+
+    /**
+     * Search result: indexed id with its cosine similarity to the query
+     */
+    public record SearchHit(long id, float similarity) {
+    }
+}
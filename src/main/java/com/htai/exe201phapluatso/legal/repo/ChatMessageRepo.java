@@ -6,29 +6,77 @@ import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface ChatMessageRepo extends JpaRepository<ChatMessage, Long> {
 
     /**
-     * Fetch messages with citations AND their documents in one query.
-     * DISTINCT prevents duplicate messages from ManyToMany join.
-     * 2-level fetch: m.citations -> c.document avoids LazyInitializationException.
-     *
-     * WARNING: Do NOT add Pageable to this method!
-     * JOIN FETCH with collection + pagination causes Hibernate to fetch ALL rows
-     * then paginate in-memory (HHH90003004), destroying performance.
-     * Current session limit (10 questions) keeps result set small enough.
+     * Messages of a session in conversation order, without citations.
+     * Citations are resolved separately (findCitationArticleIds + ArticleSnapshotCache),
+     * so article contents and documents are never hydrated here.
      */
     @Query("""
-            SELECT DISTINCT m
+            SELECT m
             FROM ChatMessage m
-            LEFT JOIN FETCH m.citations c
-            LEFT JOIN FETCH c.document
             WHERE m.session.id = :sessionId
             ORDER BY m.createdAt ASC, m.id ASC
             """)
-    List<ChatMessage> findBySessionIdWithCitations(@Param("sessionId") Long sessionId);
+    List<ChatMessage> findBySessionIdOrdered(@Param("sessionId") Long sessionId);
+
+    /**
+     * (role, content) of a session's messages from the given position on, in conversation order.
+     * Projection for conversation memory: no entity, no citations.
+     */
+    @Query(value = """
+            SELECT role, content
+            FROM chat_messages
+            WHERE session_id = :sessionId
+            ORDER BY created_at ASC, id ASC
+            OFFSET :offset LIMIT :limit
+            """, nativeQuery = true)
+    List<Object[]> findRoleAndContentBySessionId(
+            @Param("sessionId") Long sessionId,
+            @Param("offset") int offset,
+            @Param("limit") int limit);
+
+    /**
+     * (role, content) of every message after the first skipFirst ones, in conversation order.
+     * Conversation memory: skipFirst = messages already folded into the session summary,
+     * so only the uncovered tail is read.
+     */
+    @Query(value = """
+            SELECT role, content
+            FROM chat_messages
+            WHERE session_id = :sessionId
+            ORDER BY created_at ASC, id ASC
+            OFFSET :skipFirst
+            """, nativeQuery = true)
+    List<Object[]> findRoleAndContentAfter(
+            @Param("sessionId") Long sessionId,
+            @Param("skipFirst") int skipFirst);
+
+    /**
+     * (message_id, article_id) citation pairs of the given messages
+     */
+    @Query(value = "SELECT message_id, article_id FROM chat_message_citations WHERE message_id IN :messageIds",
+            nativeQuery = true)
+    List<Object[]> findCitationArticleIds(@Param("messageIds") Collection<Long> messageIds);
+
+    /**
+     * Article ids cited by the newest assistant message of a session (speculative follow-up answers)
+     */
+    @Query(value = """
+            SELECT c.article_id
+            FROM chat_message_citations c
+            WHERE c.message_id = (
+                SELECT m.id
+                FROM chat_messages m
+                WHERE m.session_id = :sessionId AND m.role = 'ASSISTANT'
+                ORDER BY m.created_at DESC, m.id DESC
+                LIMIT 1)
+            """, nativeQuery = true)
+    List<Long> findLastAssistantCitationArticleIds(@Param("sessionId") Long sessionId);
 
     // Admin dashboard queries
     long countByRole(String role);
@@ -4,9 +4,12 @@ import com.htai.exe201phapluatso.legal.entity.ChatSession;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ChatSessionRepo extends JpaRepository<ChatSession, Long> {
@@ -63,4 +66,26 @@ public interface ChatSessionRepo extends JpaRepository<ChatSession, Long> {
     java.util.Optional<ChatSession> findByIdAndUserId(
             @Param("sessionId") Long sessionId,
             @Param("userId") Long userId);
+
+    /**
+     * Store a new rolling summary, only if no other update got there first
+     * (compare-and-set on summary_message_count; does not touch the optimistic-lock version)
+     *
+     * @return 1 if stored, 0 if the summary was updated concurrently
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            UPDATE chat_sessions
+            SET summary = :summary,
+                summary_message_count = :messageCount,
+                summary_updated_at = :updatedAt
+            WHERE id = :sessionId AND summary_message_count = :expectedMessageCount
+            """, nativeQuery = true)
+    int updateSummary(
+            @Param("sessionId") Long sessionId,
+            @Param("summary") String summary,
+            @Param("messageCount") int messageCount,
+            @Param("expectedMessageCount") int expectedMessageCount,
+            @Param("updatedAt") LocalDateTime updatedAt);
 }
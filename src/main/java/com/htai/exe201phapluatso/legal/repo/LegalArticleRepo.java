@@ -1,11 +1,14 @@
 package com.htai.exe201phapluatso.legal.repo;
 
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
 import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,4 +23,40 @@ public interface LegalArticleRepo extends JpaRepository<LegalArticle, Long> {
      */
     @Query("SELECT a FROM LegalArticle a JOIN a.document d WHERE d.status = 'Còn hiệu lực' ORDER BY a.id DESC")
     List<LegalArticle> findRecentArticles(Pageable pageable);
+
+    /**
+     * Ids of the most recent effective articles (for fallback search)
+     */
+    @Query("SELECT a.id FROM LegalArticle a JOIN a.document d WHERE d.status = 'Còn hiệu lực' ORDER BY a.id DESC")
+    List<Long> findRecentArticleIds(Pageable pageable);
+
+    /**
+     * Bulk-hydrate articles (with their document) by id, effective documents only.
+     * Result order is NOT the order of ids - callers re-order by their ranking.
+     */
+    @Query("SELECT a FROM LegalArticle a JOIN FETCH a.document d WHERE a.id IN :ids AND d.status = 'Còn hiệu lực'")
+    List<LegalArticle> findEffectiveByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Bulk-load article snapshots by id (any document status) for ArticleSnapshotCache.
+     * Constructor projection: nothing is attached to the persistence context.
+     */
+    @Query("""
+            SELECT new com.htai.exe201phapluatso.legal.cache.ArticleSnapshot(
+                a.id, d.id, d.documentName, d.status, a.articleNumber, a.articleTitle, a.content)
+            FROM LegalArticle a JOIN a.document d
+            WHERE a.id IN :ids
+            """)
+    List<ArticleSnapshot> findSnapshotsByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * (id, document id, article number) of cited articles, for direct references ("Điều 51 BLHS").
+     * Served by ix_legal_articles_document_article.
+     */
+    @Query("""
+            SELECT a.id, a.document.id, a.articleNumber FROM LegalArticle a
+            WHERE a.document.id IN :documentIds AND a.articleNumber IN :articleNumbers
+            """)
+    List<Object[]> findReferencedArticles(@Param("documentIds") Collection<Long> documentIds,
+                                          @Param("articleNumbers") Collection<Integer> articleNumbers);
 }
@@ -0,0 +1,24 @@
+package com.htai.exe201phapluatso.legal.repo;
+
+import com.htai.exe201phapluatso.legal.entity.LegalDocumentAlias;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface LegalDocumentAliasRepo extends JpaRepository<LegalDocumentAlias, Long> {
+
+    List<LegalDocumentAlias> findByDocumentId(Long documentId);
+
+    /**
+     * Documents that have no alias yet (imported before aliases existed)
+     */
+    @Query(value = """
+            SELECT d.id FROM legal_documents d
+            WHERE NOT EXISTS (SELECT 1 FROM legal_document_aliases a WHERE a.document_id = d.id)
+            ORDER BY d.id
+            """, nativeQuery = true)
+    List<Long> findDocumentIdsWithoutAliases();
+}
@@ -4,6 +4,7 @@ import com.htai.exe201phapluatso.legal.entity.LegalDocument;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -17,4 +18,13 @@ public interface LegalDocumentRepo extends JpaRepository<LegalDocument, Long> {
     
     Page<LegalDocument> findByDocumentNameContainingIgnoreCaseOrDocumentCodeContainingIgnoreCase(
             String documentName, String documentCode, Pageable pageable);
+
+    /**
+     * Ids of effective documents (the set chat answers are retrieved from), comma separated in id order
+     */
+    @Query(value = """
+            SELECT COALESCE(string_agg(CAST(id AS text), ',' ORDER BY id), '')
+            FROM legal_documents WHERE status = 'Còn hiệu lực'
+            """, nativeQuery = true)
+    String findEffectiveDocumentIds();
 }
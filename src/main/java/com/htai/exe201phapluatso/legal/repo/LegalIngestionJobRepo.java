@@ -0,0 +1,31 @@
+package com.htai.exe201phapluatso.legal.repo;
+
+import com.htai.exe201phapluatso.legal.entity.LegalIngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LegalIngestionJobRepo extends JpaRepository<LegalIngestionJob, Long> {
+
+    List<LegalIngestionJob> findByStatusInOrderByIdAsc(Collection<String> statuses);
+
+    List<LegalIngestionJob> findTop20ByOrderByCreatedAtDesc();
+
+    /**
+     * PERSISTING -> CHUNKING, run in the transaction that inserts the document
+     */
+    @Modifying
+    @Query("UPDATE LegalIngestionJob j SET j.documentId = :documentId, j.totalArticles = :totalArticles, "
+            + "j.stage = 'CHUNKING', j.updatedAt = :now WHERE j.id = :jobId")
+    int markPersisted(@Param("jobId") Long jobId,
+                      @Param("documentId") Long documentId,
+                      @Param("totalArticles") int totalArticles,
+                      @Param("now") LocalDateTime now);
+}
@@ -0,0 +1,59 @@
+package com.htai.exe201phapluatso.legal.repo;
+
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
+import com.htai.exe201phapluatso.legal.entity.LegalPassage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface LegalPassageRepo extends JpaRepository<LegalPassage, Long> {
+
+    long countByDocumentId(Long documentId);
+
+    /**
+     * Remove the passages of a document before it is re-chunked
+     */
+    @Modifying
+    @Query("DELETE FROM LegalPassage p WHERE p.documentId = :documentId")
+    int deleteByDocumentId(@Param("documentId") Long documentId);
+
+    /**
+     * Bulk-load passages by id for the chat prompt (constructor projection)
+     */
+    @Query("""
+            SELECT new com.htai.exe201phapluatso.legal.dto.ArticlePassage(
+                p.id, p.articleId, p.passageIndex, p.label, p.content)
+            FROM LegalPassage p
+            WHERE p.id IN :ids
+            """)
+    List<ArticlePassage> findPassagesByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * All passages of the given articles in reading order (Khoản / Điểm of a direct reference)
+     */
+    @Query("""
+            SELECT new com.htai.exe201phapluatso.legal.dto.ArticlePassage(
+                p.id, p.articleId, p.passageIndex, p.label, p.content)
+            FROM LegalPassage p
+            WHERE p.articleId IN :articleIds
+            ORDER BY p.articleId, p.passageIndex
+            """)
+    List<ArticlePassage> findPassagesByArticleIdIn(@Param("articleIds") Collection<Long> articleIds);
+
+    /**
+     * Articles that have not been chunked yet (documents imported before passages existed)
+     */
+    @Query(value = """
+            SELECT a.id FROM legal_articles a
+            WHERE NOT EXISTS (SELECT 1 FROM legal_passages p WHERE p.article_id = a.id)
+            ORDER BY a.id
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Long> findUnchunkedArticleIds(@Param("limit") int limit);
+}
@@ -0,0 +1,275 @@
+package com.htai.exe201phapluatso.legal.rerank;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.legal.index.ArticleVectorIndex;
+import com.htai.exe201phapluatso.legal.service.KeywordSearchService;
+import com.htai.exe201phapluatso.legal.service.VietnameseTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-process re-ranker (CPU only, no API call)
+ *
+ * Feature score per candidate:
+ *   score = bm25Weight * BM25F(question keywords; title, content) / max
+ *         + vectorWeight * cosine(query embedding, article vector)
+ *         + rankWeight * (1 - retrievalRank / n)
+ *
+ * - BM25F: keywords/bigrams from KeywordSearchService, title boosted like the full-text rank weights,
+ *   IDF over the candidate set (terms common to every candidate discriminate nothing)
+ * - cosine: query embedding from QueryEmbeddingCache (computed during retrieval), candidate vectors from
+ *   the in-memory HNSW index when it is loaded, otherwise from pgvector in one query (the index is off by
+ *   default, so this is the usual path); dropped (weights renormalized) only when no embedding is available
+ *
+ * Keeps the top max-results candidates scoring at least min-relative-score * best, but never fewer than
+ * min-results. Runs in well under a millisecond for the usual 10 candidates.
+ */
+@Component
+public class LexicalReranker implements Reranker {
+
+    private static final Logger log = LoggerFactory.getLogger(LexicalReranker.class);
+
+    public static final String NAME = "lexical";
+
+    private final KeywordSearchService keywordSearchService;
+    private final EmbeddingService embeddingService;
+    private final ArticleVectorIndex articleVectorIndex;
+
+    @Value("${search.rerank.lexical.bm25-weight:0.45}")
+    private double bm25Weight;
+
+    @Value("${search.rerank.lexical.vector-weight:0.45}")
+    private double vectorWeight;
+
+    @Value("${search.rerank.lexical.rank-weight:0.1}")
+    private double rankWeight;
+
+    @Value("${search.rerank.lexical.k1:1.2}")
+    private double k1;
+
+    @Value("${search.rerank.lexical.b:0.75}")
+    private double b;
+
+    @Value("${search.rerank.max-results:5}")
+    private int maxResults;
+
+    @Value("${search.rerank.min-results:3}")
+    private int minResults;
+
+    @Value("${search.rerank.min-relative-score:0.6}")
+    private double minRelativeScore;
+
+    public LexicalReranker(
+            KeywordSearchService keywordSearchService,
+            EmbeddingService embeddingService,
+            ArticleVectorIndex articleVectorIndex) {
+        this.keywordSearchService = keywordSearchService;
+        this.embeddingService = embeddingService;
+        this.articleVectorIndex = articleVectorIndex;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Mono<List<ArticleSnapshot>> rerank(String question, String retrievalQuery, List<ArticleSnapshot> candidates) {
+        return Mono.fromSupplier(() -> rerankNow(question, retrievalQuery, candidates));
+    }
+
+    List<ArticleSnapshot> rerankNow(String question, String retrievalQuery, List<ArticleSnapshot> candidates) {
+        long start = System.nanoTime();
+        int n = candidates.size();
+
+        double[] bm25 = bm25f(keywordSearchService.extractKeywords(question), candidates, k1, b);
+        double[] cosine = cosines(retrievalQuery, candidates);
+
+        double lexWeight = bm25Weight;
+        double vecWeight = cosine != null ? vectorWeight : 0;
+        double total = lexWeight + vecWeight + rankWeight;
+        if (total <= 0) {
+            return candidates.subList(0, Math.min(maxResults, n));
+        }
+
+        double[] scores = new double[n];
+        for (int i = 0; i < n; i++) {
+            scores[i] = (lexWeight * bm25[i]
+                    + (cosine != null ? vecWeight * cosine[i] : 0)
+                    + rankWeight * (1.0 - (double) i / n)) / total;
+        }
+
+        List<Integer> order = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingDouble(i -> scores[i]).reversed().thenComparing(i -> i));
+
+        double best = scores[order.get(0)];
+        List<ArticleSnapshot> selected = new ArrayList<>();
+        for (int i : order) {
+            if (selected.size() >= maxResults) {
+                break;
+            }
+            if (selected.size() >= minResults && scores[i] < best * minRelativeScore) {
+                break;
+            }
+            selected.add(candidates.get(i));
+        }
+
+        log.info("Lexical re-rank selected {} out of {} articles in {} µs (vector feature: {})",
+                selected.size(), n, (System.nanoTime() - start) / 1000, cosine != null);
+        return selected;
+    }
+
+    /**
+     * BM25F over two fields (title, content), normalized to [0, 1] by the best candidate
+     * Multi-word keywords are counted as phrases.
+     */
+    static double[] bm25f(List<String> keywords, List<ArticleSnapshot> candidates, double k1, double b) {
+        int n = candidates.size();
+        double[] scores = new double[n];
+        if (keywords.isEmpty() || n == 0) {
+            return scores;
+        }
+
+        String[][] titles = new String[n][];
+        String[][] contents = new String[n][];
+        double avgTitle = 0;
+        double avgContent = 0;
+        for (int i = 0; i < n; i++) {
+            titles[i] = tokenize(candidates.get(i).articleTitle());
+            contents[i] = tokenize(candidates.get(i).content());
+            avgTitle += titles[i].length;
+            avgContent += contents[i].length;
+        }
+        avgTitle = Math.max(avgTitle / n, 1);
+        avgContent = Math.max(avgContent / n, 1);
+
+        double titleWeight = LegalSearchConfig.TITLE_MATCH_WEIGHT;
+        double contentWeight = LegalSearchConfig.CONTENT_MATCH_WEIGHT;
+
+        for (String keyword : keywords) {
+            String[] phrase = tokenize(keyword);
+            if (phrase.length == 0) {
+                continue;
+            }
+
+            double[] tf = new double[n];
+            int df = 0;
+            for (int i = 0; i < n; i++) {
+                int titleTf = countPhrase(titles[i], phrase);
+                int contentTf = countPhrase(contents[i], phrase);
+                if (titleTf + contentTf > 0) {
+                    df++;
+                }
+                tf[i] = titleWeight * titleTf / (1 - b + b * titles[i].length / avgTitle)
+                        + contentWeight * contentTf / (1 - b + b * contents[i].length / avgContent);
+            }
+            if (df == 0) {
+                continue;
+            }
+
+            double idf = Math.log(1 + (n - df + 0.5) / (df + 0.5));
+            for (int i = 0; i < n; i++) {
+                if (tf[i] > 0) {
+                    scores[i] += idf * tf[i] / (k1 + tf[i]);
+                }
+            }
+        }
+
+        double max = 0;
+        for (double score : scores) {
+            max = Math.max(max, score);
+        }
+        if (max > 0) {
+            for (int i = 0; i < n; i++) {
+                scores[i] /= max;
+            }
+        }
+        return scores;
+    }
+
+    /**
+     * Cosine similarity (clamped to [0, 1]) of each candidate with the retrieval query,
+     * or null when vectors are not available
+     */
+    private double[] cosines(String retrievalQuery, List<ArticleSnapshot> candidates) {
+        if (retrievalQuery == null || retrievalQuery.isBlank()) {
+            return null;
+        }
+
+        float[] query;
+        try {
+            query = embeddingService.generateQueryEmbedding(retrievalQuery);
+        } catch (Exception e) {
+            log.warn("Query embedding unavailable for re-ranking, using lexical features only: {}", e.getMessage());
+            return null;
+        }
+
+        Map<Long, float[]> vectors;
+        try {
+            vectors = articleVectorIndex.getVectors(candidates.stream().map(ArticleSnapshot::id).toList());
+        } catch (Exception e) {
+            log.warn("Article vectors unavailable for re-ranking, using lexical features only: {}", e.getMessage());
+            return null;
+        }
+        if (vectors.isEmpty()) {
+            return null;
+        }
+
+        double[] result = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            float[] vector = vectors.get(candidates.get(i).id());
+            result[i] = vector != null ? Math.max(0, cosine(query, vector)) : 0;
+        }
+        return result;
+    }
+
+    static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    static int countPhrase(String[] tokens, String[] phrase) {
+        int count = 0;
+        outer:
+        for (int i = 0; i + phrase.length <= tokens.length; i++) {
+            for (int j = 0; j < phrase.length; j++) {
+                if (!tokens[i + j].equals(phrase[j])) {
+                    continue outer;
+                }
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Folded syllables (lowercase, letters only, no diacritics), so keywords typed with or
+     * without diacritics match the article text alike
+     */
+    static String[] tokenize(String text) {
+        return VietnameseTokenizer.foldedSyllables(text);
+    }
+}
@@ -0,0 +1,157 @@
+package com.htai.exe201phapluatso.legal.rerank;
+
+import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * AI-powered re-ranking: let the chat model analyze and select truly relevant articles
+ * Costs one extra GPT round-trip per chat (prompt with a preview of every candidate), so it is opt-in:
+ * search.rerank.strategy=llm
+ */
+@Component
+public class LlmReranker implements Reranker {
+
+    private static final Logger log = LoggerFactory.getLogger(LlmReranker.class);
+
+    public static final String NAME = "llm";
+
+    private final OpenAIService aiService;
+
+    public LlmReranker(OpenAIService aiService) {
+        this.aiService = aiService;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    /**
+     * Errors are propagated; the caller decides on the fallback
+     */
+    @Override
+    public Mono<List<ArticleSnapshot>> rerank(String question, String retrievalQuery, List<ArticleSnapshot> candidates) {
+        log.info("AI re-ranking {} candidate articles", candidates.size());
+
+        // Build analysis prompt
+        String analysisPrompt = buildReRankingPrompt(question, candidates);
+
+        return aiService.generateTextAsync(analysisPrompt)
+                .map(aiResponse -> {
+                    List<Integer> selectedIndices = parseSelectedIndices(aiResponse, candidates.size());
+
+                    List<ArticleSnapshot> selected = selectedIndices.stream()
+                            .filter(i -> i >= 0 && i < candidates.size())
+                            .map(candidates::get)
+                            .collect(Collectors.toList());
+
+                    log.info("AI selected {} out of {} articles as truly relevant", selected.size(), candidates.size());
+                    return selected.isEmpty() ? candidates.subList(0, Math.min(3, candidates.size())) : selected;
+                });
+    }
+
+    /**
+     * Build prompt for AI to analyze and select relevant articles
+     * Uses longer preview for better context understanding
+     */
+    private String buildReRankingPrompt(String question, List<ArticleSnapshot> candidates) {
+        StringBuilder prompt = new StringBuilder();
+
+        prompt.append("""
+                Bạn là chuyên gia phân tích pháp luật với nhiệm vụ XÁC ĐỊNH điều luật nào THỰC SỰ LIÊN QUAN đến câu hỏi.
+
+                CẢNH BÁO: Nhiều điều luật có thể chứa từ khóa giống nhau nhưng KHÔNG liên quan đến câu hỏi.
+                Bạn phải phân biệt giữa:
+                - Điều luật TRỰC TIẾP trả lời câu hỏi (CHỌN)
+                - Điều luật chỉ chứa từ khóa tương tự nhưng về chủ đề khác (BỎ QUA)
+
+                """);
+        prompt.append("CÂU HỎI CỦA NGƯỜI DÙNG:\n");
+        prompt.append(question).append("\n\n");
+        prompt.append("CÁC ĐIỀU LUẬT ỨNG VIÊN:\n\n");
+
+        for (int i = 0; i < candidates.size(); i++) {
+            ArticleSnapshot article = candidates.get(i);
+            prompt.append(String.format("[%d] Điều %d", i, article.articleNumber()));
+            if (article.articleTitle() != null && !article.articleTitle().isEmpty()) {
+                prompt.append(" - ").append(article.articleTitle());
+            }
+            prompt.append("\n");
+            prompt.append("Văn bản: ").append(article.documentName()).append("\n");
+            // Use longer preview for better context understanding
+            String preview = article.content().length() > LegalSearchConfig.RERANK_PREVIEW_LENGTH
+                    ? article.content().substring(0, LegalSearchConfig.RERANK_PREVIEW_LENGTH) + "..."
+                    : article.content();
+            prompt.append("Nội dung: ").append(preview).append("\n\n");
+        }
+
+        prompt.append("""
+                TIÊU CHÍ ĐÁNH GIÁ (áp dụng nghiêm ngặt):
+                ✅ CHỌN nếu điều luật:
+                   - Quy định TRỰC TIẾP về vấn đề người dùng hỏi
+                   - Chứa thông tin CỤ THỂ để trả lời câu hỏi (số liệu, điều kiện, quy trình...)
+                   - Thuộc ĐÚNG lĩnh vực pháp luật mà câu hỏi đề cập
+
+                ❌ BỎ QUA nếu điều luật:
+                   - Chỉ chứa từ khóa giống nhưng về CHỦ ĐỀ KHÁC
+                   - Là quy định chung/nguyên tắc mà không trả lời được câu hỏi cụ thể
+                   - Thuộc lĩnh vực pháp luật khác (VD: hỏi về hôn nhân nhưng điều luật về lao động)
+
+                YÊU CẦU:
+                - Tối đa 3-5 điều THỰC SỰ liên quan
+                - Ưu tiên CHÍNH XÁC hơn ĐA DẠNG
+                - Nếu không có điều nào phù hợp, trả về: NONE
+
+                TRẢ LỜI (chỉ ghi số thứ tự, cách nhau bởi dấu phẩy):
+                VD: 0,2,5 hoặc NONE
+                """);
+
+        return prompt.toString();
+    }
+
+    /**
+     * Parse AI response to extract selected article indices
+     */
+    private List<Integer> parseSelectedIndices(String aiResponse, int maxIndex) {
+        if (aiResponse == null || aiResponse.trim().isEmpty()) {
+            return List.of();
+        }
+
+        String cleaned = aiResponse.trim().toUpperCase();
+
+        // Check if AI said NONE
+        if (cleaned.contains("NONE") || cleaned.contains("KHÔNG CÓ")) {
+            return List.of();
+        }
+
+        // Extract numbers
+        List<Integer> indices = new ArrayList<>();
+        String[] parts = cleaned.split("[,\\s]+");
+
+        for (String part : parts) {
+            try {
+                // Remove any non-digit characters
+                String digits = part.replaceAll("[^0-9]", "");
+                if (!digits.isEmpty()) {
+                    int index = Integer.parseInt(digits);
+                    if (index >= 0 && index < maxIndex) {
+                        indices.add(index);
+                    }
+                }
+            } catch (NumberFormatException e) {
+                // Skip invalid numbers
+            }
+        }
+
+        return indices;
+    }
+}
@@ -0,0 +1,31 @@
+package com.htai.exe201phapluatso.legal.rerank;
+
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Second-stage re-ranking of retrieved legal articles
+ * Implementations select (and order) the candidates that actually answer the question.
+ *
+ * Selected by search.rerank.strategy (see {@link #name()}).
+ */
+public interface Reranker {
+
+    /**
+     * Strategy name used in search.rerank.strategy
+     */
+    String name();
+
+    /**
+     * Re-rank retrieval candidates
+     *
+     * @param question       User's question (as typed)
+     * @param retrievalQuery Query used for retrieval (question + conversation context); its embedding
+     *                       is already in QueryEmbeddingCache
+     * @param candidates     Candidates in retrieval order
+     * @return Selected articles, best first (never empty when candidates is not empty)
+     */
+    Mono<List<ArticleSnapshot>> rerank(String question, String retrievalQuery, List<ArticleSnapshot> candidates);
+}
@@ -5,6 +5,8 @@ import com.htai.exe201phapluatso.common.exception.ForbiddenException;
 import com.htai.exe201phapluatso.common.exception.NotFoundException;
 import com.htai.exe201phapluatso.credit.service.CreditService;
 import com.htai.exe201phapluatso.credit.entity.CreditReservation;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
 import com.htai.exe201phapluatso.legal.dto.*;
 import com.htai.exe201phapluatso.legal.entity.ChatMessage;
 import com.htai.exe201phapluatso.legal.entity.ChatSession;
@@ -17,12 +19,21 @@ import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,6 +41,9 @@ public class ChatHistoryService {
 
     private static final Logger log = LoggerFactory.getLogger(ChatHistoryService.class);
     private static final int MAX_TITLE_LENGTH = 50;
+    private static final long STREAM_TIMEOUT_MILLIS = 200_000;
+    // Phase C does blocking JDBC: run it off the Netty event loop that completes the AI call
+    private static final Executor PHASE_C_EXECUTOR = runnable -> Schedulers.boundedElastic().schedule(runnable);
 
     private final ChatSessionRepo sessionRepo;
     private final ChatMessageRepo messageRepo;
@@ -37,6 +51,9 @@ public class ChatHistoryService {
     private final CreditService creditService;
     private final EntityManager entityManager;
     private final MemoryService memoryService;
+    private final ConversationSummaryService summaryService;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final RagMetrics ragMetrics;
 
     public ChatHistoryService(
             ChatSessionRepo sessionRepo,
@@ -44,13 +61,19 @@ public class ChatHistoryService {
             LegalChatService chatService,
             CreditService creditService,
             EntityManager entityManager,
-            MemoryService memoryService) {
+            MemoryService memoryService,
+            ConversationSummaryService summaryService,
+            ArticleSnapshotCache articleSnapshotCache,
+            RagMetrics ragMetrics) {
         this.sessionRepo = sessionRepo;
         this.messageRepo = messageRepo;
         this.chatService = chatService;
         this.creditService = creditService;
         this.entityManager = entityManager;
         this.memoryService = memoryService;
+        this.summaryService = summaryService;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.ragMetrics = ragMetrics;
     }
 
     // ====== GET SESSIONS ======
@@ -113,8 +136,45 @@ public class ChatHistoryService {
     @Transactional(readOnly = true)
     public List<ChatMessageDTO> getSessionMessages(Long userId, Long sessionId) {
         getSessionAndCheckOwnership(userId, sessionId); // Validates ownership
-        List<ChatMessage> messages = messageRepo.findBySessionIdWithCitations(sessionId);
-        return messages.stream().map(this::toMessageDTO).toList();
+        List<ChatMessage> messages = messageRepo.findBySessionIdOrdered(sessionId);
+        Map<Long, List<CitationDTO>> citations = loadCitations(messages);
+        return messages.stream()
+                .map(message -> toMessageDTO(message, citations.getOrDefault(message.getId(), List.of())))
+                .toList();
+    }
+
+    /**
+     * Citations of the given messages: one query for the (message, article) pairs,
+     * article data from ArticleSnapshotCache (one IN query for the articles not cached yet)
+     */
+    private Map<Long, List<CitationDTO>> loadCitations(List<ChatMessage> messages) {
+        if (messages.isEmpty()) {
+            return Map.of();
+        }
+        List<Object[]> pairs = messageRepo.findCitationArticleIds(
+                messages.stream().map(ChatMessage::getId).toList());
+        if (pairs.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, ArticleSnapshot> articles = articleSnapshotCache.getAll(
+                pairs.stream().map(pair -> ((Number) pair[1]).longValue()).toList());
+
+        Map<Long, List<CitationDTO>> citations = new HashMap<>();
+        for (Object[] pair : pairs) {
+            ArticleSnapshot article = articles.get(((Number) pair[1]).longValue());
+            if (article == null) {
+                continue;
+            }
+            citations.computeIfAbsent(((Number) pair[0]).longValue(), id -> new ArrayList<>())
+                    .add(new CitationDTO(
+                            article.id(),
+                            article.documentName(),
+                            article.articleNumber(),
+                            article.articleTitle(),
+                            article.contentPreview()));
+        }
+        return citations;
     }
 
     // ====== SEND MESSAGE ORCHESTRATOR ======
@@ -123,25 +183,123 @@ public class ChatHistoryService {
      * 
      * TRUE 3-PHASE DESIGN:
      * - Phase A: Short @Transactional (validation + charge + increment count ONLY)
-     * - Phase B: NO transaction (AI call)
-     * - Phase C: Short @Transactional (confirm/refund + persist messages)
+     * - Phase B: NO transaction (AI call, non-blocking: the request thread is released)
+     * - Phase C: Short @Transactional (confirm/refund + persist messages), run when the answer arrives
      */
-    public SendMessageResponse sendMessage(Long userId, String userEmail, Long sessionId, String question) {
+    public CompletableFuture<SendMessageResponse> sendMessageAsync(
+            Long userId, String userEmail, Long sessionId, String question) {
         PhaseAResult phaseAResult = executePhaseAWithRetry(userId, userEmail, sessionId, question);
+        RagMetrics.Trace trace = ragMetrics.start("sync");
 
-        ChatResponse chatResponse;
+        CompletableFuture<ChatResponse> chatFuture;
         try {
-            chatResponse = chatService.chat(
+            chatFuture = chatService.chatAsync(
                     phaseAResult.userId(),
                     question,
-                    phaseAResult.conversationContext());
+                    phaseAResult.conversationContext(),
+                    trace);
         } catch (Exception e) {
             executePhaseCFailure(phaseAResult);
             throw new com.htai.exe201phapluatso.common.exception.AiChatFailedException(
                     "AI không thể xử lý yêu cầu. Vui lòng thử lại sau.", e);
         }
 
-        return executePhaseCSuccess(phaseAResult, question, chatResponse);
+        return chatFuture.handleAsync((chatResponse, error) -> {
+            if (error != null) {
+                executePhaseCFailure(phaseAResult);
+                throw new com.htai.exe201phapluatso.common.exception.AiChatFailedException(
+                        "AI không thể xử lý yêu cầu. Vui lòng thử lại sau.", error);
+            }
+            return executePhaseCSuccess(phaseAResult, question, chatResponse, trace.traceId());
+        }, PHASE_C_EXECUTOR);
+    }
+
+    /**
+     * Streaming variant of sendMessage (Server-Sent Events).
+     *
+     * Phase A runs in the request thread, so validation / credit errors are normal HTTP errors.
+     * Retrieval and generation run off the request thread; the client receives:
+     * - "citations": sessionId + citations, before the first token
+     * - "delta":     answer text chunks as OpenAI produces them
+     * - "done":      the persisted SendMessageResponse (Phase C success)
+     * - "error":     generation failed (Phase C failure, first-question credit refunded)
+     *
+     * If the client disconnects, generation still completes and the message is persisted.
+     */
+    public SseEmitter streamMessage(Long userId, String userEmail, Long sessionId, String question) {
+        PhaseAResult phaseAResult = executePhaseAWithRetry(userId, userEmail, sessionId, question);
+        RagMetrics.Trace trace = ragMetrics.start("stream");
+
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MILLIS);
+        StringBuilder answer = new StringBuilder();
+        AtomicReference<List<CitationDTO>> citations = new AtomicReference<>(List.of());
+
+        Mono.fromCallable(() -> chatService.streamChat(
+                        phaseAResult.userId(),
+                        question,
+                        phaseAResult.conversationContext(),
+                        trace))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(stream -> {
+                    citations.set(stream.citations());
+                    sendEvent(emitter, "citations", Map.of(
+                            "sessionId", phaseAResult.sessionId(),
+                            "citations", stream.citations()));
+                    return stream.answer();
+                })
+                // Keep Phase C (and emitter writes) off the Netty event loop
+                .publishOn(Schedulers.boundedElastic())
+                .subscribe(
+                        delta -> {
+                            answer.append(delta);
+                            sendEvent(emitter, "delta", Map.of("content", delta));
+                        },
+                        error -> {
+                            log.error("Streaming chat failed for session {}: {}",
+                                    phaseAResult.sessionId(), error.getMessage());
+                            failStream(emitter, phaseAResult);
+                        },
+                        () -> {
+                            if (answer.toString().isBlank()) {
+                                log.error("Streaming chat returned empty answer for session {}",
+                                        phaseAResult.sessionId());
+                                failStream(emitter, phaseAResult);
+                                return;
+                            }
+                            try {
+                                SendMessageResponse response = executePhaseCSuccess(phaseAResult, question,
+                                        new ChatResponse(answer.toString().trim(), citations.get()), trace.traceId());
+                                sendEvent(emitter, "done", response);
+                                emitter.complete();
+                            } catch (Exception e) {
+                                log.error("Failed to persist streamed message for session {}",
+                                        phaseAResult.sessionId(), e);
+                                failStream(emitter, phaseAResult);
+                            }
+                        });
+
+        return emitter;
+    }
+
+    private void failStream(SseEmitter emitter, PhaseAResult phaseAResult) {
+        try {
+            executePhaseCFailure(phaseAResult);
+        } catch (Exception e) {
+            log.error("Phase C failure handling failed for session {}", phaseAResult.sessionId(), e);
+        }
+        sendEvent(emitter, "error", Map.of("message", "AI không thể xử lý yêu cầu. Vui lòng thử lại sau."));
+        emitter.complete();
+    }
+
+    /**
+     * Send one SSE event; a disconnected client must not abort generation / persistence
+     */
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (Exception e) {
+            log.debug("SSE client gone, dropping '{}' event: {}", name, e.getMessage());
+        }
     }
 
     private PhaseAResult executePhaseAWithRetry(Long userId, String userEmail, Long sessionId, String question) {
@@ -207,7 +365,7 @@ public class ChatHistoryService {
             session.setUserQuestionCount(session.getUserQuestionCount() + 1);
             sessionRepo.save(session);
 
-            conversationContext = memoryService.buildConversationContext(sessionId);
+            conversationContext = memoryService.buildConversationContext(session);
         }
 
         return new PhaseAResult(
@@ -244,7 +402,7 @@ public class ChatHistoryService {
     // ====== PHASE C SUCCESS ======
     @Transactional
     public SendMessageResponse executePhaseCSuccess(PhaseAResult phaseAResult, String question,
-            ChatResponse chatResponse) {
+            ChatResponse chatResponse, String traceId) {
         ChatSession session = sessionRepo.findById(phaseAResult.sessionId())
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy phiên chat"));
 
@@ -278,14 +436,18 @@ public class ChatHistoryService {
         session.setUpdatedAt(LocalDateTime.now());
         sessionRepo.save(session);
 
+        // Fold turns that left the recent window into the session summary (background, after commit)
+        summaryService.updateAfterCommit(session.getId());
+
         log.info("Message sent in session {} by user {} (with context: {})",
                 session.getId(), phaseAResult.userEmail(),
                 phaseAResult.conversationContext() != null && !phaseAResult.conversationContext().isEmpty());
 
         return new SendMessageResponse(
                 session.getId(),
-                toMessageDTO(userMessage),
-                toMessageDTOFromResponse(assistantMessage, chatResponse.citations()));
+                toMessageDTO(userMessage, List.of()),
+                toMessageDTO(assistantMessage, chatResponse.citations()),
+                traceId);
     }
 
     public record PhaseAResult(
@@ -340,25 +502,7 @@ public class ChatHistoryService {
                 });
     }
 
-    private ChatMessageDTO toMessageDTO(ChatMessage message) {
-        List<CitationDTO> citations = message.getCitations().stream()
-                .map(article -> new CitationDTO(
-                        article.getId(),
-                        article.getDocument().getDocumentName(),
-                        article.getArticleNumber(),
-                        article.getArticleTitle(),
-                        truncate(article.getContent(), 200)))
-                .collect(Collectors.toList());
-
-        return new ChatMessageDTO(
-                message.getId(),
-                message.getRole(),
-                message.getContent(),
-                citations,
-                message.getCreatedAt());
-    }
-
-    private ChatMessageDTO toMessageDTOFromResponse(ChatMessage message, List<CitationDTO> citations) {
+    private ChatMessageDTO toMessageDTO(ChatMessage message, List<CitationDTO> citations) {
         return new ChatMessageDTO(
                 message.getId(),
                 message.getRole(),
@@ -366,11 +510,4 @@ public class ChatHistoryService {
                 citations,
                 message.getCreatedAt());
     }
-
-    private String truncate(String text, int maxLength) {
-        if (text == null || text.length() <= maxLength) {
-            return text;
-        }
-        return text.substring(0, maxLength) + "...";
-    }
 }
@@ -0,0 +1,152 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
+import com.htai.exe201phapluatso.legal.entity.ChatSession;
+import com.htai.exe201phapluatso.legal.repo.ChatMessageRepo;
+import com.htai.exe201phapluatso.legal.repo.ChatSessionRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Rolling summary of a chat session (ChatSession.summary)
+ *
+ * After each successful turn (Phase C commit), messages older than the last recent-turns turns
+ * and not yet summarized are folded into the summary with one LLM call:
+ *   new summary = summarize(previous summary + those messages)
+ * Runs in the background; the answer is never delayed by it. If it fails or lags,
+ * MemoryService simply sends more raw messages (everything after summary_message_count).
+ * Concurrent updates of the same session are resolved by a compare-and-set on summary_message_count.
+ */
+@Service
+public class ConversationSummaryService {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationSummaryService.class);
+
+    private final ChatSessionRepo sessionRepo;
+    private final ChatMessageRepo messageRepo;
+    private final OpenAIService aiService;
+    private final TokenCounter tokenCounter;
+
+    @Value("${legal.memory.summary.enabled:true}")
+    private boolean enabled;
+
+    // Turns (question + answer) always kept raw, never summarized away
+    @Value("${legal.memory.recent-turns:2}")
+    private int recentTurns;
+
+    @Value("${legal.memory.summary.max-words:200}")
+    private int maxWords;
+
+    // Each message is cut to this many tokens before it is summarized
+    @Value("${legal.memory.summary.message-max-tokens:400}")
+    private int messageMaxTokens;
+
+    public ConversationSummaryService(
+            ChatSessionRepo sessionRepo,
+            ChatMessageRepo messageRepo,
+            OpenAIService aiService,
+            TokenCounter tokenCounter) {
+        this.sessionRepo = sessionRepo;
+        this.messageRepo = messageRepo;
+        this.aiService = aiService;
+        this.tokenCounter = tokenCounter;
+    }
+
+    /**
+     * Schedule a summary update once the surrounding transaction (Phase C) commits
+     */
+    public void updateAfterCommit(Long sessionId) {
+        if (!enabled) {
+            return;
+        }
+        Runnable update = () -> Schedulers.boundedElastic().schedule(() -> update(sessionId));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    update.run();
+                }
+            });
+        } else {
+            update.run();
+        }
+    }
+
+    /**
+     * Fold the messages that left the recent window into the summary (no-op if there are none)
+     */
+    void update(Long sessionId) {
+        try {
+            ChatSession session = sessionRepo.findById(sessionId).orElse(null);
+            if (session == null) {
+                return;
+            }
+            int summarized = session.getSummaryMessageCount() != null ? session.getSummaryMessageCount() : 0;
+            int foldUpTo = (int) sessionRepo.countMessagesBySessionId(sessionId) - 2 * recentTurns;
+            if (foldUpTo <= summarized) {
+                return;
+            }
+
+            List<Object[]> rows = messageRepo.findRoleAndContentBySessionId(sessionId, summarized, foldUpTo - summarized);
+            String prompt = buildSummaryPrompt(session.getSummary(), rows);
+
+            aiService.generateTextAsync(prompt)
+                    .publishOn(Schedulers.boundedElastic())
+                    .subscribe(
+                            summary -> save(sessionId, summary, foldUpTo, summarized),
+                            e -> log.warn("Summary update failed for session {}: {}", sessionId, e.getMessage()));
+        } catch (Exception e) {
+            log.warn("Summary update failed for session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void save(Long sessionId, String summary, int messageCount, int expectedMessageCount) {
+        if (summary == null || summary.isBlank()) {
+            return;
+        }
+        int updated = sessionRepo.updateSummary(sessionId, summary.strip(), messageCount, expectedMessageCount,
+                LocalDateTime.now());
+        if (updated == 0) {
+            log.debug("Summary of session {} was updated concurrently, result discarded", sessionId);
+        } else {
+            log.info("Session {} summary now covers {} messages", sessionId, messageCount);
+        }
+    }
+
+    String buildSummaryPrompt(String previousSummary, List<Object[]> rows) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Bạn tóm tắt cuộc hội thoại tư vấn pháp luật giữa người dùng và trợ lý.\n");
+        prompt.append("Viết bản tóm tắt cập nhật (tối đa ").append(maxWords).append(" từ), giữ lại: ");
+        prompt.append("tình huống và dữ kiện người dùng đã nêu, các câu hỏi chính, điều luật đã trích dẫn ");
+        prompt.append("(số điều, tên văn bản) và kết luận đã đưa ra. Không thêm thông tin mới.\n");
+        prompt.append("Chỉ trả về nội dung tóm tắt.\n");
+
+        if (previousSummary != null && !previousSummary.isBlank()) {
+            prompt.append("\nTÓM TẮT HIỆN CÓ:\n").append(previousSummary).append("\n");
+        }
+
+        prompt.append("\nCÁC TRAO ĐỔI TIẾP THEO:\n");
+        for (Object[] row : rows) {
+            String role = "USER".equals(row[0]) ? "Người dùng" : "Trợ lý";
+            String content = (String) row[1];
+            String cut = tokenCounter.truncate(content, messageMaxTokens);
+            prompt.append(role).append(": ").append(cut);
+            if (cut != null && content != null && cut.length() < content.length()) {
+                prompt.append("...");
+            }
+            prompt.append("\n");
+        }
+
+        prompt.append("\nTÓM TẮT CẬP NHẬT:\n");
+        return prompt.toString();
+    }
+}
@@ -0,0 +1,260 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.common.exception.BadRequestException;
+import com.htai.exe201phapluatso.legal.dto.EmbeddingBackfillProgress;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Background job (re)generating article embeddings in batches
+ *
+ * - Many article texts per embeddings API request (input array)
+ * - One multi-row UPDATE per batch (VectorSearchService.saveEmbeddings)
+ * - Keyset cursor over article id, so a stopped job can be resumed where it left off;
+ *   "missing" mode is also naturally resumable after a restart (embedding IS NULL)
+ */
+@Service
+public class EmbeddingBackfillService {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingBackfillService.class);
+
+    private final EntityManager entityManager;
+    private final EmbeddingService embeddingService;
+    private final VectorSearchService vectorSearchService;
+    private final ExecutorService jobExecutor;
+
+    @Value("${embedding.backfill.batch-size:64}")
+    private int batchSize;
+
+    @Value("${embedding.backfill.max-chars-per-request:120000}")
+    private int maxCharsPerRequest;
+
+    // Job state (single job at a time); guarded by "this"
+    private String status = "IDLE";
+    private boolean reembedAll;
+    private LocalDateTime cutoff;       // re-embed mode: rows embedded before this time
+    private long total;
+    private long processed;
+    private long failed;
+    private long lastArticleId;
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+    private String message;
+    private volatile boolean stopRequested;
+
+    public EmbeddingBackfillService(
+            EntityManager entityManager,
+            EmbeddingService embeddingService,
+            VectorSearchService vectorSearchService) {
+        this.entityManager = entityManager;
+        this.embeddingService = embeddingService;
+        this.vectorSearchService = vectorSearchService;
+        this.jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "embedding-backfill");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Start a new backfill job
+     *
+     * @param reembedAll false = only articles without embedding, true = re-embed every article
+     */
+    public synchronized EmbeddingBackfillProgress start(boolean reembedAll) {
+        ensureNotRunning();
+
+        this.reembedAll = reembedAll;
+        this.cutoff = LocalDateTime.now();
+        this.lastArticleId = 0;
+        this.processed = 0;
+        this.failed = 0;
+        this.startedAt = LocalDateTime.now();
+        this.total = countPending();
+        return launch("Started");
+    }
+
+    /**
+     * Resume a stopped / failed job from its cursor (same mode and cutoff)
+     */
+    public synchronized EmbeddingBackfillProgress resume() {
+        ensureNotRunning();
+        if (startedAt == null || "COMPLETED".equals(status)) {
+            throw new BadRequestException("Không có backfill job nào để tiếp tục");
+        }
+        return launch("Resumed from article " + lastArticleId);
+    }
+
+    /**
+     * Request the running job to stop after the current batch
+     */
+    public synchronized EmbeddingBackfillProgress stop() {
+        if ("RUNNING".equals(status)) {
+            stopRequested = true;
+            status = "STOPPING";
+        }
+        return getProgress();
+    }
+
+    public synchronized EmbeddingBackfillProgress getProgress() {
+        double percent = total > 0 ? Math.round((double) processed / total * 10000) / 100.0 : 0;
+        return new EmbeddingBackfillProgress(
+                status, reembedAll, total, processed, failed,
+                startedAt != null ? lastArticleId : null,
+                Math.min(percent, 100.0), startedAt, finishedAt, message);
+    }
+
+    public synchronized boolean isRunning() {
+        return "RUNNING".equals(status) || "STOPPING".equals(status);
+    }
+
+    private EmbeddingBackfillProgress launch(String startMessage) {
+        status = "RUNNING";
+        stopRequested = false;
+        finishedAt = null;
+        message = startMessage;
+        log.info("Embedding backfill {} (reembedAll={}, pending={})", startMessage, reembedAll, total);
+
+        jobExecutor.submit(this::run);
+        return getProgress();
+    }
+
+    private void ensureNotRunning() {
+        if (isRunning()) {
+            throw new BadRequestException("Embedding backfill đang chạy");
+        }
+    }
+
+    private void run() {
+        try {
+            while (!stopRequested) {
+                List<Object[]> rows = loadBatch();
+                if (rows.isEmpty()) {
+                    finish("COMPLETED", "Completed");
+                    return;
+                }
+                processBatch(rows);
+            }
+            finish("STOPPED", "Stopped at article " + lastArticleId);
+        } catch (Exception e) {
+            log.error("Embedding backfill failed: {}", e.getMessage(), e);
+            finish("FAILED", e.getMessage());
+        }
+    }
+
+    /**
+     * Embed rows in as few API requests as the per-request char budget allows, then save in one UPDATE
+     */
+    private void processBatch(List<Object[]> rows) {
+        long batchStart = System.currentTimeMillis();
+        Map<Long, float[]> embeddings = new LinkedHashMap<>();
+
+        List<Long> chunkIds = new ArrayList<>();
+        List<String> chunkTexts = new ArrayList<>();
+        int chunkChars = 0;
+
+        for (Object[] row : rows) {
+            long id = ((Number) row[0]).longValue();
+            String text = embeddingService.buildArticleText((String) row[1], (String) row[2]);
+
+            if (!chunkTexts.isEmpty() && chunkChars + text.length() > maxCharsPerRequest) {
+                embedChunk(chunkIds, chunkTexts, embeddings);
+                chunkIds = new ArrayList<>();
+                chunkTexts = new ArrayList<>();
+                chunkChars = 0;
+            }
+            chunkIds.add(id);
+            chunkTexts.add(text);
+            chunkChars += text.length();
+        }
+        embedChunk(chunkIds, chunkTexts, embeddings);
+
+        int saved = vectorSearchService.saveEmbeddings(embeddings);
+        long lastId = ((Number) rows.get(rows.size() - 1)[0]).longValue();
+
+        synchronized (this) {
+            processed += saved;
+            failed += rows.size() - embeddings.size();
+            lastArticleId = lastId;
+        }
+        log.info("Embedding backfill: batch of {} saved in {} ms (processed {}/{}, cursor {})",
+                saved, System.currentTimeMillis() - batchStart, processed, total, lastId);
+    }
+
+    private void embedChunk(List<Long> ids, List<String> texts, Map<Long, float[]> out) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        try {
+            List<float[]> vectors = embeddingService.generateEmbeddings(texts);
+            for (int i = 0; i < ids.size(); i++) {
+                out.put(ids.get(i), vectors.get(i));
+            }
+        } catch (Exception e) {
+            // Skip this chunk (cursor still moves on); a later run picks the articles up again
+            log.error("Embedding request for articles {}..{} failed: {}",
+                    ids.get(0), ids.get(ids.size() - 1), e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> loadBatch() {
+        Query query = entityManager.createNativeQuery("""
+                SELECT a.id, a.article_title, a.content
+                FROM legal_articles a
+                WHERE a.id > :lastId
+                  AND %s
+                ORDER BY a.id
+                LIMIT :limit
+                """.formatted(pendingCondition()))
+                .setParameter("lastId", lastArticleId)
+                .setParameter("limit", batchSize);
+        if (reembedAll) {
+            query.setParameter("cutoff", cutoff);
+        }
+        return query.getResultList();
+    }
+
+    private long countPending() {
+        Query query = entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM legal_articles a WHERE " + pendingCondition());
+        if (reembedAll) {
+            query.setParameter("cutoff", cutoff);
+        }
+        return ((Number) query.getSingleResult()).longValue();
+    }
+
+    private String pendingCondition() {
+        return reembedAll
+                ? "(a.embedding IS NULL OR a.embedding_updated_at IS NULL OR a.embedding_updated_at < :cutoff)"
+                : "a.embedding IS NULL";
+    }
+
+    private synchronized void finish(String finalStatus, String finalMessage) {
+        status = finalStatus;
+        message = finalMessage;
+        finishedAt = LocalDateTime.now();
+        log.info("Embedding backfill {}: processed {}, failed {}, cursor {}",
+                finalStatus, processed, failed, lastArticleId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        jobExecutor.shutdownNow();
+    }
+}
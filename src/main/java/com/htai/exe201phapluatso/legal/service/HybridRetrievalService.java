@@ -0,0 +1,264 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Two-stage hybrid retrieval
+ *
+ * 1. Candidate stages (run in parallel, each index-backed and bounded to top-N):
+ *    - vector: HNSW / pgvector nearest neighbours of the question embedding
+ *    - passage: pgvector nearest Khoản / Điểm passages, ranked by their article's best passage
+ *    - keyword: tsvector full-text match ranked by ts_rank_cd
+ * 2. Fusion in Java with weighted Reciprocal Rank Fusion:
+ *    score(d) = Σ weight_stage / (rrfK + rank_stage(d))
+ *
+ * Stages (the embedding call included) block on JDBC / OpenAI, so they run on Reactor's bounded-elastic
+ * scheduler rather than a pool of their own: Hikari and the OpenAIGateway bulkhead stay the only
+ * concurrency limits. A stage that misses search.hybrid.stage-timeout-ms counts as empty.
+ *
+ * Only ids travel through the stages; the final top-k come from ArticleSnapshotCache
+ * (one IN query for the ids not cached yet). The best matched passages of those articles
+ * are returned with them, so the prompt can carry passages instead of whole articles.
+ */
+@Service
+public class HybridRetrievalService {
+
+    private static final Logger log = LoggerFactory.getLogger(HybridRetrievalService.class);
+    private static final Executor STAGE_EXECUTOR = runnable -> Schedulers.boundedElastic().schedule(runnable);
+
+    private final VectorSearchService vectorSearchService;
+    private final KeywordSearchService keywordSearchService;
+    private final EmbeddingService embeddingService;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final LegalPassageService passageService;
+    private final RagMetrics ragMetrics;
+
+    @Value("${search.hybrid.vector-weight:0.35}")
+    private double vectorWeight;
+
+    @Value("${search.hybrid.passage-weight:0.4}")
+    private double passageWeight;
+
+    @Value("${search.hybrid.keyword-weight:0.25}")
+    private double keywordWeight;
+
+    @Value("${search.hybrid.rrf-k:60}")
+    private int rrfK;
+
+    @Value("${search.hybrid.candidates:50}")
+    private int candidates;
+
+    @Value("${search.hybrid.min-vector-similarity:0.35}")
+    private float minVectorSimilarity;
+
+    @Value("${search.hybrid.passage-candidates:150}")
+    private int passageCandidates;
+
+    @Value("${search.hybrid.passages-per-article:3}")
+    private int passagesPerArticle;
+
+    @Value("${search.hybrid.stage-timeout-ms:15000}")
+    private long stageTimeoutMillis;
+
+    public HybridRetrievalService(
+            VectorSearchService vectorSearchService,
+            KeywordSearchService keywordSearchService,
+            EmbeddingService embeddingService,
+            ArticleSnapshotCache articleSnapshotCache,
+            LegalPassageService passageService,
+            RagMetrics ragMetrics) {
+        this.vectorSearchService = vectorSearchService;
+        this.keywordSearchService = keywordSearchService;
+        this.embeddingService = embeddingService;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.passageService = passageService;
+        this.ragMetrics = ragMetrics;
+    }
+
+    /**
+     * Retrieve the top articles for a question by fusing vector and keyword candidates
+     *
+     * @param question User's question
+     * @param limit    Maximum number of results
+     * @return Articles ordered by fused score (empty if no stage found anything)
+     */
+    public List<ArticleSnapshot> retrieve(String question, int limit) {
+        return retrieveWithPassages(question, limit).articles();
+    }
+
+    /**
+     * Same as retrieve, plus the matched passages of each returned article
+     *
+     * @param question User's question
+     * @param limit    Maximum number of articles
+     * @return Articles ordered by fused score, with their best passages (reading order)
+     */
+    public Retrieval retrieveWithPassages(String question, int limit) {
+        RagMetrics.Trace trace = ragMetrics.start("search");
+        try {
+            Retrieval retrieval = retrieveWithPassages(question, limit, trace);
+            trace.finish(retrieval.articles().isEmpty() ? "no_results" : "answered");
+            return retrieval;
+        } catch (RuntimeException e) {
+            trace.finish("error");
+            throw e;
+        }
+    }
+
+    /**
+     * Same as retrieveWithPassages, timing each stage (and its candidate count) on the request's trace
+     */
+    public Retrieval retrieveWithPassages(String question, int limit, RagMetrics.Trace trace) {
+        long start = System.currentTimeMillis();
+        int stageLimit = Math.max(candidates, limit);
+
+        // Shared by both vector stages (one embedding call, cached by EmbeddingService)
+        CompletableFuture<float[]> questionEmbedding = CompletableFuture
+                .supplyAsync(() -> trace.time("embedding", () -> embeddingService.generateQueryEmbedding(question)),
+                        STAGE_EXECUTOR);
+
+        CompletableFuture<List<Long>> vectorStage = questionEmbedding
+                .thenApply(embedding -> trace.time("vector",
+                        () -> vectorSearchService.vectorCandidateIds(embedding, stageLimit, minVectorSimilarity)))
+                .orTimeout(stageTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Vector stage failed, using other candidates only: {}", e.toString());
+                    return List.of();
+                });
+
+        CompletableFuture<List<LegalPassageService.PassageHit>> passageStage = passageService.isEnabled()
+                ? questionEmbedding
+                        .thenApplyAsync(embedding -> trace.time("passage", () -> passageService.nearestPassages(
+                                embedding, Math.max(passageCandidates, stageLimit), minVectorSimilarity)), STAGE_EXECUTOR)
+                        .orTimeout(stageTimeoutMillis, TimeUnit.MILLISECONDS)
+                        .exceptionally(e -> {
+                            log.warn("Passage stage failed, using other candidates only: {}", e.toString());
+                            return List.of();
+                        })
+                : CompletableFuture.completedFuture(List.of());
+
+        CompletableFuture<List<Long>> keywordStage = CompletableFuture
+                .supplyAsync(() -> trace.time("keyword", () -> keywordSearchService.searchIds(
+                        keywordSearchService.extractKeywords(question), stageLimit)), STAGE_EXECUTOR)
+                .orTimeout(stageTimeoutMillis, TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    log.warn("Keyword stage failed, using vector candidates only: {}", e.toString());
+                    return List.of();
+                });
+
+        // Bounded by the stage timeout; a timed-out stage already fell back to no candidates
+        List<Long> vectorIds = vectorStage.join();
+        List<LegalPassageService.PassageHit> passageHits = passageStage.join();
+        List<Long> keywordIds = keywordStage.join();
+        trace.candidates("vector", vectorIds.size());
+        trace.candidates("passage", passageHits.size());
+        trace.candidates("keyword", keywordIds.size());
+
+        List<Long> fusedIds = fuse(vectorIds, articleRanking(passageHits), keywordIds, limit);
+        List<ArticleSnapshot> results = articleSnapshotCache.getEffectiveInOrder(fusedIds);
+        Map<Long, List<ArticlePassage>> passages = matchedPassages(results, passageHits);
+
+        log.info("Hybrid retrieval: {} vector + {} passage + {} keyword candidates -> {} results ({} with passages) in {} ms",
+                vectorIds.size(), passageHits.size(), keywordIds.size(), results.size(), passages.size(),
+                System.currentTimeMillis() - start);
+        return new Retrieval(results, passages);
+    }
+
+    /**
+     * Vector stage only (no passage / keyword stage, no fusion): nearest articles of the question embedding.
+     * First pass of speculative follow-up answers; the embedding is cached for the full retrieval that follows.
+     */
+    public List<ArticleSnapshot> vectorOnly(String question, int limit, RagMetrics.Trace trace) {
+        float[] embedding = trace.time("embedding", () -> embeddingService.generateQueryEmbedding(question));
+        List<Long> ids = trace.time("vector",
+                () -> vectorSearchService.vectorCandidateIds(embedding, limit, minVectorSimilarity));
+        return articleSnapshotCache.getEffectiveInOrder(ids);
+    }
+
+    /**
+     * Article ids in the order of their best passage hit
+     */
+    static List<Long> articleRanking(List<LegalPassageService.PassageHit> passageHits) {
+        Set<Long> articleIds = new LinkedHashSet<>();
+        for (LegalPassageService.PassageHit hit : passageHits) {
+            articleIds.add(hit.articleId());
+        }
+        return new ArrayList<>(articleIds);
+    }
+
+    /**
+     * Top passagesPerArticle passage hits of each result article, loaded with one IN query
+     * and put back in reading order; articles without passage hits are absent
+     */
+    private Map<Long, List<ArticlePassage>> matchedPassages(List<ArticleSnapshot> articles,
+                                                            List<LegalPassageService.PassageHit> passageHits) {
+        if (passageHits.isEmpty() || articles.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> articleIds = articles.stream().map(ArticleSnapshot::id).collect(Collectors.toSet());
+        Map<Long, Integer> perArticle = new HashMap<>();
+        List<Long> passageIds = new ArrayList<>();
+        for (LegalPassageService.PassageHit hit : passageHits) {
+            if (articleIds.contains(hit.articleId())
+                    && perArticle.merge(hit.articleId(), 1, Integer::sum) <= passagesPerArticle) {
+                passageIds.add(hit.passageId());
+            }
+        }
+
+        Map<Long, List<ArticlePassage>> byArticle = new LinkedHashMap<>();
+        passageService.findPassages(passageIds).stream()
+                .sorted(Comparator.comparing(ArticlePassage::articleId).thenComparing(ArticlePassage::passageIndex))
+                .forEach(passage -> byArticle.computeIfAbsent(passage.articleId(), id -> new ArrayList<>()).add(passage));
+        return byArticle;
+    }
+
+    /**
+     * Weighted Reciprocal Rank Fusion of ranked id lists (ranks are 1-based)
+     * With passages disabled, their weight goes to the article vector stage.
+     */
+    List<Long> fuse(List<Long> vectorIds, List<Long> passageArticleIds, List<Long> keywordIds, int limit) {
+        Map<Long, Double> scores = new HashMap<>();
+        accumulate(scores, vectorIds, passageService.isEnabled() ? vectorWeight : vectorWeight + passageWeight);
+        accumulate(scores, passageArticleIds, passageWeight);
+        accumulate(scores, keywordIds, keywordWeight);
+
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void accumulate(Map<Long, Double> scores, List<Long> rankedIds, double weight) {
+        for (int i = 0; i < rankedIds.size(); i++) {
+            scores.merge(rankedIds.get(i), weight / (rrfK + i + 1), Double::sum);
+        }
+    }
+
+    /**
+     * Retrieved articles plus their matched passages (article id -> passages in reading order)
+     */
+    public record Retrieval(List<ArticleSnapshot> articles, Map<Long, List<ArticlePassage>> passages) {}
+}
@@ -0,0 +1,161 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keyword retrieval backed by PostgreSQL full-text search.
+ *
+ * Uses legal_articles.search_vector (accent-folded tsvector, GIN indexed, see V5
+ * migration) instead of ILIKE scans. Ranking is done in SQL with ts_rank_cd,
+ * using TITLE_MATCH_WEIGHT / CONTENT_MATCH_WEIGHT as the A / D label weights.
+ */
+@Service
+public class KeywordSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(KeywordSearchService.class);
+
+    static final String TS_CONFIG = "vietnamese_unaccent";
+
+    /**
+     * ts_rank_cd normalization flag 32: rank / (rank + 1), keeps scores in [0, 1)
+     */
+    static final int RANK_NORMALIZATION = 32;
+
+    private final EntityManager entityManager;
+    private final VietnameseTokenizer tokenizer;
+
+    public KeywordSearchService(EntityManager entityManager, VietnameseTokenizer tokenizer) {
+        this.entityManager = entityManager;
+        this.tokenizer = tokenizer;
+    }
+
+    /**
+     * Find effective articles matching the keywords, best ranked first.
+     * Requires at least MIN_KEYWORD_MATCHES distinct keywords to match
+     * (or all of them when fewer keywords were extracted).
+     *
+     * @param keywords Lowercase keywords (letters only); multi-word keywords are matched as phrases
+     * @param limit    Maximum number of results
+     */
+    public List<LegalArticle> search(List<String> keywords, int limit) {
+        return search(keywords, limit, LegalSearchConfig.MIN_KEYWORD_MATCHES);
+    }
+
+    /**
+     * Same as {@link #search(List, int)} with an explicit minimum number of matched keywords
+     * (1 = match any keyword)
+     */
+    @SuppressWarnings("unchecked")
+    public List<LegalArticle> search(List<String> keywords, int limit, int minKeywordMatches) {
+        if (keywords == null || keywords.isEmpty()) {
+            return List.of();
+        }
+
+        Query query = entityManager.createNativeQuery(buildSql("a.*", minKeywordMatches > 1), LegalArticle.class);
+        bindParameters(query, keywords, limit, minKeywordMatches);
+
+        List<LegalArticle> results = query.getResultList();
+        log.info("Full-text search with {} keywords found {} articles", keywords.size(), results.size());
+        return results;
+    }
+
+    /**
+     * Keyword stage for hybrid retrieval: ids of articles matching any keyword, best ranked first.
+     * Only ids are returned so the stage stays cheap; articles are hydrated after fusion.
+     */
+    public List<Long> searchIds(List<String> keywords, int limit) {
+        return searchIds(keywords, limit, 1);
+    }
+
+    /**
+     * Same as {@link #searchIds(List, int)} with a minimum number of matched keywords (like {@link #search})
+     */
+    public List<Long> searchIds(List<String> keywords, int limit, int minKeywordMatches) {
+        if (keywords == null || keywords.isEmpty()) {
+            return List.of();
+        }
+
+        Query query = entityManager.createNativeQuery(buildSql("a.id", minKeywordMatches > 1));
+        bindParameters(query, keywords, limit, minKeywordMatches);
+
+        @SuppressWarnings("unchecked")
+        List<Object> rows = query.getResultList();
+        return rows.stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Extract keywords from a question (legal compounds, bigrams, isolated syllables),
+     * see {@link VietnameseTokenizer}. Letters only, so the result is safe to turn into a tsquery.
+     */
+    public List<String> extractKeywords(String question) {
+        return tokenizer.extractKeywords(question);
+    }
+
+    private String buildSql(String selectList, boolean requireMinMatches) {
+        String minMatchesFilter = requireMinMatches
+                ? """
+                  AND (
+                      SELECT COUNT(*) FROM unnest(CAST(:terms AS text[])) t
+                      WHERE a.search_vector @@ phraseto_tsquery('%s', t)
+                  ) >= :minMatches
+                """.formatted(TS_CONFIG)
+                : "";
+
+        return """
+                SELECT %1$s FROM legal_articles a
+                JOIN legal_documents d ON a.document_id = d.id,
+                     to_tsquery('%2$s', :tsQuery) q
+                WHERE d.status = 'Còn hiệu lực'
+                  AND a.search_vector @@ q
+                %3$s
+                ORDER BY ts_rank_cd(CAST(:weights AS real[]), a.search_vector, q, %4$d) DESC, a.id
+                LIMIT :limit
+                """.formatted(selectList, TS_CONFIG, minMatchesFilter, RANK_NORMALIZATION);
+    }
+
+    private void bindParameters(Query query, List<String> keywords, int limit, int minKeywordMatches) {
+        query.setParameter("tsQuery", toTsQuery(keywords));
+        query.setParameter("weights", rankWeights());
+        query.setParameter("limit", limit);
+        if (minKeywordMatches > 1) {
+            query.setParameter("terms", toTextArray(keywords));
+            query.setParameter("minMatches", Math.min(minKeywordMatches, keywords.size()));
+        }
+    }
+
+    /**
+     * Build an OR tsquery from keywords; multi-word keywords become phrase (<->) queries.
+     * Keywords are letters/whitespace only (see {@link #extractKeywords}), so no tsquery operators can leak in.
+     */
+    String toTsQuery(List<String> keywords) {
+        return keywords.stream()
+                .map(kw -> String.join(" <-> ", kw.trim().split("\\s+")))
+                .collect(Collectors.joining(" | "));
+    }
+
+    /**
+     * ts_rank_cd weight array in label order {D, C, B, A}.
+     * Title is indexed as 'A', content as 'D'; ratio mirrors the legacy title/content scoring.
+     */
+    String rankWeights() {
+        float content = (float) LegalSearchConfig.CONTENT_MATCH_WEIGHT / LegalSearchConfig.TITLE_MATCH_WEIGHT;
+        return "{" + content + "," + content + "," + content + ",1.0}";
+    }
+
+    private String toTextArray(List<String> keywords) {
+        return keywords.stream()
+                .map(kw -> "\"" + kw.trim() + "\"")
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+}
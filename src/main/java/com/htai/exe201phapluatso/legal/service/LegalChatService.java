@@ -1,18 +1,30 @@
 package com.htai.exe201phapluatso.legal.service;
 
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
 import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
 import com.htai.exe201phapluatso.common.exception.BadRequestException;
 import com.htai.exe201phapluatso.credit.service.CreditService;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
 import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
 import com.htai.exe201phapluatso.legal.dto.ChatResponse;
 import com.htai.exe201phapluatso.legal.dto.CitationDTO;
 import com.htai.exe201phapluatso.legal.dto.ConversationContext;
-import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.ConnectableFlux;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -25,122 +37,396 @@ import java.util.stream.Collectors;
  * confirm
  * - Delegate prompt building to PromptBuilder
  * - Delegate search to LegalSearchService
+ * - Record per-stage metrics of each request on a RagMetrics trace
+ *
+ * Speculative follow-ups (legal.chat.speculative.enabled): generation starts on the previous answer's
+ * citations + fresh vector hits while the full search (hybrid + re-rank) runs; the speculative answer
+ * is kept unless the full result's top articles diverge beyond max-divergence, then it is regenerated.
+ * A kept speculative answer that fails is regenerated from the full result too (streaming: only before
+ * its first delta). Speculative calls are timed as speculative_generation, so a cancelled one does not
+ * count as a second generation.
  */
 @Service
 public class LegalChatService {
 
     private static final Logger log = LoggerFactory.getLogger(LegalChatService.class);
+    private static final int MAX_CITATIONS = 5;
 
     private final LegalSearchService searchService;
     private final OpenAIService aiService;
     private final CreditService creditService;
     private final PromptBuilder promptBuilder;
+    private final AnswerCache answerCache;
+    private final EmbeddingService embeddingService;
+    private final RagMetrics ragMetrics;
+    private final TokenCounter tokenCounter;
+
+    @Value("${legal.chat.speculative.enabled:false}")
+    private boolean speculativeEnabled;
+
+    // Share of the full search's top articles that may be missing from the speculative set
+    @Value("${legal.chat.speculative.max-divergence:0.4}")
+    private double speculativeMaxDivergence;
 
     public LegalChatService(
             LegalSearchService searchService,
             OpenAIService aiService,
             CreditService creditService,
-            PromptBuilder promptBuilder) {
+            PromptBuilder promptBuilder,
+            AnswerCache answerCache,
+            EmbeddingService embeddingService,
+            RagMetrics ragMetrics,
+            TokenCounter tokenCounter) {
         this.searchService = searchService;
         this.aiService = aiService;
         this.creditService = creditService;
         this.promptBuilder = promptBuilder;
+        this.answerCache = answerCache;
+        this.embeddingService = embeddingService;
+        this.ragMetrics = ragMetrics;
+        this.tokenCounter = tokenCounter;
     }
 
     /**
      * Process user question using RAG pipeline with AI-powered re-ranking
-     * Requires 1 chat credit per request
-     * 
-     * @param userId   User ID (for credit checking)
-     * @param question User's legal question
-     * @return AI-generated answer with citations
-     * @throws com.htai.exe201phapluatso.common.exception.ForbiddenException if
-     *                                                                       insufficient
-     *                                                                       credits
+     * Retrieval runs on the caller thread; the re-ranking and answer LLM calls
+     * complete the future without parking a thread.
+     * First-turn questions are served from AnswerCache when a similar question was answered before.
+     *
+     * @param userId              User ID
+     * @param question            User's legal question
+     * @param conversationContext Previous messages in the session (can be null)
+     * @return Future of the AI-generated answer with citations
      */
-    public ChatResponse chat(Long userId, String question) {
-        return chat(userId, question, null);
+    public CompletableFuture<ChatResponse> chatAsync(Long userId, String question,
+            ConversationContext conversationContext) {
+        return chatAsync(userId, question, conversationContext, ragMetrics.start("sync"));
     }
 
     /**
-     * Process user question with conversation context (memory)
-     * This allows AI to understand context from previous messages in the session
-     * 
-     * @param userId              User ID (for credit checking)
+     * chatAsync with the stages recorded on the given trace (its id goes back to the client)
+     */
+    public CompletableFuture<ChatResponse> chatAsync(Long userId, String question,
+            ConversationContext conversationContext, RagMetrics.Trace trace) {
+        validateQuestion(question);
+
+        log.info("Processing chat question for user {} (trace {}): {}", userId, trace.traceId(), question);
+
+        AnswerLookup lookup = lookupCachedAnswer(question, conversationContext, trace);
+        if (lookup != null && lookup.cached() != null) {
+            trace.finish("cached");
+            return CompletableFuture.completedFuture(lookup.cached());
+        }
+
+        // Follow-up: the answer call starts now, overlapping the full search below
+        // (replay, not cache: disposing the connection cancels the upstream call)
+        Speculation speculation = speculate(question, conversationContext, trace);
+        ConnectableFlux<String> speculativeAnswer = speculation != null
+                ? trace.time("speculative_generation", aiService.generateTextAsync(speculation.prompt())).flux().replay()
+                : null;
+        Disposable speculativeCall = speculativeAnswer != null ? speculativeAnswer.connect() : null;
+
+        Mono<LegalSearchService.SearchResult> search;
+        try {
+            search = searchService.searchForChatAsync(question, LegalSearchConfig.DEFAULT_SEARCH_LIMIT,
+                    conversationContext, trace);
+        } catch (RuntimeException e) {
+            cancel(speculativeCall);
+            trace.finish("error");
+            throw e;
+        }
+
+        return search
+                .flatMap(searchResult -> {
+                    if (speculation != null) {
+                        if (keepsSpeculation(speculation, searchResult, trace)) {
+                            return respond(speculativeAnswer.single(), speculation.searchResult(), lookup, trace)
+                                    .onErrorResume(e -> {
+                                        log.warn("Speculative answer failed (trace {}), answering from the full search: {}",
+                                                trace.traceId(), e.getMessage());
+                                        return generate(question, searchResult, conversationContext, lookup, trace);
+                                    });
+                        }
+                        cancel(speculativeCall);
+                    }
+
+                    if (searchResult.articles().isEmpty()) {
+                        log.warn("No relevant articles found for question");
+                        trace.finish("no_results");
+                        return Mono.just(createNoResultsResponse());
+                    }
+
+                    return generate(question, searchResult, conversationContext, lookup, trace);
+                })
+                .doOnError(e -> {
+                    log.error("AI chat failed for user {} (trace {}): {}", userId, trace.traceId(), e.getMessage());
+                    cancel(speculativeCall);
+                    trace.finish("error");
+                })
+                .toFuture();
+    }
+
+    /**
+     * Generate the answer from the given search result
+     */
+    private Mono<ChatResponse> generate(String question, LegalSearchService.SearchResult searchResult,
+            ConversationContext conversationContext, AnswerLookup lookup, RagMetrics.Trace trace) {
+        String prompt = buildPrompt(question, searchResult, conversationContext, trace);
+        return respond(trace.time("generation", aiService.generateTextAsync(prompt)), searchResult, lookup, trace);
+    }
+
+    /**
+     * Chat response of a generated answer, grounded on (and citing) the given search result
+     */
+    private Mono<ChatResponse> respond(Mono<String> answer, LegalSearchService.SearchResult searchResult,
+            AnswerLookup lookup, RagMetrics.Trace trace) {
+        List<CitationDTO> citations = buildCitations(searchResult.articles());
+        return answer.map(text -> {
+            log.info("Chat response generated with {} relevant citations (filtered from {} candidates)",
+                    citations.size(), searchResult.metadata().originalCandidates());
+            trace.completionTokens(tokenCounter.count(text));
+            ChatResponse response = new ChatResponse(text, citations);
+            storeAnswer(lookup, response);
+            trace.finish("answered");
+            return response;
+        });
+    }
+
+    /**
+     * Streaming variant of chat: retrieval runs now (blocking), generation is returned
+     * as a Flux of answer deltas that starts when subscribed.
+     * Citations are known before the first token, so the client can render them early.
+     *
+     * @param userId              User ID
      * @param question            User's legal question
      * @param conversationContext Previous messages in the session (can be null)
-     * @return AI-generated answer with citations
+     * @param trace               Metrics trace of the request, finished when the answer stream ends
+     * @return Citations and the answer stream
      */
-    public ChatResponse chat(Long userId, String question, ConversationContext conversationContext) {
+    public ChatStream streamChat(Long userId, String question, ConversationContext conversationContext,
+            RagMetrics.Trace trace) {
         validateQuestion(question);
 
-        log.info("Processing chat question for user {}: {}", userId, question);
+        log.info("Processing streaming chat question for user {} (trace {}): {}", userId, trace.traceId(), question);
+
+        AnswerLookup lookup = lookupCachedAnswer(question, conversationContext, trace);
+        if (lookup != null && lookup.cached() != null) {
+            trace.finish("cached");
+            return new ChatStream(lookup.cached().citations(), Flux.just(lookup.cached().answer()));
+        }
+
+        // Follow-up: the answer stream starts now; deltas are buffered during the full search and replayed if kept
+        Speculation speculation = speculate(question, conversationContext, trace);
+        ConnectableFlux<String> speculativeStream = speculation != null
+                ? trace.timeStream("speculative_", aiService.streamText(speculation.prompt())).replay()
+                : null;
+        Disposable speculativeCall = speculativeStream != null ? speculativeStream.connect() : null;
 
+        LegalSearchService.SearchResult searchResult;
         try {
-            // Step 1: Unified search with context enhancement and AI re-ranking
-            var searchResult = searchService.searchForChat(question, LegalSearchConfig.DEFAULT_SEARCH_LIMIT,
-                    conversationContext);
-            List<LegalArticle> relevantArticles = searchResult.articles();
-
-            if (relevantArticles.isEmpty()) {
-                log.warn("No relevant articles found for question");
-                return createNoResultsResponse();
+            searchResult = searchService.searchForChat(question, LegalSearchConfig.DEFAULT_SEARCH_LIMIT,
+                    conversationContext, trace);
+        } catch (RuntimeException e) {
+            cancel(speculativeCall);
+            trace.finish("error");
+            throw e;
+        }
+
+        if (speculation != null) {
+            if (keepsSpeculation(speculation, searchResult, trace)) {
+                List<CitationDTO> citations = buildCitations(speculation.searchResult().articles());
+                // Citations are sent first: a regenerated answer keeps the speculative ones, which overlap
+                // the full result's top articles within max-divergence
+                Flux<String> regenerated = Flux.defer(() -> trace.timeStream(aiService.streamText(
+                        buildPrompt(question, searchResult, conversationContext, trace))));
+                return new ChatStream(citations, answerStream(
+                        orBeforeFirstDelta(speculativeStream, regenerated, trace), citations, lookup, trace));
             }
+            cancel(speculativeCall);
+        }
+
+        if (searchResult.articles().isEmpty()) {
+            log.warn("No relevant articles found for question");
+            trace.finish("no_results");
+            ChatResponse noResults = createNoResultsResponse();
+            return new ChatStream(noResults.citations(), Flux.just(noResults.answer()));
+        }
 
-            // Step 3: Generate AI response with filtered context AND conversation memory
-            String answer = generateAnswer(question, relevantArticles, conversationContext);
+        String prompt = buildPrompt(question, searchResult, conversationContext, trace);
+        List<CitationDTO> citations = buildCitations(searchResult.articles());
+        return new ChatStream(citations, answerStream(trace.timeStream(aiService.streamText(prompt)), citations,
+                lookup, trace));
+    }
 
-            // Step 4: Build citations (only from relevant articles)
-            List<CitationDTO> citations = buildCitations(relevantArticles);
+    /**
+     * Answer deltas; the full answer is cached once the stream completes (not when it fails or the client leaves)
+     */
+    private Flux<String> answerStream(Flux<String> deltas, List<CitationDTO> citations, AnswerLookup lookup,
+            RagMetrics.Trace trace) {
+        return Flux.defer(() -> {
+            StringBuilder fullAnswer = new StringBuilder();
+            return deltas
+                    .doOnNext(fullAnswer::append)
+                    .doOnComplete(() -> {
+                        trace.completionTokens(tokenCounter.count(fullAnswer.toString()));
+                        storeAnswer(lookup, new ChatResponse(fullAnswer.toString(), citations));
+                        trace.finish("answered");
+                    })
+                    .doOnError(e -> trace.finish("error"));
+        });
+    }
 
-            log.info("Chat response generated with {} relevant citations (filtered from {} candidates)",
-                    citations.size(), searchResult.metadata().originalCandidates());
-            return new ChatResponse(answer, citations);
+    /**
+     * The speculative deltas, switching to the fallback stream if they fail before the first delta
+     * (after it the client already shows part of the speculative answer)
+     */
+    private static Flux<String> orBeforeFirstDelta(Flux<String> speculative, Flux<String> fallback,
+            RagMetrics.Trace trace) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+            return speculative
+                    .doOnNext(delta -> emitted.set(true))
+                    .onErrorResume(e -> !emitted.get(), e -> {
+                        log.warn("Speculative answer stream failed (trace {}), answering from the full search: {}",
+                                trace.traceId(), e.getMessage());
+                        return fallback;
+                    });
+        });
+    }
+
+    /**
+     * Citations + answer deltas of a streaming chat
+     */
+    public record ChatStream(List<CitationDTO> citations, Flux<String> answer) {}
 
+    /**
+     * Chat prompt for the retrieved articles, timed and token-counted on the trace
+     */
+    private String buildPrompt(String question, LegalSearchService.SearchResult searchResult,
+            ConversationContext conversationContext, RagMetrics.Trace trace) {
+        String prompt = trace.time("prompt", () -> promptBuilder.buildChatPrompt(question, searchResult.articles(),
+                searchResult.passages(), conversationContext));
+        trace.promptTokens(tokenCounter.count(prompt));
+        return prompt;
+    }
+
+    /**
+     * First-pass result of a follow-up question and the prompt built from it
+     */
+    private record Speculation(LegalSearchService.SearchResult searchResult, String prompt) {}
+
+    /**
+     * Speculative retrieval of a follow-up question (previous citations + vector hits)
+     *
+     * @return null if disabled, not a follow-up, or the first pass found nothing
+     */
+    private Speculation speculate(String question, ConversationContext conversationContext, RagMetrics.Trace trace) {
+        if (!speculativeEnabled) {
+            return null;
+        }
+        try {
+            LegalSearchService.SearchResult firstPass = searchService.speculativeSearchForChat(question,
+                    LegalSearchConfig.DEFAULT_SEARCH_LIMIT, conversationContext, trace);
+            if (firstPass == null || firstPass.articles().isEmpty()) {
+                return null;
+            }
+            return new Speculation(firstPass, buildPrompt(question, firstPass, conversationContext, trace));
         } catch (Exception e) {
-            // Re-throw exception - credit handling is now done at session level
-            log.error("AI chat failed for user {}: {}", userId, e.getMessage());
-            throw e;
+            log.warn("Speculative retrieval failed, answering after the full search: {}", e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Validate user question
+     * Whether the speculative answer stands for the full search result (decision recorded on the trace)
      */
-    private void validateQuestion(String question) {
-        if (question == null || question.trim().isEmpty()) {
-            throw new BadRequestException("Câu hỏi không được để trống");
+    private boolean keepsSpeculation(Speculation speculation, LegalSearchService.SearchResult full,
+            RagMetrics.Trace trace) {
+        double divergence = divergence(speculation.searchResult().articles(), full.articles(), MAX_CITATIONS);
+        boolean kept = !full.articles().isEmpty() && divergence <= speculativeMaxDivergence;
+        trace.speculation(kept, divergence);
+        log.info("Speculative answer {} (trace {}): {} of the top full-search articles missing",
+                kept ? "kept" : "regenerated", trace.traceId(), String.format("%.2f", divergence));
+        return kept;
+    }
+
+    /**
+     * Share of the full result's top articles absent from the speculative set (1.0 if the full result is empty)
+     */
+    static double divergence(List<ArticleSnapshot> speculative, List<ArticleSnapshot> full, int top) {
+        List<ArticleSnapshot> fullTop = full.subList(0, Math.min(top, full.size()));
+        if (fullTop.isEmpty()) {
+            return 1.0;
         }
+        Set<Long> speculativeIds = new HashSet<>();
+        speculative.forEach(article -> speculativeIds.add(article.id()));
+        long missing = fullTop.stream().filter(article -> !speculativeIds.contains(article.id())).count();
+        return (double) missing / fullTop.size();
+    }
 
-        if (question.length() > 500) {
-            throw new BadRequestException("Câu hỏi quá dài (tối đa 500 ký tự)");
+    private static void cancel(Disposable speculativeCall) {
+        if (speculativeCall != null) {
+            speculativeCall.dispose();
         }
     }
 
     /**
-     * Generate AI answer with context from articles and conversation memory.
-     * Delegates prompt construction to PromptBuilder.
+     * Answer cache lookup for a first-turn question (no conversation context)
+     *
+     * @return null if the question is not eligible or the cache is unavailable
      */
-    private String generateAnswer(String question, List<LegalArticle> articles,
-            ConversationContext conversationContext) {
-        // Delegate prompt building to PromptBuilder (extracted for separation of
-        // concerns)
-        String prompt = promptBuilder.buildChatPrompt(question, articles, conversationContext);
+    private AnswerLookup lookupCachedAnswer(String question, ConversationContext conversationContext,
+            RagMetrics.Trace trace) {
+        if (!answerCache.isEnabled() || (conversationContext != null && !conversationContext.isEmpty())) {
+            return null;
+        }
+        long start = System.nanoTime();
+        try {
+            String corpusVersion = answerCache.corpusVersion();
+            // Same text as the retrieval query of a first turn, so the embedding is reused by the vector stage
+            float[] embedding = embeddingService.generateQueryEmbedding(question);
+            ChatResponse cached = answerCache.get(embedding, corpusVersion).orElse(null);
+            return new AnswerLookup(question, embedding, corpusVersion, cached);
+        } catch (Exception e) {
+            log.warn("Answer cache lookup failed, answering without cache: {}", e.getMessage());
+            return null;
+        } finally {
+            trace.record("answer_cache", System.nanoTime() - start);
+        }
+    }
 
+    private void storeAnswer(AnswerLookup lookup, ChatResponse response) {
+        if (lookup == null) {
+            return;
+        }
         try {
-            return aiService.generateText(prompt);
+            answerCache.put(lookup.question(), lookup.embedding(), response, lookup.corpusVersion());
         } catch (Exception e) {
-            log.error("Error calling AI service", e);
-            throw new BadRequestException("Lỗi khi gọi AI: " + e.getMessage());
+            log.warn("Failed to cache chat answer: {}", e.getMessage());
+        }
+    }
+
+    private record AnswerLookup(String question, float[] embedding, String corpusVersion, ChatResponse cached) {}
+
+    /**
+     * Validate user question
+     */
+    private void validateQuestion(String question) {
+        if (question == null || question.trim().isEmpty()) {
+            throw new BadRequestException("Câu hỏi không được để trống");
+        }
+
+        if (question.length() > 500) {
+            throw new BadRequestException("Câu hỏi quá dài (tối đa 500 ký tự)");
         }
     }
 
     /**
      * Build citations from articles
      */
-    private List<CitationDTO> buildCitations(List<LegalArticle> articles) {
+    private List<CitationDTO> buildCitations(List<ArticleSnapshot> articles) {
         return articles.stream()
-                .limit(5) // Limit citations to top 5
+                .limit(MAX_CITATIONS)
                 .map(this::createCitation)
                 .collect(Collectors.toList());
     }
@@ -148,13 +434,13 @@ public class LegalChatService {
     /**
      * Create citation DTO from article
      */
-    private CitationDTO createCitation(LegalArticle article) {
+    private CitationDTO createCitation(ArticleSnapshot article) {
         return new CitationDTO(
-                article.getId(),
-                article.getDocument().getDocumentName(),
-                article.getArticleNumber(),
-                article.getArticleTitle(),
-                truncate(article.getContent(), LegalSearchConfig.CITATION_PREVIEW_LENGTH));
+                article.id(),
+                article.documentName(),
+                article.articleNumber(),
+                article.articleTitle(),
+                article.contentPreview());
     }
 
     /**
@@ -172,19 +458,4 @@ public class LegalChatService {
 
         return new ChatResponse(message, List.of());
     }
-
-    /**
-     * Truncate text to maximum length
-     */
-    private String truncate(String text, int maxLength) {
-        if (text == null) {
-            return "";
-        }
-
-        if (text.length() <= maxLength) {
-            return text;
-        }
-
-        return text.substring(0, maxLength) + "...";
-    }
 }
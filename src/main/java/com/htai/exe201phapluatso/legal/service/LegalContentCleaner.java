@@ -0,0 +1,196 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass cleanup of article content: chapter / part / section headers, all-caps titles,
+ * page numbers, document headers and separator lines are dropped, runs of blank lines collapse to one.
+ *
+ * Each line is classified once (by its first character, then at most a few precompiled matchers
+ * run on the line as a region of the content - no substring, no new Matcher) and kept lines are
+ * written into one reused StringBuilder. Not thread-safe: one instance per parsed document.
+ */
+final class LegalContentCleaner {
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE | Pattern.UNICODE_CHARACTER_CLASS;
+
+    // Chương I, Chương XX, CHƯƠNG 2 ...
+    private static final Pattern CHAPTER = Pattern.compile("Chương\\s+(?:[IVX]+|\\d+).*", FLAGS);
+    // Phần thứ nhất, Phần I, PHẦN THỨ HAI ...
+    private static final Pattern PART = Pattern.compile("Phần\\s+\\p{L}.*", FLAGS);
+    // Mục 1, MỤC 2 ...
+    private static final Pattern SECTION = Pattern.compile("Mục\\s+\\d+.*", FLAGS);
+    // Trang 12 ...
+    private static final Pattern PAGE_LABEL = Pattern.compile("Trang\\s+\\d+.*", Pattern.UNICODE_CHARACTER_CLASS);
+    // - 12 -  /  [12]
+    private static final Pattern PAGE_DASHED = Pattern.compile("-\\s*\\d+\\s*-", Pattern.UNICODE_CHARACTER_CLASS);
+    private static final Pattern PAGE_BRACKETED = Pattern.compile("\\[\\s*\\d+\\s*]", Pattern.UNICODE_CHARACTER_CLASS);
+    // Document headers repeated at the top of pages
+    private static final Pattern CONSOLIDATED = Pattern.compile("VĂN BẢN HỢP NHẤT.*", FLAGS);
+    private static final Pattern CODE_TITLE = Pattern.compile("BỘ LUẬT.*NĂM \\d{4}.*", FLAGS);
+
+    // All-caps titles are dropped from this line length on (leading / trailing spaces included),
+    // shorter ones only right after a blank or dropped line ("CHƯƠNG III" / "HÌNH PHẠT")
+    static final int MIN_CAPS_TITLE_LENGTH = 10;
+
+    private final Matcher chapter = CHAPTER.matcher("");
+    private final Matcher part = PART.matcher("");
+    private final Matcher section = SECTION.matcher("");
+    private final Matcher pageLabel = PAGE_LABEL.matcher("");
+    private final Matcher pageDashed = PAGE_DASHED.matcher("");
+    private final Matcher pageBracketed = PAGE_BRACKETED.matcher("");
+    private final Matcher consolidated = CONSOLIDATED.matcher("");
+    private final Matcher codeTitle = CODE_TITLE.matcher("");
+    private final Matcher[] matchers = {chapter, part, section, pageLabel, pageDashed, pageBracketed,
+            consolidated, codeTitle};
+
+    private final StringBuilder out = new StringBuilder(4096);
+
+    /**
+     * Cleaned content, trimmed
+     */
+    String clean(String content) {
+        out.setLength(0);
+        for (Matcher matcher : matchers) {
+            matcher.reset(content);
+        }
+
+        boolean pendingBlank = false;
+        boolean afterGap = false;
+        int length = content.length();
+        int lineStart = 0;
+        while (lineStart <= length) {
+            int lineEnd = content.indexOf('\n', lineStart);
+            if (lineEnd < 0) {
+                lineEnd = length;
+            }
+
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && Character.isWhitespace(content.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(content.charAt(end - 1))) {
+                end--;
+            }
+
+            if (start == end || isNoise(content, start, end, lineEnd - lineStart, afterGap)) {
+                // Blank or dropped line: at most one blank line between kept lines
+                pendingBlank = out.length() > 0;
+                afterGap = true;
+            } else {
+                afterGap = false;
+                if (out.length() == 0) {
+                    lineStart = start;
+                } else {
+                    out.append(pendingBlank ? "\n\n" : "\n");
+                }
+                out.append(content, lineStart, end);
+                pendingBlank = false;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return out.toString();
+    }
+
+    /**
+     * Whether the trimmed line [start, end) is a header, page number or separator
+     */
+    private boolean isNoise(String content, int start, int end, int rawLength, boolean afterGap) {
+        char first = content.charAt(start);
+        if (Character.isDigit(first)) {
+            return isDigits(content, start, end);
+        }
+        switch (first) {
+            case '-':
+                return isSeparator(content, start, end) || matches(pageDashed, start, end);
+            case '_', '=':
+                return isSeparator(content, start, end);
+            case '[':
+                return matches(pageBracketed, start, end);
+            default:
+                break;
+        }
+        if (!Character.isLetter(first)) {
+            return false;
+        }
+
+        switch (Character.toLowerCase(first)) {
+            case 'c':
+                if (matches(chapter, start, end)) {
+                    return true;
+                }
+                break;
+            case 'p':
+                if (matches(part, start, end)) {
+                    return true;
+                }
+                break;
+            case 'm':
+                if (matches(section, start, end)) {
+                    return true;
+                }
+                break;
+            case 't':
+                if (matches(pageLabel, start, end)) {
+                    return true;
+                }
+                break;
+            case 'v':
+                if (matches(consolidated, start, end)) {
+                    return true;
+                }
+                break;
+            case 'b':
+                if (matches(codeTitle, start, end)) {
+                    return true;
+                }
+                break;
+            default:
+                break;
+        }
+        return (rawLength >= MIN_CAPS_TITLE_LENGTH || afterGap) && isCapsTitle(content, start, end);
+    }
+
+    private static boolean matches(Matcher matcher, int start, int end) {
+        return matcher.region(start, end).matches();
+    }
+
+    private static boolean isDigits(String content, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isDigit(content.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ---, ___, === (3 or more)
+    private static boolean isSeparator(String content, int start, int end) {
+        if (end - start < 3) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c != '-' && c != '_' && c != '=') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Only uppercase letters and spaces, at least two letters
+    private static boolean isCapsTitle(String content, int start, int end) {
+        if (end - start < 2) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (!Character.isUpperCase(c) && !Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -5,11 +5,14 @@ import com.htai.exe201phapluatso.common.exception.BadRequestException;
 import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -20,6 +23,14 @@ public class LegalDocumentParserService {
 
     private final DocumentParserService documentParser;
 
+    // Pages extracted per PDFTextStripper call
+    @Value("${legal.parser.pages-per-batch:20}")
+    private int pagesPerBatch;
+
+    // Heap PDFBox may use for the parsed file before spilling to a temp file
+    @Value("${legal.parser.max-main-memory-mb:16}")
+    private long maxMainMemoryMb;
+
     public LegalDocumentParserService(DocumentParserService documentParser) {
         this.documentParser = documentParser;
     }
@@ -28,156 +39,171 @@ public class LegalDocumentParserService {
      * Parse PDF file and extract legal articles
      * Pattern: "Điều 1.", "Điều 2.", etc.
      */
-    public List<LegalArticle> parseDocument(MultipartFile file) {
-        // Extract full text from PDF (no truncation for legal documents)
-        String fullText = documentParser.extractFullText(file);
-        
-        if (fullText == null || fullText.trim().isEmpty()) {
+    public List<LegalArticle> parseDocument(Path pdfFile) {
+        List<LegalArticle> articles = new ArrayList<>();
+        parseDocument(pdfFile, articles::add);
+        return articles;
+    }
+
+    /**
+     * Parse PDF file page batch by page batch, handing each article over as soon as it is complete
+     * (the next "Điều" heading or the end of the file); the full text is never held in memory
+     */
+    public void parseDocument(Path pdfFile, Consumer<LegalArticle> articleConsumer) {
+        // Remove chapter headers, page numbers, section titles, etc.
+        LegalContentCleaner cleaner = new LegalContentCleaner();
+        ArticleSplitter splitter = new ArticleSplitter(article -> {
+            article.setContent(cleaner.clean(article.getContent()));
+            // Only keep articles with content
+            if (article.getContent().isEmpty()) {
+                log.debug("Skipped Điều {} (empty content)", article.getArticleNumber());
+                return false;
+            }
+            articleConsumer.accept(article);
+            return true;
+        });
+
+        int pages = documentParser.streamTextFromPdf(pdfFile, pagesPerBatch, maxMainMemoryMb * 1024L * 1024L,
+                splitter::accept);
+        splitter.finish();
+
+        if (splitter.characters() == 0) {
             throw new BadRequestException("Không thể đọc nội dung file PDF");
         }
 
-        log.info("Full text extracted: {} characters", fullText.length());
+        log.info("Parsing results: pages={}, characters={}, matches={}, saved={}, skipped={}",
+                pages, splitter.characters(), splitter.matches(), splitter.saved(),
+                splitter.matches() - splitter.saved());
+        if (splitter.matches() > 0) {
+            log.info("Article number range: {} to {}", splitter.firstNumber(), splitter.lastNumber());
+        }
 
-        // Parse articles
-        return extractArticles(fullText);
+        if (splitter.saved() == 0) {
+            throw new BadRequestException(
+                "Không tìm thấy điều luật nào trong file. " +
+                "Vui lòng kiểm tra file PDF có text layer và có pattern 'Điều 1.', 'Điều 2.' trong file."
+            );
+        }
     }
 
     /**
-     * Extract articles from full text using regex pattern
-     * Improved version with better pattern matching and debugging
+     * Single-pass, line-oriented state machine splitting streamed text into articles
+     *
+     * Text arrives in page batches; a line cut at a batch boundary is carried over to the next batch,
+     * so an article continues across page breaks. A line starting with "Điều N." opens a new article
+     * (title = rest of the line, or the next non-blank line when empty) and completes the previous one.
+     * Text before the first heading (preamble) is dropped.
      */
-    private List<LegalArticle> extractArticles(String fullText) {
-        List<LegalArticle> articles = new ArrayList<>();
-        
-        // Primary pattern: "Điều X. Title" (most common in Vietnamese legal documents)
-        // This pattern captures both the number and title on the same line
-        Pattern pattern = Pattern.compile(
-            "Điều\\s+(\\d+)\\.\\s*([^\\n]+)",
+    static final class ArticleSplitter {
+
+        // "Điều X. Title" at the start of a line (most common in Vietnamese legal documents)
+        private static final Pattern HEADING = Pattern.compile(
+            "^\\s*Điều\\s+(\\d+)\\.\\s*(.*)$",
             Pattern.UNICODE_CHARACTER_CLASS
         );
-        
-        Matcher matcher = pattern.matcher(fullText);
-        
-        int lastEnd = 0;
-        int currentArticleNum = 0;
-        String currentTitle = "";
-        int matchCount = 0;
-        List<Integer> foundNumbers = new ArrayList<>();
-        
-        while (matcher.find()) {
-            matchCount++;
-            int articleNum = Integer.parseInt(matcher.group(1));
-            foundNumbers.add(articleNum);
-            
-            // Save previous article (if exists)
-            if (currentArticleNum > 0) {
-                String content = fullText.substring(lastEnd, matcher.start()).trim();
-                
-                // Clean up content: remove chapter headers, etc.
-                content = cleanContent(content);
-                
-                // Only save if content is not empty
-                if (!content.isEmpty()) {
-                    LegalArticle article = new LegalArticle();
-                    article.setArticleNumber(currentArticleNum);
-                    article.setArticleTitle(currentTitle);
-                    article.setContent(content);
-                    articles.add(article);
-                } else {
-                    log.debug("Skipped Điều {} (empty content)", currentArticleNum);
+
+        // Returns false when the article was skipped (empty after cleaning)
+        private final Predicate<LegalArticle> sink;
+
+        private final StringBuilder carry = new StringBuilder();
+        private final StringBuilder content = new StringBuilder();
+        private int articleNumber;
+        private String title;
+        private boolean awaitingTitle;
+
+        private long characters;
+        private int matches;
+        private int saved;
+        private int firstNumber;
+        private int lastNumber;
+
+        ArticleSplitter(Predicate<LegalArticle> sink) {
+            this.sink = sink;
+        }
+
+        /**
+         * Feed the next batch of text
+         */
+        void accept(String text) {
+            characters += text.length();
+            int lineStart = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    if (carry.isEmpty()) {
+                        line(text.substring(lineStart, i));
+                    } else {
+                        carry.append(text, lineStart, i);
+                        line(carry.toString());
+                        carry.setLength(0);
+                    }
+                    // "\r\n" is one line break
+                    if (c == '\r' && i + 1 < text.length() && text.charAt(i + 1) == '\n') {
+                        i++;
+                    }
+                    lineStart = i + 1;
                 }
             }
-            
-            // Start new article
-            currentArticleNum = articleNum;
-            currentTitle = matcher.group(2).trim();
-            lastEnd = matcher.end();
+            carry.append(text, lineStart, text.length());
         }
-        
-        // Save last article
-        if (currentArticleNum > 0) {
-            String content = fullText.substring(lastEnd).trim();
-            content = cleanContent(content);
-            
-            if (!content.isEmpty()) {
-                LegalArticle article = new LegalArticle();
-                article.setArticleNumber(currentArticleNum);
-                article.setArticleTitle(currentTitle);
-                article.setContent(content);
-                articles.add(article);
-            } else {
-                log.debug("Skipped last article Điều {} (empty content)", currentArticleNum);
+
+        /**
+         * End of the text: flush the carried line and complete the last article
+         */
+        void finish() {
+            if (!carry.isEmpty()) {
+                line(carry.toString());
+                carry.setLength(0);
             }
+            complete();
         }
-        
-        // Logging
-        log.info("Parsing results: matches={}, saved={}, skipped={}", 
-                matchCount, articles.size(), matchCount - articles.size());
-        
-        if (!foundNumbers.isEmpty()) {
-            log.info("Article number range: {} to {}", foundNumbers.get(0), foundNumbers.get(foundNumbers.size() - 1));
-        }
-        
-        if (!articles.isEmpty()) {
-            log.info("First article: Điều {} - {}", articles.get(0).getArticleNumber(), articles.get(0).getArticleTitle());
-            if (articles.size() > 1) {
-                log.info("Last article: Điều {} - {}", 
-                        articles.get(articles.size() - 1).getArticleNumber(), 
-                        articles.get(articles.size() - 1).getArticleTitle());
+
+        private void line(String line) {
+            Matcher heading = HEADING.matcher(line);
+            if (heading.matches()) {
+                complete();
+                articleNumber = Integer.parseInt(heading.group(1));
+                title = heading.group(2).trim();
+                awaitingTitle = title.isEmpty();
+                matches++;
+                if (matches == 1) {
+                    firstNumber = articleNumber;
+                }
+                lastNumber = articleNumber;
+                return;
             }
+            if (articleNumber == 0) {
+                return;
+            }
+            if (awaitingTitle) {
+                if (!line.isBlank()) {
+                    title = line.trim();
+                    awaitingTitle = false;
+                }
+                return;
+            }
+            content.append(line).append('\n');
         }
-        
-        if (articles.isEmpty()) {
-            throw new BadRequestException(
-                "Không tìm thấy điều luật nào trong file. " +
-                "Vui lòng kiểm tra file PDF có text layer và có pattern 'Điều 1.', 'Điều 2.' trong file."
-            );
+
+        private void complete() {
+            if (articleNumber > 0) {
+                LegalArticle article = new LegalArticle();
+                article.setArticleNumber(articleNumber);
+                article.setArticleTitle(title);
+                article.setContent(content.toString().trim());
+                if (sink.test(article)) {
+                    saved++;
+                }
+            }
+            articleNumber = 0;
+            content.setLength(0);
         }
-        
-        return articles;
-    }
 
-    /**
-     * Clean content: remove chapter headers, page numbers, section titles, etc.
-     * More aggressive cleaning to handle various document formats
-     */
-    private String cleanContent(String content) {
-        // Remove chapter headers (Chương I, Chương XX, CHƯƠNG I, etc.)
-        // Match both with and without additional text after
-        content = content.replaceAll("(?mi)^\\s*Chương\\s+[IVX]+[^\\n]*$", "");
-        content = content.replaceAll("(?mi)^\\s*Chương\\s+\\d+[^\\n]*$", "");
-        
-        // Remove part headers (Phần thứ nhất, Phần I, PHẦN THỨ NHẤT, etc.)
-        content = content.replaceAll("(?mi)^\\s*Phần\\s+(thứ\\s+)?[a-zàáạảãâầấậẩẫăằắặẳẵèéẹẻẽêềếệểễìíịỉĩòóọỏõôồốộổỗơờớợởỡùúụủũưừứựửữỳýỵỷỹđ]+[^\\n]*$", "");
-        content = content.replaceAll("(?mi)^\\s*Phần\\s+[IVX]+[^\\n]*$", "");
-        
-        // Remove section headers (Mục 1, MỤC 1, etc.)
-        content = content.replaceAll("(?mi)^\\s*Mục\\s+\\d+[^\\n]*$", "");
-        
-        // Remove all-caps titles (likely section/chapter titles)
-        // Must be at least 10 chars and all uppercase Vietnamese
-        content = content.replaceAll("(?m)^\\s*[A-ZÀÁẠẢÃÂẦẤẬẨẪĂẰẮẶẲẴÈÉẸẺẼÊỀẾỆỂỄÌÍỊỈĨÒÓỌỎÕÔỒỐỘỔỖƠỜỚỢỞỠÙÚỤỦŨƯỪỨỰỬỮỲÝỴỶỸĐ\\s]{10,}\\s*$", "");
-        
-        // Remove page numbers (various formats)
-        content = content.replaceAll("(?m)^\\s*\\d+\\s*$", "");
-        content = content.replaceAll("(?m)^\\s*Trang\\s+\\d+[^\\n]*$", "");
-        content = content.replaceAll("(?m)^\\s*-\\s*\\d+\\s*-\\s*$", "");
-        content = content.replaceAll("(?m)^\\s*\\[\\s*\\d+\\s*\\]\\s*$", "");
-        
-        // Remove document headers that might appear at top
-        content = content.replaceAll("(?mi)^\\s*VĂN BẢN HỢP NHẤT[^\\n]*$", "");
-        content = content.replaceAll("(?mi)^\\s*BỘ LUẬT[^\\n]*NĂM \\d{4}[^\\n]*$", "");
-        
-        // Remove lines that are just dashes or underscores (separators)
-        content = content.replaceAll("(?m)^\\s*[-_=]{3,}\\s*$", "");
-        
-        // Remove multiple blank lines (3+ newlines -> 2 newlines)
-        content = content.replaceAll("\\n{3,}", "\n\n");
-        
-        // Remove leading/trailing whitespace
-        content = content.trim();
-        
-        return content;
+        long characters() { return characters; }
+        int matches() { return matches; }
+        int saved() { return saved; }
+        int firstNumber() { return firstNumber; }
+        int lastNumber() { return lastNumber; }
     }
 
     /**
@@ -2,16 +2,18 @@ package com.htai.exe201phapluatso.legal.service;
 
 import com.htai.exe201phapluatso.auth.entity.User;
 import com.htai.exe201phapluatso.auth.repo.UserRepo;
-import com.htai.exe201phapluatso.common.exception.BadRequestException;
 import com.htai.exe201phapluatso.common.exception.NotFoundException;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
 import com.htai.exe201phapluatso.legal.dto.LegalDocumentDTO;
 import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentRequest;
-import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentResponse;
 import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import com.htai.exe201phapluatso.legal.entity.LegalDocument;
+import com.htai.exe201phapluatso.legal.index.ArticleVectorIndex;
 import com.htai.exe201phapluatso.legal.repo.ChatMessageRepo;
 import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
 import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalIngestionJobRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
@@ -20,20 +22,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,57 +36,58 @@ public class LegalDocumentService {
     private static final Logger log = LoggerFactory.getLogger(LegalDocumentService.class);
 
     private final LegalDocumentRepo documentRepo;
+    private final LegalIngestionJobRepo ingestionJobRepo;
     private final LegalArticleRepo articleRepo;
-    private final LegalDocumentParserService parserService;
     private final UserRepo userRepo;
-    private final VectorSearchService vectorSearchService;
     private final ChatMessageRepo chatMessageRepo;
+    private final ArticleVectorIndex articleVectorIndex;
+    private final AnswerCache answerCache;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final LegalReferenceResolver referenceResolver;
     private final com.htai.exe201phapluatso.common.service.CloudinaryService cloudinaryService;
 
-    private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB for legal documents
-    private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of(
-        "application/pdf"
-    );
-
     public LegalDocumentService(
             LegalDocumentRepo documentRepo,
+            LegalIngestionJobRepo ingestionJobRepo,
             LegalArticleRepo articleRepo,
-            LegalDocumentParserService parserService,
             UserRepo userRepo,
-            VectorSearchService vectorSearchService,
             ChatMessageRepo chatMessageRepo,
+            ArticleVectorIndex articleVectorIndex,
+            AnswerCache answerCache,
+            ArticleSnapshotCache articleSnapshotCache,
+            LegalReferenceResolver referenceResolver,
             com.htai.exe201phapluatso.common.service.CloudinaryService cloudinaryService
     ) {
         this.documentRepo = documentRepo;
+        this.ingestionJobRepo = ingestionJobRepo;
         this.articleRepo = articleRepo;
-        this.parserService = parserService;
         this.userRepo = userRepo;
-        this.vectorSearchService = vectorSearchService;
         this.chatMessageRepo = chatMessageRepo;
+        this.articleVectorIndex = articleVectorIndex;
+        this.answerCache = answerCache;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.referenceResolver = referenceResolver;
         this.cloudinaryService = cloudinaryService;
     }
 
+    /**
+     * Persist a parsed document with its articles (PERSISTING stage of the ingestion pipeline)
+     * Embeddings are generated afterwards, outside this transaction.
+     * The job moves to CHUNKING in the same transaction, so a crash right after the commit
+     * cannot make a resumed job insert the document a second time.
+     */
     @Transactional
-    public UploadLegalDocumentResponse uploadDocument(
-            String userEmail,
-            MultipartFile file,
-            UploadLegalDocumentRequest request
+    public LegalDocument saveParsedDocument(
+            Long ingestionJobId,
+            Long userId,
+            UploadLegalDocumentRequest request,
+            String filePath,
+            List<LegalArticle> articles
     ) {
-        // 1. Validate file
-        validateFile(file);
-        
-        // 2. Get user
-        User user = userRepo.findByEmail(userEmail)
+        User user = userRepo.findById(userId)
                 .orElseThrow(() -> new NotFoundException("Không tìm thấy người dùng"));
 
-        // 3. Save file to Cloudinary
-        String filePath = saveFile(file);
-
-        // 4. Parse PDF and extract articles
-        // Note: Parser service might need input stream, which is fine from MultipartFile
-        List<LegalArticle> articles = parserService.parseDocument(file);
-
-        // 5. Create document entity
+        // Create document entity
         LegalDocument document = new LegalDocument();
         document.setDocumentName(sanitizeInput(request.documentName()));
         document.setDocumentCode(sanitizeInput(request.documentCode()));
@@ -108,81 +103,24 @@ public class LegalDocumentService {
         document.setCreatedBy(user);
         document.setCreatedAt(LocalDateTime.now());
 
-        // 6. Link articles to document
+        // Link articles to document
         for (LegalArticle article : articles) {
             article.setDocument(document);
         }
         document.setArticles(articles);
 
-        // 7. Save to database
         document = documentRepo.save(document);
-        
-        log.info("Document uploaded: {} with {} articles by user {}", 
-                document.getDocumentName(), document.getTotalArticles(), userEmail);
-
-        // 8. Generate embeddings for new articles (async-like, in background)
-        generateEmbeddingsForDocument(document);
-
-        // 9. Return response
-        return new UploadLegalDocumentResponse(
-                document.getId(),
-                document.getDocumentName(),
-                document.getTotalArticles(),
-                "Đã import thành công " + document.getTotalArticles() + " điều luật"
-        );
+        ingestionJobRepo.markPersisted(ingestionJobId, document.getId(), document.getTotalArticles(),
+                LocalDateTime.now());
+        // Citable by name ("Điều 51 BLHS") and searchable by keyword as soon as this commits
+        referenceResolver.registerAliases(document);
+        answerCache.invalidateAfterCommit();
+        
+        log.info("Document saved: {} with {} articles by user {}", 
+                document.getDocumentName(), document.getTotalArticles(), userId);
+        return document;
     }
 
-    /**
-     * Generate embeddings for all articles in a document
-     * This runs after document is saved to generate vector embeddings for semantic search
-     */
-    private void generateEmbeddingsForDocument(LegalDocument document) {
-        try {
-            log.info("Generating embeddings for {} articles in document {}", 
-                document.getTotalArticles(), document.getId());
-            
-            for (LegalArticle article : document.getArticles()) {
-                try {
-                    vectorSearchService.generateAndSaveEmbedding(article.getId());
-                } catch (Exception e) {
-                    log.warn("Failed to generate embedding for article {}: {}", 
-                        article.getId(), e.getMessage());
-                    // Continue with other articles even if one fails
-                }
-            }
-            
-            log.info("Finished generating embeddings for document {}", document.getId());
-        } catch (Exception e) {
-            log.error("Error generating embeddings for document {}: {}", 
-                document.getId(), e.getMessage());
-            // Don't fail the upload if embedding generation fails
-        }
-    }
-    
-    /**
-     * Validate uploaded file
-     */
-    private void validateFile(MultipartFile file) {
-        if (file == null || file.isEmpty()) {
-            throw new BadRequestException("File không được để trống");
-        }
-        
-        if (file.getSize() > MAX_FILE_SIZE) {
-            throw new BadRequestException("File không được vượt quá 50MB");
-        }
-        
-        String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType)) {
-            throw new BadRequestException("Chỉ hỗ trợ file PDF");
-        }
-        
-        // Validate filename to prevent path traversal
-        String filename = file.getOriginalFilename();
-        if (filename != null && (filename.contains("..") || filename.contains("/") || filename.contains("\\"))) {
-            throw new BadRequestException("Tên file không hợp lệ");
-        }
-    }
-    
     /**
      * Sanitize input to prevent XSS
      */
@@ -196,20 +134,6 @@ public class LegalDocumentService {
             .trim();
     }
 
-    /**
-     * Save uploaded file to Cloudinary
-     */
-    private String saveFile(MultipartFile file) {
-        try {
-            String url = cloudinaryService.uploadFile(file, "legal_docs");
-            log.info("File saved to Cloudinary: {}", url);
-            return url;
-        } catch (Exception e) {
-            log.error("Error saving file to Cloudinary", e);
-            throw new BadRequestException("Không thể lưu file. Vui lòng thử lại.");
-        }
-    }
-
     /**
      * Get all documents
      */
@@ -286,6 +210,13 @@ public class LegalDocumentService {
         
         // Delete from database
         documentRepo.delete(document);
+
+        // Drop vectors from the in-memory index once the delete commits
+        articleVectorIndex.removeAfterCommit(articleIds);
+        articleSnapshotCache.evictDocumentAfterCommit(id);
+        // Aliases are removed by ON DELETE CASCADE
+        referenceResolver.invalidateAfterCommit();
+        answerCache.invalidateAfterCommit();
         log.info("Document deleted: {}", id);
     }
 
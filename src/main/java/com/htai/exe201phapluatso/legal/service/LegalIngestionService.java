@@ -0,0 +1,444 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.auth.entity.User;
+import com.htai.exe201phapluatso.auth.repo.UserRepo;
+import com.htai.exe201phapluatso.common.exception.BadRequestException;
+import com.htai.exe201phapluatso.common.exception.NotFoundException;
+import com.htai.exe201phapluatso.common.service.CloudinaryService;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import com.htai.exe201phapluatso.legal.dto.LegalIngestionJobDTO;
+import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentRequest;
+import com.htai.exe201phapluatso.legal.dto.UploadLegalDocumentResponse;
+import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import com.htai.exe201phapluatso.legal.entity.LegalDocument;
+import com.htai.exe201phapluatso.legal.entity.LegalIngestionJob;
+import com.htai.exe201phapluatso.legal.index.ArticleVectorIndex;
+import com.htai.exe201phapluatso.legal.repo.LegalIngestionJobRepo;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Background ingestion of uploaded legal documents
+ *
+ * The upload request only validates the PDF, stores it in a temp directory and queues a job.
+ * A worker then runs the stages PARSING -> PERSISTING -> CHUNKING -> EMBEDDING -> INDEXING -> DONE.
+ * The current stage is stored on the job, so a failed or interrupted job resumes from
+ * the stage where it stopped instead of starting over.
+ */
+@Service
+public class LegalIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(LegalIngestionService.class);
+
+    private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB for legal documents
+    private static final Set<String> ALLOWED_CONTENT_TYPES = Set.of(
+        "application/pdf"
+    );
+    private static final Set<String> UNFINISHED_STATUSES = Set.of("QUEUED", "RUNNING", "RETRYING");
+    private static final long INITIAL_BACKOFF_MILLIS = 2000;
+
+    private final LegalIngestionJobRepo jobRepo;
+    private final UserRepo userRepo;
+    private final LegalDocumentParserService parserService;
+    private final LegalDocumentService documentService;
+    private final VectorSearchService vectorSearchService;
+    private final LegalPassageService passageService;
+    private final ArticleVectorIndex articleVectorIndex;
+    private final AnswerCache answerCache;
+    private final CloudinaryService cloudinaryService;
+    private final ExecutorService jobExecutor;
+
+    @Value("${legal.ingestion.temp-dir:${java.io.tmpdir}/phapluatso-ingestion}")
+    private String tempDir;
+
+    @Value("${legal.ingestion.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${legal.ingestion.embed-batch-size:64}")
+    private int embedBatchSize;
+
+    public LegalIngestionService(
+            LegalIngestionJobRepo jobRepo,
+            UserRepo userRepo,
+            LegalDocumentParserService parserService,
+            LegalDocumentService documentService,
+            VectorSearchService vectorSearchService,
+            LegalPassageService passageService,
+            ArticleVectorIndex articleVectorIndex,
+            AnswerCache answerCache,
+            CloudinaryService cloudinaryService,
+            @Value("${legal.ingestion.threads:2}") int threads) {
+        this.jobRepo = jobRepo;
+        this.userRepo = userRepo;
+        this.parserService = parserService;
+        this.documentService = documentService;
+        this.vectorSearchService = vectorSearchService;
+        this.passageService = passageService;
+        this.articleVectorIndex = articleVectorIndex;
+        this.answerCache = answerCache;
+        this.cloudinaryService = cloudinaryService;
+        AtomicInteger counter = new AtomicInteger();
+        this.jobExecutor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "legal-ingestion-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Validate and store the upload, then queue an ingestion job
+     * Returns immediately; poll getJob for progress
+     */
+    public UploadLegalDocumentResponse enqueue(
+            String userEmail,
+            MultipartFile file,
+            UploadLegalDocumentRequest request
+    ) {
+        validateFile(file);
+
+        User user = userRepo.findByEmail(userEmail)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy người dùng"));
+
+        Path tempFile = storeTempFile(file);
+
+        LegalIngestionJob job = new LegalIngestionJob();
+        job.setOriginalFilename(file.getOriginalFilename());
+        job.setTempFilePath(tempFile.toString());
+        job.setDocumentName(request.documentName());
+        job.setDocumentCode(request.documentCode());
+        job.setDocumentType(request.documentType());
+        job.setIssuingBody(request.issuingBody());
+        job.setEffectiveDate(request.effectiveDate());
+        job.setCreatedById(user.getId());
+        job = jobRepo.save(job);
+
+        submit(job.getId());
+        log.info("Queued ingestion job {} for '{}' by user {}", job.getId(), job.getDocumentName(), userEmail);
+
+        return new UploadLegalDocumentResponse(
+                job.getId(),
+                job.getDocumentName(),
+                job.getStatus(),
+                "Đã nhận file, đang xử lý văn bản trong nền"
+        );
+    }
+
+    /**
+     * Get job progress
+     */
+    public LegalIngestionJobDTO getJob(Long jobId) {
+        return toDTO(findJob(jobId));
+    }
+
+    /**
+     * Most recent jobs (admin monitoring)
+     */
+    public List<LegalIngestionJobDTO> getRecentJobs() {
+        return jobRepo.findTop20ByOrderByCreatedAtDesc()
+                .stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Retry a failed job from the stage where it stopped
+     */
+    public LegalIngestionJobDTO retry(Long jobId) {
+        LegalIngestionJob job = findJob(jobId);
+        if (!"FAILED".equals(job.getStatus())) {
+            throw new BadRequestException("Chỉ có thể chạy lại job đã thất bại");
+        }
+
+        job.setStatus("QUEUED");
+        job.setAttempts(0);
+        job.setLastError(null);
+        job = save(job);
+
+        submit(job.getId());
+        return toDTO(job);
+    }
+
+    /**
+     * Resume jobs interrupted by a restart
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeUnfinishedJobs() {
+        List<LegalIngestionJob> jobs = jobRepo.findByStatusInOrderByIdAsc(UNFINISHED_STATUSES);
+        if (jobs.isEmpty()) {
+            return;
+        }
+        log.info("Resuming {} unfinished ingestion jobs", jobs.size());
+        for (LegalIngestionJob job : jobs) {
+            submit(job.getId());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private void submit(Long jobId) {
+        jobExecutor.submit(() -> run(jobId));
+    }
+
+    /**
+     * Run the job from its stored stage to the end, retrying each stage with exponential backoff
+     */
+    private void run(Long jobId) {
+        LegalIngestionJob job = jobRepo.findById(jobId).orElse(null);
+        if (job == null || !UNFINISHED_STATUSES.contains(job.getStatus())) {
+            return;
+        }
+
+        // Articles parsed in this run; lost on restart, so PERSISTING re-parses when needed
+        List<LegalArticle> parsedArticles = null;
+
+        job.setStatus("RUNNING");
+        job = save(job);
+
+        while (!"DONE".equals(job.getStage())) {
+            try {
+                switch (job.getStage()) {
+                    case "PARSING" -> {
+                        parsedArticles = parse(job);
+                        job.setTotalArticles(parsedArticles.size());
+                        job.setStage("PERSISTING");
+                    }
+                    case "PERSISTING" -> {
+                        persist(job, parsedArticles != null ? parsedArticles : parse(job));
+                        parsedArticles = null;
+                        job.setStage("CHUNKING");
+                    }
+                    case "CHUNKING" -> {
+                        if (passageService.isEnabled()) {
+                            passageService.chunkDocument(job.getDocumentId());
+                        }
+                        job.setStage("EMBEDDING");
+                    }
+                    case "EMBEDDING" -> {
+                        embed(job);
+                        job.setStage("INDEXING");
+                    }
+                    case "INDEXING" -> {
+                        int added = articleVectorIndex.indexDocument(job.getDocumentId());
+                        log.debug("Ingestion job {}: {} vectors added to in-memory index", jobId, added);
+                        // Cached answers were retrieved without these vectors
+                        answerCache.invalidate();
+                        job.setStage("DONE");
+                    }
+                    default -> throw new IllegalStateException("Unknown ingestion stage: " + job.getStage());
+                }
+                job.setAttempts(0);
+                job.setStatus("RUNNING");
+                job = save(job);
+
+            } catch (Exception e) {
+                job.setAttempts(job.getAttempts() + 1);
+                job.setLastError(e.getMessage());
+
+                if (job.getAttempts() >= maxAttempts || !canRetry(job)) {
+                    job.setStatus("FAILED");
+                    save(job);
+                    log.error("Ingestion job {} failed at stage {} after {} attempts: {}",
+                            jobId, job.getStage(), job.getAttempts(), e.getMessage());
+                    return;
+                }
+
+                job.setStatus("RETRYING");
+                job = save(job);
+                long backoff = INITIAL_BACKOFF_MILLIS << (job.getAttempts() - 1);
+                log.warn("Ingestion job {} stage {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        jobId, job.getStage(), job.getAttempts(), maxAttempts, backoff, e.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    // Shutting down: job stays RETRYING and is resumed on next startup
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        job.setStatus("COMPLETED");
+        job.setCompletedAt(LocalDateTime.now());
+        job.setLastError(null);
+        save(job);
+        deleteTempFile(job);
+        log.info("Ingestion job {} completed: document {} with {} articles ({} embedded)",
+                jobId, job.getDocumentId(), job.getTotalArticles(), job.getEmbeddedArticles());
+    }
+
+    private List<LegalArticle> parse(LegalIngestionJob job) {
+        Path pdfFile = tempFile(job);
+        List<LegalArticle> articles = parserService.parseDocument(pdfFile);
+        log.info("Ingestion job {}: parsed {} articles", job.getId(), articles.size());
+        return articles;
+    }
+
+    private void persist(LegalIngestionJob job, List<LegalArticle> articles) {
+        // Upload once; the URL is kept on the job so a retry does not upload again
+        if (job.getFileUrl() == null) {
+            job.setFileUrl(cloudinaryService.uploadFile(tempFile(job).toFile(), "legal_docs"));
+            save(job);
+        }
+
+        UploadLegalDocumentRequest request = new UploadLegalDocumentRequest(
+                job.getDocumentName(),
+                job.getDocumentCode(),
+                job.getDocumentType(),
+                job.getIssuingBody(),
+                job.getEffectiveDate()
+        );
+        // Also moves the stored job to CHUNKING, in the document's transaction
+        LegalDocument document = documentService.saveParsedDocument(
+                job.getId(), job.getCreatedById(), request, job.getFileUrl(), articles);
+
+        job.setDocumentId(document.getId());
+        job.setTotalArticles(document.getTotalArticles());
+    }
+
+    /**
+     * Embed the document's articles, then its passages, batch by batch; each batch is committed
+     * on its own, so a retry only embeds what is still missing
+     */
+    private void embed(LegalIngestionJob job) {
+        while (true) {
+            Map<Long, float[]> embeddings = vectorSearchService.embedMissingForDocument(
+                    job.getDocumentId(), embedBatchSize);
+            if (embeddings.isEmpty()) {
+                break;
+            }
+            int saved = vectorSearchService.saveEmbeddings(embeddings);
+            job.setEmbeddedArticles(job.getEmbeddedArticles() + saved);
+            save(job);
+        }
+
+        if (!passageService.isEnabled()) {
+            return;
+        }
+        int passages = 0;
+        while (true) {
+            Map<Long, float[]> embeddings = passageService.embedMissingForDocument(
+                    job.getDocumentId(), embedBatchSize);
+            if (embeddings.isEmpty()) {
+                break;
+            }
+            passages += passageService.saveEmbeddings(embeddings);
+        }
+        log.debug("Ingestion job {}: {} passage embeddings saved", job.getId(), passages);
+    }
+
+    /**
+     * Parsing and persisting need the uploaded file; without it the job cannot continue
+     */
+    private boolean canRetry(LegalIngestionJob job) {
+        boolean needsFile = "PARSING".equals(job.getStage())
+                || ("PERSISTING".equals(job.getStage()) && job.getDocumentId() == null);
+        return !needsFile || Files.exists(Paths.get(job.getTempFilePath()));
+    }
+
+    private LegalIngestionJob save(LegalIngestionJob job) {
+        job.setUpdatedAt(LocalDateTime.now());
+        return jobRepo.save(job);
+    }
+
+    private LegalIngestionJob findJob(Long jobId) {
+        return jobRepo.findById(jobId)
+                .orElseThrow(() -> new NotFoundException("Không tìm thấy job xử lý văn bản"));
+    }
+
+    private Path tempFile(LegalIngestionJob job) {
+        Path path = Paths.get(job.getTempFilePath());
+        if (!Files.exists(path)) {
+            throw new IllegalStateException("File tạm của job không còn tồn tại: " + path);
+        }
+        return path;
+    }
+
+    private Path storeTempFile(MultipartFile file) {
+        try {
+            Path dir = Paths.get(tempDir);
+            Files.createDirectories(dir);
+            Path target = dir.resolve(UUID.randomUUID() + ".pdf");
+            try (InputStream in = file.getInputStream()) {
+                Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return target;
+        } catch (IOException e) {
+            log.error("Error storing uploaded file", e);
+            throw new BadRequestException("Không thể lưu file. Vui lòng thử lại.");
+        }
+    }
+
+    private void deleteTempFile(LegalIngestionJob job) {
+        try {
+            Files.deleteIfExists(Paths.get(job.getTempFilePath()));
+        } catch (IOException e) {
+            log.warn("Could not delete temp file {}: {}", job.getTempFilePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * Validate uploaded file
+     */
+    private void validateFile(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new BadRequestException("File không được để trống");
+        }
+
+        if (file.getSize() > MAX_FILE_SIZE) {
+            throw new BadRequestException("File không được vượt quá 50MB");
+        }
+
+        String contentType = file.getContentType();
+        if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType)) {
+            throw new BadRequestException("Chỉ hỗ trợ file PDF");
+        }
+
+        // Validate filename to prevent path traversal
+        String filename = file.getOriginalFilename();
+        if (filename != null && (filename.contains("..") || filename.contains("/") || filename.contains("\\"))) {
+            throw new BadRequestException("Tên file không hợp lệ");
+        }
+    }
+
+    private LegalIngestionJobDTO toDTO(LegalIngestionJob job) {
+        return new LegalIngestionJobDTO(
+                job.getId(),
+                job.getStatus(),
+                job.getStage(),
+                job.getDocumentName(),
+                job.getDocumentId(),
+                job.getTotalArticles(),
+                job.getEmbeddedArticles(),
+                job.getAttempts(),
+                job.getLastError(),
+                job.getCreatedAt(),
+                job.getUpdatedAt(),
+                job.getCompletedAt()
+        );
+    }
+}
@@ -0,0 +1,135 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits an article's content into Khoản / Điểm-level passages
+ *
+ * - Khoản: line starting with "1. ", "2. ", ... (numbers must be consecutive from 1,
+ *   so a wrapped line that happens to start with a number is not taken as a khoản)
+ * - Điểm: line starting with "a) ", "b) ", "đ) ", ... inside a khoản
+ * - Short articles (<= min-article-chars) stay one passage
+ * - A khoản longer than max-passage-chars is split into its điểm; each điểm passage starts with
+ *   the khoản lead-in (shortened to lead-chars), so "các trường hợp sau đây" keeps its meaning
+ * - Text before khoản 1 becomes its own passage (label null)
+ */
+@Component
+public class LegalPassageChunker {
+
+    private static final Pattern KHOAN = Pattern.compile("^\\s*(\\d{1,3})\\.\\s+\\S.*");
+    private static final Pattern DIEM = Pattern.compile("^\\s*([a-zđ])\\)\\s+\\S.*");
+
+    private final int minArticleChars;
+    private final int maxPassageChars;
+    private final int leadChars;
+
+    public LegalPassageChunker(
+            @Value("${legal.passages.min-article-chars:1200}") int minArticleChars,
+            @Value("${legal.passages.max-passage-chars:1500}") int maxPassageChars,
+            @Value("${legal.passages.lead-chars:300}") int leadChars) {
+        this.minArticleChars = minArticleChars;
+        this.maxPassageChars = maxPassageChars;
+        this.leadChars = leadChars;
+    }
+
+    /**
+     * Passages in reading order (never empty for non-blank content)
+     */
+    public List<Chunk> split(String content) {
+        if (content == null || content.isBlank()) {
+            return List.of();
+        }
+        String text = content.strip();
+        if (text.length() <= minArticleChars) {
+            return List.of(new Chunk(null, text));
+        }
+
+        List<String> lead = new ArrayList<>();
+        List<Block> khoans = new ArrayList<>();
+        for (String line : text.split("\\R")) {
+            Matcher matcher = KHOAN.matcher(line);
+            if (matcher.matches() && Integer.parseInt(matcher.group(1)) == khoans.size() + 1) {
+                khoans.add(new Block(matcher.group(1), new ArrayList<>()));
+            }
+            if (khoans.isEmpty()) {
+                lead.add(line);
+            } else {
+                khoans.get(khoans.size() - 1).lines().add(line);
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        if (khoans.isEmpty()) {
+            // No khoản: the article may still be a lead-in followed by điểm
+            chunks.addAll(splitBlock(null, lead));
+            return chunks;
+        }
+
+        String leadText = join(lead);
+        if (!leadText.isEmpty()) {
+            chunks.add(new Chunk(null, leadText));
+        }
+        for (Block khoan : khoans) {
+            chunks.addAll(splitBlock(khoan.number(), khoan.lines()));
+        }
+        return chunks;
+    }
+
+    /**
+     * One passage for the block, or one per điểm when the block is too long
+     */
+    private List<Chunk> splitBlock(String khoanNumber, List<String> lines) {
+        String label = khoanNumber != null ? "Khoản " + khoanNumber : null;
+        String whole = join(lines);
+        if (whole.length() <= maxPassageChars) {
+            return List.of(new Chunk(label, whole));
+        }
+
+        List<String> lead = new ArrayList<>();
+        List<Block> diems = new ArrayList<>();
+        for (String line : lines) {
+            Matcher matcher = DIEM.matcher(line);
+            if (matcher.matches()) {
+                diems.add(new Block(matcher.group(1), new ArrayList<>()));
+            }
+            if (diems.isEmpty()) {
+                lead.add(line);
+            } else {
+                diems.get(diems.size() - 1).lines().add(line);
+            }
+        }
+        if (diems.size() < 2) {
+            return List.of(new Chunk(label, whole));
+        }
+
+        String prefix = abbreviate(join(lead), leadChars);
+        List<Chunk> chunks = new ArrayList<>(diems.size());
+        for (Block diem : diems) {
+            String diemLabel = (label != null ? label + ", điểm " : "Điểm ") + diem.number();
+            String body = join(diem.lines());
+            chunks.add(new Chunk(diemLabel, prefix.isEmpty() ? body : prefix + "\n" + body));
+        }
+        return chunks;
+    }
+
+    private static String join(List<String> lines) {
+        return String.join("\n", lines).strip();
+    }
+
+    private static String abbreviate(String text, int maxChars) {
+        return text.length() > maxChars ? text.substring(0, maxChars) + "..." : text;
+    }
+
+    private record Block(String number, List<String> lines) {}
+
+    /**
+     * One passage: label like "Khoản 2" / "Khoản 2, điểm a" (null for the lead-in or an unsplit article)
+     */
+    public record Chunk(String label, String content) {}
+}
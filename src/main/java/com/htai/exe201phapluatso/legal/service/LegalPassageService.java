@@ -0,0 +1,270 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.ai.service.VectorCodec;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
+import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import com.htai.exe201phapluatso.legal.entity.LegalPassage;
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalPassageRepo;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Passage-level (Khoản / Điểm) chunks of legal articles and their embeddings
+ *
+ * - Chunking: LegalPassageChunker, one row per passage in legal_passages (ingestion CHUNKING stage)
+ * - Embedding: same batching as articles (one API request per batch, one multi-row UPDATE)
+ * - Search: pgvector nearest passages, used as a candidate stage of HybridRetrievalService
+ */
+@Service
+public class LegalPassageService {
+
+    private static final Logger log = LoggerFactory.getLogger(LegalPassageService.class);
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final LegalPassageRepo passageRepo;
+    private final LegalArticleRepo articleRepo;
+    private final LegalPassageChunker chunker;
+    private final EmbeddingService embeddingService;
+
+    @Value("${legal.passages.enabled:true}")
+    private boolean enabled;
+
+    public LegalPassageService(
+            EntityManager entityManager,
+            JdbcTemplate jdbcTemplate,
+            LegalPassageRepo passageRepo,
+            LegalArticleRepo articleRepo,
+            LegalPassageChunker chunker,
+            EmbeddingService embeddingService) {
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.passageRepo = passageRepo;
+        this.articleRepo = articleRepo;
+        this.chunker = chunker;
+        this.embeddingService = embeddingService;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * (Re)build the passages of a document; idempotent, so a retried ingestion stage starts clean
+     *
+     * @return Number of passages created
+     */
+    @Transactional
+    public int chunkDocument(Long documentId) {
+        passageRepo.deleteByDocumentId(documentId);
+        int created = chunkArticles(articleRepo.findByDocumentIdOrderByArticleNumber(documentId));
+        log.info("Document {} split into {} passages", documentId, created);
+        return created;
+    }
+
+    /**
+     * Chunk articles that have no passages yet (documents imported before passages existed)
+     *
+     * @return Number of articles chunked in this batch
+     */
+    @Transactional
+    public int chunkMissingArticles(int batchSize) {
+        List<Long> ids = passageRepo.findUnchunkedArticleIds(batchSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        int created = chunkArticles(articleRepo.findAllById(ids));
+        log.info("Chunked {} articles into {} passages", ids.size(), created);
+        return ids.size();
+    }
+
+    private int chunkArticles(List<LegalArticle> articles) {
+        List<LegalPassage> passages = new ArrayList<>();
+        for (LegalArticle article : articles) {
+            List<LegalPassageChunker.Chunk> chunks = chunker.split(article.getContent());
+            for (int i = 0; i < chunks.size(); i++) {
+                LegalPassage passage = new LegalPassage();
+                passage.setArticleId(article.getId());
+                passage.setDocumentId(article.getDocument().getId());
+                passage.setPassageIndex(i);
+                passage.setLabel(chunks.get(i).label());
+                passage.setContent(chunks.get(i).content());
+                passages.add(passage);
+            }
+        }
+        passageRepo.saveAll(passages);
+        return passages.size();
+    }
+
+    /**
+     * Embed the next batch of a document's passages without embeddings (no DB write),
+     * saved by the caller with saveEmbeddings
+     *
+     * @return passage id -> embedding (empty when the document is fully embedded)
+     */
+    public Map<Long, float[]> embedMissingForDocument(Long documentId, int batchSize) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT p.id, a.article_number, a.article_title, p.label, p.content
+                FROM legal_passages p
+                JOIN legal_articles a ON a.id = p.article_id
+                WHERE p.document_id = :documentId AND p.embedding IS NULL
+                ORDER BY p.id
+                LIMIT :limit
+                """)
+                .setParameter("documentId", documentId)
+                .setParameter("limit", batchSize)
+                .getResultList();
+
+        return embedRows(rows);
+    }
+
+    /**
+     * Batch generate embeddings for passages without embeddings (backfill)
+     */
+    @Transactional
+    public int generateMissingEmbeddings(int batchSize) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT p.id, a.article_number, a.article_title, p.label, p.content
+                FROM legal_passages p
+                JOIN legal_articles a ON a.id = p.article_id
+                WHERE p.embedding IS NULL
+                ORDER BY p.id
+                LIMIT :limit
+                """)
+                .setParameter("limit", batchSize)
+                .getResultList();
+
+        int count = saveEmbeddings(embedRows(rows));
+        log.info("Generated {} passage embeddings in this batch", count);
+        return count;
+    }
+
+    /**
+     * Embed (id, article number, article title, label, content) rows in one API request.
+     * The article heading and the passage label are part of the text, so a passage
+     * is still recognizable out of its article.
+     */
+    private Map<Long, float[]> embedRows(List<Object[]> rows) {
+        Map<Long, float[]> byId = new LinkedHashMap<>();
+        if (rows.isEmpty()) {
+            return byId;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+            texts.add(embeddingService.buildArticleText(
+                    heading((Number) row[1], (String) row[2], (String) row[3]), (String) row[4]));
+        }
+
+        List<float[]> embeddings = embeddingService.generateEmbeddings(texts);
+
+        for (int i = 0; i < ids.size(); i++) {
+            byId.put(ids.get(i), embeddings.get(i));
+        }
+        return byId;
+    }
+
+    private static String heading(Number articleNumber, String articleTitle, String label) {
+        StringBuilder heading = new StringBuilder("Điều ").append(articleNumber);
+        if (articleTitle != null && !articleTitle.isEmpty()) {
+            heading.append(". ").append(articleTitle);
+        }
+        if (label != null) {
+            heading.append(" - ").append(label);
+        }
+        return heading.toString();
+    }
+
+    /**
+     * Save many passage embeddings with a single multi-row UPDATE ... FROM (VALUES ...)
+     *
+     * @return Number of rows updated
+     */
+    @Transactional
+    public int saveEmbeddings(Map<Long, float[]> embeddings) {
+        if (embeddings.isEmpty()) {
+            return 0;
+        }
+
+        String sql = """
+                UPDATE legal_passages AS p
+                SET embedding = v.embedding,
+                    embedding_updated_at = ?
+                FROM (VALUES %s) AS v(id, embedding)
+                WHERE p.id = v.id
+                """.formatted(VectorSearchService.vectorValues(embeddings.size()));
+
+        return jdbcTemplate.update(sql, ps -> VectorSearchService.bindVectorValues(ps, embeddings));
+    }
+
+    /**
+     * Nearest passages of effective documents, best first.
+     * Index-backed ORDER BY ... LIMIT; the similarity floor is applied afterwards.
+     * The question vector is bound once, as a binary float4[].
+     */
+    public List<PassageHit> nearestPassages(float[] questionEmbedding, int limit, float minSimilarity) {
+        String sql = """
+                SELECT p.id, p.article_id, p.embedding <=> CAST(? AS vector) AS distance
+                FROM legal_passages p
+                JOIN legal_documents d ON p.document_id = d.id
+                WHERE p.embedding IS NOT NULL
+                  AND d.status = 'Còn hiệu lực'
+                ORDER BY distance
+                LIMIT ?
+                """;
+
+        List<PassageHit> hits = new ArrayList<>();
+        jdbcTemplate.query(sql, ps -> {
+            VectorCodec.bind(ps, 1, questionEmbedding);
+            ps.setInt(2, limit);
+        }, rs -> {
+            float similarity = 1 - rs.getFloat(3);
+            if (similarity >= minSimilarity) {
+                hits.add(new PassageHit(rs.getLong(1), rs.getLong(2), similarity));
+            }
+        });
+        return hits;
+    }
+
+    /**
+     * Load passages by id (one IN query), order not guaranteed
+     */
+    public List<ArticlePassage> findPassages(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return passageRepo.findPassagesByIdIn(ids);
+    }
+
+    public long countPassages() {
+        return passageRepo.count();
+    }
+
+    public long countPassagesWithoutEmbeddings() {
+        return ((Number) entityManager.createNativeQuery(
+                "SELECT COUNT(*) FROM legal_passages WHERE embedding IS NULL")
+                .getSingleResult()).longValue();
+    }
+
+    /**
+     * A passage vector hit: which article it belongs to and how close it is
+     */
+    public record PassageHit(Long passageId, Long articleId, float similarity) {}
+}
@@ -0,0 +1,440 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
+import com.htai.exe201phapluatso.legal.entity.LegalDocument;
+import com.htai.exe201phapluatso.legal.entity.LegalDocumentAlias;
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentAliasRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalPassageRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Direct article references in a question ("Điều 51 BLHS", "khoản 2 Điều 8 Luật Đất đai")
+ *
+ * Grammar (precompiled, matched on the folded question - same positions as the original):
+ *   [điểm x] [khoản N] Điều N[, N | và N]* [khoản N] [điểm x] [của | thuộc | trong | theo | tại] alias
+ * The document may also be named once elsewhere in the question ("Theo BLHS, Điều 51 quy định gì?").
+ * Aliases (legal_document_aliases, generated from name / code) are compiled into one pattern,
+ * longest first, and rebuilt lazily after a document is added.
+ *
+ * Cited articles are loaded by (document_id, article_number); a cited Khoản / Điểm selects its passages.
+ * When nothing else is asked (at most direct-max-keywords keywords left), search is skipped:
+ * no embedding call, no vector search.
+ */
+@Service
+public class LegalReferenceResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(LegalReferenceResolver.class);
+
+    private static final String BOUNDARY_BEFORE = "(?<![\\p{L}\\d])";
+    private static final String BOUNDARY_AFTER = "(?![\\p{L}\\d])";
+
+    // Groups: 1 điểm, 2 khoản, 3 article numbers, 4 khoản (after), 5 điểm (after)
+    private static final Pattern CITATION = Pattern.compile(BOUNDARY_BEFORE
+            + "(?:diem\\s+([a-z])\\s*,?\\s*)?"
+            + "(?:khoan\\s+(\\d{1,3})\\s*,?\\s*)?"
+            + "dieu\\s+(\\d{1,4}(?:\\s*(?:,|va)\\s*\\d{1,4})*)"
+            + "(?:\\s*,?\\s*khoan\\s+(\\d{1,3}))?"
+            + "(?:\\s*,?\\s*diem\\s+([a-z]))?"
+            + BOUNDARY_AFTER);
+
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+    private static final Pattern YEAR = Pattern.compile("(19|20)\\d{2}");
+    private static final String CONNECTOR = "\\s*,?\\s*(?:(?:cua|thuoc|trong|theo|tai)\\s+)?";
+
+    static final int MIN_ALIAS_LENGTH = 3;
+    static final int MAX_ALIAS_LENGTH = 200;
+
+    private final LegalDocumentRepo documentRepo;
+    private final LegalDocumentAliasRepo aliasRepo;
+    private final LegalArticleRepo articleRepo;
+    private final LegalPassageRepo passageRepo;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final KeywordSearchService keywordSearchService;
+
+    @Value("${legal.reference.enabled:true}")
+    private boolean enabled;
+
+    // Keywords allowed besides the citation for the question to count as a direct lookup
+    @Value("${legal.reference.direct-max-keywords:2}")
+    private int directMaxKeywords;
+
+    // null = rebuild on next use
+    private volatile AliasIndex aliasIndex;
+
+    public LegalReferenceResolver(
+            LegalDocumentRepo documentRepo,
+            LegalDocumentAliasRepo aliasRepo,
+            LegalArticleRepo articleRepo,
+            LegalPassageRepo passageRepo,
+            ArticleSnapshotCache articleSnapshotCache,
+            KeywordSearchService keywordSearchService) {
+        this.documentRepo = documentRepo;
+        this.aliasRepo = aliasRepo;
+        this.articleRepo = articleRepo;
+        this.passageRepo = passageRepo;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.keywordSearchService = keywordSearchService;
+    }
+
+    /**
+     * Articles cited in the question; Resolution.NONE when there is no resolvable citation
+     */
+    public Resolution resolve(String question) {
+        if (!enabled || question == null || question.isBlank()) {
+            return Resolution.NONE;
+        }
+        question = Normalizer.normalize(question, Normalizer.Form.NFC);
+
+        List<Citation> citations;
+        try {
+            citations = parse(question);
+        } catch (Exception e) {
+            log.warn("Reference parsing failed, using search only: {}", e.getMessage());
+            return Resolution.NONE;
+        }
+        if (citations.isEmpty()) {
+            return Resolution.NONE;
+        }
+
+        Set<Long> documentIds = new HashSet<>();
+        Set<Integer> articleNumbers = new HashSet<>();
+        for (Citation citation : citations) {
+            documentIds.addAll(citation.documentIds());
+            articleNumbers.add(citation.articleNumber());
+        }
+        Map<String, Long> articleIdByReference = new HashMap<>();
+        for (Object[] row : articleRepo.findReferencedArticles(documentIds, articleNumbers)) {
+            articleIdByReference.put(row[1] + ":" + row[2], ((Number) row[0]).longValue());
+        }
+
+        // Article ids in citation order; whole-article citations win over Khoản / Điểm ones
+        Set<Long> articleIds = new LinkedHashSet<>();
+        Set<Long> wholeArticles = new HashSet<>();
+        Map<Long, List<Citation>> partCitations = new HashMap<>();
+        for (Citation citation : citations) {
+            for (Long documentId : citation.documentIds()) {
+                Long articleId = articleIdByReference.get(documentId + ":" + citation.articleNumber());
+                if (articleId == null) {
+                    continue;
+                }
+                articleIds.add(articleId);
+                if (citation.clause() == null) {
+                    wholeArticles.add(articleId);
+                } else {
+                    partCitations.computeIfAbsent(articleId, k -> new ArrayList<>()).add(citation);
+                }
+            }
+        }
+
+        List<ArticleSnapshot> articles = articleSnapshotCache.getEffectiveInOrder(new ArrayList<>(articleIds));
+        if (articles.isEmpty()) {
+            return Resolution.NONE;
+        }
+        partCitations.keySet().removeAll(wholeArticles);
+
+        int leftover = keywordSearchService.extractKeywords(withoutReferences(question, citations)).size();
+        boolean directLookup = leftover <= directMaxKeywords;
+        log.info("Resolved {} cited articles ({} keywords besides the citation, direct lookup: {})",
+                articles.size(), leftover, directLookup);
+        return new Resolution(articles, selectPassages(partCitations), directLookup);
+    }
+
+    /**
+     * Citations whose document could be identified, in order of appearance
+     */
+    List<Citation> parse(String question) {
+        AliasIndex aliases = aliasIndex();
+        if (aliases.isEmpty()) {
+            return List.of();
+        }
+        String folded = VietnameseTokenizer.fold(question);
+
+        List<Citation> citations = new ArrayList<>();
+        List<Long> mentionedDocuments = null;
+        Matcher matcher = CITATION.matcher(folded);
+        while (matcher.find()) {
+            int end = matcher.end();
+            List<Long> documentIds;
+            Matcher adjacent = aliases.adjacent().matcher(folded).region(end, folded.length());
+            if (adjacent.lookingAt()) {
+                documentIds = aliases.documentsOf(adjacent.group(1));
+                end = adjacent.end();
+            } else {
+                if (mentionedDocuments == null) {
+                    mentionedDocuments = singleMentionedDocument(aliases, folded);
+                }
+                documentIds = mentionedDocuments;
+            }
+            if (documentIds.isEmpty()) {
+                continue;
+            }
+
+            String point = matcher.group(1) != null ? matcher.group(1) : matcher.group(5);
+            String clause = matcher.group(2) != null ? matcher.group(2) : matcher.group(4);
+            Matcher numbers = NUMBER.matcher(matcher.group(3));
+            while (numbers.find()) {
+                citations.add(new Citation(Integer.parseInt(numbers.group()),
+                        clause != null ? Integer.valueOf(clause) : null,
+                        clause != null ? point : null,
+                        documentIds, matcher.start(), end));
+            }
+        }
+        return citations;
+    }
+
+    /**
+     * The document named in the question when all alias mentions point to the same documents
+     */
+    private List<Long> singleMentionedDocument(AliasIndex aliases, String folded) {
+        List<Long> found = List.of();
+        Matcher matcher = aliases.anywhere().matcher(folded);
+        while (matcher.find()) {
+            List<Long> documents = aliases.documentsOf(matcher.group(1));
+            if (found.isEmpty()) {
+                found = documents;
+            } else if (!found.equals(documents)) {
+                return List.of();
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The question with citations and document names blanked out (positions are kept)
+     */
+    private String withoutReferences(String question, List<Citation> citations) {
+        char[] rest = question.toCharArray();
+        for (Citation citation : citations) {
+            Arrays.fill(rest, citation.start(), Math.min(citation.end(), rest.length), ' ');
+        }
+        Pattern aliasMention = aliasIndex().anywhere();
+        if (aliasMention != null) {
+            Matcher matcher = aliasMention.matcher(VietnameseTokenizer.fold(question));
+            while (matcher.find()) {
+                Arrays.fill(rest, matcher.start(), matcher.end(), ' ');
+            }
+        }
+        return new String(rest);
+    }
+
+    /**
+     * Passages of the cited Khoản / Điểm per article (labels as written by LegalPassageChunker);
+     * articles whose part was not found go into the prompt whole
+     */
+    private Map<Long, List<ArticlePassage>> selectPassages(Map<Long, List<Citation>> partCitations) {
+        if (partCitations.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<ArticlePassage>> result = new HashMap<>();
+        for (ArticlePassage passage : passageRepo.findPassagesByArticleIdIn(partCitations.keySet())) {
+            if (passage.label() == null) {
+                continue;
+            }
+            String label = VietnameseTokenizer.fold(passage.label());
+            boolean cited = partCitations.get(passage.articleId()).stream().anyMatch(c -> c.point() != null
+                    ? label.equals("khoan " + c.clause() + ", diem " + c.point())
+                    : label.equals("khoan " + c.clause()) || label.startsWith("khoan " + c.clause() + ", "));
+            if (cited) {
+                result.computeIfAbsent(passage.articleId(), k -> new ArrayList<>()).add(passage);
+            }
+        }
+        return result;
+    }
+
+    // ==================== Document aliases ====================
+
+    /**
+     * Store the aliases of a (new) document; the alias pattern is rebuilt after commit
+     */
+    public void registerAliases(LegalDocument document) {
+        Set<String> aliases = aliasesOf(document.getDocumentName(), document.getDocumentCode());
+        aliasRepo.findByDocumentId(document.getId()).forEach(existing -> aliases.remove(existing.getAlias()));
+        if (aliases.isEmpty()) {
+            return;
+        }
+        aliasRepo.saveAll(aliases.stream()
+                .map(alias -> new LegalDocumentAlias(document.getId(), alias))
+                .toList());
+        log.info("Registered aliases {} for document {}", aliases, document.getId());
+        invalidateAfterCommit();
+    }
+
+    /**
+     * Generate aliases for documents imported before aliases existed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillAliases() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Long> documentIds = aliasRepo.findDocumentIdsWithoutAliases();
+            for (LegalDocument document : documentRepo.findAllById(documentIds)) {
+                registerAliases(document);
+            }
+            if (!documentIds.isEmpty()) {
+                log.info("Backfilled aliases for {} documents", documentIds.size());
+            }
+        } catch (Exception e) {
+            log.warn("Alias backfill failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Drop the compiled alias pattern once the surrounding transaction commits
+     */
+    public void invalidateAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aliasIndex = null;
+                }
+            });
+        } else {
+            aliasIndex = null;
+        }
+    }
+
+    /**
+     * Folded aliases of a document:
+     * "Bộ luật Hình sự 2015" -> "bo luat hinh su 2015", "bo luat hinh su", "luat hinh su", "blhs", "blhs 2015";
+     * document code "100/2015/QH13" -> "100/2015/qh13"
+     */
+    static Set<String> aliasesOf(String documentName, String documentCode) {
+        Set<String> aliases = new LinkedHashSet<>();
+        if (documentName != null) {
+            String name = documentName;
+            int parenthesis = name.indexOf('(');
+            if (parenthesis > 0) {
+                name = name.substring(0, parenthesis);
+            }
+            List<String> words = Arrays.stream(VietnameseTokenizer.fold(name).split("[^\\p{L}\\d/]+"))
+                    .filter(w -> !w.isEmpty())
+                    .toList();
+            addAlias(aliases, String.join(" ", words));
+
+            // Without the year: "... 2015" / "... năm 2015"
+            int end = words.size();
+            String year = null;
+            for (int i = 0; i < words.size(); i++) {
+                if (YEAR.matcher(words.get(i)).matches()) {
+                    year = words.get(i);
+                    end = i > 0 && "nam".equals(words.get(i - 1)) ? i - 1 : i;
+                    break;
+                }
+            }
+            List<String> base = words.subList(0, end);
+            addAlias(aliases, String.join(" ", base));
+            // "Bộ luật Hình sự" is often cited as "Luật Hình sự"
+            if (base.size() > 2 && base.get(0).equals("bo") && base.get(1).equals("luat")) {
+                addAlias(aliases, String.join(" ", base.subList(1, base.size())));
+            }
+
+            // Initials: "bo luat hinh su" -> "blhs"
+            if (base.size() >= 3 && base.stream().allMatch(w -> Character.isLetter(w.charAt(0)))) {
+                String initials = base.stream().map(w -> w.substring(0, 1)).collect(Collectors.joining());
+                addAlias(aliases, initials);
+                if (year != null) {
+                    addAlias(aliases, initials + " " + year);
+                }
+            }
+        }
+        if (documentCode != null) {
+            addAlias(aliases, VietnameseTokenizer.fold(documentCode).strip().replaceAll("\\s+", " "));
+        }
+        return aliases;
+    }
+
+    private static void addAlias(Set<String> aliases, String alias) {
+        if (alias.length() >= MIN_ALIAS_LENGTH && alias.length() <= MAX_ALIAS_LENGTH) {
+            aliases.add(alias);
+        }
+    }
+
+    private AliasIndex aliasIndex() {
+        AliasIndex index = aliasIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = aliasIndex;
+                if (index == null) {
+                    index = AliasIndex.build(aliasRepo.findAll());
+                    aliasIndex = index;
+                    log.info("Compiled {} document aliases", index.documentsByAlias().size());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * One cited article: Điều articleNumber [khoản clause [điểm point]] of one of documentIds
+     * (several when an alias is shared, e.g. old and new version); start / end = span in the question
+     */
+    record Citation(int articleNumber, Integer clause, String point, List<Long> documentIds, int start, int end) {}
+
+    /**
+     * Cited articles (citation order) and the passages of cited Khoản / Điểm per article id
+     * directLookup: the question asks nothing beyond the citation, search can be skipped
+     */
+    public record Resolution(List<ArticleSnapshot> articles, Map<Long, List<ArticlePassage>> passages,
+                             boolean directLookup) {
+
+        public static final Resolution NONE = new Resolution(List.of(), Map.of(), false);
+
+        public boolean isEmpty() {
+            return articles.isEmpty();
+        }
+    }
+
+    /**
+     * Aliases compiled into patterns: adjacent = right after a citation, anywhere = a document mention
+     */
+    private record AliasIndex(Map<String, List<Long>> documentsByAlias, Pattern adjacent, Pattern anywhere) {
+
+        static AliasIndex build(List<LegalDocumentAlias> aliases) {
+            Map<String, List<Long>> documentsByAlias = new HashMap<>();
+            for (LegalDocumentAlias alias : aliases) {
+                documentsByAlias.computeIfAbsent(alias.getAlias(), k -> new ArrayList<>()).add(alias.getDocumentId());
+            }
+            documentsByAlias.values().forEach(Collections::sort);
+            if (documentsByAlias.isEmpty()) {
+                return new AliasIndex(Map.of(), null, null);
+            }
+
+            // Longest first, so "bo luat hinh su 2015" wins over "bo luat hinh su"
+            String alternation = documentsByAlias.keySet().stream()
+                    .sorted(Comparator.comparingInt(String::length).reversed())
+                    .map(alias -> Arrays.stream(alias.split(" ")).map(Pattern::quote).collect(Collectors.joining("\\s+")))
+                    .collect(Collectors.joining("|", "(", ")"));
+            return new AliasIndex(documentsByAlias,
+                    Pattern.compile(CONNECTOR + alternation + BOUNDARY_AFTER),
+                    Pattern.compile(BOUNDARY_BEFORE + alternation + BOUNDARY_AFTER));
+        }
+
+        boolean isEmpty() {
+            return documentsByAlias.isEmpty();
+        }
+
+        List<Long> documentsOf(String matched) {
+            return documentsByAlias.getOrDefault(matched.replaceAll("\\s+", " "), List.of());
+        }
+    }
+}
@@ -1,19 +1,21 @@
 package com.htai.exe201phapluatso.legal.service;
 
-import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
 import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
 import com.htai.exe201phapluatso.legal.dto.ConversationContext;
-import com.htai.exe201phapluatso.legal.entity.LegalArticle;
 import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
-import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
+import com.htai.exe201phapluatso.legal.rerank.LexicalReranker;
+import com.htai.exe201phapluatso.legal.rerank.Reranker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service for searching relevant legal articles
@@ -24,21 +26,39 @@ public class LegalSearchService {
 
     private static final Logger log = LoggerFactory.getLogger(LegalSearchService.class);
 
-    private final EntityManager entityManager;
     private final LegalArticleRepo articleRepo;
-    private final VectorSearchService vectorSearchService;
-    private final OpenAIService aiService;
+    private final HybridRetrievalService hybridRetrievalService;
+    private final KeywordSearchService keywordSearchService;
+    private final ArticleSnapshotCache articleSnapshotCache;
+    private final LexicalReranker lexicalReranker;
+    private final LegalReferenceResolver referenceResolver;
+    private final RagMetrics ragMetrics;
+    // null = re-ranking disabled (strategy "none")
+    private final Reranker reranker;
 
     @Autowired
     public LegalSearchService(
-            EntityManager entityManager,
             LegalArticleRepo articleRepo,
-            VectorSearchService vectorSearchService,
-            OpenAIService aiService) {
-        this.entityManager = entityManager;
+            HybridRetrievalService hybridRetrievalService,
+            KeywordSearchService keywordSearchService,
+            ArticleSnapshotCache articleSnapshotCache,
+            LexicalReranker lexicalReranker,
+            LegalReferenceResolver referenceResolver,
+            RagMetrics ragMetrics,
+            List<Reranker> rerankers,
+            @Value("${search.rerank.strategy:lexical}") String rerankStrategy) {
         this.articleRepo = articleRepo;
-        this.vectorSearchService = vectorSearchService;
-        this.aiService = aiService;
+        this.hybridRetrievalService = hybridRetrievalService;
+        this.keywordSearchService = keywordSearchService;
+        this.articleSnapshotCache = articleSnapshotCache;
+        this.lexicalReranker = lexicalReranker;
+        this.referenceResolver = referenceResolver;
+        this.ragMetrics = ragMetrics;
+        this.reranker = "none".equalsIgnoreCase(rerankStrategy) ? null : rerankers.stream()
+                .filter(r -> r.name().equalsIgnoreCase(rerankStrategy))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown search.rerank.strategy: " + rerankStrategy));
+        log.info("Search re-ranking strategy: {}", reranker != null ? reranker.name() : "none");
     }
 
     /**
@@ -49,33 +69,54 @@ public class LegalSearchService {
      * @param limit    Maximum number of results
      * @return List of relevant articles, sorted by relevance score
      */
-    public List<LegalArticle> searchRelevantArticles(String question, int limit) {
+    public List<ArticleSnapshot> searchRelevantArticles(String question, int limit) {
+        LegalReferenceResolver.Resolution references = referenceResolver.resolve(question);
+        if (references.directLookup()) {
+            return references.articles();
+        }
+        RagMetrics.Trace trace = ragMetrics.start("search");
+        List<ArticleSnapshot> articles;
+        try {
+            articles = retrieve(question, limit, trace).articles();
+        } catch (RuntimeException e) {
+            trace.finish("error");
+            throw e;
+        }
+        trace.finish(articles.isEmpty() ? "no_results" : "answered");
+        return withReferences(references.articles(), articles, limit);
+    }
+
+    /**
+     * Hybrid retrieval with matched passages; keyword-only fallback has no passages
+     */
+    private HybridRetrievalService.Retrieval retrieve(String question, int limit, RagMetrics.Trace trace) {
         if (question == null || question.trim().isEmpty()) {
             log.warn("Empty question provided to search");
-            return Collections.emptyList();
+            return new HybridRetrievalService.Retrieval(Collections.emptyList(), Map.of());
         }
 
-        // Try hybrid search first (vector + keyword)
+        // Try hybrid search first (vector + passage + keyword)
         try {
-            List<LegalArticle> results = vectorSearchService.hybridSearch(question, limit);
-            if (!results.isEmpty()) {
-                log.info("Hybrid search found {} results", results.size());
-                return results;
+            HybridRetrievalService.Retrieval retrieval = hybridRetrievalService.retrieveWithPassages(question, limit, trace);
+            if (!retrieval.articles().isEmpty()) {
+                log.info("Hybrid search found {} results", retrieval.articles().size());
+                return retrieval;
             }
         } catch (Exception e) {
             log.warn("Hybrid search failed, falling back to keyword search: {}", e.getMessage());
         }
 
         // Fallback to keyword-only search
-        return keywordSearch(question, limit);
+        return new HybridRetrievalService.Retrieval(keywordSearch(question, limit), Map.of());
     }
 
     /**
-     * Keyword-only search (legacy method, used as fallback)
+     * Keyword-only search (used as fallback)
+     * Full-text match ranked in Postgres; see KeywordSearchService
      */
-    public List<LegalArticle> keywordSearch(String question, int limit) {
+    public List<ArticleSnapshot> keywordSearch(String question, int limit) {
         // Extract keywords
-        List<String> keywords = extractKeywords(question);
+        List<String> keywords = keywordSearchService.extractKeywords(question);
         log.info("Keyword search with: {}", keywords);
 
         if (keywords.isEmpty()) {
@@ -83,230 +124,147 @@ public class LegalSearchService {
             return getFallbackArticles(limit);
         }
 
-        // Search and score
-        List<ArticleScore> scoredArticles = searchWithScoring(keywords);
-        log.info("Found {} articles matching keywords", scoredArticles.size());
-
-        // Return top N
-        List<LegalArticle> results = scoredArticles.stream()
-                .limit(limit)
-                .map(ArticleScore::article)
-                .collect(Collectors.toList());
-
-        logTopResults(scoredArticles, 3);
-        return results;
+        return articleSnapshotCache.getEffectiveInOrder(
+                keywordSearchService.searchIds(keywords, limit, LegalSearchConfig.MIN_KEYWORD_MATCHES));
     }
 
     /**
-     * Search articles matching keywords and calculate relevance scores
-     * Filters by minimum relevance score and keyword match count
+     * Get fallback articles when no keywords found
      */
-    private List<ArticleScore> searchWithScoring(List<String> keywords) {
-        // Find matching articles
-        List<LegalArticle> articles = findArticlesByKeywords(keywords);
-
-        // Calculate scores and filter by quality thresholds
-        List<ArticleScore> scored = articles.stream()
-                .map(article -> {
-                    int score = calculateScore(article, keywords);
-                    int matchCount = countKeywordMatches(article, keywords);
-                    return new ArticleScore(article, score, matchCount);
-                })
-                // Filter: must meet minimum score AND minimum keyword matches
-                .filter(as -> as.score() >= LegalSearchConfig.MIN_RELEVANCE_SCORE)
-                .filter(as -> as.matchCount() >= Math.min(LegalSearchConfig.MIN_KEYWORD_MATCHES, keywords.size()))
-                .sorted(Comparator.comparingInt(ArticleScore::score).reversed())
-                .collect(Collectors.toList());
-
-        log.info("Filtered from {} to {} articles (min score: {}, min matches: {})",
-                articles.size(), scored.size(),
-                LegalSearchConfig.MIN_RELEVANCE_SCORE, LegalSearchConfig.MIN_KEYWORD_MATCHES);
-
-        return scored;
+    private List<ArticleSnapshot> getFallbackArticles(int limit) {
+        log.info("Using fallback: returning recent articles");
+        // Use paginated query instead of findAll() to avoid loading all articles
+        return articleSnapshotCache.getEffectiveInOrder(
+                articleRepo.findRecentArticleIds(org.springframework.data.domain.PageRequest.of(0, limit)));
     }
 
     /**
-     * Count how many distinct keywords match in the article
+     * Unified search method for chat functionality
+     * Combines query enhancement, multi-strategy search, and re-ranking
      */
-    private int countKeywordMatches(LegalArticle article, List<String> keywords) {
-        String content = normalize(article.getContent());
-        String title = normalize(article.getArticleTitle());
-
-        int matchCount = 0;
-        for (String keyword : keywords) {
-            String normalizedKeyword = keyword.toLowerCase();
-            if (title.contains(normalizedKeyword) || content.contains(normalizedKeyword)) {
-                matchCount++;
-            }
-        }
-        return matchCount;
+    public SearchResult searchForChat(String question, int limit, ConversationContext context) {
+        return searchForChatAsync(question, limit, context).block();
     }
 
     /**
-     * Find articles matching any of the keywords using SQL LIKE
+     * searchForChat with its stages recorded on the chat request's trace
      */
-    private List<LegalArticle> findArticlesByKeywords(List<String> keywords) {
-        StringBuilder sql = new StringBuilder(
-                "SELECT DISTINCT a.* FROM legal_articles a " +
-                        "JOIN legal_documents d ON a.document_id = d.id " +
-                        "WHERE d.status = 'Còn hiệu lực' AND (");
-
-        // Build OR conditions for each keyword
-        for (int i = 0; i < keywords.size(); i++) {
-            if (i > 0)
-                sql.append(" OR ");
-            sql.append("(a.content LIKE :kw").append(i);
-            sql.append(" OR a.article_title LIKE :kw").append(i).append(")");
-        }
-        sql.append(")");
-
-        Query query = entityManager.createNativeQuery(sql.toString(), LegalArticle.class);
-
-        // Bind parameters
-        for (int i = 0; i < keywords.size(); i++) {
-            query.setParameter("kw" + i, "%" + keywords.get(i) + "%");
-        }
-
-        @SuppressWarnings("unchecked")
-        List<LegalArticle> results = query.getResultList();
-        return results;
+    public SearchResult searchForChat(String question, int limit, ConversationContext context, RagMetrics.Trace trace) {
+        return searchForChatAsync(question, limit, context, trace).block();
     }
 
     /**
-     * Calculate relevance score for an article
-     * Title matches are weighted higher than content matches
+     * Non-blocking variant of searchForChat: retrieval runs on the caller thread,
+     * an LLM re-ranking call (opt-in) does not park it
      */
-    private int calculateScore(LegalArticle article, List<String> keywords) {
-        String content = normalize(article.getContent());
-        String title = normalize(article.getArticleTitle());
-
-        int score = 0;
-        for (String keyword : keywords) {
-            String normalizedKeyword = keyword.toLowerCase();
-
-            // Title matches (higher weight)
-            score += countOccurrences(title, normalizedKeyword)
-                    * LegalSearchConfig.TITLE_MATCH_WEIGHT;
-
-            // Content matches
-            score += countOccurrences(content, normalizedKeyword)
-                    * LegalSearchConfig.CONTENT_MATCH_WEIGHT;
+    public Mono<SearchResult> searchForChatAsync(String question, int limit, ConversationContext context) {
+        // Standalone search: its own trace, finished here (chat requests finish theirs in LegalChatService)
+        RagMetrics.Trace trace = ragMetrics.start("search");
+        Mono<SearchResult> search;
+        try {
+            search = searchForChatAsync(question, limit, context, trace);
+        } catch (RuntimeException e) {
+            trace.finish("error");
+            throw e;
         }
-
-        return score;
+        return search
+                .doOnSuccess(result -> trace.finish(result == null || result.articles().isEmpty()
+                        ? "no_results" : "answered"))
+                .doOnError(e -> trace.finish("error"));
     }
 
     /**
-     * Count occurrences of substring in text
+     * searchForChatAsync with its stages recorded on the chat request's trace
      */
-    private int countOccurrences(String text, String substring) {
-        if (text.isEmpty() || substring.isEmpty()) {
-            return 0;
+    public Mono<SearchResult> searchForChatAsync(String question, int limit, ConversationContext context,
+                                                 RagMetrics.Trace trace) {
+        // Explicit citations ("Điều 51 BLHS"): exact articles, no search when nothing else is asked
+        LegalReferenceResolver.Resolution references = trace.time("reference", () -> referenceResolver.resolve(question));
+        if (references.directLookup()) {
+            log.info("Direct lookup of {} cited articles, search skipped", references.articles().size());
+            return Mono.just(new SearchResult(references.articles(), references.passages(),
+                    new SearchMetadata(false, false, references.articles().size())));
         }
 
-        int count = 0;
-        int index = 0;
-
-        while ((index = text.indexOf(substring, index)) != -1) {
-            count++;
-            index += substring.length();
-        }
+        // Enhance query with conversation context
+        String enhancedQuery = enhanceQueryWithContext(question, context);
 
-        return count;
+        // Try hybrid search first (vector + passage + keyword)
+        HybridRetrievalService.Retrieval retrieval = trace.time("retrieval", () -> retrieve(enhancedQuery, limit, trace));
+        Set<Long> citedIds = new HashSet<>();
+        references.articles().forEach(a -> citedIds.add(a.id()));
+        List<ArticleSnapshot> candidates = retrieval.articles().stream()
+                .filter(a -> !citedIds.contains(a.id()))
+                .toList();
+        Map<Long, List<ArticlePassage>> passages = new HashMap<>(retrieval.passages());
+        passages.putAll(references.passages());
+        trace.candidates("retrieval", candidates.size());
+
+        // Apply re-ranking if we have enough candidates (cited articles stay first, outside re-ranking)
+        boolean reranks = rerankApplies(candidates);
+        Mono<List<ArticleSnapshot>> reranking = rerankArticlesAsync(question, enhancedQuery, candidates);
+        return (reranks ? trace.time("rerank", reranking) : reranking)
+                .map(reranked -> {
+                    if (reranks) {
+                        trace.rerank(candidates.size(), reranked.size());
+                    }
+                    List<ArticleSnapshot> finalResults = withReferences(references.articles(), reranked, limit);
+                    // Create metadata
+                    SearchMetadata metadata = new SearchMetadata(
+                        true, // usedVector (assuming hybrid search includes vector)
+                        reranked.size() < candidates.size(), // usedRerank
+                        candidates.size() // originalCandidates
+                    );
+                    return new SearchResult(finalResults, passages, metadata);
+                });
     }
 
     /**
-     * Extract keywords from question
-     * Removes stop words and extracts meaningful terms
+     * Speculative first pass for a follow-up question: the articles cited by the previous answer, then the
+     * vector nearest articles of the context-enhanced question (same query text as searchForChat, so the
+     * full search reuses its embedding). No keyword / passage stage, no re-ranking.
+     *
+     * @return null when there is nothing to speculate on (first turn, or the previous answer cited nothing)
      */
-    private List<String> extractKeywords(String question) {
-        // Tokenize
-        String[] words = question.toLowerCase()
-                .replaceAll("[^\\p{L}\\s]", " ")
-                .trim()
-                .split("\\s+");
-
-        // Filter and collect keywords
-        List<String> keywords = Arrays.stream(words)
-                .filter(word -> word.length() >= LegalSearchConfig.MIN_KEYWORD_LENGTH)
-                .filter(word -> !LegalSearchConfig.STOP_WORDS.contains(word))
-                .distinct()
-                .limit(LegalSearchConfig.MAX_KEYWORDS)
-                .collect(Collectors.toList());
-
-        // Add bigrams for better context matching
-        keywords.addAll(extractBigrams(words));
-
-        return keywords;
+    public SearchResult speculativeSearchForChat(String question, int limit, ConversationContext context,
+                                                 RagMetrics.Trace trace) {
+        if (context == null || context.getLastCitedArticleIds().isEmpty()) {
+            return null;
+        }
+        return trace.time("speculative_retrieval", () -> {
+            List<ArticleSnapshot> previous = articleSnapshotCache.getEffectiveInOrder(context.getLastCitedArticleIds());
+            List<ArticleSnapshot> fresh;
+            try {
+                fresh = hybridRetrievalService.vectorOnly(enhanceQueryWithContext(question, context), limit, trace);
+            } catch (Exception e) {
+                log.warn("Speculative vector search failed, using previous citations only: {}", e.getMessage());
+                fresh = List.of();
+            }
+            List<ArticleSnapshot> articles = withReferences(previous, fresh, limit);
+            return new SearchResult(articles, Map.of(),
+                    new SearchMetadata(!fresh.isEmpty(), false, previous.size() + fresh.size()));
+        });
     }
 
     /**
-     * Extract 2-word phrases (bigrams) for better context
+     * Cited articles first, then search results not already cited, at most limit (cited articles always kept)
      */
-    private List<String> extractBigrams(String[] words) {
-        List<String> bigrams = new ArrayList<>();
-
-        for (int i = 0; i < words.length - 1; i++) {
-            String word1 = words[i];
-            String word2 = words[i + 1];
-
-            // Skip if either is a stop word or too short
-            if (LegalSearchConfig.STOP_WORDS.contains(word1) ||
-                    LegalSearchConfig.STOP_WORDS.contains(word2)) {
-                continue;
+    private static List<ArticleSnapshot> withReferences(List<ArticleSnapshot> cited, List<ArticleSnapshot> found, int limit) {
+        if (cited.isEmpty()) {
+            return found;
+        }
+        Set<Long> citedIds = new HashSet<>();
+        cited.forEach(a -> citedIds.add(a.id()));
+        List<ArticleSnapshot> merged = new ArrayList<>(cited);
+        for (ArticleSnapshot article : found) {
+            if (merged.size() >= limit) {
+                break;
             }
-
-            if (word1.length() < LegalSearchConfig.MIN_KEYWORD_LENGTH ||
-                    word2.length() < LegalSearchConfig.MIN_KEYWORD_LENGTH) {
-                continue;
+            if (!citedIds.contains(article.id())) {
+                merged.add(article);
             }
-
-            bigrams.add(word1 + " " + word2);
         }
-
-        return bigrams.stream()
-                .limit(LegalSearchConfig.MAX_BIGRAMS)
-                .collect(Collectors.toList());
-    }
-
-    /**
-     * Get fallback articles when no keywords found
-     */
-    private List<LegalArticle> getFallbackArticles(int limit) {
-        log.info("Using fallback: returning recent articles");
-        // Use paginated query instead of findAll() to avoid loading all articles
-        return articleRepo.findRecentArticles(org.springframework.data.domain.PageRequest.of(0, limit));
-    }
-
-    /**
-     * Normalize text for comparison (lowercase, handle null)
-     */
-    private String normalize(String text) {
-        return text != null ? text.toLowerCase() : "";
-    }
-
-    /**
-     * Unified search method for chat functionality
-     * Combines query enhancement, multi-strategy search, and AI re-ranking
-     */
-    public SearchResult searchForChat(String question, int limit, ConversationContext context) {
-        // Enhance query with conversation context
-        String enhancedQuery = enhanceQueryWithContext(question, context);
-
-        // Try hybrid search first (vector + keyword)
-        List<LegalArticle> candidates = searchRelevantArticles(enhancedQuery, limit);
-
-        // Apply AI re-ranking if we have enough candidates
-        List<LegalArticle> finalResults = aiReRankArticles(question, candidates);
-
-        // Create metadata
-        SearchMetadata metadata = new SearchMetadata(
-            true, // usedVector (assuming hybrid search includes vector)
-            finalResults.size() < candidates.size(), // usedAiRerank
-            candidates.size() // originalCandidates
-        );
-
-        return new SearchResult(finalResults, metadata);
+        return merged;
     }
 
     /**
@@ -336,168 +294,38 @@ public class LegalSearchService {
     }
 
     /**
-     * AI-powered re-ranking: Let AI analyze and select truly relevant articles
-     * This filters out articles that match keywords but aren't actually relevant
+     * Re-rank retrieval candidates with the configured strategy (search.rerank.strategy)
+     * If the opt-in LLM re-ranker fails, the in-process lexical re-ranker is used instead
      */
-    public List<LegalArticle> aiReRankArticles(String question, List<LegalArticle> candidates) {
-        if (candidates.size() <= 3) {
+    public Mono<List<ArticleSnapshot>> rerankArticlesAsync(String question, String retrievalQuery, List<ArticleSnapshot> candidates) {
+        if (!rerankApplies(candidates)) {
             // If we have 3 or fewer, assume all are relevant
-            return candidates;
-        }
-
-        log.info("AI re-ranking {} candidate articles", candidates.size());
-
-        // Build analysis prompt
-        String analysisPrompt = buildReRankingPrompt(question, candidates);
-
-        try {
-            String aiResponse = aiService.generateText(analysisPrompt);
-            List<Integer> selectedIndices = parseSelectedIndices(aiResponse, candidates.size());
-
-            List<LegalArticle> selected = selectedIndices.stream()
-                    .filter(i -> i >= 0 && i < candidates.size())
-                    .map(candidates::get)
-                    .collect(Collectors.toList());
-
-            log.info("AI selected {} out of {} articles as truly relevant", selected.size(), candidates.size());
-            return selected.isEmpty() ? candidates.subList(0, Math.min(3, candidates.size())) : selected;
-
-        } catch (Exception e) {
-            log.error("Error in AI re-ranking, falling back to top 5", e);
-            // Fallback: return top 5 if AI fails
-            return candidates.subList(0, Math.min(5, candidates.size()));
-        }
-    }
-
-    /**
-     * Build prompt for AI to analyze and select relevant articles
-     * Uses longer preview for better context understanding
-     */
-    private String buildReRankingPrompt(String question, List<LegalArticle> candidates) {
-        StringBuilder prompt = new StringBuilder();
-
-        prompt.append("""
-                Bạn là chuyên gia phân tích pháp luật với nhiệm vụ XÁC ĐỊNH điều luật nào THỰC SỰ LIÊN QUAN đến câu hỏi.
-
-                CẢNH BÁO: Nhiều điều luật có thể chứa từ khóa giống nhau nhưng KHÔNG liên quan đến câu hỏi.
-                Bạn phải phân biệt giữa:
-                - Điều luật TRỰC TIẾP trả lời câu hỏi (CHỌN)
-                - Điều luật chỉ chứa từ khóa tương tự nhưng về chủ đề khác (BỎ QUA)
-
-                """);
-        prompt.append("CÂU HỎI CỦA NGƯỜI DÙNG:\n");
-        prompt.append(question).append("\n\n");
-        prompt.append("CÁC ĐIỀU LUẬT ỨNG VIÊN:\n\n");
-
-        for (int i = 0; i < candidates.size(); i++) {
-            LegalArticle article = candidates.get(i);
-            prompt.append(String.format("[%d] Điều %d", i, article.getArticleNumber()));
-            if (article.getArticleTitle() != null && !article.getArticleTitle().isEmpty()) {
-                prompt.append(" - ").append(article.getArticleTitle());
-            }
-            prompt.append("\n");
-            prompt.append("Văn bản: ").append(article.getDocument().getDocumentName()).append("\n");
-            // Use longer preview for better context understanding
-            String preview = article.getContent().length() > LegalSearchConfig.RERANK_PREVIEW_LENGTH
-                    ? article.getContent().substring(0, LegalSearchConfig.RERANK_PREVIEW_LENGTH) + "..."
-                    : article.getContent();
-            prompt.append("Nội dung: ").append(preview).append("\n\n");
-        }
-
-        prompt.append("""
-                TIÊU CHÍ ĐÁNH GIÁ (áp dụng nghiêm ngặt):
-                ✅ CHỌN nếu điều luật:
-                   - Quy định TRỰC TIẾP về vấn đề người dùng hỏi
-                   - Chứa thông tin CỤ THỂ để trả lời câu hỏi (số liệu, điều kiện, quy trình...)
-                   - Thuộc ĐÚNG lĩnh vực pháp luật mà câu hỏi đề cập
-
-                ❌ BỎ QUA nếu điều luật:
-                   - Chỉ chứa từ khóa giống nhưng về CHỦ ĐỀ KHÁC
-                   - Là quy định chung/nguyên tắc mà không trả lời được câu hỏi cụ thể
-                   - Thuộc lĩnh vực pháp luật khác (VD: hỏi về hôn nhân nhưng điều luật về lao động)
-
-                YÊU CẦU:
-                - Tối đa 3-5 điều THỰC SỰ liên quan
-                - Ưu tiên CHÍNH XÁC hơn ĐA DẠNG
-                - Nếu không có điều nào phù hợp, trả về: NONE
-
-                TRẢ LỜI (chỉ ghi số thứ tự, cách nhau bởi dấu phẩy):
-                VD: 0,2,5 hoặc NONE
-                """);
-
-        return prompt.toString();
-    }
-
-    /**
-     * Parse AI response to extract selected article indices
-     */
-    private List<Integer> parseSelectedIndices(String aiResponse, int maxIndex) {
-        if (aiResponse == null || aiResponse.trim().isEmpty()) {
-            return List.of();
-        }
-
-        String cleaned = aiResponse.trim().toUpperCase();
-
-        // Check if AI said NONE
-        if (cleaned.contains("NONE") || cleaned.contains("KHÔNG CÓ")) {
-            return List.of();
+            return Mono.just(candidates);
         }
 
-        // Extract numbers
-        List<Integer> indices = new ArrayList<>();
-        String[] parts = cleaned.split("[,\\s]+");
-
-        for (String part : parts) {
-            try {
-                // Remove any non-digit characters
-                String digits = part.replaceAll("[^0-9]", "");
-                if (!digits.isEmpty()) {
-                    int index = Integer.parseInt(digits);
-                    if (index >= 0 && index < maxIndex) {
-                        indices.add(index);
-                    }
-                }
-            } catch (NumberFormatException e) {
-                // Skip invalid numbers
-            }
+        Mono<List<ArticleSnapshot>> reranked = reranker.rerank(question, retrievalQuery, candidates);
+        if (reranker == lexicalReranker) {
+            return reranked;
         }
-
-        return indices;
+        return reranked.onErrorResume(e -> {
+            log.error("Error in {} re-ranking, falling back to lexical re-ranking", reranker.name(), e);
+            return lexicalReranker.rerank(question, retrievalQuery, candidates);
+        });
     }
 
-    /**
-     * Log top search results for debugging
-     */
-    private void logTopResults(List<ArticleScore> scored, int count) {
-        if (scored.isEmpty()) {
-            return;
-        }
-
-        log.info("Top {} search results:", Math.min(count, scored.size()));
-        for (int i = 0; i < Math.min(count, scored.size()); i++) {
-            ArticleScore as = scored.get(i);
-            log.info("  {}. Điều {} (score: {}) - {}",
-                    i + 1,
-                    as.article().getArticleNumber(),
-                    as.score(),
-                    as.article().getArticleTitle());
-        }
+    private boolean rerankApplies(List<ArticleSnapshot> candidates) {
+        return candidates.size() > 3 && reranker != null;
     }
 
     /**
      * Result of unified search operation
+     * passages: matched passages per article id (articles without an entry go into the prompt whole)
      */
-    public record SearchResult(List<LegalArticle> articles, SearchMetadata metadata) {}
+    public record SearchResult(List<ArticleSnapshot> articles, Map<Long, List<ArticlePassage>> passages,
+                               SearchMetadata metadata) {}
 
     /**
      * Metadata about the search operation performed
      */
-    public record SearchMetadata(boolean usedVector, boolean usedAiRerank, int originalCandidates) {}
-
-    /**
-     * Internal record to hold article with its relevance score and keyword match
-     * count
-     */
-    private record ArticleScore(LegalArticle article, int score, int matchCount) {
-    }
+    public record SearchMetadata(boolean usedVector, boolean usedRerank, int originalCandidates) {}
 }
@@ -1,13 +1,17 @@
 package com.htai.exe201phapluatso.legal.service;
 
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
 import com.htai.exe201phapluatso.legal.dto.ConversationContext;
 import com.htai.exe201phapluatso.legal.entity.ChatMessage;
+import com.htai.exe201phapluatso.legal.entity.ChatSession;
 import com.htai.exe201phapluatso.legal.repo.ChatMessageRepo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -16,7 +20,7 @@ import java.util.stream.Collectors;
  * Extracted from ChatHistoryService for better separation of concerns.
  * 
  * Single responsibility:
- * - Build ConversationContext from chat messages
+ * - Build ConversationContext from the session summary + recent chat messages
  * - Handle token/message limits
  * - Prepare context for AI processing
  */
@@ -26,40 +30,58 @@ public class MemoryService {
     private static final Logger log = LoggerFactory.getLogger(MemoryService.class);
 
     private final ChatMessageRepo messageRepo;
+    private final TokenCounter tokenCounter;
 
-    public MemoryService(ChatMessageRepo messageRepo) {
+    // Token budget of conversation memory (PromptBuilder trims it again within the whole prompt budget)
+    @Value("${ai.prompt.memory-max-tokens:1200}")
+    private int memoryMaxTokens;
+
+    public MemoryService(ChatMessageRepo messageRepo, TokenCounter tokenCounter) {
         this.messageRepo = messageRepo;
+        this.tokenCounter = tokenCounter;
     }
 
     /**
-     * Build conversation context from previous messages in a session.
-     * Context is used to help AI understand conversation history.
+     * Build conversation context for the next turn of a session.
+     * Context = the session's rolling summary + every message it does not cover yet
+     * (loaded as (role, content) rows without citations, then trimmed to the memory budget),
+     * plus the article ids cited by the last answer.
      * 
-     * @param sessionId Chat session ID
-     * @return ConversationContext with recent messages, or null if no messages
-     *         exist
+     * @param session Chat session (already loaded by Phase A)
+     * @return ConversationContext, or null if the session has no history yet
      */
     @Transactional(readOnly = true)
-    public ConversationContext buildConversationContext(Long sessionId) {
-        if (sessionId == null) {
+    public ConversationContext buildConversationContext(ChatSession session) {
+        if (session == null || session.getId() == null) {
             return null;
         }
 
-        List<ChatMessage> messages = messageRepo.findBySessionIdWithCitations(sessionId);
+        int summarized = session.getSummaryMessageCount() != null ? session.getSummaryMessageCount() : 0;
+        List<Object[]> rows = messageRepo.findRoleAndContentAfter(session.getId(), summarized);
 
-        if (messages.isEmpty()) {
+        if (rows.isEmpty() && session.getSummary() == null) {
             return null;
         }
 
-        // Convert to ConversationContext.Message format
-        List<ConversationContext.Message> contextMessages = messages.stream()
-                .map(msg -> new ConversationContext.Message(msg.getRole(), msg.getContent()))
-                .collect(Collectors.toList());
+        List<ConversationContext.Message> contextMessages = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            contextMessages.add(new ConversationContext.Message((String) row[0], (String) row[1]));
+        }
+
+        ConversationContext context = new ConversationContext(session.getSummary(), contextMessages,
+                memoryMaxTokens, tokenCounter::count);
 
-        log.debug("Built conversation context with {} messages for session {}",
-                contextMessages.size(), sessionId);
+        int dropped = contextMessages.size() - context.getMessages().size();
+        if (dropped > 0) {
+            // Neither in the summary (failed or still running) nor within the memory budget
+            log.warn("Session {}: {} of {} messages after the summary dropped from conversation memory",
+                    session.getId(), dropped, contextMessages.size());
+        }
+        log.debug("Built conversation context with summary of {} messages + {} messages for session {}",
+                summarized, context.getMessages().size(), session.getId());
 
-        return new ConversationContext(contextMessages);
+        context.setLastCitedArticleIds(messageRepo.findLastAssistantCitationArticleIds(session.getId()));
+        return context;
     }
 
     /**
@@ -78,13 +100,12 @@ public class MemoryService {
                 .map(msg -> new ConversationContext.Message(msg.getRole(), msg.getContent()))
                 .collect(Collectors.toList());
 
-        return new ConversationContext(contextMessages);
+        return new ConversationContext(contextMessages, memoryMaxTokens, tokenCounter::count);
     }
 
     /**
-     * Check if context exceeds recommended token limits.
-     * Simple estimation: ~4 chars per token.
-     * 
+     * Check if context exceeds the memory token budget.
+     *
      * @param context Conversation context to check
      * @return true if context may cause token overflow
      */
@@ -93,29 +114,16 @@ public class MemoryService {
             return false;
         }
 
-        int estimatedTokens = context.getMessages().stream()
-                .mapToInt(msg -> estimateTokens(msg.content()))
+        int tokens = context.getMessages().stream()
+                .mapToInt(msg -> tokenCounter.count(msg.content()))
                 .sum();
 
-        // Warn if context alone exceeds 2000 tokens (leaving room for prompt +
-        // response)
-        boolean tooLarge = estimatedTokens > 2000;
+        boolean tooLarge = tokens > memoryMaxTokens;
 
         if (tooLarge) {
-            log.warn("Conversation context may be too large: ~{} tokens", estimatedTokens);
+            log.warn("Conversation context is too large: {} tokens (budget {})", tokens, memoryMaxTokens);
         }
 
         return tooLarge;
     }
-
-    /**
-     * Estimate token count for a text string.
-     * Simple heuristic: ~4 characters per token for Vietnamese text.
-     */
-    private int estimateTokens(String text) {
-        if (text == null || text.isEmpty()) {
-            return 0;
-        }
-        return text.length() / 4;
-    }
 }
@@ -1,11 +1,19 @@
 package com.htai.exe201phapluatso.legal.service;
 
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
 import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
 import com.htai.exe201phapluatso.legal.dto.ConversationContext;
-import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Responsible for building prompts for AI chat responses.
@@ -15,116 +23,207 @@ import java.util.List;
  * - Legal context from articles
  * - Conversation memory
  * - Structured instructions for AI
+ *
+ * Token budget (counted with the model's BPE tokenizer, see TokenCounter), packed in priority order:
+ * 1. instructions + current question (always included)
+ * 2. conversation memory up to memory-max-tokens: the session summary (cut to memory-summary-max-tokens),
+ *    then the raw messages it does not cover, newest first
+ * 3. retrieved articles / passages in ranking order, until max-input-tokens is reached
+ *    (the article that crosses the limit is cut if at least min-article-tokens still fit)
  */
 @Component
 public class PromptBuilder {
 
+    private static final Logger log = LoggerFactory.getLogger(PromptBuilder.class);
+
+    private static final String INSTRUCTIONS = String.format(
+            """
+                    Bạn là chuyên gia tư vấn pháp luật Việt Nam, làm việc như một luật sư/tư vấn viên chuyên sâu.
+
+                    HƯỚNG DẪN TRẢ LỜI (bắt buộc thực hiện theo cấu trúc):
+                    1. ĐỌC KỸ câu hỏi để hiểu chính xác phạm vi người dùng muốn biết.
+                    2. DÙNG các điều luật được cung cấp làm nguồn chính để trả lời; trích dẫn cụ thể (ví dụ: "Theo Điều 123 Bộ luật Dân sự...").
+                    3. PHÂN TÍCH logic pháp lý: nêu điều kiện, điều khoản áp dụng và lý do dẫn đến kết luận.
+                    4. KẾT LUẬN rõ ràng và, nếu phù hợp, đưa ra gợi ý hành động ngắn (ví dụ: thủ tục, tài liệu cần chuẩn bị).
+
+                    QUY TẮC BẮT BUỘC:
+                    - Trả lời phải có cấu trúc: (A) Câu trả lời trực tiếp, (B) Phân tích chi tiết với trích dẫn, (C) Gợi ý/ hệ quả pháp lý, (D) Tóm tắt 1 câu.
+                    - Độ dài mong muốn: khoảng 150 - %d từ (ưu tiên rõ ràng và logic hơn quá ngắn).
+                    - LUÔN trích dẫn điều luật cụ thể ngay trong phần phân tích khi sử dụng nội dung pháp luật.
+                    - Nếu thông tin từ các điều luật không đủ để kết luận, hãy nêu rõ điểm thiếu và đề xuất bước tiếp theo để thu thập thông tin.
+
+                    YÊU CẦU VỀ GIỌNG VĂN:
+                    - Trung lập, trang trọng, dễ hiểu với người không chuyên.
+                    - Sử dụng bullet/đoạn ngắn khi liệt kê điều kiện hoặc bước hành động.
+
+                    CẤU TRÚC KẾT QUẢ (ví dụ):
+                    1) Trả lời trực tiếp: 1-2 câu.
+                    2) Phân tích: 3-6 câu kèm trích dẫn điều luật.
+                    3) Gợi ý/Hành động: 1-3 câu (nếu có).
+                    4) Tóm tắt: 1 câu ngắn gọn.
+                    """,
+            LegalSearchConfig.MAX_ANSWER_WORDS);
+
+    private static final String MEMORY_HEADER = "\n\nLỊCH SỬ HỘI THOẠI (để hiểu ngữ cảnh):\n";
+    private static final String SUMMARY_LABEL = "Tóm tắt các trao đổi trước: ";
+    private static final String MEMORY_NOTE = "\nLƯU Ý: Hãy xem xét ngữ cảnh từ lịch sử hội thoại khi trả lời. "
+            + "Nếu người dùng hỏi \"nó\", \"điều đó\", \"vấn đề này\"... hãy hiểu họ đang đề cập đến chủ đề trước đó.\n";
+    private static final String QUESTION_HEADER = "\nCÂU HỎI HIỆN TẠI:\n";
+    private static final String ARTICLES_HEADER = "\n\nĐIỀU LUẬT LIÊN QUAN:\n";
+    private static final String ANSWER_FOOTER = "\n\nTRẢ LỜI (ngắn gọn, đúng trọng tâm):\n";
+
+    private final TokenCounter tokenCounter;
+    // Instructions + fixed section headers, counted once
+    private final int fixedTokens;
+
+    @Value("${ai.prompt.max-input-tokens:6000}")
+    private int maxInputTokens;
+
+    @Value("${ai.prompt.memory-max-tokens:1200}")
+    private int memoryMaxTokens;
+
+    @Value("${ai.prompt.memory-summary-max-tokens:400}")
+    private int memorySummaryMaxTokens;
+
+    @Value("${ai.prompt.memory-message-max-tokens:120}")
+    private int memoryMessageMaxTokens;
+
+    @Value("${ai.prompt.min-article-tokens:200}")
+    private int minArticleTokens;
+
+    public PromptBuilder(TokenCounter tokenCounter) {
+        this.tokenCounter = tokenCounter;
+        this.fixedTokens = tokenCounter.count(INSTRUCTIONS) + tokenCounter.count(QUESTION_HEADER)
+                + tokenCounter.count(ARTICLES_HEADER) + tokenCounter.count(ANSWER_FOOTER);
+    }
+
     /**
      * Build complete prompt with conversation memory for AI response generation.
      * 
      * @param question            Current user question
      * @param articles            Relevant legal articles for context
+     * @param passages            Matched passages per article id; those articles contribute only
+     *                            these passages (articles without an entry are included whole)
      * @param conversationContext Previous messages in session (can be null)
-     * @return Formatted prompt string for AI
+     * @return Formatted prompt string for AI, within max-input-tokens
      */
-    public String buildChatPrompt(String question, List<LegalArticle> articles,
-            ConversationContext conversationContext) {
-        String context = buildArticlesContext(articles);
-        return buildPromptWithMemory(question, context, conversationContext);
+    public String buildChatPrompt(String question, List<ArticleSnapshot> articles,
+            Map<Long, List<ArticlePassage>> passages, ConversationContext conversationContext) {
+        int remaining = maxInputTokens - fixedTokens - tokenCounter.count(question);
+
+        String memory = buildMemorySection(conversationContext, Math.min(memoryMaxTokens, remaining));
+        remaining -= tokenCounter.count(memory);
+
+        String context = buildArticlesContext(articles, passages, remaining);
+
+        String prompt = INSTRUCTIONS + memory + QUESTION_HEADER + question + ARTICLES_HEADER + context + ANSWER_FOOTER;
+        if (log.isDebugEnabled()) {
+            log.debug("Chat prompt: {} tokens (budget {})", tokenCounter.count(prompt), maxInputTokens);
+        }
+        return prompt;
     }
 
     /**
-     * Build context string from legal articles.
-     * Format: Each article with document name, article number, title, and content.
+     * Build context string from legal articles, in ranking order, within maxTokens.
+     * Format: Each article with document name, article number, title, and content
+     * (or only its matched Khoản / Điểm passages, each with its label).
      */
-    String buildArticlesContext(List<LegalArticle> articles) {
+    String buildArticlesContext(List<ArticleSnapshot> articles, Map<Long, List<ArticlePassage>> passages,
+            int maxTokens) {
         StringBuilder context = new StringBuilder();
+        int remaining = maxTokens;
 
         for (int i = 0; i < articles.size(); i++) {
-            LegalArticle article = articles.get(i);
+            String block = buildArticleBlock(i + 1, articles.get(i), passages.get(articles.get(i).id()));
+            int tokens = tokenCounter.count(block);
+            if (tokens <= remaining) {
+                context.append(block);
+                remaining -= tokens;
+                continue;
+            }
+            int included = i;
+            if (remaining >= minArticleTokens) {
+                context.append(tokenCounter.truncate(block, remaining - 1)).append("...\n\n");
+                included++;
+            }
+            log.info("Prompt token budget reached: {} of {} articles included", included, articles.size());
+            break;
+        }
 
-            context.append("--- Điều luật ").append(i + 1).append(" ---\n");
-            context.append("Văn bản: ").append(article.getDocument().getDocumentName()).append("\n");
-            context.append("Điều ").append(article.getArticleNumber());
+        return context.toString();
+    }
 
-            if (article.getArticleTitle() != null && !article.getArticleTitle().isEmpty()) {
-                context.append(". ").append(article.getArticleTitle());
-            }
+    private String buildArticleBlock(int position, ArticleSnapshot article, List<ArticlePassage> matched) {
+        StringBuilder block = new StringBuilder();
+        block.append("--- Điều luật ").append(position).append(" ---\n");
+        block.append("Văn bản: ").append(article.documentName()).append("\n");
+        block.append("Điều ").append(article.articleNumber());
 
-            context.append("\n\n");
-            context.append(article.getContent());
-            context.append("\n\n");
+        if (article.articleTitle() != null && !article.articleTitle().isEmpty()) {
+            block.append(". ").append(article.articleTitle());
         }
 
-        return context.toString();
+        block.append("\n\n");
+        if (matched == null || matched.isEmpty()) {
+            block.append(article.content());
+            block.append("\n\n");
+            return block.toString();
+        }
+        if (matched.stream().anyMatch(passage -> passage.label() != null)) {
+            block.append("(Trích các phần liên quan)\n");
+        }
+        for (ArticlePassage passage : matched) {
+            if (passage.label() != null) {
+                block.append("[").append(passage.label()).append("]\n");
+            }
+            block.append(passage.content());
+            block.append("\n\n");
+        }
+        return block.toString();
     }
 
     /**
-     * Build AI prompt with conversation memory for context-aware responses.
-     * Includes: base instructions, conversation history, current question, and
-     * legal context.
+     * Conversation history: summary first, then newest messages until maxTokens, printed oldest first.
+     * Each message is cut to memory-message-max-tokens; empty when nothing fits.
      */
-    private String buildPromptWithMemory(String question, String articlesContext,
-            ConversationContext conversationContext) {
-        StringBuilder promptBuilder = new StringBuilder();
-
-        // Base prompt with structured instructions
-        String basePrompt = String.format(
-                """
-                        Bạn là chuyên gia tư vấn pháp luật Việt Nam, làm việc như một luật sư/tư vấn viên chuyên sâu.
-
-                        HƯỚNG DẪN TRẢ LỜI (bắt buộc thực hiện theo cấu trúc):
-                        1. ĐỌC KỸ câu hỏi để hiểu chính xác phạm vi người dùng muốn biết.
-                        2. DÙNG các điều luật được cung cấp làm nguồn chính để trả lời; trích dẫn cụ thể (ví dụ: "Theo Điều 123 Bộ luật Dân sự...").
-                        3. PHÂN TÍCH logic pháp lý: nêu điều kiện, điều khoản áp dụng và lý do dẫn đến kết luận.
-                        4. KẾT LUẬN rõ ràng và, nếu phù hợp, đưa ra gợi ý hành động ngắn (ví dụ: thủ tục, tài liệu cần chuẩn bị).
-
-                        QUY TẮC BẮT BUỘC:
-                        - Trả lời phải có cấu trúc: (A) Câu trả lời trực tiếp, (B) Phân tích chi tiết với trích dẫn, (C) Gợi ý/ hệ quả pháp lý, (D) Tóm tắt 1 câu.
-                        - Độ dài mong muốn: khoảng 150 - %d từ (ưu tiên rõ ràng và logic hơn quá ngắn).
-                        - LUÔN trích dẫn điều luật cụ thể ngay trong phần phân tích khi sử dụng nội dung pháp luật.
-                        - Nếu thông tin từ các điều luật không đủ để kết luận, hãy nêu rõ điểm thiếu và đề xuất bước tiếp theo để thu thập thông tin.
-
-                        YÊU CẦU VỀ GIỌNG VĂN:
-                        - Trung lập, trang trọng, dễ hiểu với người không chuyên.
-                        - Sử dụng bullet/đoạn ngắn khi liệt kê điều kiện hoặc bước hành động.
-
-                        CẤU TRÚC KẾT QUẢ (ví dụ):
-                        1) Trả lời trực tiếp: 1-2 câu.
-                        2) Phân tích: 3-6 câu kèm trích dẫn điều luật.
-                        3) Gợi ý/Hành động: 1-3 câu (nếu có).
-                        4) Tóm tắt: 1 câu ngắn gọn.
-                        """,
-                LegalSearchConfig.MAX_ANSWER_WORDS);
-
-        promptBuilder.append(basePrompt);
-
-        // Add conversation history if available
-        if (conversationContext != null && !conversationContext.isEmpty()) {
-            promptBuilder.append("\n\nLỊCH SỬ HỘI THOẠI (để hiểu ngữ cảnh):\n");
-            for (ConversationContext.Message msg : conversationContext.getMessages()) {
-                String role = "USER".equals(msg.role()) ? "Người dùng" : "Trợ lý";
-
-                String msgContent = msg.content() == null ? "" : msg.content();
-                String content = msgContent.length() > 300
-                        ? msgContent.substring(0, 300) + "..."
-                        : msgContent;
-
-                promptBuilder.append(role).append(": ").append(content).append("\n");
-            }
-            promptBuilder.append("\nLƯU Ý: Hãy xem xét ngữ cảnh từ lịch sử hội thoại khi trả lời. ");
-            promptBuilder.append(
-                    "Nếu người dùng hỏi \"nó\", \"điều đó\", \"vấn đề này\"... hãy hiểu họ đang đề cập đến chủ đề trước đó.\n");
+    private String buildMemorySection(ConversationContext conversationContext, int maxTokens) {
+        if (conversationContext == null || conversationContext.isEmpty()) {
+            return "";
         }
+        int remaining = maxTokens - tokenCounter.count(MEMORY_HEADER) - tokenCounter.count(MEMORY_NOTE);
 
-        promptBuilder.append("\nCÂU HỎI HIỆN TẠI:\n");
-        promptBuilder.append(question);
+        String summaryLine = "";
+        if (conversationContext.getSummary() != null) {
+            summaryLine = SUMMARY_LABEL + tokenCounter.truncate(conversationContext.getSummary(),
+                    Math.min(memorySummaryMaxTokens, remaining - tokenCounter.count(SUMMARY_LABEL) - 1)) + "\n";
+            remaining -= tokenCounter.count(summaryLine);
+        }
+
+        List<String> lines = new ArrayList<>();
+        List<ConversationContext.Message> messages = conversationContext.getMessages();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            ConversationContext.Message msg = messages.get(i);
+            String role = "USER".equals(msg.role()) ? "Người dùng" : "Trợ lý";
 
-        promptBuilder.append("\n\nĐIỀU LUẬT LIÊN QUAN:\n");
-        promptBuilder.append(articlesContext);
+            String msgContent = msg.content() == null ? "" : msg.content();
+            String content = tokenCounter.truncate(msgContent, memoryMessageMaxTokens);
+            if (content.length() < msgContent.length()) {
+                content += "...";
+            }
 
-        promptBuilder.append("\n\nTRẢ LỜI (ngắn gọn, đúng trọng tâm):\n");
+            String line = role + ": " + content + "\n";
+            int tokens = tokenCounter.count(line);
+            if (tokens > remaining) {
+                break;
+            }
+            lines.add(line);
+            remaining -= tokens;
+        }
+        if (lines.isEmpty() && summaryLine.isEmpty()) {
+            return "";
+        }
 
-        return promptBuilder.toString();
+        Collections.reverse(lines);
+        return MEMORY_HEADER + summaryLine + String.join("", lines) + MEMORY_NOTE;
     }
 }
@@ -0,0 +1,212 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.cache.QueryEmbeddingCache;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Micrometer instrumentation of the RAG pipeline (exported at /actuator/prometheus)
+ *
+ * - rag.stage (timer, tag stage): reference, answer_cache, speculative_retrieval, embedding, vector,
+ *   passage, keyword, retrieval, rerank, prompt, generation, first_token,
+ *   speculative_generation, speculative_first_token (speculative answers, kept or cancelled)
+ * - rag.request (timer, tags mode / outcome): whole chat request (sync / stream) or standalone search (search),
+ *   answered / cached / no_results / error
+ * - rag.candidates (summary, tag stage): candidate ids per retrieval stage
+ * - rag.rerank.keep.ratio (summary): re-ranked / candidates, when re-ranking ran
+ * - rag.tokens (summary, tag type): prompt / completion tokens (local BPE count)
+ * - rag.cache.requests (counter, tags cache / result): answer cache and query embedding cache hits / misses
+ * - rag.speculation (counter, tag result): speculative follow-up answers accepted / regenerated,
+ *   rag.speculation.divergence (summary): share of the full search's top articles missing from the speculative set
+ *
+ * One Trace per chat request carries a trace id, returned to the client and logged with the
+ * per-stage timings, so a slow answer can be matched to its stages. Trace ids never become tags.
+ */
+@Component
+public class RagMetrics {
+
+    private static final Logger log = LoggerFactory.getLogger(RagMetrics.class);
+
+    private final MeterRegistry registry;
+
+    public RagMetrics(MeterRegistry registry, AnswerCache answerCache, QueryEmbeddingCache queryEmbeddingCache) {
+        this.registry = registry;
+        registerCacheCounters("answer", answerCache, AnswerCache::hitCount, AnswerCache::missCount);
+        registerCacheCounters("query_embedding", queryEmbeddingCache,
+                QueryEmbeddingCache::hitCount, QueryEmbeddingCache::missCount);
+    }
+
+    /**
+     * Start the trace of one chat request
+     *
+     * @param mode sync / stream / search (retrieval only)
+     */
+    public Trace start(String mode) {
+        return new Trace(newTraceId(), mode);
+    }
+
+    /**
+     * 16 hex characters, enough to find a request in the logs
+     */
+    static String newTraceId() {
+        return UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    }
+
+    private <T> void registerCacheCounters(String cache, T source,
+                                           ToDoubleFunction<T> hits,
+                                           ToDoubleFunction<T> misses) {
+        FunctionCounter.builder("rag.cache.requests", source, hits)
+                .tags("cache", cache, "result", "hit")
+                .register(registry);
+        FunctionCounter.builder("rag.cache.requests", source, misses)
+                .tags("cache", cache, "result", "miss")
+                .register(registry);
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("rag.stage")
+                .description("Duration of a RAG pipeline stage")
+                .tag("stage", stage)
+                .register(registry);
+    }
+
+    private DistributionSummary summary(String name, String tagKey, String tagValue) {
+        DistributionSummary.Builder builder = DistributionSummary.builder(name);
+        if (tagKey != null) {
+            builder.tag(tagKey, tagValue);
+        }
+        return builder.register(registry);
+    }
+
+    /**
+     * Measurements of one chat request; safe to use from the parallel retrieval stages
+     */
+    public final class Trace {
+
+        private final String traceId;
+        private final String mode;
+        private final long startNanos = System.nanoTime();
+        // stage -> ms, for the summary log line
+        private final Map<String, Long> stageMillis = new ConcurrentSkipListMap<>();
+        private final AtomicBoolean finished = new AtomicBoolean();
+
+        private Trace(String traceId, String mode) {
+            this.traceId = traceId;
+            this.mode = mode;
+        }
+
+        public String traceId() {
+            return traceId;
+        }
+
+        public <T> T time(String stage, Supplier<T> work) {
+            long start = System.nanoTime();
+            try {
+                return work.get();
+            } finally {
+                record(stage, System.nanoTime() - start);
+            }
+        }
+
+        /**
+         * Time a Mono from subscription to its end (value, error or cancel)
+         */
+        public <T> Mono<T> time(String stage, Mono<T> work) {
+            return Mono.defer(() -> {
+                long start = System.nanoTime();
+                return work.doFinally(signal -> record(stage, System.nanoTime() - start));
+            });
+        }
+
+        /**
+         * Time a streamed answer: first_token at the first element, generation at the end
+         */
+        public Flux<String> timeStream(Flux<String> answer) {
+            return timeStream("", answer);
+        }
+
+        /**
+         * timeStream with prefixed stage names (speculative_ for a speculative answer)
+         */
+        public Flux<String> timeStream(String stagePrefix, Flux<String> answer) {
+            return Flux.defer(() -> {
+                long start = System.nanoTime();
+                AtomicBoolean first = new AtomicBoolean(true);
+                return answer
+                        .doOnNext(delta -> {
+                            if (first.compareAndSet(true, false)) {
+                                record(stagePrefix + "first_token", System.nanoTime() - start);
+                            }
+                        })
+                        .doFinally(signal -> record(stagePrefix + "generation", System.nanoTime() - start));
+            });
+        }
+
+        public void record(String stage, long nanos) {
+            stageTimer(stage).record(nanos, TimeUnit.NANOSECONDS);
+            stageMillis.merge(stage, TimeUnit.NANOSECONDS.toMillis(nanos), Long::sum);
+        }
+
+        public void candidates(String stage, int count) {
+            summary("rag.candidates", "stage", stage).record(count);
+        }
+
+        public void rerank(int candidates, int kept) {
+            if (candidates > 0) {
+                summary("rag.rerank.keep.ratio", null, null).record((double) kept / candidates);
+            }
+        }
+
+        public void speculation(boolean accepted, double divergence) {
+            Counter.builder("rag.speculation")
+                    .tag("result", accepted ? "accepted" : "regenerated")
+                    .register(registry)
+                    .increment();
+            summary("rag.speculation.divergence", null, null).record(divergence);
+        }
+
+        public void promptTokens(int tokens) {
+            summary("rag.tokens", "type", "prompt").record(tokens);
+        }
+
+        public void completionTokens(int tokens) {
+            summary("rag.tokens", "type", "completion").record(tokens);
+        }
+
+        /**
+         * Record the whole request and log its stage timings (only the first call counts)
+         *
+         * @param outcome answered / cached / no_results / error
+         */
+        public void finish(String outcome) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            long nanos = System.nanoTime() - startNanos;
+            Timer.builder("rag.request")
+                    .description("Duration of a RAG chat request")
+                    .tags("mode", mode, "outcome", outcome)
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+            log.info("RAG trace {} ({}, {}) in {} ms, stages (ms): {}",
+                    traceId, mode, outcome, TimeUnit.NANOSECONDS.toMillis(nanos), stageMillis);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.VectorCodec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recall vs latency of each vector search mode on the stored corpus, to choose vector.search.mode
+ *
+ * Queries are the embeddings of randomly sampled articles (the article itself is excluded from the hits);
+ * the reference is an exact sequential scan over the full-precision vectors.
+ * Each mode is queried at the hybrid vector stage limit (search.hybrid.candidates), as in production,
+ * so the first-pass candidate count and hnsw.ef_search match what real requests use.
+ */
+@Service
+public class VectorSearchBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(VectorSearchBenchmark.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final VectorSearchService vectorSearchService;
+
+    @Value("${search.hybrid.candidates:50}")
+    private int stageLimit;
+
+    public VectorSearchBenchmark(JdbcTemplate jdbcTemplate, VectorSearchService vectorSearchService) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.vectorSearchService = vectorSearchService;
+    }
+
+    private record Sample(long id, float[] embedding, List<Long> exact) {
+    }
+
+    /**
+     * @param queries Number of sampled query articles
+     * @param k       Hits compared per query (recall@k)
+     * @return Per mode: recall@k, recall at the stage limit, mean and p95 latency in ms
+     *         (modes without their index are skipped)
+     */
+    public Map<String, Object> run(int queries, int k) {
+        int limit = Math.max(k, stageLimit);
+        Map<Long, float[]> queryVectors = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                SELECT a.id, vector_send(a.embedding)
+                FROM legal_articles a
+                JOIN legal_documents d ON a.document_id = d.id
+                WHERE a.embedding IS NOT NULL
+                  AND d.status = 'Còn hiệu lực'
+                ORDER BY random()
+                LIMIT ?
+                """, ps -> ps.setInt(1, queries), rs -> {
+            queryVectors.put(rs.getLong(1), VectorCodec.fromPgBinary(rs.getBytes(2)));
+        });
+
+        List<Sample> samples = new ArrayList<>();
+        queryVectors.forEach((id, embedding) ->
+                samples.add(new Sample(id, embedding, withoutSelf(exactNearestIds(embedding, limit + 1), id, limit))));
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("queries", samples.size());
+        result.put("k", k);
+        result.put("stageLimit", limit);
+        result.put("currentMode", vectorSearchService.getSearchMode().name());
+        if (samples.isEmpty()) {
+            return result;
+        }
+
+        List<Map<String, Object>> modes = new ArrayList<>();
+        for (VectorSearchMode mode : VectorSearchMode.values()) {
+            if (!vectorSearchService.isModeAvailable(mode)) {
+                continue;
+            }
+            // Warm-up (plan + index pages), not measured
+            vectorSearchService.pgVectorCandidateIds(samples.get(0).embedding(), limit + 1, -1f, mode);
+
+            double recall = 0;
+            double stageRecall = 0;
+            long[] latencies = new long[samples.size()];
+            for (int i = 0; i < samples.size(); i++) {
+                Sample sample = samples.get(i);
+                long start = System.nanoTime();
+                List<Long> hits = withoutSelf(
+                        vectorSearchService.pgVectorCandidateIds(sample.embedding(), limit + 1, -1f, mode),
+                        sample.id(), limit);
+                latencies[i] = System.nanoTime() - start;
+                recall += recall(topK(sample.exact(), k), topK(hits, k));
+                stageRecall += recall(sample.exact(), hits);
+            }
+
+            Arrays.sort(latencies);
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("mode", mode.name());
+            stats.put("recallAtK", round(recall / samples.size()));
+            stats.put("recallAtStageLimit", round(stageRecall / samples.size()));
+            stats.put("meanLatencyMs", round(Arrays.stream(latencies).average().orElse(0) / 1_000_000));
+            stats.put("p95LatencyMs", round(latencies[(int) Math.ceil(latencies.length * 0.95) - 1] / 1_000_000.0));
+            modes.add(stats);
+            log.info("Vector search benchmark {}: {}", mode, stats);
+        }
+        result.put("modes", modes);
+        return result;
+    }
+
+    /**
+     * Exact nearest articles: "+ 0" keeps the planner off the vector indexes (sequential scan)
+     */
+    private List<Long> exactNearestIds(float[] embedding, int limit) {
+        List<Long> ids = new ArrayList<>();
+        jdbcTemplate.query("""
+                SELECT a.id, (a.embedding <=> CAST(? AS vector)) + 0 AS distance
+                FROM legal_articles a
+                JOIN legal_documents d ON a.document_id = d.id
+                WHERE a.embedding IS NOT NULL
+                  AND d.status = 'Còn hiệu lực'
+                ORDER BY distance
+                LIMIT ?
+                """, ps -> {
+            VectorCodec.bind(ps, 1, embedding);
+            ps.setInt(2, limit);
+        }, rs -> {
+            ids.add(rs.getLong(1));
+        });
+        return ids;
+    }
+
+    /**
+     * Share of the exact top-k found in the approximate top-k
+     */
+    static double recall(List<Long> exact, List<Long> approximate) {
+        if (exact.isEmpty()) {
+            return 1.0;
+        }
+        Set<Long> found = new HashSet<>(approximate);
+        long hits = exact.stream().filter(found::contains).count();
+        return (double) hits / exact.size();
+    }
+
+    private static List<Long> withoutSelf(List<Long> ids, long self, int k) {
+        return ids.stream().filter(id -> id != self).limit(k).toList();
+    }
+
+    private static List<Long> topK(List<Long> ids, int k) {
+        return ids.subList(0, Math.min(k, ids.size()));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
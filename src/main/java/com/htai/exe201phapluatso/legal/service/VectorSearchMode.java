@@ -0,0 +1,63 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import java.util.Locale;
+
+/**
+ * First pass of the pgvector search stage (vector.search.mode)
+ *
+ * - FULL: ivfflat on the full 1536-dim vectors, no re-scoring
+ * - REDUCED: HNSW on the first 512 dimensions (text-embedding-3 vectors are Matryoshka-trained,
+ *   a prefix is a usable lower-dimension embedding)
+ * - BINARY: HNSW on binary_quantize(embedding), hamming distance (1 bit per dimension)
+ *
+ * REDUCED / BINARY candidates are re-scored against the full vectors.
+ * The expressions must match the indexes of V10__quantized_vector_indexes.sql.
+ */
+public enum VectorSearchMode {
+
+    FULL(null, null),
+    REDUCED("ix_legal_articles_embedding_reduced",
+            "subvector(%1$s, 1, 512)::vector(512) <=> subvector(%2$s, 1, 512)::vector(512)"),
+    BINARY("ix_legal_articles_embedding_binary",
+            "binary_quantize(%1$s)::bit(1536) <~> binary_quantize(%2$s)::bit(1536)");
+
+    private final String indexName;
+    private final String distance;
+
+    VectorSearchMode(String indexName, String distance) {
+        this.indexName = indexName;
+        this.distance = distance;
+    }
+
+    /**
+     * Index the first pass needs (null for FULL)
+     */
+    public String indexName() {
+        return indexName;
+    }
+
+    public boolean rescores() {
+        return distance != null;
+    }
+
+    /**
+     * First-pass ORDER BY expression between a stored vector column and the query vector
+     */
+    String firstPassDistance(String column, String query) {
+        return distance.formatted(column, query);
+    }
+
+    /**
+     * Mode from its config value (case-insensitive), FULL when unknown
+     */
+    public static VectorSearchMode from(String value) {
+        if (value == null) {
+            return FULL;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return FULL;
+        }
+    }
+}
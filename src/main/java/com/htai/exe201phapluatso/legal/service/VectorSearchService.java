@@ -1,24 +1,37 @@
 package com.htai.exe201phapluatso.legal.service;
 
 import com.htai.exe201phapluatso.ai.service.EmbeddingService;
-import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.ai.service.VectorCodec;
 import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import com.htai.exe201phapluatso.legal.index.ArticleVectorIndex;
+import com.htai.exe201phapluatso.legal.index.HnswIndex;
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
 import jakarta.persistence.EntityManager;
-import jakarta.persistence.Query;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Service for vector-based semantic search using pgvector
- * Provides hybrid search combining vector similarity and keyword matching
+ * Also provides the vector stage of hybrid retrieval (see HybridRetrievalService)
  */
 @Service
 public class VectorSearchService {
@@ -26,16 +39,79 @@ public class VectorSearchService {
     private static final Logger log = LoggerFactory.getLogger(VectorSearchService.class);
 
     private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
     private final EmbeddingService embeddingService;
+    private final ArticleVectorIndex vectorIndex;
+    private final LegalArticleRepo articleRepo;
+    private final KeywordSearchService keywordSearchService;
+    private final TransactionTemplate readOnlyTransaction;
 
     // Search configuration - stricter thresholds for better relevance
     private static final float SIMILARITY_THRESHOLD = 0.45f; // Increased from 0.25 for stricter matching
-    private static final float VECTOR_WEIGHT = 0.75f; // Prioritize semantic matching
-    private static final float KEYWORD_WEIGHT = 0.25f;
 
-    public VectorSearchService(EntityManager entityManager, EmbeddingService embeddingService) {
+    // pgvector's upper bound for hnsw.ef_search
+    private static final int MAX_EF_SEARCH = 1000;
+
+    @Value("${vector.search.mode:full}")
+    private String configuredMode;
+
+    @Value("${vector.search.rescore-factor:4}")
+    private int rescoreFactor;
+
+    // Effective mode: FULL until the first-pass index of the configured mode is known to exist
+    private volatile VectorSearchMode searchMode = VectorSearchMode.FULL;
+
+    public VectorSearchService(
+            EntityManager entityManager,
+            JdbcTemplate jdbcTemplate,
+            EmbeddingService embeddingService,
+            ArticleVectorIndex vectorIndex,
+            LegalArticleRepo articleRepo,
+            KeywordSearchService keywordSearchService,
+            PlatformTransactionManager transactionManager) {
         this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
         this.embeddingService = embeddingService;
+        this.vectorIndex = vectorIndex;
+        this.articleRepo = articleRepo;
+        this.keywordSearchService = keywordSearchService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Switch to the configured first-pass mode once its index (V10, pgvector >= 0.7) is confirmed
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resolveSearchMode() {
+        VectorSearchMode mode = VectorSearchMode.from(configuredMode);
+        if (mode.rescores() && !isModeAvailable(mode)) {
+            log.warn("Vector search mode {} needs index {} (pgvector >= 0.7), using full mode",
+                    mode, mode.indexName());
+            mode = VectorSearchMode.FULL;
+        }
+        searchMode = mode;
+        log.info("Vector search mode: {}", mode);
+    }
+
+    public VectorSearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    /**
+     * Whether the first-pass index of a mode exists
+     */
+    public boolean isModeAvailable(VectorSearchMode mode) {
+        if (!mode.rescores()) {
+            return true;
+        }
+        try {
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                    "SELECT to_regclass(?) IS NOT NULL", Boolean.class, mode.indexName()));
+        } catch (Exception e) {
+            log.warn("Could not check vector index {}: {}", mode.indexName(), e.getMessage());
+            return false;
+        }
     }
 
     /**
@@ -45,20 +121,18 @@ public class VectorSearchService {
     public List<LegalArticle> semanticSearch(String question, int limit) {
         log.info("Performing semantic search for: {}", truncateForLog(question));
 
-        // Check if we have embeddings
-        long embeddingCount = countArticlesWithEmbeddings();
-        if (embeddingCount == 0) {
+        // Check if we have embeddings (skip the COUNT round-trip when the in-memory index is loaded)
+        if (!vectorIndex.isReady() && countArticlesWithEmbeddings() == 0) {
             log.warn("No embeddings found, falling back to keyword search");
             return keywordOnlySearch(question, limit);
         }
 
         try {
             // Generate embedding for the question
-            float[] questionEmbedding = embeddingService.generateEmbedding(question);
-            String vectorString = embeddingService.toVectorString(questionEmbedding);
+            float[] questionEmbedding = embeddingService.generateQueryEmbedding(question);
 
             // Perform vector search
-            List<LegalArticle> results = vectorSearch(vectorString, limit);
+            List<LegalArticle> results = vectorSearch(questionEmbedding, limit);
 
             if (results.isEmpty()) {
                 log.info("Vector search returned no results, trying keyword search");
@@ -75,159 +149,127 @@ public class VectorSearchService {
     }
 
     /**
-     * Hybrid search combining vector similarity and keyword matching
+     * Pure vector similarity search
+     * Uses the in-memory HNSW index when loaded, pgvector otherwise
      */
-    public List<LegalArticle> hybridSearch(String question, int limit) {
-        log.info("Performing hybrid search for: {}", truncateForLog(question));
+    private List<LegalArticle> vectorSearch(float[] questionEmbedding, int limit) {
+        return hydrateInOrder(vectorCandidateIds(questionEmbedding, limit, SIMILARITY_THRESHOLD));
+    }
 
-        long embeddingCount = countArticlesWithEmbeddings();
-        if (embeddingCount == 0) {
-            log.warn("No embeddings found, using keyword-only search");
-            return keywordOnlySearch(question, limit);
+    /**
+     * Load effective articles by id (single IN query) preserving the given ranking order
+     */
+    List<LegalArticle> hydrateInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
         }
+        Map<Long, LegalArticle> byId = articleRepo.findEffectiveByIdIn(ids).stream()
+                .collect(Collectors.toMap(LegalArticle::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-        try {
-            // Generate embedding
-            float[] questionEmbedding = embeddingService.generateEmbedding(question);
-            String vectorString = embeddingService.toVectorString(questionEmbedding);
-
-            // Extract keywords
-            List<String> keywords = extractKeywords(question);
-
-            // Perform hybrid search
-            List<LegalArticle> results = performHybridSearch(vectorString, keywords, limit);
-
-            if (results.isEmpty()) {
-                log.info("Hybrid search returned no results, trying keyword-only");
-                return keywordOnlySearch(question, limit);
-            }
-
-            log.info("Hybrid search found {} results", results.size());
-            return results;
-
-        } catch (Exception e) {
-            log.error("Error in hybrid search: {}", e.getMessage());
-            return keywordOnlySearch(question, limit);
+    /**
+     * Vector stage for hybrid retrieval: ids of the top-N nearest articles, best first.
+     * Bounded by an index-backed ORDER BY ... LIMIT (HNSW in memory, or pgvector);
+     * the similarity floor is applied afterwards so the index can still be used.
+     */
+    public List<Long> vectorCandidateIds(float[] questionEmbedding, int limit, float minSimilarity) {
+        if (vectorIndex.isReady()) {
+            return vectorIndex.search(questionEmbedding, limit).stream()
+                    .filter(hit -> hit.similarity() >= minSimilarity)
+                    .map(HnswIndex.SearchHit::id)
+                    .collect(Collectors.toList());
         }
+        return pgVectorCandidateIds(questionEmbedding, limit, minSimilarity, searchMode);
     }
 
     /**
-     * Pure vector similarity search
+     * pgvector stage in the given mode, best first.
+     * FULL orders by exact cosine distance (ivfflat). REDUCED / BINARY take rescore-factor x limit
+     * candidates from their first-pass index, then re-rank them by full-precision cosine distance
+     * (hnsw.ef_search is raised to the candidate count, its default of 40 would cap the first pass).
+     * The question vector is bound as a binary float4[] (no decimal text).
      */
-    @SuppressWarnings("unchecked")
-    private List<LegalArticle> vectorSearch(String vectorString, int limit) {
+    List<Long> pgVectorCandidateIds(float[] questionEmbedding, int limit, float minSimilarity, VectorSearchMode mode) {
+        if (mode.rescores()) {
+            return rescoredCandidateIds(questionEmbedding, limit, minSimilarity, mode);
+        }
+
         String sql = """
-                SELECT a.* FROM legal_articles a
+                SELECT a.id, a.embedding <=> CAST(? AS vector) AS distance
+                FROM legal_articles a
                 JOIN legal_documents d ON a.document_id = d.id
                 WHERE a.embedding IS NOT NULL
                   AND d.status = 'Còn hiệu lực'
-                  AND 1 - (a.embedding <=> CAST(:vector AS vector)) >= :threshold
-                ORDER BY a.embedding <=> CAST(:vector AS vector)
-                LIMIT :limit
+                ORDER BY distance
+                LIMIT ?
                 """;
 
-        Query query = entityManager.createNativeQuery(sql, LegalArticle.class);
-        query.setParameter("vector", vectorString);
-        query.setParameter("threshold", SIMILARITY_THRESHOLD);
-        query.setParameter("limit", limit);
-
-        return query.getResultList();
-    }
-
-    /**
-     * Hybrid search using both vector and keywords
-     */
-    @SuppressWarnings("unchecked")
-    private List<LegalArticle> performHybridSearch(String vectorString, List<String> keywords, int limit) {
-        // Build dynamic SQL for hybrid search
-        StringBuilder sql = new StringBuilder();
-        sql.append("""
-                WITH scored_articles AS (
-                    SELECT
-                        a.*,
-                        CASE
-                            WHEN a.embedding IS NOT NULL
-                            THEN 1 - (a.embedding <=> CAST(:vector AS vector))
-                            ELSE 0
-                        END AS vector_score,
-                        (
-                """);
-
-        // Build keyword scoring
-        if (!keywords.isEmpty()) {
-            List<String> keywordScores = new ArrayList<>();
-            for (int i = 0; i < keywords.size(); i++) {
-                keywordScores.add(String.format(
-                        "(CASE WHEN a.article_title ILIKE :kw%d THEN 3 ELSE 0 END + " +
-                                "CASE WHEN a.content ILIKE :kw%d THEN 1 ELSE 0 END)",
-                        i, i));
+        List<Long> ids = new ArrayList<>();
+        jdbcTemplate.query(sql, ps -> {
+            VectorCodec.bind(ps, 1, questionEmbedding);
+            ps.setInt(2, limit);
+        }, rs -> {
+            if (1 - rs.getFloat(2) >= minSimilarity) {
+                ids.add(rs.getLong(1));
             }
-            sql.append(String.join(" + ", keywordScores));
-        } else {
-            sql.append("0");
-        }
+        });
+        return ids;
+    }
 
-        sql.append("""
-                        )::FLOAT / GREATEST(:kwCount, 1) AS keyword_score
+    private List<Long> rescoredCandidateIds(float[] questionEmbedding, int limit, float minSimilarity,
+                                            VectorSearchMode mode) {
+        int candidates = limit * Math.max(1, rescoreFactor);
+        String sql = """
+                WITH candidates AS (
+                    SELECT a.id, a.embedding
                     FROM legal_articles a
                     JOIN legal_documents d ON a.document_id = d.id
-                    WHERE d.status = 'Còn hiệu lực'
+                    WHERE a.embedding IS NOT NULL
+                      AND d.status = 'Còn hiệu lực'
+                    ORDER BY %s
+                    LIMIT ?
                 )
-                SELECT * FROM scored_articles
-                WHERE vector_score > 0.35 OR keyword_score > 0.5
-                ORDER BY (vector_score * :vWeight + keyword_score * :kWeight) DESC
-                LIMIT :limit
-                """);
-
-        Query query = entityManager.createNativeQuery(sql.toString(), LegalArticle.class);
-        query.setParameter("vector", vectorString);
-        query.setParameter("vWeight", VECTOR_WEIGHT);
-        query.setParameter("kWeight", KEYWORD_WEIGHT);
-        query.setParameter("kwCount", Math.max(keywords.size(), 1));
-        query.setParameter("limit", limit);
-
-        // Bind keyword parameters
-        for (int i = 0; i < keywords.size(); i++) {
-            query.setParameter("kw" + i, "%" + keywords.get(i) + "%");
-        }
-
-        return query.getResultList();
+                SELECT c.id, c.embedding <=> CAST(? AS vector) AS distance
+                FROM candidates c
+                ORDER BY distance
+                LIMIT ?
+                """.formatted(mode.firstPassDistance("a.embedding", "CAST(? AS vector)"));
+
+        List<Long> ids = new ArrayList<>();
+        // set_config(..., true) is SET LOCAL: it only lasts until the end of this transaction
+        readOnlyTransaction.executeWithoutResult(status -> {
+            jdbcTemplate.queryForObject("SELECT set_config('hnsw.ef_search', ?, true)", String.class,
+                    String.valueOf(Math.min(candidates, MAX_EF_SEARCH)));
+            jdbcTemplate.query(sql, ps -> {
+                VectorCodec.bind(ps, 1, questionEmbedding);
+                ps.setInt(2, candidates);
+                VectorCodec.bind(ps, 3, questionEmbedding);
+                ps.setInt(4, limit);
+            }, rs -> {
+                if (1 - rs.getFloat(2) >= minSimilarity) {
+                    ids.add(rs.getLong(1));
+                }
+            });
+        });
+        return ids;
     }
 
     /**
-     * Keyword-only search (fallback)
+     * Keyword-only search (fallback) - full-text match on any keyword, ranked
      */
-    @SuppressWarnings("unchecked")
     private List<LegalArticle> keywordOnlySearch(String question, int limit) {
-        List<String> keywords = extractKeywords(question);
+        List<String> keywords = keywordSearchService.extractKeywords(question);
 
         if (keywords.isEmpty()) {
             log.warn("No keywords extracted from question");
             return List.of();
         }
 
-        StringBuilder sql = new StringBuilder();
-        sql.append("""
-                SELECT DISTINCT a.* FROM legal_articles a
-                JOIN legal_documents d ON a.document_id = d.id
-                WHERE d.status = 'Còn hiệu lực' AND (
-                """);
-
-        List<String> conditions = new ArrayList<>();
-        for (int i = 0; i < keywords.size(); i++) {
-            conditions.add(String.format(
-                    "(a.content ILIKE :kw%d OR a.article_title ILIKE :kw%d)", i, i));
-        }
-        sql.append(String.join(" OR ", conditions));
-        sql.append(") LIMIT :limit");
-
-        Query query = entityManager.createNativeQuery(sql.toString(), LegalArticle.class);
-        for (int i = 0; i < keywords.size(); i++) {
-            query.setParameter("kw" + i, "%" + keywords.get(i) + "%");
-        }
-        query.setParameter("limit", limit);
-
-        return query.getResultList();
+        return keywordSearchService.search(keywords, limit, 1);
     }
 
     /**
@@ -245,21 +287,22 @@ public class VectorSearchService {
             float[] embedding = embeddingService.generateArticleEmbedding(
                     article.getArticleTitle(),
                     article.getContent());
-            String vectorString = embeddingService.toVectorString(embedding);
 
-            // Update using native query (JPA doesn't support vector type directly)
+            // Plain JDBC in the same transaction (JPA doesn't support vector type directly)
             String sql = """
                     UPDATE legal_articles
-                    SET embedding = CAST(:vector AS vector),
-                        embedding_updated_at = :updatedAt
-                    WHERE id = :id
+                    SET embedding = CAST(? AS vector),
+                        embedding_updated_at = ?
+                    WHERE id = ?
                     """;
 
-            entityManager.createNativeQuery(sql)
-                    .setParameter("vector", vectorString)
-                    .setParameter("updatedAt", LocalDateTime.now())
-                    .setParameter("id", articleId)
-                    .executeUpdate();
+            jdbcTemplate.update(sql, ps -> {
+                VectorCodec.bind(ps, 1, embedding);
+                ps.setObject(2, LocalDateTime.now());
+                ps.setLong(3, articleId);
+            });
+
+            vectorIndex.upsertAfterCommit(articleId, embedding);
 
             log.info("Generated embedding for article {}", articleId);
 
@@ -270,32 +313,115 @@ public class VectorSearchService {
 
     /**
      * Batch generate embeddings for articles without embeddings
+     * One embeddings API request for the whole batch, one multi-row UPDATE to save
      */
     @Transactional
     public int generateMissingEmbeddings(int batchSize) {
         @SuppressWarnings("unchecked")
-        List<Long> articleIds = entityManager.createNativeQuery(
-                "SELECT id FROM legal_articles WHERE embedding IS NULL LIMIT :limit")
+        List<Object[]> rows = entityManager.createNativeQuery(
+                "SELECT id, article_title, content FROM legal_articles WHERE embedding IS NULL ORDER BY id LIMIT :limit")
                 .setParameter("limit", batchSize)
                 .getResultList();
 
-        int count = 0;
-        for (Object idObj : articleIds) {
-            Long id = ((Number) idObj).longValue();
-            try {
-                generateAndSaveEmbedding(id);
-                count++;
-                // Small delay to avoid rate limiting
-                Thread.sleep(100);
-            } catch (Exception e) {
-                log.error("Error generating embedding for article {}: {}", id, e.getMessage());
-            }
-        }
-
+        int count = saveEmbeddings(embedRows(rows));
         log.info("Generated {} embeddings in this batch", count);
         return count;
     }
 
+    /**
+     * Embed the next batch of a document's articles without embeddings (no DB write).
+     * The caller saves the result with saveEmbeddings, so no transaction is held during the API call.
+     *
+     * @return article id -> embedding (empty when the document is fully embedded)
+     */
+    public Map<Long, float[]> embedMissingForDocument(Long documentId, int batchSize) {
+        @SuppressWarnings("unchecked")
+        List<Object[]> rows = entityManager.createNativeQuery("""
+                SELECT id, article_title, content FROM legal_articles
+                WHERE document_id = :documentId AND embedding IS NULL
+                ORDER BY id
+                LIMIT :limit
+                """)
+                .setParameter("documentId", documentId)
+                .setParameter("limit", batchSize)
+                .getResultList();
+
+        return embedRows(rows);
+    }
+
+    /**
+     * Embed (id, title, content) rows in one API request
+     */
+    private Map<Long, float[]> embedRows(List<Object[]> rows) {
+        Map<Long, float[]> byId = new LinkedHashMap<>();
+        if (rows.isEmpty()) {
+            return byId;
+        }
+
+        List<Long> ids = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        for (Object[] row : rows) {
+            ids.add(((Number) row[0]).longValue());
+            texts.add(embeddingService.buildArticleText((String) row[1], (String) row[2]));
+        }
+
+        List<float[]> embeddings = embeddingService.generateEmbeddings(texts);
+
+        for (int i = 0; i < ids.size(); i++) {
+            byId.put(ids.get(i), embeddings.get(i));
+        }
+        return byId;
+    }
+
+    /**
+     * Save many embeddings with a single multi-row UPDATE ... FROM (VALUES ...)
+     * (vectors bound as binary float4[])
+     *
+     * @return Number of rows updated
+     */
+    @Transactional
+    public int saveEmbeddings(Map<Long, float[]> embeddings) {
+        if (embeddings.isEmpty()) {
+            return 0;
+        }
+
+        String sql = """
+                UPDATE legal_articles AS a
+                SET embedding = v.embedding,
+                    embedding_updated_at = ?
+                FROM (VALUES %s) AS v(id, embedding)
+                WHERE a.id = v.id
+                """.formatted(vectorValues(embeddings.size()));
+
+        int updated = jdbcTemplate.update(sql, ps -> bindVectorValues(ps, embeddings));
+        embeddings.forEach(vectorIndex::upsertAfterCommit);
+        return updated;
+    }
+
+    /**
+     * "(CAST(? AS bigint), CAST(? AS vector)), ..." for a multi-row UPDATE ... FROM (VALUES ...)
+     */
+    static String vectorValues(int rows) {
+        StringBuilder values = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) values.append(", ");
+            values.append("(CAST(? AS bigint), CAST(? AS vector))");
+        }
+        return values.toString();
+    }
+
+    /**
+     * Bind the updatedAt parameter then the (id, vector) pairs of vectorValues
+     */
+    static void bindVectorValues(PreparedStatement ps, Map<Long, float[]> embeddings) throws SQLException {
+        ps.setObject(1, LocalDateTime.now());
+        int index = 2;
+        for (Map.Entry<Long, float[]> entry : embeddings.entrySet()) {
+            ps.setLong(index++, entry.getKey());
+            VectorCodec.bind(ps, index++, entry.getValue());
+        }
+    }
+
     /**
      * Count articles with embeddings
      */
@@ -314,23 +440,6 @@ public class VectorSearchService {
                 .getSingleResult()).longValue();
     }
 
-    /**
-     * Extract keywords from question
-     */
-    private List<String> extractKeywords(String question) {
-        String[] words = question.toLowerCase()
-                .replaceAll("[^\\p{L}\\s]", " ")
-                .trim()
-                .split("\\s+");
-
-        return Arrays.stream(words)
-                .filter(word -> word.length() >= LegalSearchConfig.MIN_KEYWORD_LENGTH)
-                .filter(word -> !LegalSearchConfig.STOP_WORDS.contains(word))
-                .distinct()
-                .limit(LegalSearchConfig.MAX_KEYWORDS)
-                .collect(Collectors.toList());
-    }
-
     private String truncateForLog(String text) {
         return text.length() > 100 ? text.substring(0, 100) + "..." : text;
     }
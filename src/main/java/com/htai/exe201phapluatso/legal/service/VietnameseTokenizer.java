@@ -0,0 +1,263 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Vietnamese keyword extraction shared by every keyword path
+ * (full-text stage, keyword fallback, BM25F re-ranking)
+ *
+ * - Syllables: one pass over the text, lowercase letters only (no regex)
+ * - Folding: diacritics removed with a precomputed char table (đ -> d), same result as unaccent
+ *   in the vietnamese_unaccent index, so "hop dong lao dong" and "hợp đồng lao động" match alike
+ * - Stop words / stop phrases: syllable trie built once, longest match ("như thế nào", "có được không")
+ * - Compounds: greedy longest match against the legal-term dictionary (legal/legal-terms.txt),
+ *   on folded syllables; a recognized compound becomes one phrase term instead of 2-4 single syllables
+ *
+ * Syllables outside the dictionary are kept as bigrams of neighbours (single syllable only if isolated).
+ * Terms are lowercase letters and spaces, multi-syllable terms are searched as phrases.
+ */
+@Component
+public class VietnameseTokenizer {
+
+    private static final Logger log = LoggerFactory.getLogger(VietnameseTokenizer.class);
+
+    static final String DICTIONARY = "legal/legal-terms.txt";
+
+    // Lowercase + fold table for U+0000..U+1EFF (Latin, Latin Extended, Vietnamese block)
+    private static final char[] FOLD = new char[0x1F00];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            char lower = Character.toLowerCase(c);
+            char base = lower;
+            if (lower == 'đ') {
+                base = 'd';
+            } else if (lower > 0x7F && Character.isLetter(lower)) {
+                String decomposed = Normalizer.normalize(String.valueOf(lower), Normalizer.Form.NFD);
+                if (Character.isLetter(decomposed.charAt(0))) {
+                    base = decomposed.charAt(0);
+                }
+            }
+            FOLD[c] = base;
+        }
+    }
+
+    private final SyllableTrie terms = new SyllableTrie();
+    private final SyllableTrie stopWords = new SyllableTrie();
+    private final SyllableTrie foldedStopWords = new SyllableTrie();
+
+    public VietnameseTokenizer() {
+        int loaded = loadDictionary();
+        for (String stop : LegalSearchConfig.STOP_WORDS) {
+            addStopPhrase(stop);
+        }
+        for (String stop : LegalSearchConfig.STOP_PHRASES) {
+            addStopPhrase(stop);
+        }
+        log.info("Vietnamese tokenizer ready: {} legal terms, {} stop words/phrases",
+                loaded, LegalSearchConfig.STOP_WORDS.size() + LegalSearchConfig.STOP_PHRASES.size());
+    }
+
+    /**
+     * Keywords of a question: legal compounds, bigrams of the remaining syllables, isolated syllables.
+     * In order of appearance, distinct, at most MAX_KEYWORDS.
+     */
+    public List<String> extractKeywords(String text) {
+        String[] syllables = syllables(text);
+        int n = syllables.length;
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+
+        String[] folded = new String[n];
+        boolean accented = false;
+        for (int i = 0; i < n; i++) {
+            folded[i] = fold(syllables[i]);
+            accented |= !folded[i].equals(syllables[i]);
+        }
+        // Stop words are matched with their diacritics when the user typed them ("từ" is a stop word, "tù" is not)
+        String[] stopKeys = accented ? syllables : folded;
+        SyllableTrie stops = accented ? stopWords : foldedStopWords;
+
+        Set<String> keywords = new LinkedHashSet<>();
+        int bigrams = 0;
+        int runStart = 0;
+        int i = 0;
+        while (i <= n) {
+            int termLength = i < n ? terms.longestMatch(folded, i) : 0;
+            int stopLength = i < n ? stops.longestMatch(stopKeys, i) : 0;
+            boolean content = i < n && termLength < 2 && stopLength == 0
+                    && syllables[i].length() >= LegalSearchConfig.MIN_KEYWORD_LENGTH;
+            if (content) {
+                i++;
+                continue;
+            }
+
+            // End of a run of plain syllables
+            int runLength = i - runStart;
+            if (runLength == 1) {
+                keywords.add(syllables[runStart]);
+            }
+            for (int j = runStart; j + 1 < i && bigrams < LegalSearchConfig.MAX_BIGRAMS; j++) {
+                if (keywords.add(syllables[j] + " " + syllables[j + 1])) {
+                    bigrams++;
+                }
+            }
+
+            if (i == n) {
+                break;
+            }
+            if (termLength >= 2 && termLength >= stopLength) {
+                keywords.add(String.join(" ", Arrays.copyOfRange(syllables, i, i + termLength)));
+                i += termLength;
+            } else {
+                i += Math.max(stopLength, 1);
+            }
+            runStart = i;
+        }
+
+        return keywords.stream()
+                .limit(LegalSearchConfig.MAX_KEYWORDS)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    /**
+     * Lowercase syllables (letter runs) of the text, diacritics kept
+     */
+    public static String[] syllables(String text) {
+        if (text == null || text.isEmpty()) {
+            return new String[0];
+        }
+        // Decomposed input (combining marks) would otherwise split syllables
+        if (!Normalizer.isNormalized(text, Normalizer.Form.NFC)) {
+            text = Normalizer.normalize(text, Normalizer.Form.NFC);
+        }
+
+        List<String> result = new ArrayList<>();
+        int start = -1;
+        boolean upper = false;
+        for (int i = 0, len = text.length(); i <= len; i++) {
+            char c = i < len ? text.charAt(i) : ' ';
+            if (Character.isLetter(c)) {
+                if (start < 0) {
+                    start = i;
+                    upper = false;
+                }
+                upper |= Character.isUpperCase(c);
+            } else if (start >= 0) {
+                String syllable = text.substring(start, i);
+                result.add(upper ? syllable.toLowerCase(Locale.ROOT) : syllable);
+                start = -1;
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /**
+     * Syllables with diacritics removed ("Hợp đồng" -> [hop, dong])
+     */
+    public static String[] foldedSyllables(String text) {
+        String[] syllables = syllables(text);
+        for (int i = 0; i < syllables.length; i++) {
+            syllables[i] = fold(syllables[i]);
+        }
+        return syllables;
+    }
+
+    /**
+     * Lowercase and remove diacritics; returns the same instance when nothing changes
+     */
+    public static String fold(String text) {
+        char[] chars = null;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            char c = text.charAt(i);
+            char folded = c < FOLD.length ? FOLD[c] : Character.toLowerCase(c);
+            if (folded != c) {
+                if (chars == null) {
+                    chars = text.toCharArray();
+                }
+                chars[i] = folded;
+            }
+        }
+        return chars == null ? text : new String(chars);
+    }
+
+    private int loadDictionary() {
+        int count = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new ClassPathResource(DICTIONARY).getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.strip();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] syllables = foldedSyllables(line);
+                if (syllables.length >= 2) {
+                    terms.add(syllables);
+                    count++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Legal term dictionary {} not loaded, compounds will not be recognized: {}",
+                    DICTIONARY, e.getMessage());
+        }
+        return count;
+    }
+
+    private void addStopPhrase(String phrase) {
+        stopWords.add(syllables(phrase));
+        foldedStopWords.add(foldedSyllables(phrase));
+    }
+
+    /**
+     * Trie over syllables; longestMatch returns how many syllables from a position form an entry (0 if none)
+     */
+    private static final class SyllableTrie {
+
+        private final Map<String, SyllableTrie> children = new HashMap<>();
+        private boolean terminal;
+
+        void add(String[] syllables) {
+            SyllableTrie node = this;
+            for (String syllable : syllables) {
+                node = node.children.computeIfAbsent(syllable, k -> new SyllableTrie());
+            }
+            node.terminal = true;
+        }
+
+        int longestMatch(String[] syllables, int from) {
+            int longest = 0;
+            SyllableTrie node = this;
+            for (int i = from; i < syllables.length; i++) {
+                node = node.children.get(syllables[i]);
+                if (node == null) {
+                    break;
+                }
+                if (node.terminal) {
+                    longest = i - from + 1;
+                }
+            }
+            return longest;
+        }
+    }
+}
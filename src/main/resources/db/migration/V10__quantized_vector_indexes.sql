@@ -0,0 +1,21 @@
+-- ============================================================================
+-- V10: Reduced-dimension / binary first-pass indexes for article vector search
+-- vector.search.mode=reduced -> cosine HNSW on the first 512 dimensions
+-- vector.search.mode=binary  -> hamming HNSW on binary_quantize(embedding) (192 bytes per article)
+-- legal_articles.embedding keeps the full 1536-dim vectors, used to re-score the candidates.
+-- Needs pgvector >= 0.7 (subvector, binary_quantize, bit_hamming_ops); on older versions
+-- the indexes are skipped and VectorSearchService stays in full mode.
+-- ============================================================================
+
+DO $$
+BEGIN
+    IF (SELECT string_to_array(extversion, '.')::int[] FROM pg_extension WHERE extname = 'vector')
+            >= ARRAY[0, 7] THEN
+        EXECUTE 'CREATE INDEX IF NOT EXISTS ix_legal_articles_embedding_reduced ON legal_articles '
+             || 'USING hnsw ((subvector(embedding, 1, 512)::vector(512)) vector_cosine_ops)';
+        EXECUTE 'CREATE INDEX IF NOT EXISTS ix_legal_articles_embedding_binary ON legal_articles '
+             || 'USING hnsw ((binary_quantize(embedding)::bit(1536)) bit_hamming_ops)';
+    ELSE
+        RAISE NOTICE 'pgvector < 0.7: quantized vector indexes skipped, vector search stays in full mode';
+    END IF;
+END $$;
@@ -0,0 +1,57 @@
+-- ============================================================================
+-- V5: Full-text keyword search for legal articles
+-- Replaces ILIKE '%kw%' scans with a maintained tsvector + GIN index
+-- ============================================================================
+
+-- 1) Accent-insensitive text search configuration for Vietnamese
+-- Vietnamese is isolating (no inflection), so 'simple' (lowercase only) is the
+-- right base dictionary; unaccent folds diacritics (hợp đồng -> hop dong, đ -> d)
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+DO $$
+BEGIN
+    IF NOT EXISTS (SELECT 1 FROM pg_ts_config WHERE cfgname = 'vietnamese_unaccent') THEN
+        CREATE TEXT SEARCH CONFIGURATION vietnamese_unaccent (COPY = simple);
+        ALTER TEXT SEARCH CONFIGURATION vietnamese_unaccent
+            ALTER MAPPING FOR hword, hword_part, word WITH unaccent, simple;
+    END IF;
+END
+$$;
+
+-- 2) tsvector column: title weighted 'A', content weighted 'D'
+-- (ranking weights per label are supplied at query time from LegalSearchConfig)
+ALTER TABLE legal_articles
+ADD COLUMN IF NOT EXISTS search_vector tsvector;
+
+CREATE OR REPLACE FUNCTION legal_articles_search_vector_update()
+RETURNS TRIGGER AS $$
+BEGIN
+    NEW.search_vector :=
+        setweight(to_tsvector('vietnamese_unaccent', COALESCE(NEW.article_title, '')), 'A') ||
+        setweight(to_tsvector('vietnamese_unaccent', COALESCE(NEW.content, '')), 'D');
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_legal_articles_search_vector ON legal_articles;
+
+CREATE TRIGGER trg_legal_articles_search_vector
+BEFORE INSERT OR UPDATE OF article_title, content ON legal_articles
+FOR EACH ROW
+EXECUTE FUNCTION legal_articles_search_vector_update();
+
+-- 3) Backfill existing rows
+UPDATE legal_articles
+SET search_vector =
+    setweight(to_tsvector('vietnamese_unaccent', COALESCE(article_title, '')), 'A') ||
+    setweight(to_tsvector('vietnamese_unaccent', COALESCE(content, '')), 'D');
+
+-- 4) GIN index for @@ lookups
+CREATE INDEX IF NOT EXISTS ix_legal_articles_search_vector
+ON legal_articles USING GIN (search_vector);
+
+COMMENT ON COLUMN legal_articles.search_vector IS 'Accent-folded tsvector (title=A, content=D), maintained by trigger';
+
+-- ============================================================================
+-- END OF V5 MIGRATION
+-- ============================================================================
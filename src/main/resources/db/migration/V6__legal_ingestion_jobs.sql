@@ -0,0 +1,44 @@
+-- ============================================================================
+-- V6: Asynchronous legal document ingestion jobs
+-- Upload returns a job id; parse -> persist -> embed -> index runs in background
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS legal_ingestion_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED',
+    stage VARCHAR(20) NOT NULL DEFAULT 'PARSING',
+    -- Upload metadata (kept so the job can be resumed after a restart)
+    original_filename VARCHAR(500),
+    temp_file_path VARCHAR(1000),
+    file_url VARCHAR(1000),
+    document_name VARCHAR(500) NOT NULL,
+    document_code VARCHAR(100),
+    document_type VARCHAR(100),
+    issuing_body VARCHAR(200),
+    effective_date VARCHAR(20),
+    -- Progress
+    document_id BIGINT,
+    total_articles INT NOT NULL DEFAULT 0,
+    embedded_articles INT NOT NULL DEFAULT 0,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error TEXT,
+    created_by_id BIGINT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    completed_at TIMESTAMP,
+    CONSTRAINT fk_legal_ingestion_jobs_document FOREIGN KEY (document_id) REFERENCES legal_documents(id) ON DELETE SET NULL,
+    CONSTRAINT fk_legal_ingestion_jobs_user FOREIGN KEY (created_by_id) REFERENCES users(id),
+    CONSTRAINT ck_legal_ingestion_jobs_status CHECK (status IN ('QUEUED', 'RUNNING', 'RETRYING', 'COMPLETED', 'FAILED')),
+    CONSTRAINT ck_legal_ingestion_jobs_stage CHECK (stage IN ('PARSING', 'PERSISTING', 'EMBEDDING', 'INDEXING', 'DONE'))
+);
+
+-- Resume unfinished jobs on startup
+CREATE INDEX IF NOT EXISTS ix_legal_ingestion_jobs_status ON legal_ingestion_jobs(status);
+CREATE INDEX IF NOT EXISTS ix_legal_ingestion_jobs_created_at ON legal_ingestion_jobs(created_at DESC);
+
+COMMENT ON COLUMN legal_ingestion_jobs.stage IS
+'Current pipeline stage: PARSING -> PERSISTING -> EMBEDDING -> INDEXING -> DONE (retries resume from this stage)';
+
+-- ============================================================================
+-- END OF V6 MIGRATION
+-- ============================================================================
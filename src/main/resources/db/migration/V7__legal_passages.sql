@@ -0,0 +1,38 @@
+-- ============================================================================
+-- V7: Passage-level chunks of legal articles (Khoản / Điểm)
+-- Each passage has its own embedding; retrieval matches passages and the chat
+-- prompt only carries the matched passages instead of whole articles
+-- ============================================================================
+
+CREATE TABLE IF NOT EXISTS legal_passages (
+    id BIGSERIAL PRIMARY KEY,
+    article_id BIGINT NOT NULL,
+    document_id BIGINT NOT NULL,
+    passage_index INT NOT NULL,
+    label VARCHAR(100),
+    content TEXT NOT NULL,
+    embedding vector(1536) NULL,
+    embedding_updated_at TIMESTAMP NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT fk_legal_passages_article FOREIGN KEY (article_id) REFERENCES legal_articles(id) ON DELETE CASCADE,
+    CONSTRAINT fk_legal_passages_document FOREIGN KEY (document_id) REFERENCES legal_documents(id) ON DELETE CASCADE,
+    CONSTRAINT uq_legal_passages_article_index UNIQUE (article_id, passage_index)
+);
+
+CREATE INDEX IF NOT EXISTS ix_legal_passages_document_id ON legal_passages(document_id);
+CREATE INDEX IF NOT EXISTS ix_legal_passages_embedding ON legal_passages USING ivfflat (embedding vector_cosine_ops) WITH (lists = 100);
+
+COMMENT ON COLUMN legal_passages.label IS
+'Position inside the article, e.g. "Khoản 2" or "Khoản 2, điểm a"; NULL for the lead-in or an unsplit article';
+
+-- Ingestion pipeline gets a CHUNKING stage between PERSISTING and EMBEDDING
+ALTER TABLE legal_ingestion_jobs DROP CONSTRAINT IF EXISTS ck_legal_ingestion_jobs_stage;
+ALTER TABLE legal_ingestion_jobs ADD CONSTRAINT ck_legal_ingestion_jobs_stage
+    CHECK (stage IN ('PARSING', 'PERSISTING', 'CHUNKING', 'EMBEDDING', 'INDEXING', 'DONE'));
+
+COMMENT ON COLUMN legal_ingestion_jobs.stage IS
+'Current pipeline stage: PARSING -> PERSISTING -> CHUNKING -> EMBEDDING -> INDEXING -> DONE (retries resume from this stage)';
+
+-- ============================================================================
+-- END OF V7 MIGRATION
+-- ============================================================================
@@ -0,0 +1,21 @@
+-- ============================================================================
+-- V8: Rolling conversation summary per chat session
+-- Memory for a new turn = summary + the messages it does not cover yet,
+-- so per-turn work and prompt size stay flat as a session grows
+-- ============================================================================
+
+ALTER TABLE chat_sessions
+ADD COLUMN IF NOT EXISTS summary TEXT;
+
+ALTER TABLE chat_sessions
+ADD COLUMN IF NOT EXISTS summary_message_count INT NOT NULL DEFAULT 0;
+
+ALTER TABLE chat_sessions
+ADD COLUMN IF NOT EXISTS summary_updated_at TIMESTAMP;
+
+COMMENT ON COLUMN chat_sessions.summary_message_count IS
+'Number of oldest messages (in conversation order) folded into summary';
+
+-- ============================================================================
+-- END OF V8 MIGRATION
+-- ============================================================================
@@ -0,0 +1,29 @@
+-- ============================================================================
+-- V9: Direct article references ("Điều 51 BLHS", "khoản 2 Điều 8 Luật Đất đai")
+-- Citations are resolved by (document_id, article_number) instead of running search;
+-- documents are recognized through their aliases (folded name, name without year,
+-- abbreviation, document code), generated by LegalReferenceResolver
+-- ============================================================================
+
+CREATE INDEX IF NOT EXISTS ix_legal_articles_document_article
+ON legal_articles(document_id, article_number);
+
+-- Covered by the leading column of ix_legal_articles_document_article
+DROP INDEX IF EXISTS ix_legal_articles_document_id;
+
+CREATE TABLE IF NOT EXISTS legal_document_aliases (
+    id BIGSERIAL PRIMARY KEY,
+    document_id BIGINT NOT NULL REFERENCES legal_documents(id) ON DELETE CASCADE,
+    alias VARCHAR(200) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+    CONSTRAINT uq_legal_document_aliases UNIQUE (document_id, alias)
+);
+
+CREATE INDEX IF NOT EXISTS ix_legal_document_aliases_alias ON legal_document_aliases(alias);
+
+COMMENT ON COLUMN legal_document_aliases.alias IS
+'Lowercase, without diacritics, single spaces (e.g. "bo luat hinh su", "blhs", "100/2015/qh13")';
+
+-- ============================================================================
+-- END OF V9 MIGRATION
+-- ============================================================================
@@ -15,6 +15,8 @@ const API_ENDPOINTS = {
     SESSIONS: '/api/chat/sessions',
     SESSION_MESSAGES: (sessionId) => `/api/chat/sessions/${sessionId}/messages`,
     NEW_SESSION_MESSAGE: '/api/chat/sessions/messages',
+    SESSION_MESSAGES_STREAM: (sessionId) => `/api/chat/sessions/${sessionId}/messages/stream`,
+    NEW_SESSION_MESSAGE_STREAM: '/api/chat/sessions/messages/stream',
     DELETE_SESSION: (sessionId) => `/api/chat/sessions/${sessionId}`
 };
 
@@ -89,6 +91,96 @@ export async function sendMessage(question, sessionId = null) {
     }
 }
 
+/**
+ * Send a message and stream the answer (Server-Sent Events over fetch, since EventSource cannot POST)
+ * @param {string} question - User's question
+ * @param {number|null} sessionId - Session ID (null for new session)
+ * @param {Object} handlers - { onCitations(data), onDelta(text) }
+ * @returns {Promise<Object>} Final response with sessionId, userMessage, assistantMessage
+ */
+export async function streamMessage(question, sessionId = null, handlers = {}) {
+    const endpoint = sessionId
+        ? API_ENDPOINTS.SESSION_MESSAGES_STREAM(sessionId)
+        : API_ENDPOINTS.NEW_SESSION_MESSAGE_STREAM;
+
+    const client = AppRuntime.getClient();
+    if (!client) throw new Error('API client not available');
+
+    const response = await client.fetchWithAuth(endpoint, {
+        method: 'POST',
+        headers: {
+            ...getAuthHeaders(),
+            'Accept': 'text/event-stream'
+        },
+        body: JSON.stringify({ question })
+    });
+
+    if (!response.ok) {
+        const err = await response.json().catch(() => ({}));
+        throw new Error(err.message || err.error || 'Có lỗi xảy ra');
+    }
+
+    const reader = response.body.getReader();
+    const decoder = new TextDecoder('utf-8');
+    let buffer = '';
+    let result = null;
+
+    while (true) {
+        const { value, done } = await reader.read();
+        if (done) break;
+        buffer += decoder.decode(value, { stream: true });
+
+        // Events are separated by a blank line
+        let boundary;
+        while ((boundary = buffer.search(/\r?\n\r?\n/)) !== -1) {
+            const rawEvent = buffer.slice(0, boundary);
+            buffer = buffer.slice(boundary).replace(/^\r?\n\r?\n/, '');
+
+            const event = parseSseEvent(rawEvent);
+            if (!event) continue;
+
+            if (event.name === 'citations') {
+                handlers.onCitations?.(event.data);
+            } else if (event.name === 'delta') {
+                handlers.onDelta?.(event.data.content);
+            } else if (event.name === 'done') {
+                result = event.data;
+            } else if (event.name === 'error') {
+                throw new Error(event.data.message || 'Có lỗi xảy ra');
+            }
+        }
+    }
+
+    if (!result) {
+        throw new Error('Kết nối bị gián đoạn. Vui lòng tải lại phiên chat.');
+    }
+    return result;
+}
+
+/**
+ * Parse one SSE event block ("event: x" + "data: {...}" lines)
+ * @param {string} rawEvent
+ * @returns {{name: string, data: Object}|null}
+ */
+function parseSseEvent(rawEvent) {
+    let name = 'message';
+    const dataLines = [];
+    for (const line of rawEvent.split(/\r?\n/)) {
+        if (line.startsWith('event:')) {
+            name = line.slice(6).trim();
+        } else if (line.startsWith('data:')) {
+            dataLines.push(line.slice(5).replace(/^ /, ''));
+        }
+    }
+    if (dataLines.length === 0) return null;
+    try {
+        return { name, data: JSON.parse(dataLines.join('\n')) };
+    } catch (e) {
+        console.warn('[ChatAPI] Invalid SSE data:', e);
+        return null;
+    }
+}
+
 /**
  * Delete a chat session
  * @param {number} sessionId - Session ID to delete
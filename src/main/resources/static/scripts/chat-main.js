@@ -23,7 +23,7 @@ import {
 import {
     loadChatSessions as apiLoadSessions,
     loadSessionMessages as apiLoadMessages,
-    sendMessage as apiSendMessage,
+    streamMessage as apiStreamMessage,
     deleteSession as apiDeleteSession
 } from './chat-api.js';
 
@@ -31,6 +31,7 @@ import {
     initElements,
     getElements,
     addMessage,
+    addStreamingMessage,
     addTypingIndicator,
     removeTypingIndicator,
     setInputDisabled,
@@ -176,9 +177,19 @@ async function handleFormSubmit(e) {
     // Disable input
     setInputDisabled(true);
 
+    let streamingMessage = null;
+
     try {
-        // Send to API
-        const data = await apiSendMessage(question, ChatState.currentSessionId);
+        // Send to API, rendering the answer as it streams in
+        const data = await apiStreamMessage(question, ChatState.currentSessionId, {
+            onDelta: (delta) => {
+                if (!streamingMessage) {
+                    removeTypingIndicator(typingId);
+                    streamingMessage = addStreamingMessage();
+                }
+                streamingMessage.append(delta);
+            }
+        });
 
         // Update session if new
         if (!ChatState.currentSessionId) {
@@ -187,8 +198,9 @@ async function handleFormSubmit(e) {
             await loadChatSessions(true);
         }
 
-        // Remove typing indicator
+        // Remove typing indicator / streamed draft; the saved message replaces it
         removeTypingIndicator(typingId);
+        streamingMessage?.remove();
 
         // Add bot response with null-safety check
         if (data && data.assistantMessage && data.assistantMessage.content) {
@@ -206,6 +218,7 @@ async function handleFormSubmit(e) {
         }
     } catch (error) {
         removeTypingIndicator(typingId);
+        streamingMessage?.remove();
         addMessage('bot', error.message || 'Xin lỗi, có lỗi xảy ra. Vui lòng thử lại sau.');
         console.error('Error:', error);
     } finally {
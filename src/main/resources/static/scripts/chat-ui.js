@@ -113,6 +113,48 @@ export function addMessage(type, content, citations = null) {
     elements.chatMessages.scrollTop = elements.chatMessages.scrollHeight;
 }
 
+/**
+ * Add an empty bot message that is filled while the answer streams in
+ * @returns {{append: function(string): void, remove: function(): void}}
+ */
+export function addStreamingMessage() {
+    const messageDiv = document.createElement('div');
+    messageDiv.className = 'message bot';
+
+    const avatar = document.createElement('div');
+    avatar.className = 'message-avatar';
+    avatar.textContent = '🤖';
+
+    const contentWrapper = document.createElement('div');
+
+    const label = document.createElement('div');
+    label.className = 'message-label';
+    label.textContent = 'Trợ lý AI';
+    contentWrapper.appendChild(label);
+
+    const contentDiv = document.createElement('div');
+    contentDiv.className = 'message-content';
+    const paragraph = document.createElement('p');
+    contentDiv.appendChild(paragraph);
+    contentWrapper.appendChild(contentDiv);
+
+    messageDiv.appendChild(avatar);
+    messageDiv.appendChild(contentWrapper);
+    elements.chatMessages.appendChild(messageDiv);
+
+    let text = '';
+    return {
+        append(delta) {
+            text += delta;
+            paragraph.innerHTML = escapeHtml(text).replace(/\n/g, '<br>');
+            elements.chatMessages.scrollTop = elements.chatMessages.scrollHeight;
+        },
+        remove() {
+            messageDiv.remove();
+        }
+    };
+}
+
 /**
  * Add typing indicator to chat
  * @returns {string} ID of the typing indicator element
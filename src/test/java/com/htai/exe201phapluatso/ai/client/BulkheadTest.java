@@ -0,0 +1,119 @@
+package com.htai.exe201phapluatso.ai.client;
+
+import com.htai.exe201phapluatso.common.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTest {
+
+    private static final Duration ACQUIRE_TIMEOUT = Duration.ofSeconds(5);
+
+    @Test
+    void withPermit_ShouldQueueCallsBeyondMaxConcurrentAndResumeOnRelease() {
+        // Given
+        Bulkhead bulkhead = new Bulkhead(1, 10);
+        Sinks.One<String> firstCall = Sinks.one();
+        AtomicInteger secondCallStarted = new AtomicInteger();
+
+        // When
+        Disposable first = bulkhead.withPermit(ACQUIRE_TIMEOUT, firstCall::asMono).subscribe();
+        AtomicReference<String> secondResult = new AtomicReference<>();
+        bulkhead.withPermit(ACQUIRE_TIMEOUT, () -> {
+            secondCallStarted.incrementAndGet();
+            return Mono.just("second");
+        }).subscribe(secondResult::set);
+
+        // Then
+        assertEquals(1, bulkhead.getInFlight());
+        assertEquals(1, bulkhead.getQueued());
+        assertEquals(0, secondCallStarted.get(), "second call must wait for a permit");
+
+        firstCall.tryEmitValue("first");
+
+        assertEquals("second", secondResult.get());
+        assertEquals(0, bulkhead.getInFlight());
+        assertEquals(0, bulkhead.getQueued());
+        first.dispose();
+    }
+
+    @Test
+    void withPermit_ShouldRejectWhenQueueIsFull() {
+        // Given
+        Bulkhead bulkhead = new Bulkhead(1, 0);
+        bulkhead.withPermit(ACQUIRE_TIMEOUT, Mono::never).subscribe();
+
+        // When / Then
+        RateLimitExceededException rejected = assertThrows(RateLimitExceededException.class,
+                () -> bulkhead.withPermit(ACQUIRE_TIMEOUT, () -> Mono.just("x")).block());
+        assertTrue(rejected.getRetryAfterSeconds() > 0);
+        assertEquals(1, bulkhead.getRejected());
+    }
+
+    @Test
+    void withPermit_ShouldReleasePermitOnErrorAndCancel() {
+        // Given
+        Bulkhead bulkhead = new Bulkhead(1, 10);
+
+        // When
+        assertThrows(IllegalStateException.class, () -> bulkhead.withPermit(ACQUIRE_TIMEOUT,
+                () -> Mono.<String>error(new IllegalStateException("boom"))).block());
+        Disposable cancelled = bulkhead.withPermit(ACQUIRE_TIMEOUT, Mono::never).subscribe();
+        cancelled.dispose();
+
+        // Then
+        assertEquals(0, bulkhead.getInFlight());
+        assertEquals("ok", bulkhead.withPermit(ACQUIRE_TIMEOUT, () -> Mono.just("ok")).block());
+    }
+
+    @Test
+    void withPermit_ShouldNotLosePermit_WhenWaiterTimesOutWhilePermitIsReleased() throws Exception {
+        for (int i = 0; i < 500; i++) {
+            // Given: one permit held, one waiter queued
+            Bulkhead bulkhead = new Bulkhead(1, 10);
+            Sinks.One<String> holder = Sinks.one();
+            bulkhead.withPermit(ACQUIRE_TIMEOUT, holder::asMono).subscribe();
+            boolean timeOut = i % 2 == 0;
+            Disposable waiter = bulkhead.withPermit(timeOut ? Duration.ofMillis(1) : ACQUIRE_TIMEOUT,
+                    () -> Mono.just("x")).subscribe(value -> { }, error -> { });
+            CyclicBarrier start = new CyclicBarrier(2);
+
+            // When: the waiter gives up (acquire timeout / cancel) while the holder releases its permit
+            Thread releaser = new Thread(() -> {
+                await(start);
+                holder.tryEmitValue("done");
+            });
+            releaser.start();
+            await(start);
+            if (!timeOut) {
+                waiter.dispose();
+            }
+            releaser.join();
+
+            // Then: the permit comes back, whoever wins
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+            while ((bulkhead.getInFlight() != 0 || bulkhead.getQueued() != 0) && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            assertEquals(0, bulkhead.getInFlight(), "permit lost in iteration " + i);
+            assertEquals(0, bulkhead.getQueued());
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.htai.exe201phapluatso.ai.service;
+
+import com.htai.exe201phapluatso.ai.dto.AIQuestionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuestionDeduplicatorTest {
+
+    @Test
+    void dedupe_ShouldDropNearDuplicatesAndKeepFirstOccurrence() {
+        // Given
+        AIQuestionDTO first = question("Theo Bộ luật Dân sự 2015, người thành niên là người từ đủ bao nhiêu tuổi?");
+        AIQuestionDTO reworded = question("Theo Bộ luật Dân sự 2015, người thành niên là người từ đủ bao nhiêu tuổi trở lên?");
+        AIQuestionDTO different = question("Thời hiệu khởi kiện yêu cầu bồi thường thiệt hại là bao lâu?");
+
+        // When
+        List<AIQuestionDTO> result = QuestionDeduplicator.dedupe(List.of(first, reworded, different), 0.6);
+
+        // Then
+        assertEquals(List.of(first, different), result);
+    }
+
+    @Test
+    void shingles_ShouldIgnoreCaseDiacriticsAndPunctuation() {
+        // Given
+        String a = "Điều 20: Người thành niên";
+        String b = "dieu 20 - nguoi THANH nien";
+
+        // When / Then
+        assertEquals(1.0, QuestionDeduplicator.jaccard(
+                QuestionDeduplicator.shingles(a), QuestionDeduplicator.shingles(b)));
+    }
+
+    private static AIQuestionDTO question(String text) {
+        return new AIQuestionDTO(text, "A", "B", "C", "D", "A", "");
+    }
+}
@@ -0,0 +1,49 @@
+package com.htai.exe201phapluatso.ai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorCodecTest {
+
+    @Test
+    void fromPgBinary_ShouldDecodeVectorSendFormat() {
+        // Given
+        float[] vector = {0.125f, -1.5f, 3.0e-7f, 42f};
+
+        // When
+        float[] decoded = VectorCodec.fromPgBinary(VectorCodec.toPgBinary(vector));
+
+        // Then
+        assertArrayEquals(vector, decoded);
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.fromPgBinary(new byte[]{0, 2, 0, 0, 1, 2, 3, 4}));
+    }
+
+    @Test
+    void parseEmbeddingResponse_ShouldDecodeBase64EmbeddingsByIndex() {
+        // Given: items out of order, as allowed by the embeddings API
+        float[] first = new float[1536];
+        float[] second = new float[1536];
+        for (int i = 0; i < first.length; i++) {
+            first[i] = i / 1536f;
+            second[i] = -i / 1536f;
+        }
+        String response = """
+                {"object":"list","data":[
+                  {"object":"embedding","index":1,"embedding":"%s"},
+                  {"object":"embedding","index":0,"embedding":"%s"}
+                ],"model":"text-embedding-3-small","usage":{"prompt_tokens":8,"total_tokens":8}}
+                """.formatted(VectorCodec.toBase64(second), VectorCodec.toBase64(first));
+        EmbeddingService embeddingService = new EmbeddingService(null, new ObjectMapper(), null);
+
+        // When
+        List<float[]> embeddings = embeddingService.parseEmbeddingResponse(response, 2);
+
+        // Then
+        assertArrayEquals(first, embeddings.get(0));
+        assertArrayEquals(second, embeddings.get(1));
+    }
+}
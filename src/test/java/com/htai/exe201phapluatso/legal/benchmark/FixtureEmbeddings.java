@@ -0,0 +1,148 @@
+package com.htai.exe201phapluatso.legal.benchmark;
+
+import com.htai.exe201phapluatso.ai.service.VectorCodec;
+import com.htai.exe201phapluatso.legal.service.VietnameseTokenizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Embeddings of the benchmark corpus and questions
+ *
+ * - hashing (default): deterministic stand-in, folded syllables and bigrams hashed into 1536 signed
+ *   dimensions then L2-normalized; needs no API key, so numbers compare search changes, not the model
+ * - openai: real text-embedding-3-small vectors, precomputed in a file (SHA-256 of the text, base64
+ *   float32 as returned with encoding_format=base64); texts missing from the file are embedded through
+ *   the API once and appended to it
+ */
+final class FixtureEmbeddings {
+
+    static final int DIMENSIONS = 1536;
+
+    private static final float BIGRAM_WEIGHT = 1.5f;
+
+    private final boolean useApi;
+    private final Path file;
+    private final Map<String, float[]> precomputed = new LinkedHashMap<>();
+    private final Map<String, float[]> added = new LinkedHashMap<>();
+
+    FixtureEmbeddings(boolean useApi, Path file) throws IOException {
+        this.useApi = useApi;
+        this.file = file;
+        if (useApi && Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    precomputed.put(line.substring(0, tab), VectorCodec.fromBase64(line.substring(tab + 1)));
+                }
+            }
+        }
+    }
+
+    boolean usesApi() {
+        return useApi;
+    }
+
+    /**
+     * Embedding of one text; api is only called in openai mode for texts not precomputed
+     */
+    synchronized float[] embed(String text, Supplier<float[]> api) {
+        if (!useApi) {
+            return hashed(text);
+        }
+        String key = sha256(text);
+        float[] embedding = precomputed.get(key);
+        if (embedding == null) {
+            embedding = api.get();
+            precomputed.put(key, embedding);
+            added.put(key, embedding);
+        }
+        return embedding;
+    }
+
+    /**
+     * Embeddings of many texts; api embeds the whole list when any text is missing
+     */
+    synchronized List<float[]> embedAll(List<String> texts, Supplier<List<float[]>> api) {
+        if (!useApi) {
+            return texts.stream().map(FixtureEmbeddings::hashed).toList();
+        }
+        List<String> keys = texts.stream().map(FixtureEmbeddings::sha256).toList();
+        if (!precomputed.keySet().containsAll(keys)) {
+            List<float[]> embeddings = api.get();
+            for (int i = 0; i < keys.size(); i++) {
+                if (precomputed.putIfAbsent(keys.get(i), embeddings.get(i)) == null) {
+                    added.put(keys.get(i), embeddings.get(i));
+                }
+            }
+        }
+        List<float[]> embeddings = new ArrayList<>(keys.size());
+        keys.forEach(key -> embeddings.add(precomputed.get(key)));
+        return embeddings;
+    }
+
+    /**
+     * Append the embeddings fetched from the API during this run to the precomputed file
+     */
+    synchronized void save() throws IOException {
+        if (added.isEmpty()) {
+            return;
+        }
+        List<String> lines = new ArrayList<>(added.size());
+        added.forEach((key, embedding) -> lines.add(key + "\t" + VectorCodec.toBase64(embedding)));
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        added.clear();
+    }
+
+    /**
+     * Deterministic stand-in embedding (feature hashing of folded syllables and bigrams)
+     */
+    static float[] hashed(String text) {
+        float[] vector = new float[DIMENSIONS];
+        String[] syllables = VietnameseTokenizer.foldedSyllables(text);
+        for (int i = 0; i < syllables.length; i++) {
+            addFeature(vector, syllables[i], 1f);
+            if (i > 0) {
+                addFeature(vector, syllables[i - 1] + " " + syllables[i], BIGRAM_WEIGHT);
+            }
+        }
+
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    private static void addFeature(float[] vector, String feature, float weight) {
+        int hash = feature.hashCode() * 0x9E3779B9;
+        vector[Math.floorMod(hash, DIMENSIONS)] += (hash >>> 31) == 0 ? weight : -weight;
+    }
+
+    private static String sha256(String text) {
+        try {
+            return HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
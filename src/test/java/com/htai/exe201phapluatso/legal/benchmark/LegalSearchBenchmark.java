@@ -0,0 +1,284 @@
+package com.htai.exe201phapluatso.legal.benchmark;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
+import com.htai.exe201phapluatso.legal.config.LegalSearchConfig;
+import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import com.htai.exe201phapluatso.legal.entity.LegalDocument;
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import com.htai.exe201phapluatso.legal.service.HybridRetrievalService;
+import com.htai.exe201phapluatso.legal.service.LegalDocumentParserService;
+import com.htai.exe201phapluatso.legal.service.LegalPassageService;
+import com.htai.exe201phapluatso.legal.service.LegalReferenceResolver;
+import com.htai.exe201phapluatso.legal.service.LegalSearchService;
+import com.htai.exe201phapluatso.legal.service.VectorSearchService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.postgresql.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Retrieval quality and latency of the legal search strategies on a fixture corpus
+ *
+ * - Corpus: the PDFs of benchmark/corpus.tsv, parsed and chunked as during ingestion, in a throwaway
+ *   Postgres + pgvector (Testcontainers, Flyway migrations applied)
+ * - Questions: benchmark/questions.tsv, each labelled with its relevant articles
+ * - Embeddings: see FixtureEmbeddings (hashing stand-in by default, -Dbenchmark.embedder=openai for real ones)
+ *
+ * Reports recall@k, MRR and p50 / p95 / p99 latency per strategy: keyword, semantic and hybrid,
+ * each with and without re-rank, and the full chat search (citations, hybrid, re-rank).
+ *
+ * Run (needs Docker): mvn test -Dtest=LegalSearchBenchmark -Dbenchmark=true [-Dbenchmark.k=5]
+ */
+@SpringBootTest(properties = {
+        "vector.index.in-memory.enabled=false",
+        "embedding.query-cache.redis-enabled=false",
+        "legal.answer-cache.enabled=false"
+})
+@Testcontainers(disabledWithoutDocker = true)
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class LegalSearchBenchmark {
+
+    @Container
+    static final PostgreSQLContainer POSTGRES = new PostgreSQLContainer(
+            DockerImageName.parse("pgvector/pgvector:pg16").asCompatibleSubstituteFor("postgres"));
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @MockitoSpyBean
+    private EmbeddingService embeddingService;
+
+    @Autowired
+    private LegalDocumentParserService parserService;
+
+    @Autowired
+    private LegalDocumentRepo documentRepo;
+
+    @Autowired
+    private LegalArticleRepo articleRepo;
+
+    @Autowired
+    private LegalReferenceResolver referenceResolver;
+
+    @Autowired
+    private LegalPassageService passageService;
+
+    @Autowired
+    private VectorSearchService vectorSearchService;
+
+    @Autowired
+    private HybridRetrievalService hybridRetrievalService;
+
+    @Autowired
+    private LegalSearchService legalSearchService;
+
+    @Autowired
+    private ArticleSnapshotCache articleSnapshotCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private record LabelledQuestion(String question, Set<Long> relevant) {
+    }
+
+    @Test
+    void runBenchmark() throws IOException {
+        int k = Integer.getInteger("benchmark.k", 5);
+        int candidates = Integer.getInteger("benchmark.candidates", LegalSearchConfig.DEFAULT_SEARCH_LIMIT * 2);
+        FixtureEmbeddings embeddings = new FixtureEmbeddings(
+                "openai".equalsIgnoreCase(System.getProperty("benchmark.embedder", "hashing")),
+                Path.of(System.getProperty("benchmark.embeddings-file", "target/benchmark/embeddings.tsv")));
+        stubEmbeddings(embeddings);
+
+        Map<String, Map<Integer, Long>> articleIds = loadCorpus(
+                Path.of(System.getProperty("benchmark.documents", "uploads/legal")));
+        List<LabelledQuestion> questions = loadQuestions(articleIds);
+        assertFalse(questions.isEmpty(), "No labelled questions");
+
+        Map<String, Function<String, List<Long>>> strategies = new LinkedHashMap<>();
+        strategies.put("keyword", q -> ids(legalSearchService.keywordSearch(q, k)));
+        strategies.put("keyword+rerank", q -> ids(rerank(q, legalSearchService.keywordSearch(q, candidates))));
+        strategies.put("semantic", q -> ids(semantic(q, k)));
+        strategies.put("semantic+rerank", q -> ids(rerank(q, semantic(q, candidates))));
+        strategies.put("hybrid", q -> ids(hybridRetrievalService.retrieve(q, k)));
+        strategies.put("hybrid+rerank", q -> ids(rerank(q, hybridRetrievalService.retrieve(q, candidates))));
+        strategies.put("chat", q -> ids(legalSearchService.searchForChat(q, candidates, null).articles()));
+
+        List<RetrievalMetrics.Summary> summaries = new ArrayList<>();
+        for (Map.Entry<String, Function<String, List<Long>>> strategy : strategies.entrySet()) {
+            summaries.add(measure(strategy.getKey(), strategy.getValue(), questions, k));
+        }
+        embeddings.save();
+
+        StringBuilder report = new StringBuilder()
+                .append("\nLegal search benchmark: ").append(questions.size()).append(" questions, ")
+                .append(articleIds.values().stream().mapToInt(Map::size).sum()).append(" articles, embeddings: ")
+                .append(embeddings.usesApi() ? "openai" : "hashing stand-in").append('\n')
+                .append(RetrievalMetrics.Summary.header(k)).append('\n');
+        summaries.forEach(summary -> report.append(summary.toRow()).append('\n'));
+        System.out.println(report);
+
+        assertEquals(strategies.size(), summaries.size());
+    }
+
+    /**
+     * One warm-up pass over the questions (plans, caches, JIT), then one measured pass
+     */
+    private RetrievalMetrics.Summary measure(String name, Function<String, List<Long>> strategy,
+                                             List<LabelledQuestion> questions, int k) {
+        questions.forEach(question -> strategy.apply(question.question()));
+
+        double[] recalls = new double[questions.size()];
+        double[] reciprocalRanks = new double[questions.size()];
+        long[] latencies = new long[questions.size()];
+        for (int i = 0; i < questions.size(); i++) {
+            LabelledQuestion question = questions.get(i);
+            long start = System.nanoTime();
+            List<Long> results = strategy.apply(question.question());
+            latencies[i] = System.nanoTime() - start;
+            recalls[i] = RetrievalMetrics.recallAtK(results, question.relevant(), k);
+            reciprocalRanks[i] = RetrievalMetrics.reciprocalRank(results, question.relevant(), k);
+        }
+        return RetrievalMetrics.Summary.of(name, recalls, reciprocalRanks, latencies);
+    }
+
+    private List<ArticleSnapshot> semantic(String question, int limit) {
+        return articleSnapshotCache.getEffectiveInOrder(vectorSearchService.semanticSearch(question, limit).stream()
+                .map(LegalArticle::getId)
+                .toList());
+    }
+
+    private List<ArticleSnapshot> rerank(String question, List<ArticleSnapshot> candidates) {
+        return legalSearchService.rerankArticlesAsync(question, question, candidates).block();
+    }
+
+    private static List<Long> ids(List<ArticleSnapshot> articles) {
+        return articles.stream().map(ArticleSnapshot::id).toList();
+    }
+
+    // ==================== Fixtures ====================
+
+    /**
+     * Query and batch embeddings come from the fixture (the real API is only called in openai mode)
+     */
+    private void stubEmbeddings(FixtureEmbeddings embeddings) {
+        doAnswer(invocation -> embeddings.embed(invocation.getArgument(0), () -> callRealMethod(invocation)))
+                .when(embeddingService).generateQueryEmbedding(anyString());
+        doAnswer(invocation -> embeddings.embedAll(invocation.getArgument(0), () -> callRealMethod(invocation)))
+                .when(embeddingService).generateEmbeddings(anyList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T callRealMethod(InvocationOnMock invocation) {
+        try {
+            return (T) invocation.callRealMethod();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Embedding API call failed", e);
+        }
+    }
+
+    /**
+     * Parse, save, alias, chunk and embed the corpus documents
+     *
+     * @return corpus key -> article number -> article id
+     */
+    private Map<String, Map<Integer, Long>> loadCorpus(Path documents) throws IOException {
+        Map<String, Map<Integer, Long>> articleIds = new HashMap<>();
+        for (String[] entry : readTsv("benchmark/corpus.tsv")) {
+            List<LegalArticle> articles = parserService.parseDocument(documents.resolve(entry[1]));
+
+            LegalDocument document = new LegalDocument();
+            document.setDocumentName(entry[2]);
+            document.setDocumentCode(entry[3]);
+            document.setFilePath(entry[1]);
+            document.setTotalArticles(articles.size());
+            articles.forEach(article -> article.setDocument(document));
+            document.setArticles(articles);
+            LegalDocument saved = documentRepo.save(document);
+
+            referenceResolver.registerAliases(saved);
+            passageService.chunkDocument(saved.getId());
+
+            Map<Integer, Long> byNumber = new HashMap<>();
+            articleRepo.findByDocumentIdOrderByArticleNumber(saved.getId())
+                    .forEach(article -> byNumber.putIfAbsent(article.getArticleNumber(), article.getId()));
+            articleIds.put(entry[0], byNumber);
+        }
+
+        while (vectorSearchService.generateMissingEmbeddings(256) > 0) {
+            // embed every article
+        }
+        while (passageService.generateMissingEmbeddings(256) > 0) {
+            // embed every passage
+        }
+        // ivfflat lists are trained at index build time: rebuild now that the tables hold data
+        jdbcTemplate.execute("REINDEX INDEX ix_legal_articles_embedding");
+        jdbcTemplate.execute("REINDEX INDEX ix_legal_passages_embedding");
+        jdbcTemplate.execute("ANALYZE");
+        return articleIds;
+    }
+
+    private static List<LabelledQuestion> loadQuestions(Map<String, Map<Integer, Long>> articleIds) throws IOException {
+        List<LabelledQuestion> questions = new ArrayList<>();
+        for (String[] entry : readTsv("benchmark/questions.tsv")) {
+            Set<Long> relevant = new HashSet<>();
+            for (String reference : entry[1].split(",")) {
+                String[] parts = reference.trim().split(":");
+                Long id = articleIds.getOrDefault(parts[0], Map.of()).get(Integer.parseInt(parts[1]));
+                assertNotNull(id, "Unknown article in questions.tsv: " + reference);
+                relevant.add(id);
+            }
+            questions.add(new LabelledQuestion(entry[0], relevant));
+        }
+        return questions;
+    }
+
+    private static List<String[]> readTsv(String resource) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (InputStream in = LegalSearchBenchmark.class.getClassLoader().getResourceAsStream(resource)) {
+            assertNotNull(in, "Missing test resource " + resource);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    rows.add(line.split("\t"));
+                }
+            }
+        }
+        return rows;
+    }
+}
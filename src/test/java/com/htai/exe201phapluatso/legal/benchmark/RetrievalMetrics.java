@@ -0,0 +1,76 @@
+package com.htai.exe201phapluatso.legal.benchmark;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Retrieval quality and latency metrics of LegalSearchBenchmark
+ */
+final class RetrievalMetrics {
+
+    private RetrievalMetrics() {
+    }
+
+    /**
+     * Share of the relevant articles found in the top-k results
+     */
+    static double recallAtK(List<Long> results, Set<Long> relevant, int k) {
+        if (relevant.isEmpty()) {
+            return 1.0;
+        }
+        long found = results.stream().limit(k).filter(relevant::contains).count();
+        return (double) found / relevant.size();
+    }
+
+    /**
+     * 1 / rank of the first relevant result in the top k, 0 when none
+     */
+    static double reciprocalRank(List<Long> results, Set<Long> relevant, int k) {
+        for (int i = 0; i < Math.min(k, results.size()); i++) {
+            if (relevant.contains(results.get(i))) {
+                return 1.0 / (i + 1);
+            }
+        }
+        return 0.0;
+    }
+
+    /**
+     * Nearest-rank percentile (0 < p <= 100) of latencies in nanoseconds, in milliseconds
+     */
+    static double percentileMs(long[] latenciesNanos, double p) {
+        if (latenciesNanos.length == 0) {
+            return 0.0;
+        }
+        long[] sorted = latenciesNanos.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)] / 1_000_000.0;
+    }
+
+    /**
+     * Aggregated result of one strategy over the question set
+     */
+    record Summary(String strategy, int questions, double recallAtK, double mrr,
+                   double p50Ms, double p95Ms, double p99Ms) {
+
+        static Summary of(String strategy, double[] recalls, double[] reciprocalRanks, long[] latenciesNanos) {
+            return new Summary(strategy, recalls.length,
+                    Arrays.stream(recalls).average().orElse(0),
+                    Arrays.stream(reciprocalRanks).average().orElse(0),
+                    percentileMs(latenciesNanos, 50),
+                    percentileMs(latenciesNanos, 95),
+                    percentileMs(latenciesNanos, 99));
+        }
+
+        String toRow() {
+            return String.format("%-16s %9d %10.3f %7.3f %9.1f %9.1f %9.1f",
+                    strategy, questions, recallAtK, mrr, p50Ms, p95Ms, p99Ms);
+        }
+
+        static String header(int k) {
+            return String.format("%-16s %9s %10s %7s %9s %9s %9s",
+                    "strategy", "questions", "recall@" + k, "MRR", "p50 ms", "p95 ms", "p99 ms");
+        }
+    }
+}
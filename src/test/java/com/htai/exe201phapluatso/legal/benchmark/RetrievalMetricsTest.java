@@ -0,0 +1,53 @@
+package com.htai.exe201phapluatso.legal.benchmark;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetrievalMetricsTest {
+
+    @Test
+    void recallAndReciprocalRank_ShouldOnlyCountTopK() {
+        // Given
+        List<Long> results = List.of(7L, 3L, 9L, 1L);
+        Set<Long> relevant = Set.of(3L, 1L);
+
+        // When / Then
+        assertEquals(0.5, RetrievalMetrics.recallAtK(results, relevant, 3));
+        assertEquals(1.0, RetrievalMetrics.recallAtK(results, relevant, 4));
+        assertEquals(0.5, RetrievalMetrics.reciprocalRank(results, relevant, 3));
+        assertEquals(0.0, RetrievalMetrics.reciprocalRank(results, relevant, 1));
+    }
+
+    @Test
+    void percentileMs_ShouldUseNearestRank() {
+        // Given: 1..100 ms
+        long[] latencies = new long[100];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[latencies.length - 1 - i] = (i + 1) * 1_000_000L;
+        }
+
+        // When / Then
+        assertEquals(50.0, RetrievalMetrics.percentileMs(latencies, 50));
+        assertEquals(95.0, RetrievalMetrics.percentileMs(latencies, 95));
+        assertEquals(99.0, RetrievalMetrics.percentileMs(latencies, 99));
+    }
+
+    @Test
+    void hashedEmbedding_ShouldIgnoreDiacriticsAndBeUnitLength() {
+        // When
+        float[] accented = FixtureEmbeddings.hashed("Tội trộm cắp tài sản");
+        float[] folded = FixtureEmbeddings.hashed("toi trom cap tai san");
+
+        // Then
+        assertArrayEquals(accented, folded);
+        double norm = 0;
+        for (float value : accented) {
+            norm += value * value;
+        }
+        assertEquals(1.0, norm, 1e-5);
+    }
+}
@@ -0,0 +1,67 @@
+package com.htai.exe201phapluatso.legal.cache;
+
+import com.htai.exe201phapluatso.legal.dto.ChatResponse;
+import com.htai.exe201phapluatso.legal.dto.CitationDTO;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class AnswerCacheTest {
+
+    @Mock
+    private LegalDocumentRepo documentRepo;
+
+    private AnswerCache answerCache;
+
+    private final ChatResponse response = new ChatResponse("Người từ đủ 18 tuổi là người thành niên.",
+            List.of(new CitationDTO(1L, "Bộ luật Dân sự 2015", 20, "Người thành niên", "...")));
+
+    @BeforeEach
+    void setUp() {
+        answerCache = new AnswerCache(documentRepo);
+        ReflectionTestUtils.setField(answerCache, "enabled", true);
+        ReflectionTestUtils.setField(answerCache, "similarityThreshold", 0.95);
+        ReflectionTestUtils.setField(answerCache, "maxEntries", 100);
+        ReflectionTestUtils.setField(answerCache, "ttlMinutes", 60L);
+    }
+
+    @Test
+    void get_ShouldReturnAnswerForSimilarQuestionOnly() {
+        // Given
+        when(documentRepo.findEffectiveDocumentIds()).thenReturn("1,2");
+        String version = answerCache.corpusVersion();
+        answerCache.put("tuổi thành niên", new float[]{1f, 0f, 0f}, response, version);
+
+        // When / Then
+        assertEquals(response, answerCache.get(new float[]{0.99f, 0.1f, 0f}, version).orElse(null));
+        assertTrue(answerCache.get(new float[]{0.6f, 0.8f, 0f}, version).isEmpty());
+    }
+
+    @Test
+    void invalidate_ShouldDropAnswersAndRejectPutsFromOldCorpusVersion() {
+        // Given
+        when(documentRepo.findEffectiveDocumentIds()).thenReturn("1,2", "1,2,3");
+        String oldVersion = answerCache.corpusVersion();
+        answerCache.put("tuổi thành niên", new float[]{1f, 0f}, response, oldVersion);
+
+        // When
+        answerCache.invalidate();
+        answerCache.put("thời hiệu khởi kiện", new float[]{0f, 1f}, response, oldVersion);
+
+        // Then
+        String newVersion = answerCache.corpusVersion();
+        assertNotEquals(oldVersion, newVersion);
+        assertEquals(0, answerCache.size());
+        assertTrue(answerCache.get(new float[]{1f, 0f}, newVersion).isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package com.htai.exe201phapluatso.legal.cache;
+
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArticleSnapshotCacheTest {
+
+    @Mock
+    private LegalArticleRepo articleRepo;
+
+    @Test
+    void getEffectiveInOrder_ShouldBulkLoadOnlyMissingIdsAndSkipRepealedDocuments() {
+        // Given
+        ArticleSnapshotCache cache = new ArticleSnapshotCache(articleRepo, 100, 1_000_000);
+        when(articleRepo.findSnapshotsByIdIn(List.of(1L, 2L)))
+                .thenReturn(List.of(snapshot(1L, 10L, ArticleSnapshot.EFFECTIVE_STATUS), snapshot(2L, 20L, "Hết hiệu lực")));
+        when(articleRepo.findSnapshotsByIdIn(List.of(3L)))
+                .thenReturn(List.of(snapshot(3L, 10L, ArticleSnapshot.EFFECTIVE_STATUS)));
+        cache.getEffectiveInOrder(List.of(1L, 2L));
+
+        // When
+        List<ArticleSnapshot> result = cache.getEffectiveInOrder(List.of(3L, 2L, 1L));
+
+        // Then
+        assertEquals(List.of(3L, 1L), result.stream().map(ArticleSnapshot::id).toList());
+        verify(articleRepo).findSnapshotsByIdIn(List.of(3L));
+        verifyNoMoreInteractions(articleRepo);
+    }
+
+    @Test
+    void evictDocument_ShouldReloadArticlesOfThatDocumentOnly() {
+        // Given
+        ArticleSnapshotCache cache = new ArticleSnapshotCache(articleRepo, 100, 1_000_000);
+        when(articleRepo.findSnapshotsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<Long> ids = List.copyOf(invocation.getArgument(0));
+            return ids.stream().map(id -> snapshot(id, id < 3 ? 10L : 20L, ArticleSnapshot.EFFECTIVE_STATUS)).toList();
+        });
+        cache.getAll(List.of(1L, 2L, 3L));
+
+        // When
+        cache.evictDocument(10L);
+        cache.getAll(List.of(1L, 2L, 3L));
+
+        // Then
+        verify(articleRepo).findSnapshotsByIdIn(List.of(1L, 2L));
+    }
+
+    @Test
+    void getAll_ShouldEvictLeastRecentlyUsedBeyondMaxEntries() {
+        // Given
+        ArticleSnapshotCache cache = new ArticleSnapshotCache(articleRepo, 2, 1_000_000);
+        when(articleRepo.findSnapshotsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            List<Long> ids = List.copyOf(invocation.getArgument(0));
+            return ids.stream().map(id -> snapshot(id, 10L, ArticleSnapshot.EFFECTIVE_STATUS)).toList();
+        });
+        cache.getAll(List.of(1L));
+        cache.getAll(List.of(2L));
+        cache.getAll(List.of(1L)); // 2 is now least recently used
+
+        // When
+        cache.getAll(List.of(3L));
+        cache.getAll(List.of(1L, 2L));
+
+        // Then
+        verify(articleRepo, times(2)).findSnapshotsByIdIn(List.of(2L));
+        assertEquals(2, cache.getStats().get("entries"));
+    }
+
+    private static ArticleSnapshot snapshot(Long id, Long documentId, String status) {
+        return new ArticleSnapshot(id, documentId, "Bộ luật Dân sự 2015", status, id.intValue(),
+                "Điều " + id, "Nội dung điều " + id);
+    }
+}
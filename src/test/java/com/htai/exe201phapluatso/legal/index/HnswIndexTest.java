@@ -0,0 +1,196 @@
+package com.htai.exe201phapluatso.legal.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 64;
+    private static final int VECTOR_COUNT = 1000;
+
+    private final Random random = new Random(42);
+    // Compactions queued by the index, run by the test
+    private final List<Runnable> compactions = new ArrayList<>();
+    private HnswIndex index;
+    private List<float[]> vectors;
+
+    @BeforeEach
+    void setUp() {
+        index = new HnswIndex(DIMENSIONS, 16, 100, compactions::add);
+        vectors = new ArrayList<>();
+        for (int i = 0; i < VECTOR_COUNT; i++) {
+            float[] v = randomVector();
+            vectors.add(v);
+            index.add(i, v);
+        }
+    }
+
+    @Test
+    void search_ShouldMatchBruteForceTopKWithHighRecall() {
+        // Given
+        int k = 10;
+        int queries = 50;
+        int found = 0;
+
+        // When
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomVector();
+            Set<Long> expected = bruteForce(query, k);
+            Set<Long> actual = index.search(query, k, 64).stream()
+                    .map(HnswIndex.SearchHit::id)
+                    .collect(Collectors.toSet());
+            actual.retainAll(expected);
+            found += actual.size();
+        }
+
+        // Then
+        double recall = (double) found / (queries * k);
+        assertTrue(recall >= 0.9, "recall@10 too low: " + recall);
+    }
+
+    @Test
+    void search_ShouldReturnExactVectorFirstWithSimilarityOne() {
+        // When
+        List<HnswIndex.SearchHit> hits = index.search(vectors.get(7), 1, 64);
+
+        // Then
+        assertEquals(7L, hits.get(0).id());
+        assertEquals(1.0f, hits.get(0).similarity(), 1e-4);
+    }
+
+    @Test
+    void remove_ShouldExcludeIdFromResults() {
+        // When
+        assertTrue(index.remove(7));
+
+        // Then
+        List<HnswIndex.SearchHit> hits = index.search(vectors.get(7), 10, 64);
+        assertTrue(hits.stream().noneMatch(h -> h.id() == 7L));
+        assertEquals(VECTOR_COUNT - 1, index.size());
+        assertFalse(index.contains(7));
+    }
+
+    @Test
+    void add_WithExistingId_ShouldReplaceVector() {
+        // Given
+        float[] replacement = randomVector();
+
+        // When
+        index.add(7, replacement);
+
+        // Then
+        List<HnswIndex.SearchHit> hits = index.search(replacement, 1, 64);
+        assertEquals(7L, hits.get(0).id());
+        assertEquals(VECTOR_COUNT, index.size());
+    }
+
+    @Test
+    void add_WithManyUpdatesAndRemovals_ShouldCompactTombstones() {
+        // When: every vector replaced, then a fifth removed
+        for (int i = 0; i < VECTOR_COUNT; i++) {
+            float[] replacement = randomVector();
+            vectors.set(i, replacement);
+            index.add(i, replacement);
+        }
+        for (int i = 0; i < VECTOR_COUNT; i += 5) {
+            index.remove(i);
+        }
+        runCompactions();
+
+        // Then
+        assertTrue(index.deletedCount() <= VECTOR_COUNT / 4, "tombstones not compacted: " + index.deletedCount());
+        assertEquals(VECTOR_COUNT - VECTOR_COUNT / 5, index.size());
+        assertEquals(8L, index.search(vectors.get(8), 1, 64).get(0).id());
+        assertTrue(index.search(vectors.get(10), 10, 64).stream().noneMatch(h -> h.id() == 10L));
+    }
+
+    @Test
+    void compaction_ShouldKeepServingSearchesAndReplayWritesMadeDuringTheRebuild() throws Exception {
+        // Given: enough removals to queue a compaction
+        for (int i = 0; i < VECTOR_COUNT; i += 3) {
+            index.remove(i);
+        }
+        assertEquals(1, compactions.size());
+
+        // When: writes before and searches during the rebuild
+        float[] replacement = randomVector();
+        vectors.set(1, replacement);
+        index.add(1, replacement);
+        index.remove(2);
+        Thread rebuild = new Thread(compactions.remove(0));
+        rebuild.start();
+        while (rebuild.isAlive()) {
+            assertEquals(4L, index.search(vectors.get(4), 1, 64).get(0).id());
+        }
+        rebuild.join();
+        runCompactions();
+
+        // Then
+        assertTrue(index.deletedCount() <= VECTOR_COUNT / 10, "tombstones not compacted: " + index.deletedCount());
+        assertEquals(VECTOR_COUNT - 334 - 1, index.size());
+        assertEquals(1L, index.search(replacement, 1, 64).get(0).id());
+        assertEquals(4L, index.search(vectors.get(4), 1, 64).get(0).id());
+        assertFalse(index.contains(2));
+        assertTrue(index.search(vectors.get(2), 10, 64).stream().noneMatch(h -> h.id() == 2L));
+    }
+
+    @Test
+    void addIfAbsent_WithExistingId_ShouldKeepOriginal() {
+        // When
+        boolean inserted = index.addIfAbsent(7, randomVector());
+
+        // Then
+        assertFalse(inserted);
+        assertEquals(7L, index.search(vectors.get(7), 1, 64).get(0).id());
+    }
+
+    @Test
+    void add_WithWrongDimensions_ShouldThrowException() {
+        assertThrows(IllegalArgumentException.class, () -> index.add(1, new float[DIMENSIONS + 1]));
+    }
+
+    private void runCompactions() {
+        while (!compactions.isEmpty()) {
+            compactions.remove(0).run();
+        }
+    }
+
+    private Set<Long> bruteForce(float[] query, int k) {
+        double[] scores = new double[vectors.size()];
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            scores[i] = cosine(query, vectors.get(i));
+            ids.add((long) i);
+        }
+        ids.sort(Comparator.comparingDouble((Long id) -> -scores[id.intValue()]));
+        return new HashSet<>(ids.subList(0, k));
+    }
+
+    private double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            na += a[i] * a[i];
+            nb += b[i] * b[i];
+        }
+        return dot / (Math.sqrt(na) * Math.sqrt(nb));
+    }
+
+    private float[] randomVector() {
+        float[] v = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return v;
+    }
+}
@@ -0,0 +1,92 @@
+package com.htai.exe201phapluatso.legal.rerank;
+
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.index.ArticleVectorIndex;
+import com.htai.exe201phapluatso.legal.service.KeywordSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+class LexicalRerankerTest {
+
+    @Test
+    void bm25f_ShouldScoreTitleAndPhraseMatchesHighest() {
+        // Given
+        List<String> keywords = List.of("thành niên", "tuổi");
+        ArticleSnapshot titleMatch = article("Người thành niên", "Người từ đủ mười tám tuổi trở lên.");
+        ArticleSnapshot contentMatch = article("Năng lực hành vi", "Người chưa thành niên dưới mười tám tuổi.");
+        ArticleSnapshot unrelated = article("Hợp đồng thuê nhà", "Bên thuê có nghĩa vụ trả tiền thuê.");
+
+        // When
+        double[] scores = LexicalReranker.bm25f(
+                keywords, List.of(titleMatch, contentMatch, unrelated), 1.2, 0.75);
+
+        // Then
+        assertEquals(1.0, scores[0], 1e-9);
+        assertTrue(scores[1] > 0 && scores[1] < scores[0]);
+        assertEquals(0.0, scores[2], 1e-9);
+    }
+
+    @Test
+    void countPhrase_ShouldMatchConsecutiveTokensOnly() {
+        // Given
+        String[] tokens = LexicalReranker.tokenize("Người thành niên, người chưa thành niên; niên thành");
+
+        // When / Then
+        assertEquals(2, LexicalReranker.countPhrase(tokens, LexicalReranker.tokenize("thành niên")));
+        assertEquals(0, LexicalReranker.countPhrase(tokens, LexicalReranker.tokenize("niên người thành")));
+    }
+
+    @Test
+    void rerankNow_ShouldKeepVectorOnlyHit_WhenInMemoryIndexIsOff() {
+        // Given: the in-memory index is not loaded, candidate vectors come from pgvector
+        KeywordSearchService keywordSearchService = mock(KeywordSearchService.class);
+        EmbeddingService embeddingService = mock(EmbeddingService.class);
+        ArticleVectorIndex articleVectorIndex = mock(ArticleVectorIndex.class);
+        LexicalReranker reranker = new LexicalReranker(keywordSearchService, embeddingService, articleVectorIndex);
+        ReflectionTestUtils.setField(reranker, "bm25Weight", 0.45);
+        ReflectionTestUtils.setField(reranker, "vectorWeight", 0.45);
+        ReflectionTestUtils.setField(reranker, "rankWeight", 0.1);
+        ReflectionTestUtils.setField(reranker, "k1", 1.2);
+        ReflectionTestUtils.setField(reranker, "b", 0.75);
+        ReflectionTestUtils.setField(reranker, "maxResults", 5);
+        ReflectionTestUtils.setField(reranker, "minResults", 3);
+        ReflectionTestUtils.setField(reranker, "minRelativeScore", 0.6);
+
+        List<ArticleSnapshot> candidates = List.of(
+                article(1L, "Người thành niên", "Người từ đủ mười tám tuổi trở lên."),
+                article(2L, "Năng lực hành vi", "Người chưa thành niên dưới mười tám tuổi."),
+                article(3L, "Hợp đồng thuê nhà", "Bên thuê có nghĩa vụ trả tiền thuê."),
+                article(4L, "Thừa kế", "Di sản được chia theo di chúc."),
+                article(5L, "Đất đai", "Quyền sử dụng đất."),
+                article(6L, "Giám hộ", "Người giám hộ của người dưới mười tám tuổi."));
+        float[] query = {1f, 0f};
+        float[] other = {0f, 1f};
+        when(keywordSearchService.extractKeywords("question")).thenReturn(List.of("thành niên"));
+        when(embeddingService.generateQueryEmbedding("retrieval query")).thenReturn(query);
+        when(articleVectorIndex.getVectors(anyCollection())).thenReturn(Map.of(
+                1L, other, 2L, other, 3L, other, 4L, other, 5L, other, 6L, query));
+
+        // When
+        List<ArticleSnapshot> selected = reranker.rerankNow("question", "retrieval query", candidates);
+
+        // Then
+        assertEquals(List.of(1L, 6L, 2L), selected.stream().map(ArticleSnapshot::id).toList());
+        verify(articleVectorIndex, never()).getVector(any());
+    }
+
+    private static ArticleSnapshot article(String title, String content) {
+        return article(1L, title, content);
+    }
+
+    private static ArticleSnapshot article(Long id, String title, String content) {
+        return new ArticleSnapshot(id, 1L, "Bộ luật Dân sự 2015", ArticleSnapshot.EFFECTIVE_STATUS, 1, title, content);
+    }
+}
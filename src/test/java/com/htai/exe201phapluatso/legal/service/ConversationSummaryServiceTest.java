@@ -0,0 +1,80 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
+import com.htai.exe201phapluatso.legal.entity.ChatSession;
+import com.htai.exe201phapluatso.legal.repo.ChatMessageRepo;
+import com.htai.exe201phapluatso.legal.repo.ChatSessionRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConversationSummaryServiceTest {
+
+    @Mock
+    private ChatSessionRepo sessionRepo;
+
+    @Mock
+    private ChatMessageRepo messageRepo;
+
+    @Mock
+    private OpenAIService aiService;
+
+    private ConversationSummaryService summaryService;
+
+    @BeforeEach
+    void setUp() {
+        summaryService = new ConversationSummaryService(sessionRepo, messageRepo, aiService,
+                new TokenCounter("gpt-4o-mini"));
+        ReflectionTestUtils.setField(summaryService, "enabled", true);
+        ReflectionTestUtils.setField(summaryService, "recentTurns", 2);
+        ReflectionTestUtils.setField(summaryService, "maxWords", 200);
+        ReflectionTestUtils.setField(summaryService, "messageMaxTokens", 400);
+    }
+
+    @Test
+    void update_ShouldFoldOnlyMessagesOutsideRecentWindow() {
+        // Given: 8 messages (4 turns), none summarized, last 2 turns stay raw
+        when(sessionRepo.findById(7L)).thenReturn(Optional.of(new ChatSession()));
+        when(sessionRepo.countMessagesBySessionId(7L)).thenReturn(8L);
+        when(messageRepo.findRoleAndContentBySessionId(7L, 0, 4)).thenReturn(List.of(
+                new Object[]{"USER", "Ly hôn đơn phương cần thủ tục gì?"},
+                new Object[]{"ASSISTANT", "Theo Điều 56 Luật Hôn nhân và gia đình..."},
+                new Object[]{"USER", "Con dưới 36 tháng tuổi thì sao?"},
+                new Object[]{"ASSISTANT", "Theo Điều 81, con dưới 36 tháng tuổi giao cho mẹ..."}));
+        when(aiService.generateTextAsync(contains("Điều 81"))).thenReturn(Mono.just("Người dùng hỏi về ly hôn đơn phương."));
+
+        // When
+        summaryService.update(7L);
+
+        // Then
+        verify(sessionRepo, timeout(2000)).updateSummary(eq(7L), eq("Người dùng hỏi về ly hôn đơn phương."),
+                eq(4), eq(0), any(LocalDateTime.class));
+    }
+
+    @Test
+    void update_ShouldDoNothingWhileSessionFitsInRecentWindow() {
+        // Given
+        when(sessionRepo.findById(7L)).thenReturn(Optional.of(new ChatSession()));
+        when(sessionRepo.countMessagesBySessionId(7L)).thenReturn(4L);
+
+        // When
+        summaryService.update(7L);
+
+        // Then
+        verifyNoInteractions(messageRepo, aiService);
+        verify(sessionRepo, never()).updateSummary(anyLong(), anyString(), anyInt(), anyInt(), any());
+    }
+}
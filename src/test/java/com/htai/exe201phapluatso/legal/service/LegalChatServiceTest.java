@@ -0,0 +1,190 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.cache.QueryEmbeddingCache;
+import com.htai.exe201phapluatso.ai.service.EmbeddingService;
+import com.htai.exe201phapluatso.ai.service.OpenAIService;
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
+import com.htai.exe201phapluatso.credit.service.CreditService;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.dto.ChatResponse;
+import com.htai.exe201phapluatso.legal.dto.CitationDTO;
+import com.htai.exe201phapluatso.legal.dto.ConversationContext;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LegalChatServiceTest {
+
+    private static final String QUESTION = "Vậy mức phạt tù là bao nhiêu?";
+
+    @Mock
+    private LegalSearchService searchService;
+
+    @Mock
+    private OpenAIService aiService;
+
+    @Mock
+    private CreditService creditService;
+
+    @Mock
+    private PromptBuilder promptBuilder;
+
+    @Mock
+    private AnswerCache answerCache;
+
+    @Mock
+    private EmbeddingService embeddingService;
+
+    @Mock
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    private SimpleMeterRegistry registry;
+    private RagMetrics ragMetrics;
+    private LegalChatService chatService;
+    private ConversationContext context;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ragMetrics = new RagMetrics(registry, answerCache, queryEmbeddingCache);
+        chatService = new LegalChatService(searchService, aiService, creditService, promptBuilder, answerCache,
+                embeddingService, ragMetrics, new TokenCounter("gpt-4o-mini"));
+        ReflectionTestUtils.setField(chatService, "speculativeEnabled", true);
+        ReflectionTestUtils.setField(chatService, "speculativeMaxDivergence", 0.4);
+
+        context = new ConversationContext(List.of(
+                new ConversationContext.Message("USER", "Tội trộm cắp tài sản bị xử lý thế nào?"),
+                new ConversationContext.Message("ASSISTANT", "Theo Điều 173 BLHS...")));
+        context.setLastCitedArticleIds(List.of(1L, 2L));
+    }
+
+    @Test
+    void chatAsync_ShouldKeepSpeculativeAnswer_WhenFullSearchAgrees() {
+        // Given: the full search's top 3 miss one speculative article (divergence 1/3)
+        LegalSearchService.SearchResult speculative = result(1L, 2L, 3L);
+        LegalSearchService.SearchResult full = result(2L, 1L, 4L);
+        when(searchService.speculativeSearchForChat(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(speculative);
+        when(searchService.searchForChatAsync(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(Mono.just(full));
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(speculative.articles()), any(), eq(context)))
+                .thenReturn("speculative prompt");
+        when(aiService.generateTextAsync("speculative prompt")).thenReturn(Mono.just("Mức phạt tù từ 6 tháng"));
+
+        // When
+        ChatResponse response = chatService.chatAsync(7L, QUESTION, context).join();
+
+        // Then
+        assertEquals("Mức phạt tù từ 6 tháng", response.answer());
+        assertEquals(List.of(1L, 2L, 3L), response.citations().stream().map(CitationDTO::articleId).toList());
+        verify(aiService, times(1)).generateTextAsync(any());
+        assertEquals(1, registry.get("rag.speculation").tag("result", "accepted").counter().count());
+    }
+
+    @Test
+    void chatAsync_ShouldCancelAndRegenerate_WhenFullSearchDiverges() {
+        // Given
+        LegalSearchService.SearchResult speculative = result(1L, 2L);
+        LegalSearchService.SearchResult full = result(4L, 5L, 1L);
+        AtomicBoolean speculativeCancelled = new AtomicBoolean();
+        when(searchService.speculativeSearchForChat(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(speculative);
+        when(searchService.searchForChatAsync(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(Mono.just(full));
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(speculative.articles()), any(), eq(context)))
+                .thenReturn("speculative prompt");
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(full.articles()), any(), eq(context)))
+                .thenReturn("full prompt");
+        when(aiService.generateTextAsync("speculative prompt"))
+                .thenReturn(Mono.<String>never().doOnCancel(() -> speculativeCancelled.set(true)));
+        when(aiService.generateTextAsync("full prompt")).thenReturn(Mono.just("Theo Điều 174 BLHS"));
+
+        // When
+        ChatResponse response = chatService.chatAsync(7L, QUESTION, context).join();
+
+        // Then
+        assertEquals("Theo Điều 174 BLHS", response.answer());
+        assertEquals(List.of(4L, 5L, 1L), response.citations().stream().map(CitationDTO::articleId).toList());
+        assertTrue(speculativeCancelled.get());
+        assertEquals(1, registry.get("rag.speculation").tag("result", "regenerated").counter().count());
+        assertEquals(1, registry.get("rag.stage").tag("stage", "generation").timer().count());
+        assertEquals(1, registry.get("rag.stage").tag("stage", "speculative_generation").timer().count());
+        assertEquals(1.0, LegalChatService.divergence(speculative.articles(), List.of(), 5));
+    }
+
+    @Test
+    void chatAsync_ShouldAnswerFromFullSearch_WhenKeptSpeculativeAnswerFails() {
+        // Given
+        LegalSearchService.SearchResult speculative = result(1L, 2L, 3L);
+        LegalSearchService.SearchResult full = result(2L, 1L, 4L);
+        when(searchService.speculativeSearchForChat(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(speculative);
+        when(searchService.searchForChatAsync(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(Mono.just(full));
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(speculative.articles()), any(), eq(context)))
+                .thenReturn("speculative prompt");
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(full.articles()), any(), eq(context)))
+                .thenReturn("full prompt");
+        when(aiService.generateTextAsync("speculative prompt"))
+                .thenReturn(Mono.error(new IllegalStateException("upstream reset")));
+        when(aiService.generateTextAsync("full prompt")).thenReturn(Mono.just("Theo Điều 173 BLHS"));
+
+        // When
+        ChatResponse response = chatService.chatAsync(7L, QUESTION, context).join();
+
+        // Then
+        assertEquals("Theo Điều 173 BLHS", response.answer());
+        assertEquals(List.of(2L, 1L, 4L), response.citations().stream().map(CitationDTO::articleId).toList());
+        assertEquals(1, registry.get("rag.speculation").tag("result", "accepted").counter().count());
+        assertEquals(1, registry.get("rag.request").tags("mode", "sync", "outcome", "answered").timer().count());
+    }
+
+    @Test
+    void streamChat_ShouldRegenerateOnlyBeforeFirstDelta_WhenKeptSpeculativeStreamFails() {
+        // Given
+        LegalSearchService.SearchResult speculative = result(1L, 2L, 3L);
+        LegalSearchService.SearchResult full = result(2L, 1L, 4L);
+        when(searchService.speculativeSearchForChat(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(speculative);
+        when(searchService.searchForChat(eq(QUESTION), anyInt(), eq(context), any())).thenReturn(full);
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(speculative.articles()), any(), eq(context)))
+                .thenReturn("speculative prompt");
+        when(promptBuilder.buildChatPrompt(eq(QUESTION), eq(full.articles()), any(), eq(context)))
+                .thenReturn("full prompt");
+        when(aiService.streamText("speculative prompt"))
+                .thenReturn(Flux.error(new IllegalStateException("upstream reset")))
+                .thenReturn(Flux.concat(Flux.just("Mức phạt "), Flux.error(new IllegalStateException("upstream reset"))));
+        when(aiService.streamText("full prompt")).thenReturn(Flux.just("Theo ", "Điều 173"));
+
+        // When
+        List<String> regenerated = chatService.streamChat(7L, QUESTION, context, ragMetrics.start("stream"))
+                .answer().collectList().block();
+        Flux<String> failedMidway = chatService.streamChat(7L, QUESTION, context, ragMetrics.start("stream"))
+                .answer();
+
+        // Then
+        assertEquals(List.of("Theo ", "Điều 173"), regenerated);
+        assertThrows(IllegalStateException.class, () -> failedMidway.collectList().block());
+        verify(aiService, times(1)).streamText("full prompt");
+        assertEquals(2, registry.get("rag.stage").tag("stage", "speculative_generation").timer().count());
+    }
+
+    private static LegalSearchService.SearchResult result(Long... ids) {
+        List<ArticleSnapshot> articles = Arrays.stream(ids)
+                .map(id -> new ArticleSnapshot(id, 100L, "Bộ luật Hình sự 2015", ArticleSnapshot.EFFECTIVE_STATUS,
+                        id.intValue(), "Điều " + id, "Nội dung điều " + id, "Nội dung điều " + id))
+                .toList();
+        return new LegalSearchService.SearchResult(articles, Map.of(),
+                new LegalSearchService.SearchMetadata(true, false, articles.size()));
+    }
+}
@@ -0,0 +1,127 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.DocumentParserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmark: LegalContentCleaner vs the previous replaceAll chain (legacyClean, kept here as baseline)
+ *
+ * Input: raw article contents of the PDFs in uploads/legal (or -Dbenchmark.documents=dir),
+ * split with ArticleSplitter as during ingestion. One operation = cleaning every article once.
+ *
+ * Run: mvn test -Dtest=LegalContentCleanerBenchmark -Dbenchmark=true
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512m")
+public class LegalContentCleanerBenchmark {
+
+    private List<String> contents;
+
+    @Setup
+    public void load() throws IOException {
+        contents = loadArticleContents(Path.of(System.getProperty("benchmark.documents", "uploads/legal")));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole blackhole) {
+        LegalContentCleaner cleaner = new LegalContentCleaner();
+        for (String content : contents) {
+            blackhole.consume(cleaner.clean(content));
+        }
+    }
+
+    @Benchmark
+    public void replaceAllChain(Blackhole blackhole) {
+        for (String content : contents) {
+            blackhole.consume(legacyClean(content));
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void runBenchmark() throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LegalContentCleanerBenchmark.class.getName())
+                .build()).run();
+    }
+
+    /**
+     * Raw (uncleaned) article contents of every PDF in the directory
+     */
+    static List<String> loadArticleContents(Path directory) throws IOException {
+        DocumentParserService documentParser = new DocumentParserService();
+        List<String> contents = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path pdf : files.filter(f -> f.toString().endsWith(".pdf")).sorted().toList()) {
+                LegalDocumentParserService.ArticleSplitter splitter =
+                        new LegalDocumentParserService.ArticleSplitter(article -> contents.add(article.getContent()));
+                documentParser.streamTextFromPdf(pdf, 20, 16L * 1024 * 1024, splitter::accept);
+                splitter.finish();
+            }
+        }
+        if (contents.isEmpty()) {
+            throw new IllegalStateException("No articles found in " + directory.toAbsolutePath());
+        }
+        return contents;
+    }
+
+    /**
+     * Article cleanup before LegalContentCleaner (one replaceAll per rule)
+     */
+    static String legacyClean(String content) {
+        // Remove chapter headers (Chương I, Chương XX, CHƯƠNG I, etc.)
+        // Match both with and without additional text after
+        content = content.replaceAll("(?mi)^\\s*Chương\\s+[IVX]+[^\\n]*$", "");
+        content = content.replaceAll("(?mi)^\\s*Chương\\s+\\d+[^\\n]*$", "");
+        
+        // Remove part headers (Phần thứ nhất, Phần I, PHẦN THỨ NHẤT, etc.)
+        content = content.replaceAll("(?mi)^\\s*Phần\\s+(thứ\\s+)?[a-zàáạảãâầấậẩẫăằắặẳẵèéẹẻẽêềếệểễìíịỉĩòóọỏõôồốộổỗơờớợởỡùúụủũưừứựửữỳýỵỷỹđ]+[^\\n]*$", "");
+        content = content.replaceAll("(?mi)^\\s*Phần\\s+[IVX]+[^\\n]*$", "");
+        
+        // Remove section headers (Mục 1, MỤC 1, etc.)
+        content = content.replaceAll("(?mi)^\\s*Mục\\s+\\d+[^\\n]*$", "");
+        
+        // Remove all-caps titles (likely section/chapter titles)
+        // Must be at least 10 chars and all uppercase Vietnamese
+        content = content.replaceAll("(?m)^\\s*[A-ZÀÁẠẢÃÂẦẤẬẨẪĂẰẮẶẲẴÈÉẸẺẼÊỀẾỆỂỄÌÍỊỈĨÒÓỌỎÕÔỒỐỘỔỖƠỜỚỢỞỠÙÚỤỦŨƯỪỨỰỬỮỲÝỴỶỸĐ\\s]{10,}\\s*$", "");
+        
+        // Remove page numbers (various formats)
+        content = content.replaceAll("(?m)^\\s*\\d+\\s*$", "");
+        content = content.replaceAll("(?m)^\\s*Trang\\s+\\d+[^\\n]*$", "");
+        content = content.replaceAll("(?m)^\\s*-\\s*\\d+\\s*-\\s*$", "");
+        content = content.replaceAll("(?m)^\\s*\\[\\s*\\d+\\s*\\]\\s*$", "");
+        
+        // Remove document headers that might appear at top
+        content = content.replaceAll("(?mi)^\\s*VĂN BẢN HỢP NHẤT[^\\n]*$", "");
+        content = content.replaceAll("(?mi)^\\s*BỘ LUẬT[^\\n]*NĂM \\d{4}[^\\n]*$", "");
+        
+        // Remove lines that are just dashes or underscores (separators)
+        content = content.replaceAll("(?m)^\\s*[-_=]{3,}\\s*$", "");
+        
+        // Remove multiple blank lines (3+ newlines -> 2 newlines)
+        content = content.replaceAll("\\n{3,}", "\n\n");
+        
+        // Remove leading/trailing whitespace
+        content = content.trim();
+        
+        return content;
+    }
+}
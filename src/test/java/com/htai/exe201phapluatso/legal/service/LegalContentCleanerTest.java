@@ -0,0 +1,61 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalContentCleanerTest {
+
+    private final LegalContentCleaner cleaner = new LegalContentCleaner();
+
+    @Test
+    void clean_ShouldDropHeadersPageNumbersAndSeparators() {
+        // Given
+        String content = String.join("\n",
+                "  1. Người phạm tội được miễn trách nhiệm hình sự khi có một trong những căn cứ",
+                "sau đây:",
+                "12",
+                "- 13 -",
+                "[14]",
+                "Trang 15",
+                "VĂN BẢN HỢP NHẤT BỘ LUẬT HÌNH SỰ",
+                "a) Khi có quyết định đại xá.",
+                "",
+                "",
+                "",
+                "-----",
+                "2. Mức phạt tiền từ 1.000.000 đồng.",
+                "Chương III",
+                "TỘI PHẠM",
+                "Mục 2",
+                "CÁC TỘI XÂM PHẠM AN NINH QUỐC GIA",
+                "   ");
+
+        // When
+        String cleaned = cleaner.clean(content);
+
+        // Then
+        assertEquals(String.join("\n",
+                "1. Người phạm tội được miễn trách nhiệm hình sự khi có một trong những căn cứ",
+                "sau đây:",
+                "",
+                "a) Khi có quyết định đại xá.",
+                "",
+                "2. Mức phạt tiền từ 1.000.000 đồng."), cleaned);
+    }
+
+    @Test
+    void clean_ShouldMatchPreviousCleanupOnTypicalArticle() {
+        // Given
+        String content = String.join("\n",
+                "1. Hợp đồng lao động là sự thỏa thuận giữa người lao động và người sử dụng lao động.",
+                "BỘ LUẬT LAO ĐỘNG NĂM 2019",
+                "2. Trường hợp hai bên thỏa thuận bằng tên gọi khác thì vẫn được coi là hợp đồng lao động.",
+                "Phần thứ hai",
+                "a) Có trả công, tiền lương;",
+                "b) Có sự quản lý, điều hành, giám sát của một bên.");
+
+        // When / Then
+        assertEquals(LegalContentCleanerBenchmark.legacyClean(content), cleaner.clean(content));
+    }
+}
@@ -0,0 +1,37 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.legal.entity.LegalArticle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalDocumentParserServiceTest {
+
+    @Test
+    void articleSplitter_ShouldContinueArticlesAcrossPageBatches() {
+        // Given: page batches cut in the middle of a line and between a heading and its title
+        List<LegalArticle> articles = new ArrayList<>();
+        LegalDocumentParserService.ArticleSplitter splitter = new LegalDocumentParserService.ArticleSplitter(articles::add);
+
+        // When
+        splitter.accept("QUỐC HỘI\nBỘ LUẬT LAO ĐỘNG\nĐiều 1. Phạm vi điều chỉnh\nBộ luật này quy định tiêu chuẩn lao");
+        splitter.accept("động, quyền và nghĩa vụ theo Điều 5. của các bên.\r\nĐiều 2.\n");
+        splitter.accept("\nĐối tượng áp dụng\n1. Người lao động.\n");
+        splitter.finish();
+
+        // Then
+        assertEquals(2, articles.size());
+        assertEquals(1, articles.get(0).getArticleNumber());
+        assertEquals("Phạm vi điều chỉnh", articles.get(0).getArticleTitle());
+        assertEquals("Bộ luật này quy định tiêu chuẩn lao"
+                + "động, quyền và nghĩa vụ theo Điều 5. của các bên.", articles.get(0).getContent());
+        assertEquals(2, articles.get(1).getArticleNumber());
+        assertEquals("Đối tượng áp dụng", articles.get(1).getArticleTitle());
+        assertEquals("1. Người lao động.", articles.get(1).getContent());
+        assertEquals(2, splitter.matches());
+        assertEquals(2, splitter.saved());
+    }
+}
@@ -0,0 +1,49 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LegalPassageChunkerTest {
+
+    @Test
+    void split_ShouldKeepShortArticleAsOnePassage() {
+        // Given
+        LegalPassageChunker chunker = new LegalPassageChunker(1200, 1500, 300);
+        String content = "1. Người lao động có quyền nghỉ việc.\n2. Người sử dụng lao động phải báo trước.";
+
+        // When
+        List<LegalPassageChunker.Chunk> chunks = chunker.split(content);
+
+        // Then
+        assertEquals(1, chunks.size());
+        assertNull(chunks.get(0).label());
+        assertEquals(content, chunks.get(0).content());
+    }
+
+    @Test
+    void split_ShouldSplitPerKhoanAndLongKhoanPerDiem() {
+        // Given
+        LegalPassageChunker chunker = new LegalPassageChunker(50, 120, 40);
+        String content = String.join("\n",
+                "1. Hợp đồng lao động phải được giao kết bằng văn bản.",
+                "2. Người lao động có quyền đơn phương chấm dứt hợp đồng trong các trường hợp sau đây:",
+                "a) Không được bố trí theo đúng công việc, địa điểm làm việc đã thỏa thuận;",
+                "b) Không được trả đủ lương hoặc trả lương không đúng thời hạn;",
+                "c) Bị ngược đãi, quấy rối tình dục tại nơi làm việc.",
+                "5. Dòng này không phải khoản vì số thứ tự không liên tiếp.");
+
+        // When
+        List<LegalPassageChunker.Chunk> chunks = chunker.split(content);
+
+        // Then
+        assertEquals(List.of("Khoản 1", "Khoản 2, điểm a", "Khoản 2, điểm b", "Khoản 2, điểm c"),
+                chunks.stream().map(LegalPassageChunker.Chunk::label).toList());
+        assertTrue(chunks.get(2).content().startsWith("2. Người lao động có quyền đơn phương"));
+        assertTrue(chunks.get(2).content().contains("b) Không được trả đủ lương"));
+        assertFalse(chunks.get(2).content().contains("a) Không được bố trí"));
+        assertTrue(chunks.get(3).content().endsWith("số thứ tự không liên tiếp."));
+    }
+}
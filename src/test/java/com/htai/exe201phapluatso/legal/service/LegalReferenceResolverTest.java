@@ -0,0 +1,112 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshotCache;
+import com.htai.exe201phapluatso.legal.dto.ArticlePassage;
+import com.htai.exe201phapluatso.legal.entity.LegalDocumentAlias;
+import com.htai.exe201phapluatso.legal.repo.LegalArticleRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentAliasRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalDocumentRepo;
+import com.htai.exe201phapluatso.legal.repo.LegalPassageRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LegalReferenceResolverTest {
+
+    @Mock
+    private LegalDocumentRepo documentRepo;
+
+    @Mock
+    private LegalDocumentAliasRepo aliasRepo;
+
+    @Mock
+    private LegalArticleRepo articleRepo;
+
+    @Mock
+    private LegalPassageRepo passageRepo;
+
+    @Mock
+    private ArticleSnapshotCache articleSnapshotCache;
+
+    private LegalReferenceResolver resolver;
+
+    @BeforeEach
+    void setUp() {
+        KeywordSearchService keywordSearchService = new KeywordSearchService(null, new VietnameseTokenizer());
+        resolver = new LegalReferenceResolver(documentRepo, aliasRepo, articleRepo, passageRepo,
+                articleSnapshotCache, keywordSearchService);
+        ReflectionTestUtils.setField(resolver, "enabled", true);
+        ReflectionTestUtils.setField(resolver, "directMaxKeywords", 2);
+
+        List<LegalDocumentAlias> aliases = new ArrayList<>();
+        LegalReferenceResolver.aliasesOf("Bộ luật Hình sự 2015", "100/2015/QH13")
+                .forEach(alias -> aliases.add(new LegalDocumentAlias(1L, alias)));
+        LegalReferenceResolver.aliasesOf("Luật Đất đai 2024", null)
+                .forEach(alias -> aliases.add(new LegalDocumentAlias(2L, alias)));
+        lenient().when(aliasRepo.findAll()).thenReturn(aliases);
+    }
+
+    @Test
+    void aliasesOf_ShouldFoldNameAndDeriveShortForms() {
+        // When
+        Set<String> aliases = LegalReferenceResolver.aliasesOf("Bộ luật Hình sự 2015", "100/2015/QH13");
+
+        // Then
+        assertEquals(Set.of("bo luat hinh su 2015", "bo luat hinh su", "luat hinh su", "blhs", "blhs 2015",
+                "100/2015/qh13"), aliases);
+    }
+
+    @Test
+    void resolve_ShouldLoadCitedArticleAndClauseWithoutSearch() {
+        // Given
+        ArticleSnapshot article8 = new ArticleSnapshot(20L, 2L, "Luật Đất đai 2024", ArticleSnapshot.EFFECTIVE_STATUS,
+                8, "Chính sách đối với người sử dụng đất", "1. ... 2. ...");
+        when(articleRepo.findReferencedArticles(Set.of(2L), Set.of(8)))
+                .thenReturn(List.<Object[]>of(new Object[]{20L, 2L, 8}));
+        when(articleSnapshotCache.getEffectiveInOrder(List.of(20L))).thenReturn(List.of(article8));
+        when(passageRepo.findPassagesByArticleIdIn(Set.of(20L))).thenReturn(List.of(
+                new ArticlePassage(200L, 20L, 0, "Khoản 1", "1. ..."),
+                new ArticlePassage(201L, 20L, 1, "Khoản 2", "2. ...")));
+
+        // When
+        LegalReferenceResolver.Resolution resolution =
+                resolver.resolve("Khoản 2 Điều 8 của Luật Đất đai quy định gì?");
+
+        // Then
+        assertTrue(resolution.directLookup());
+        assertEquals(List.of(article8), resolution.articles());
+        assertEquals(List.of(201L), resolution.passages().get(20L).stream().map(ArticlePassage::id).toList());
+    }
+
+    @Test
+    void resolve_ShouldNotBeDirectLookupWhenQuestionAsksMore() {
+        // Given
+        ArticleSnapshot article51 = new ArticleSnapshot(10L, 1L, "Bộ luật Hình sự 2015", ArticleSnapshot.EFFECTIVE_STATUS,
+                51, "Các tình tiết giảm nhẹ trách nhiệm hình sự", "...");
+        when(articleRepo.findReferencedArticles(anySet(), eq(Set.of(51))))
+                .thenReturn(List.<Object[]>of(new Object[]{10L, 1L, 51}));
+        when(articleSnapshotCache.getEffectiveInOrder(List.of(10L))).thenReturn(List.of(article51));
+
+        // When
+        LegalReferenceResolver.Resolution resolution = resolver.resolve(
+                "Theo BLHS, Điều 51 có áp dụng khi người chưa thành niên phạm tội trộm cắp tài sản không?");
+
+        // Then
+        assertFalse(resolution.directLookup());
+        assertEquals(List.of(article51), resolution.articles());
+        verifyNoInteractions(passageRepo);
+    }
+}
@@ -0,0 +1,70 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.service.TokenCounter;
+import com.htai.exe201phapluatso.legal.cache.ArticleSnapshot;
+import com.htai.exe201phapluatso.legal.dto.ConversationContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptBuilderTest {
+
+    private final TokenCounter tokenCounter = new TokenCounter("gpt-4o-mini");
+    private PromptBuilder promptBuilder;
+
+    @BeforeEach
+    void setUp() {
+        promptBuilder = new PromptBuilder(tokenCounter);
+        ReflectionTestUtils.setField(promptBuilder, "maxInputTokens", 1500);
+        ReflectionTestUtils.setField(promptBuilder, "memoryMaxTokens", 200);
+        ReflectionTestUtils.setField(promptBuilder, "memoryMessageMaxTokens", 60);
+        ReflectionTestUtils.setField(promptBuilder, "minArticleTokens", 50);
+    }
+
+    @Test
+    void buildChatPrompt_ShouldStayWithinTokenBudgetAndKeepArticlesInRankOrder() {
+        // Given
+        String longContent = "Người lao động được nghỉ hằng năm, hưởng nguyên lương theo hợp đồng lao động. ".repeat(40);
+        List<ArticleSnapshot> articles = List.of(
+                article(1L, 113, longContent),
+                article(2L, 114, longContent),
+                article(3L, 115, longContent));
+
+        // When
+        String prompt = promptBuilder.buildChatPrompt("Nghỉ phép năm được bao nhiêu ngày?", articles, Map.of(), null);
+
+        // Then
+        assertTrue(tokenCounter.count(prompt) <= 1500, "prompt has " + tokenCounter.count(prompt) + " tokens");
+        assertTrue(prompt.contains("Điều 113"));
+        assertFalse(prompt.contains("Điều 115"));
+        assertTrue(prompt.endsWith("TRẢ LỜI (ngắn gọn, đúng trọng tâm):\n"));
+    }
+
+    @Test
+    void buildChatPrompt_ShouldKeepNewestMessagesWithinMemoryBudget() {
+        // Given
+        ConversationContext context = new ConversationContext(List.of(
+                new ConversationContext.Message("USER", "Câu hỏi cũ nhất về thừa kế đất đai " + "rất dài ".repeat(80)),
+                new ConversationContext.Message("ASSISTANT", "Trả lời cũ " + "chi tiết ".repeat(80)),
+                new ConversationContext.Message("USER", "Câu hỏi mới nhất về hợp đồng thuê nhà")));
+
+        // When
+        String prompt = promptBuilder.buildChatPrompt("Còn tiền cọc thì sao?",
+                List.of(article(1L, 472, "Hợp đồng thuê tài sản là sự thỏa thuận giữa các bên.")), Map.of(), context);
+
+        // Then
+        assertTrue(prompt.contains("Người dùng: Câu hỏi mới nhất về hợp đồng thuê nhà"));
+        assertFalse(prompt.contains("Câu hỏi cũ nhất"));
+        assertTrue(prompt.contains("Điều 472"));
+    }
+
+    private static ArticleSnapshot article(Long id, int number, String content) {
+        return new ArticleSnapshot(id, 1L, "Bộ luật Lao động 2019", ArticleSnapshot.EFFECTIVE_STATUS,
+                number, "Tiêu đề", content);
+    }
+}
@@ -0,0 +1,83 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import com.htai.exe201phapluatso.ai.cache.QueryEmbeddingCache;
+import com.htai.exe201phapluatso.legal.cache.AnswerCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RagMetricsTest {
+
+    @Mock
+    private AnswerCache answerCache;
+
+    @Mock
+    private QueryEmbeddingCache queryEmbeddingCache;
+
+    private SimpleMeterRegistry registry;
+    private RagMetrics ragMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        ragMetrics = new RagMetrics(registry, answerCache, queryEmbeddingCache);
+    }
+
+    @Test
+    void trace_ShouldRecordStagesAndFinishOnce() {
+        // Given
+        RagMetrics.Trace trace = ragMetrics.start("sync");
+
+        // When
+        String prompt = trace.time("prompt", () -> "prompt");
+        String answer = trace.time("generation", Mono.just("answer")).block();
+        List<String> deltas = trace.timeStream(Flux.just("a", "b")).collectList().block();
+        trace.candidates("vector", 40);
+        trace.rerank(20, 5);
+        trace.promptTokens(1200);
+        trace.finish("answered");
+        trace.finish("error");
+
+        // Then
+        assertEquals("prompt", prompt);
+        assertEquals("answer", answer);
+        assertEquals(List.of("a", "b"), deltas);
+        assertEquals(16, trace.traceId().length());
+        assertEquals(1, registry.get("rag.stage").tag("stage", "prompt").timer().count());
+        assertEquals(2, registry.get("rag.stage").tag("stage", "generation").timer().count());
+        assertEquals(1, registry.get("rag.stage").tag("stage", "first_token").timer().count());
+        assertEquals(40, registry.get("rag.candidates").tag("stage", "vector").summary().totalAmount());
+        assertEquals(0.25, registry.get("rag.rerank.keep.ratio").summary().totalAmount(), 1e-9);
+        assertEquals(1200, registry.get("rag.tokens").tag("type", "prompt").summary().totalAmount());
+        assertEquals(1, registry.get("rag.request").tags("mode", "sync", "outcome", "answered").timer().count());
+        assertTrue(registry.find("rag.request").tag("outcome", "error").timers().isEmpty());
+    }
+
+    @Test
+    void cacheCounters_ShouldFollowCacheStatistics() {
+        // Given
+        when(answerCache.hitCount()).thenReturn(3L);
+        when(queryEmbeddingCache.missCount()).thenReturn(7L);
+
+        // When
+        double answerHits = registry.get("rag.cache.requests").tags("cache", "answer", "result", "hit")
+                .functionCounter().count();
+        double embeddingMisses = registry.get("rag.cache.requests").tags("cache", "query_embedding", "result", "miss")
+                .functionCounter().count();
+
+        // Then
+        assertEquals(3, answerHits);
+        assertEquals(7, embeddingMisses);
+    }
+}
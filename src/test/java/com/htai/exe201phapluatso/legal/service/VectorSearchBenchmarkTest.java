@@ -0,0 +1,30 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorSearchBenchmarkTest {
+
+    @Test
+    void recall_ShouldCountExactHitsFoundInAnyOrder() {
+        // When / Then
+        assertEquals(0.75, VectorSearchBenchmark.recall(List.of(1L, 2L, 3L, 4L), List.of(4L, 9L, 2L, 1L)));
+        assertEquals(1.0, VectorSearchBenchmark.recall(List.of(), List.of(5L)));
+    }
+
+    @Test
+    void searchMode_ShouldBuildFirstPassMatchingTheMigrationIndexes() {
+        // When
+        VectorSearchMode binary = VectorSearchMode.from(" Binary ");
+
+        // Then
+        assertEquals(VectorSearchMode.BINARY, binary);
+        assertEquals("binary_quantize(a.embedding)::bit(1536) <~> binary_quantize(?)::bit(1536)",
+                binary.firstPassDistance("a.embedding", "?"));
+        assertEquals(VectorSearchMode.FULL, VectorSearchMode.from("int8"));
+        assertFalse(VectorSearchMode.FULL.rescores());
+    }
+}
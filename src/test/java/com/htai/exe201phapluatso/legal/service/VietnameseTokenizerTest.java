@@ -0,0 +1,33 @@
+package com.htai.exe201phapluatso.legal.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VietnameseTokenizerTest {
+
+    private final VietnameseTokenizer tokenizer = new VietnameseTokenizer();
+
+    @Test
+    void extractKeywords_ShouldKeepLegalCompoundsAsPhrasesAndDropStopPhrases() {
+        // When
+        List<String> keywords = tokenizer.extractKeywords(
+                "Người lao động đơn phương chấm dứt hợp đồng lao động thì được trợ cấp thôi việc như thế nào?");
+
+        // Then
+        assertEquals(List.of("người lao động", "đơn phương chấm dứt hợp đồng", "lao động", "trợ cấp thôi việc"),
+                keywords);
+    }
+
+    @Test
+    void extractKeywords_ShouldRecognizeCompoundsTypedWithoutDiacritics() {
+        // When
+        List<String> keywords = tokenizer.extractKeywords("Phat tu bao nhieu nam khi trom cap tai san?");
+
+        // Then
+        assertEquals(List.of("phat tu", "trom cap tai san"), keywords);
+        assertEquals("hop dong lao dong", String.join(" ", VietnameseTokenizer.foldedSyllables("Hợp ĐỒNG lao-động")));
+    }
+}